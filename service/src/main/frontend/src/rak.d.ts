@@ -73,6 +73,19 @@ export interface NanoBretSearchFilter {
     ic50: number;
 }
 
+export interface Network {
+    compounds: string[];
+    kinases: Kinase[];
+    edges: NetworkEdge[];
+}
+
+export interface NetworkEdge {
+    compound: number; // Index into Network.compounds
+    kinase: number; // Index into Network.kinases
+    percentControl?: number;
+    kd?: number;
+}
+
 export interface ObjectImportRep {
     fieldStatuses: FieldStatus[][];
 }
@@ -82,6 +95,8 @@ export interface PagedDataRep<T> {
     start: number;
     count: number;
     total: number;
+    next?: string;
+    hasNext?: boolean;
 }
 
 export interface Partner {
@@ -1,4 +1,4 @@
-import axios, { AxiosError, AxiosInstance, AxiosPromise, AxiosRequestConfig, AxiosResponse } from 'axios';
+import axios, { AxiosError, AxiosInstance, AxiosRequestConfig, AxiosResponse } from 'axios';
 import {
     ActivityProfile,
     Audit,
@@ -6,6 +6,7 @@ import {
     Compound,
     ErrorResponse,
     Feedback,
+    Network,
     ObjectImportRep,
     PagedDataRep,
     Partner,
@@ -90,10 +91,16 @@ export class RestApi {
         rakUtil.programmaticallyClickLink(url);
     }
 
-    getActivityProfiles(page: number, size: number, filters: any = {},
-                        sortParam: string | null = null): Promise<PagedDataRep<ActivityProfile>> {
+    /**
+     * Returns a page of activity profiles.
+     *
+     * @param total How to compute the total: 'exact' counts it for every page, 'cached' counts it once per set of
+     *        filters, and 'none' doesn't count it, returning a total of -1 and whether there's a next page instead.
+     */
+    getActivityProfiles(page: number, size: number, filters: any = {}, sortParam: string | null = null,
+                        total: 'exact' | 'cached' | 'none' = 'exact'): Promise<PagedDataRep<ActivityProfile>> {
 
-        let url: string = `api/activityProfiles?page=${page}&size=${size}`;
+        let url: string = `api/activityProfiles?page=${page}&size=${size}&total=${total}`;
         if (filters.inhibitor) {
             url += `&compound=${filters.inhibitor}`;
         }
@@ -113,32 +120,6 @@ export class RestApi {
             });
     }
 
-    getAllActivityProfiles(compoundNames: string[], filters: any = {}): Promise<ActivityProfile[]> {
-
-        const max: number = 100;
-        const promises: AxiosPromise[] = [];
-
-        compoundNames.forEach((compoundName: string) => {
-            let url: string = `api/activityProfiles?size=${max}&compound=${compoundName}`;
-            if (filters.activity) {
-                url += `&activity=${filters.activity}`;
-            }
-            promises.push(axios.get(url));
-        });
-
-        return axios.all(promises)
-            .then((response: AxiosResponse<PagedDataRep<ActivityProfile>>[]) => {
-                const allActivityProfiles: ActivityProfile[] = response[0].data.data;
-                for (let i: number = 1; i < response.length; i++) {
-                    allActivityProfiles.push.apply(allActivityProfiles, response[i].data.data);
-                }
-                return allActivityProfiles;
-            })
-            .catch((error: AxiosError) => {
-                throw RestApi.axiosErrorToErrorResponse(error);
-            });
-    }
-
     getAuditRecords(page: number, size: number, filters: any, sortParam: string): Promise<PagedDataRep<Audit>> {
 
         let url: string = `admin/api/audits?page=${page}&size=${size}`;
@@ -207,7 +188,8 @@ export class RestApi {
 
     getCompounds(page: number, size: number, filters: SearchFilter): Promise<PagedDataRep<Compound>> {
 
-        let url: string = `api/compounds?page=${page}&size=${size}`;
+        // The total is only counted once per search, not for every page
+        let url: string = `api/compounds?page=${page}&size=${size}&total=cached`;
         if (filters.inhibitor) {
             url += `&compound=${filters.inhibitor}`;
         }
@@ -245,6 +227,25 @@ export class RestApi {
             });
     }
 
+    getNetwork(compoundNames: string[], filters: any = {}): Promise<Network> {
+
+        const params: URLSearchParams = new URLSearchParams();
+        compoundNames.forEach((compoundName: string) => {
+            params.append('compound', compoundName);
+        });
+        if (filters.activity) {
+            params.append('activity', filters.activity);
+        }
+
+        return axios.get(`api/activityProfiles/network?${params.toString()}`)
+            .then((response: AxiosResponse<Network>) => {
+                return response.data;
+            })
+            .catch((error: AxiosError) => {
+                throw RestApi.axiosErrorToErrorResponse(error);
+            });
+    }
+
     getPartners(): Promise<PagedDataRep<Partner>> {
         return this.instance.get('api/partners?page=0&size=1000')
             .then((response: AxiosResponse<PagedDataRep<Partner>>) => {
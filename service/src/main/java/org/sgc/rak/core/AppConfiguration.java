@@ -2,24 +2,32 @@ package org.sgc.rak.core;
 
 import com.fasterxml.jackson.dataformat.csv.CsvMapper;
 import org.sgc.rak.dao.ActivityProfileDao;
+import org.sgc.rak.dao.BulkImportDao;
 import org.sgc.rak.dao.CompoundDao;
+import org.sgc.rak.dao.KeysetDao;
 import org.sgc.rak.dao.KinaseDao;
 import org.sgc.rak.dao.NanoBretActivityProfileDao;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.repositories.ActivityProfileRepository;
 import org.sgc.rak.repositories.NanoBretActivityProfileRepository;
 import org.sgc.rak.rest.CsvHttpMessageConverter;
+import org.sgc.rak.rest.DatasetETagInterceptor;
 import org.sgc.rak.util.ImageTranscoder;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.convert.ApplicationConversionService;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.core.env.Environment;
 import org.springframework.data.web.config.EnableSpringDataWebSupport;
 import org.springframework.format.FormatterRegistry;
 import org.springframework.http.MediaType;
 import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 import java.util.List;
@@ -32,9 +40,24 @@ import java.util.List;
 @EnableSpringDataWebSupport
 public class AppConfiguration implements WebMvcConfigurer {
 
+    private final DatasetETagInterceptor datasetETagInterceptor;
+
+    /**
+     * The default number of statements sent to the database in a single JDBC batch when saving imported data.
+     */
+    private static final int DEFAULT_IMPORT_BATCH_SIZE = 500;
+
+    @Autowired
+    public AppConfiguration(DatasetETagInterceptor datasetETagInterceptor) {
+        this.datasetETagInterceptor = datasetETagInterceptor;
+    }
+
     @Bean
-    public ActivityProfileDao activityProfileDao(ActivityProfileRepository activityProfileRepository) {
-        return new ActivityProfileDao(activityProfileRepository);
+    public ActivityProfileDao activityProfileDao(ActivityProfileRepository activityProfileRepository,
+                                                 KeysetDao keysetDao, JdbcTemplate jdbcTemplate,
+                                                 Environment environment) {
+        return new ActivityProfileDao(activityProfileRepository, keysetDao, jdbcTemplate,
+            getImportBatchSize(environment));
     }
 
     /**
@@ -48,6 +71,24 @@ public class AppConfiguration implements WebMvcConfigurer {
         ApplicationConversionService.configure(registry);
     }
 
+    /**
+     * Lets callers skip downloading compound and activity profile data they already have.  Compound images are
+     * excluded since they set their own cache headers.
+     *
+     * @param registry The interceptor registry.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(datasetETagInterceptor)
+            .addPathPatterns("/api/compounds/**", "/api/activityProfiles/**", "/api/nanoBretActivityProfiles/**")
+            .excludePathPatterns("/api/compounds/images/**");
+    }
+
+    @Bean
+    public BulkImportDao bulkImportDao(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        return new BulkImportDao(jdbcTemplate, transactionManager);
+    }
+
     @Bean
     public CompoundDao compoundDao() {
         return new CompoundDao();
@@ -68,11 +109,20 @@ public class AppConfiguration implements WebMvcConfigurer {
         converters.add(CsvHttpMessageConverter.csv(new CsvMapper()));
     }
 
+    private static int getImportBatchSize(Environment environment) {
+        return environment.getProperty("rak.import.batch-size", Integer.class, DEFAULT_IMPORT_BATCH_SIZE);
+    }
+
     @Bean
     public ImageTranscoder imageTranscoder() {
         return new ImageTranscoder();
     }
 
+    @Bean
+    public KeysetDao keysetDao() {
+        return new KeysetDao();
+    }
+
     @Bean
     public KinaseDao kinaseDao() {
         return new KinaseDao();
@@ -86,7 +136,8 @@ public class AppConfiguration implements WebMvcConfigurer {
     }
 
     @Bean
-    public NanoBretActivityProfileDao nanoBretActivityProfileDao(NanoBretActivityProfileRepository repository) {
-        return new NanoBretActivityProfileDao(repository);
+    public NanoBretActivityProfileDao nanoBretActivityProfileDao(NanoBretActivityProfileRepository repository,
+                                                                 JdbcTemplate jdbcTemplate, Environment environment) {
+        return new NanoBretActivityProfileDao(repository, jdbcTemplate, getImportBatchSize(environment));
     }
 }
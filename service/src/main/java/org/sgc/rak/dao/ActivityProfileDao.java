@@ -2,12 +2,23 @@ package org.sgc.rak.dao;
 
 import org.sgc.rak.model.ActivityProfile;
 import org.sgc.rak.repositories.ActivityProfileRepository;
+import org.sgc.rak.util.ContinuationToken;
+import org.sgc.rak.util.KeysetQuery;
+import org.sgc.rak.util.Util;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
 
+import static org.sgc.rak.util.QuerySpecifications.activityProfilesForCompounds;
 import static org.sgc.rak.util.QuerySpecifications.activityProfilesMatching;
 
 /**
@@ -15,15 +26,73 @@ import static org.sgc.rak.util.QuerySpecifications.activityProfilesMatching;
  */
 public class ActivityProfileDao {
 
+    /**
+     * The maximum number of values passed in a single {@code IN} clause when bulk-fetching activity profiles.
+     */
+    static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    private static final Sort COMPOUND_PROFILE_SORT = Sort.by("kd", "percentControl");
+
+    /**
+     * The order activity profiles are keyset-paged through.  This is the REST API's default order, with IDs
+     * breaking ties.
+     */
+    static final KeysetQuery<ActivityProfile> KEYSET = new KeysetQuery<>(ActivityProfile.class, "kinase")
+        .orderBy("kd", Sort.Direction.ASC, true, ActivityProfile::getKd)
+        .orderBy("percentControl", Sort.Direction.ASC, true, ActivityProfile::getPercentControl)
+        .orderBy("id", Sort.Direction.ASC, false, ActivityProfile::getId);
+
+    private static final String ACTIVITY_VALUES_SQL = "select compound_nm, kinase, percent_control, kd " +
+        "from kinase_activity_profile";
+
+    private static final String INSERT_SQL = "insert into kinase_activity_profile " +
+        "(compound_nm, kinase, percent_control, compound_concentration, kd) values (?, ?, ?, ?, ?)";
+    private static final int[] INSERT_ARG_TYPES = { Types.VARCHAR, Types.BIGINT, Types.DOUBLE, Types.INTEGER,
+        Types.DOUBLE };
+
+    private static final String UPDATE_SQL = "update kinase_activity_profile " +
+        "set percent_control = ?, compound_concentration = ?, kd = ? where id = ?";
+    private static final int[] UPDATE_ARG_TYPES = { Types.DOUBLE, Types.INTEGER, Types.DOUBLE, Types.BIGINT };
+
     private final ActivityProfileRepository activityProfileRepository;
+    private final KeysetDao keysetDao;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
 
+    /**
+     * Constructor.
+     *
+     * @param repository The repository used for queries.
+     * @param keysetDao Used to keyset-page through activity profiles.
+     * @param jdbcTemplate Used to write activity profiles in JDBC batches.
+     * @param batchSize The maximum number of statements sent to the database in a single JDBC batch.
+     */
     @Autowired
-    public ActivityProfileDao(ActivityProfileRepository repository) {
+    public ActivityProfileDao(ActivityProfileRepository repository, KeysetDao keysetDao, JdbcTemplate jdbcTemplate,
+                              int batchSize) {
         this.activityProfileRepository = repository;
+        this.keysetDao = keysetDao;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Streams the compound, kinase and values of every kinase activity profile to a handler.  Rows are read
+     * straight from the result set rather than loaded as entities, so this is suitable for building in-memory
+     * structures over all activity profiles.
+     *
+     * @param handler The callback for each activity profile.
+     */
+    public void forEachActivityValue(ActivityValueHandler handler) {
+        jdbcTemplate.query(ACTIVITY_VALUES_SQL, (RowCallbackHandler)rs -> handler.handle(rs.getString("compound_nm"),
+            rs.getLong("kinase"), getDouble(rs, "percent_control"), getDouble(rs, "kd")));
     }
 
     /**
-     * Fetches all kinase activity profiles that match one of a number of compound name/entrez pairs.
+     * Fetches all kinase activity profiles that match one of a number of compound name/discoverx pairs.
+     * Rather than querying for each pair individually, profiles are fetched for batches of distinct compound
+     * names and discoverx gene symbols, and any that don't match a requested pair are discarded.  For typical
+     * imports (a set of compounds screened against a kinase panel) this is a single query.
      *
      * @param compoundNames The compound names to check for.  This should be the same length as {@code discoverxes}.
      * @param discoverxes The discoverx gene symbols to check for.  This should be the same length as
@@ -36,21 +105,62 @@ public class ActivityProfileDao {
             throw new IllegalStateException("List of compound names and discoverx gene symbols aren't the same length");
         }
 
+        Set<List<String>> keys = new HashSet<>();
+        for (int i = 0; i < compoundNames.size(); i++) {
+            keys.add(Arrays.asList(compoundNames.get(i), discoverxes.get(i)));
+        }
+
         Set<ActivityProfile> profiles = new HashSet<>();
 
-        for (int i = 0; i < compoundNames.size(); i++) {
+        for (List<String> compoundBatch : Util.partition(new LinkedHashSet<>(compoundNames), MAX_IN_CLAUSE_SIZE)) {
+            for (List<String> discoverxBatch : Util.partition(new LinkedHashSet<>(discoverxes), MAX_IN_CLAUSE_SIZE)) {
+                activityProfileRepository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(compoundBatch,
+                        discoverxBatch).stream()
+                    .filter(profile -> keys.contains(Arrays.asList(profile.getCompoundName(),
+                        profile.getKinase().getDiscoverxGeneSymbol())))
+                    .forEach(profiles::add);
+            }
+        }
+
+        return profiles;
+    }
+
+    /**
+     * Returns all kinase activity profiles for a set of compounds, grouped by compound.  Profiles are fetched for
+     * batches of compound names, so typically this is a single query regardless of the number of compounds.
+     *
+     * @param compoundNames The names of the compounds.  These must match exactly.
+     * @param kinaseIds The kinases involved in the activity profiles.  This may be {@code null} to not limit
+     *        the search to particular kinases.
+     * @param percentControl The value that the percent control of the activity profiles must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param kd The value that the Kd of the activity profiles must be less than or equal to.  This may be
+     *        {@code null} to not restrict by Kd.
+     * @return The activity profiles, keyed by compound name, in the order the compounds were specified.  Every
+     *         compound has an entry, even if no profiles match.  Each compound's profiles are sorted by Kd and then
+     *         percent control.
+     */
+    public Map<String, List<ActivityProfile>> getActivityProfilesByCompound(Collection<String> compoundNames,
+                                                                           List<Long> kinaseIds,
+                                                                           Double percentControl, Double kd) {
 
-            String compoundName = compoundNames.get(i);
-            String discoverx = discoverxes.get(i);
+        Map<String, List<ActivityProfile>> profiles = new LinkedHashMap<>();
+        compoundNames.forEach(compoundName -> profiles.put(compoundName, new ArrayList<>()));
 
-            Optional<ActivityProfile> possibleProfile = activityProfileRepository
-                .findByCompoundNameAndKinaseDiscoverxGeneSymbol(compoundName, discoverx);
-            possibleProfile.ifPresent(profiles::add);
+        for (List<String> batch : Util.partition(profiles.keySet(), MAX_IN_CLAUSE_SIZE)) {
+            activityProfileRepository.findAll(activityProfilesForCompounds(batch, kinaseIds, percentControl, kd),
+                    COMPOUND_PROFILE_SORT)
+                .forEach(profile -> profiles.get(profile.getCompoundName()).add(profile));
         }
 
         return profiles;
     }
 
+    private static Double getDouble(ResultSet rs, String column) throws SQLException {
+        double value = rs.getDouble(column);
+        return rs.wasNull() ? null : value;
+    }
+
     /**
      * Returns kinase activity profiles for a given compound/inhibitor, kinase and activity.
      *
@@ -70,11 +180,112 @@ public class ActivityProfileDao {
     }
 
     /**
-     * Saves a collection of activity profiles.
+     * Returns kinase activity profiles for a given compound/inhibitor, kinase and activity, without counting the
+     * total.  One more activity profile than the page size is fetched to tell whether there is a next page.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the returned
+     *        list should not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param pageInfo How to sort the data and what page of the data to return.
+     * @return The list of kinase activity profiles.
+     * @see #countActivityProfiles(String, List, Double)
+     */
+    public Slice<ActivityProfile> getActivityProfileSlice(String compoundName, List<Long> kinaseIds,
+                                                          Double percentControl, Pageable pageInfo) {
+        return keysetDao.getSlice(KEYSET, activityProfilesMatching(compoundName, kinaseIds, percentControl),
+            pageInfo);
+    }
+
+    /**
+     * Returns the number of kinase activity profiles for a given compound/inhibitor, kinase and activity.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the count should
+     *        not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the count to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @return The number of kinase activity profiles.
+     */
+    public long countActivityProfiles(String compoundName, List<Long> kinaseIds, Double percentControl) {
+        return activityProfileRepository.count(activityProfilesMatching(compoundName, kinaseIds, percentControl));
+    }
+
+    /**
+     * Returns a page of kinase activity profiles for a given compound/inhibitor, kinase and activity, by keyset
+     * paging.  Only the default order, by Kd and then percent control, is supported.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the returned
+     *        list should not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param pageInfo How to sort the data, and the page size.  The page number is ignored.
+     * @return The page of kinase activity profiles.
+     * @throws IllegalArgumentException If the sort isn't supported, or {@code after} doesn't match it.
+     */
+    public KeysetSlice<ActivityProfile> getActivityProfiles(String compoundName, List<Long> kinaseIds,
+                                                            Double percentControl, ContinuationToken after,
+                                                            Pageable pageInfo) {
+
+        if (!KEYSET.isSortedBy(pageInfo.getSort())) {
+            throw new IllegalArgumentException("Unsupported sort for keyset paging: " + pageInfo.getSort());
+        }
+
+        return keysetDao.getSlice(KEYSET, activityProfilesMatching(compoundName, kinaseIds, percentControl), after,
+            pageInfo.getPageSize());
+    }
+
+    /**
+     * Saves a collection of activity profiles.  Since activity profiles use identity columns, Hibernate can't
+     * batch their inserts, so new profiles are inserted, and existing profiles updated, via JDBC batches instead.
+     * Note that this means any new profiles will not have their IDs populated.
      *
      * @param activityProfiles The activity profiles to save.
      */
     public void save(Iterable<ActivityProfile> activityProfiles) {
-        activityProfileRepository.saveAll(activityProfiles);
+
+        List<Object[]> inserts = new ArrayList<>();
+        List<Object[]> updates = new ArrayList<>();
+
+        for (ActivityProfile profile : activityProfiles) {
+            if (profile.getId() == null) {
+                inserts.add(new Object[] { profile.getCompoundName(), profile.getKinase().getId(),
+                    profile.getPercentControl(), profile.getCompoundConcentration(), profile.getKd() });
+            }
+            else {
+                updates.add(new Object[] { profile.getPercentControl(), profile.getCompoundConcentration(),
+                    profile.getKd(), profile.getId() });
+            }
+        }
+
+        for (List<Object[]> batch : Util.partition(inserts, batchSize)) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, INSERT_ARG_TYPES);
+        }
+        for (List<Object[]> batch : Util.partition(updates, batchSize)) {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch, UPDATE_ARG_TYPES);
+        }
+    }
+
+    /**
+     * Receives the values of an activity profile.
+     */
+    @FunctionalInterface
+    public interface ActivityValueHandler {
+
+        /**
+         * Called for an activity profile.
+         *
+         * @param compoundName The name of the compound.
+         * @param kinaseId The ID of the kinase.
+         * @param percentControl The percent control, or {@code null} if unknown.
+         * @param kd The Kd, or {@code null} if unknown.
+         */
+        void handle(String compoundName, long kinaseId, Double percentControl, Double kd);
     }
 }
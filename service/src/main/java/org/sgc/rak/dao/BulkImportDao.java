@@ -0,0 +1,333 @@
+package org.sgc.rak.dao;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
+import org.sgc.rak.model.csv.KdCsvRecord;
+import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
+import org.sgc.rak.util.Util;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.function.Function;
+
+/**
+ * DAO for importing large amounts of activity profile data with set-based SQL rather than per-entity writes.
+ * Records are streamed into a temporary staging table with PostgreSQL's {@code COPY}, validated and counted
+ * there, and then merged into the real table with a single statement.  Since this relies on {@code COPY}, it is
+ * only supported when running against PostgreSQL; see {@link #isSupported()}.
+ */
+public class BulkImportDao {
+
+    /**
+     * The number of characters of CSV data buffered before being sent to the database during a {@code COPY}.
+     */
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private Boolean supported;
+
+    /**
+     * Constructor.
+     *
+     * @param jdbcTemplate Used to run the staging and merge SQL.
+     * @param transactionManager Used to run each import in a single transaction.
+     */
+    public BulkImportDao(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    private static void appendRow(StringBuilder sb, long lineNumber, Object[] row) {
+
+        sb.append(lineNumber);
+
+        for (Object value : row) {
+            sb.append(',');
+            if (value instanceof String) {
+                sb.append('"').append(((String)value).replace("\"", "\"\"")).append('"');
+            }
+            else if (value instanceof Enum) {
+                sb.append(((Enum<?>)value).name());
+            }
+            else if (value != null) {
+                sb.append(value);
+            }
+        }
+
+        sb.append('\n');
+    }
+
+    private static <T> long copyIn(Connection conn, StagingTable table, Iterator<T> records,
+                                   Function<T, Object[]> toRow) throws SQLException {
+
+        CopyIn copyIn = conn.unwrap(PGConnection.class).getCopyAPI().copyIn(table.copySql);
+
+        try {
+
+            StringBuilder sb = new StringBuilder();
+            long lineNumber = 0;
+
+            while (records.hasNext()) {
+                appendRow(sb, ++lineNumber, toRow.apply(records.next()));
+                if (sb.length() >= COPY_BUFFER_SIZE) {
+                    writeToCopy(copyIn, sb);
+                }
+            }
+
+            writeToCopy(copyIn, sb);
+            return copyIn.endCopy();
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static String formatDate(Date date) {
+        SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        return format.format(date);
+    }
+
+    /**
+     * Upserts activity profiles.  New profiles are added, existing ones have their non-{@code null} values
+     * merged in.
+     *
+     * @param records The activity profiles to upsert.  These are consumed as they are sent to the database.
+     * @param commit Whether to actually commit the merge, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public BulkImportResult importActivityProfiles(Iterator<ActivityProfileCsvRecord> records, boolean commit) {
+        return importRecords(StagingTable.ACTIVITY_PROFILE, records, record -> {
+            Util.convertEmptyStringsToNulls(record);
+            return new Object[] { record.getCompoundName(), record.getDiscoverxGeneSymbol(),
+                record.getPercentControl(), record.getCompoundConcentration(), null };
+        }, commit);
+    }
+
+    /**
+     * Upserts Kd values into activity profiles.  New profiles are added, existing ones have their non-{@code null}
+     * Kd values merged in.
+     *
+     * @param records The Kd values to upsert.  These are consumed as they are sent to the database.
+     * @param commit Whether to actually commit the merge, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public BulkImportResult importKdValues(Iterator<KdCsvRecord> records, boolean commit) {
+        return importRecords(StagingTable.ACTIVITY_PROFILE, records, record -> {
+            Util.convertEmptyStringsToNulls(record);
+            return new Object[] { record.getCompoundName(), record.getDiscoverxGeneSymbol(), null, null,
+                record.getKd() };
+        }, commit);
+    }
+
+    /**
+     * Upserts NanoBRET activity profiles.  New profiles are added.  As with the entity, no columns of an existing
+     * NanoBRET activity profile are updatable, so existing profiles are only counted.
+     *
+     * @param records The NanoBRET activity profiles to upsert.  These are consumed as they are sent to the database.
+     * @param commit Whether to actually commit the merge, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public BulkImportResult importNanoBretActivityProfiles(Iterator<NanoBretActivityProfileCsvRecord> records,
+                                                           boolean commit) {
+        return importRecords(StagingTable.NANOBRET_ACTIVITY_PROFILE, records, record -> {
+            Util.convertEmptyStringsToNulls(record);
+            String date = record.getDate() == null ? null :
+                formatDate(Util.nanoBretCsvDateToRealDate(record.getDate()));
+            return new Object[] { record.getCompoundName(), record.getDiscoverxGeneSymbol(),
+                record.getNlucOrientation(), record.getModifier(), record.getIc50(), record.getPercentInhibition(),
+                record.getCompoundConcentration(), record.getPoints(), record.getComment(), date };
+        }, commit);
+    }
+
+    private <T> BulkImportResult importRecords(StagingTable table, Iterator<T> records, Function<T, Object[]> toRow,
+                                               boolean commit) {
+
+        return transactionTemplate.execute(status -> {
+
+            jdbcTemplate.execute(table.createSql);
+            jdbcTemplate.execute((ConnectionCallback<Long>)conn -> copyIn(conn, table, records, toRow));
+
+            BulkImportResult result = new BulkImportResult();
+
+            List<String> unknownCompounds = jdbcTemplate.queryForList(table.unknownCompoundSql, String.class);
+            if (!unknownCompounds.isEmpty()) {
+                result.setUnknownCompoundName(unknownCompounds.get(0));
+                status.setRollbackOnly();
+                return result;
+            }
+
+            jdbcTemplate.update(table.resolveKinaseSql);
+            List<String> unknownKinases = jdbcTemplate.queryForList(table.unknownKinaseSql, String.class);
+            if (!unknownKinases.isEmpty()) {
+                result.setUnknownDiscoverx(unknownKinases.get(0));
+                status.setRollbackOnly();
+                return result;
+            }
+
+            jdbcTemplate.update(table.dedupeSql);
+
+            Map<String, Object> counts = jdbcTemplate.queryForMap(table.countSql);
+            long total = ((Number)counts.get("total_count")).longValue();
+            result.setNewCount(((Number)counts.get("new_count")).longValue());
+            result.setUnchangedCount(((Number)counts.get("unchanged_count")).longValue());
+            result.setModifiedCount(total - result.getNewCount() - result.getUnchangedCount());
+
+            if (commit) {
+                jdbcTemplate.update(table.mergeSql);
+            }
+            else {
+                status.setRollbackOnly();
+            }
+
+            return result;
+        });
+    }
+
+    /**
+     * Returns whether bulk imports are supported by the database, i.e. whether it is PostgreSQL.
+     *
+     * @return Whether bulk imports are supported.
+     */
+    public synchronized boolean isSupported() {
+        if (supported == null) {
+            supported = Boolean.TRUE.equals(jdbcTemplate.execute(
+                (ConnectionCallback<Boolean>)conn -> conn.isWrapperFor(PGConnection.class)));
+        }
+        return supported;
+    }
+
+    private static void writeToCopy(CopyIn copyIn, StringBuilder sb) throws SQLException {
+        if (sb.length() > 0) {
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            sb.setLength(0);
+        }
+    }
+
+    /**
+     * The SQL used to stage, validate, count and merge each type of imported data.  Staging tables are temporary,
+     * so they aren't WAL-logged, are private to the importing session, and are dropped when the import's
+     * transaction ends.  Each staged row keeps its line number so that errors are reported for the first offending
+     * line, and so that the last of any duplicate rows wins, as it would if the rows were saved one at a time.
+     */
+    private enum StagingTable {
+
+        ACTIVITY_PROFILE(
+            "import_activity_profile",
+            "compound_nm text, discoverx text, kinase integer, percent_control numeric, " +
+                "compound_concentration integer, kd numeric",
+            "compound_nm, discoverx, percent_control, compound_concentration, kd",
+            "kinase_activity_profile",
+            "p.compound_nm = s.compound_nm and p.kinase = s.kinase",
+            "(s.percent_control is null or s.percent_control is not distinct from p.percent_control) and " +
+                "(s.compound_concentration is null or " +
+                "s.compound_concentration is not distinct from p.compound_concentration) and " +
+                "(s.kd is null or s.kd is not distinct from p.kd)",
+            "with updated as (\n" +
+            "   update kinase_activity_profile p\n" +
+            "      set percent_control = coalesce(s.percent_control, p.percent_control),\n" +
+            "         compound_concentration = coalesce(s.compound_concentration, p.compound_concentration),\n" +
+            "         kd = coalesce(s.kd, p.kd)\n" +
+            "      from import_activity_profile s\n" +
+            "      where p.compound_nm = s.compound_nm and p.kinase = s.kinase\n" +
+            "         and not (%s)\n" +
+            "      returning p.id\n" +
+            ")\n" +
+            "insert into kinase_activity_profile (compound_nm, kinase, percent_control, compound_concentration, kd)\n" +
+            "   select s.compound_nm, s.kinase, s.percent_control, s.compound_concentration, s.kd\n" +
+            "      from import_activity_profile s\n" +
+            "      where %2$s"
+        ),
+
+        NANOBRET_ACTIVITY_PROFILE(
+            "import_nanobret_activity_profile",
+            "compound_nm text, discoverx text, kinase integer, nluc_orientation text, modifier text, " +
+                "ic50 numeric, percent_inhibition numeric, concentration integer, points integer, comment text, " +
+                "run_date date",
+            "compound_nm, discoverx, nluc_orientation, modifier, ic50, percent_inhibition, concentration, points, " +
+                "comment, run_date",
+            "nanobret_activity_profile",
+            "p.compound_nm = s.compound_nm and p.kinase = s.kinase and p.run_date = s.run_date",
+            "(s.nluc_orientation is null or s.nluc_orientation is not distinct from p.nluc_orientation) and " +
+                "(s.modifier is null or s.modifier is not distinct from p.modifier) and " +
+                "(s.ic50 is null or s.ic50 is not distinct from p.ic50) and " +
+                "(s.percent_inhibition is null or " +
+                "s.percent_inhibition is not distinct from p.nanobret_percent_inhibition) and " +
+                "(s.concentration is null or s.concentration is not distinct from p.concentration) and " +
+                "(s.points is null or s.points is not distinct from p.points) and " +
+                "(s.comment is null or s.comment is not distinct from p.comment)",
+            // Existing NanoBRET activity profiles aren't updatable, so only new ones are inserted
+            "insert into nanobret_activity_profile (compound_nm, kinase, nluc_orientation, modifier, ic50,\n" +
+            "      nanobret_percent_inhibition, concentration, points, comment, run_date)\n" +
+            "   select s.compound_nm, s.kinase, s.nluc_orientation, s.modifier, s.ic50, s.percent_inhibition,\n" +
+            "         s.concentration, s.points, s.comment, s.run_date\n" +
+            "      from import_nanobret_activity_profile s\n" +
+            "      where %2$s\n" +
+            "   on conflict (compound_nm, kinase, run_date) do nothing"
+        );
+
+        private final String createSql;
+        private final String copySql;
+        private final String unknownCompoundSql;
+        private final String resolveKinaseSql;
+        private final String unknownKinaseSql;
+        private final String dedupeSql;
+        private final String countSql;
+        private final String mergeSql;
+
+        /**
+         * Constructor.
+         *
+         * @param name The name of the staging table.
+         * @param columns The column definitions of the staging table, other than its line number.
+         * @param copyColumns The columns populated from the imported records, in order.
+         * @param target The table merged into.
+         * @param matchCondition Matches a staged row {@code s} to an existing row {@code p}.
+         * @param unchangedCondition Whether merging a staged row {@code s} into {@code p} would change nothing.
+         * @param mergeSql A format string for the merge statement.  The first argument is
+         *        {@code unchangedCondition}; the second is a condition for staged rows that match no existing row.
+         */
+        StagingTable(String name, String columns, String copyColumns, String target, String matchCondition,
+                     String unchangedCondition, String mergeSql) {
+
+            createSql = "create temporary table " + name + " (line_no bigint, " + columns + ") on commit drop";
+            copySql = "copy " + name + " (line_no, " + copyColumns + ") from stdin with (format csv)";
+
+            unknownCompoundSql = "select coalesce(s.compound_nm, '') from " + name + " s\n" +
+                "   where not exists (select 1 from compound c where c.compound_nm = s.compound_nm)\n" +
+                "   order by s.line_no limit 1";
+            resolveKinaseSql = "update " + name + " s set kinase = k.id from kinase k\n" +
+                "   where lower(k.discoverx_gene_symbol) = lower(s.discoverx)";
+            unknownKinaseSql = "select coalesce(s.discoverx, '') from " + name + " s where s.kinase is null\n" +
+                "   order by s.line_no limit 1";
+            dedupeSql = "delete from " + name + " s using " + name + " t\n" +
+                "   where " + matchCondition.replace("p.", "t.") + " and t.line_no > s.line_no";
+
+            countSql = "select count(*) as total_count,\n" +
+                "      count(*) filter (where p.id is null) as new_count,\n" +
+                "      count(*) filter (where p.id is not null and " + unchangedCondition + ") as unchanged_count\n" +
+                "   from " + name + " s left join lateral (\n" +
+                "      select * from " + target + " p where " + matchCondition + " order by p.id limit 1\n" +
+                "   ) p on true";
+
+            String noMatchCondition = "not exists (select 1 from " + target + " p where " + matchCondition + ")";
+            this.mergeSql = String.format(mergeSql, unchangedCondition, noMatchCondition);
+        }
+    }
+}
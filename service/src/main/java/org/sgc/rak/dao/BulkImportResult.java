@@ -0,0 +1,54 @@
+package org.sgc.rak.dao;
+
+/**
+ * The result of a set-based import performed by {@link BulkImportDao}.  If the imported data referenced an
+ * unknown compound or kinase, nothing was merged and the first such reference is returned.
+ */
+public class BulkImportResult {
+
+    private long newCount;
+    private long modifiedCount;
+    private long unchangedCount;
+    private String unknownCompoundName;
+    private String unknownDiscoverx;
+
+    public long getNewCount() {
+        return newCount;
+    }
+
+    public void setNewCount(long newCount) {
+        this.newCount = newCount;
+    }
+
+    public long getModifiedCount() {
+        return modifiedCount;
+    }
+
+    public void setModifiedCount(long modifiedCount) {
+        this.modifiedCount = modifiedCount;
+    }
+
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public void setUnchangedCount(long unchangedCount) {
+        this.unchangedCount = unchangedCount;
+    }
+
+    public String getUnknownCompoundName() {
+        return unknownCompoundName;
+    }
+
+    public void setUnknownCompoundName(String unknownCompoundName) {
+        this.unknownCompoundName = unknownCompoundName;
+    }
+
+    public String getUnknownDiscoverx() {
+        return unknownDiscoverx;
+    }
+
+    public void setUnknownDiscoverx(String unknownDiscoverx) {
+        this.unknownDiscoverx = unknownDiscoverx;
+    }
+}
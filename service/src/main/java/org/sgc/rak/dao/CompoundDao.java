@@ -2,18 +2,32 @@ package org.sgc.rak.dao;
 
 import org.apache.commons.lang3.StringUtils;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.model.CompoundCountPair;
+import org.sgc.rak.model.CompoundSearchCriteria;
 import org.sgc.rak.repositories.CompoundRepository;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.Util;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 
 import javax.persistence.EntityManager;
 import javax.persistence.Query;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.sgc.rak.util.QuerySpecifications.hasNullFields;
@@ -25,6 +39,43 @@ import static org.sgc.rak.util.QuerySpecifications.standardSearch;
  */
 public class CompoundDao {
 
+    /**
+     * The maximum number of values passed in a single {@code IN} clause.
+     */
+    private static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    /**
+     * The compound properties that kinase searches can be sorted by, and whether they are strings (and so can be
+     * sorted ignoring case).
+     */
+    private static final Map<String, Boolean> SORTABLE_PROPERTIES = createSortableProperties();
+
+    /**
+     * The number of kinases a compound is screened against.  Compounds with fewer activity profiles than this are
+     * missing some.
+     */
+    // TODO: kinaseRepository.getAnalyzedKinaseCount();
+    private static final long ANALYZED_KINASE_COUNT = 468;
+
+    // TODO: This Postgres-specific query also checks the count for each compound name.
+    // I don't think this can be converted to jpql, due to an inability
+    // to do an inner select in the join clause (needed to fetch compounds
+    // with activity profile count > 0 but < 468), as well as path-defining
+    // difficulties due to the left join
+    private static final String MISSING_ACTIVITY_PROFILES_SQL = "select compound.compound_nm, COALESCE(count, 0)\n" +
+        "   from compound left join(\n" +
+        "      select compound_nm, count(1) as count\n" +
+        "         from kinase_activity_profile group by kinase_activity_profile.compound_nm\n" +
+        "   ) countTable\n" +
+        "   on compound.compound_nm = countTable.compound_nm\n" +
+        "      where (count is null or count < ?)\n";
+
+    /**
+     * The only order compounds missing activity profiles can be keyset-paged through.  Compound names are unique,
+     * so no tie-breaker is needed.
+     */
+    private static final Sort MISSING_ACTIVITY_PROFILES_KEYSET_SORT = Sort.by("compoundName");
+
     @Autowired
     private CompoundRepository compoundRepository;
 
@@ -34,12 +85,17 @@ public class CompoundDao {
     /**
      * Returns a compound by name.
      *
-     * @param compoundName The compound name.
+     * @param compoundName The compound name.  Case is ignored, though if several compounds' names differ only in
+     *        case, the one matching exactly is preferred.
      * @return The compound, or {@code null} if no such compound is known.
      * @see #getCompoundExists(String)
      */
     public Compound getCompound(String compoundName) {
-        return compoundRepository.findById(compoundName).orElse(null);
+        List<Compound> compounds = compoundRepository.findByCompoundNameIgnoreCase(compoundName);
+        return compounds.stream()
+            .filter(compound -> compound.getCompoundName().equals(compoundName))
+            .findFirst()
+            .orElse(compounds.isEmpty() ? null : compounds.get(0));
     }
 
     /**
@@ -65,10 +121,99 @@ public class CompoundDao {
         return compoundRepository.findAll(standardSearch(compoundNamePart, includeHidden), pageInfo);
     }
 
+    /**
+     * Returns the compounds with a percent control value at or below a threshold against any of a set of kinases,
+     * along with each compound's lowest such value.
+     *
+     * @param kinaseIds The IDs of the kinase records to check, e.g. all records for an entrez gene symbol.
+     * @param activity The maximum percent control value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @see #getCompoundsByKinaseAndKd(Collection, double, Pageable)
+     * @see #getCompoundsByKinaseAndIc50(Collection, double, Pageable)
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndActivity(Collection<Long> kinaseIds, double activity,
+                                                                      Pageable pageInfo) {
+        CompoundSearchCriteria criteria = createKinaseCriteria(kinaseIds);
+        criteria.setMaxPercentControl(activity);
+        return searchCompounds(criteria, pageInfo);
+    }
+
+    /**
+     * Returns the compounds with a NanoBRET IC50 value at or below a threshold against any of a set of kinases,
+     * along with each compound's lowest such value.
+     *
+     * @param kinaseIds The IDs of the kinase records to check, e.g. all records for an entrez gene symbol.
+     * @param ic50 The maximum IC50 value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @see #getCompoundsByKinaseAndActivity(Collection, double, Pageable)
+     * @see #getCompoundsByKinaseAndKd(Collection, double, Pageable)
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndIc50(Collection<Long> kinaseIds, double ic50,
+                                                                  Pageable pageInfo) {
+        CompoundSearchCriteria criteria = createKinaseCriteria(kinaseIds);
+        criteria.setMaxIc50(ic50);
+        return searchCompounds(criteria, pageInfo);
+    }
+
+    /**
+     * Returns the compounds with a Kd value at or below a threshold against any of a set of kinases, along with
+     * each compound's lowest such value.
+     *
+     * @param kinaseIds The IDs of the kinase records to check, e.g. all records for an entrez gene symbol.
+     * @param kd The maximum Kd value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @see #getCompoundsByKinaseAndActivity(Collection, double, Pageable)
+     * @see #getCompoundsByKinaseAndIc50(Collection, double, Pageable)
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndKd(Collection<Long> kinaseIds, double kd,
+                                                                Pageable pageInfo) {
+        CompoundSearchCriteria criteria = createKinaseCriteria(kinaseIds);
+        criteria.setMaxKd(kd);
+        return searchCompounds(criteria, pageInfo);
+    }
+
+    private static CompoundSearchCriteria createKinaseCriteria(Collection<Long> kinaseIds) {
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.addKinase(new ArrayList<>(kinaseIds));
+        criteria.setIncludeHidden(true);
+        return criteria;
+    }
+
     public List<Compound> getCompounds(List<String> compoundNames) {
         return compoundRepository.findByCompoundNameInIgnoreCase(compoundNames);
     }
 
+    /**
+     * Returns the names of all compounds that are, or are not, hidden.
+     *
+     * @param hidden Whether to return the names of hidden compounds (vs. visible ones).
+     * @return The compound names.  This may be empty, but will never be {@code null}.
+     */
+    public List<String> getCompoundNames(boolean hidden) {
+        return compoundRepository.findCompoundNamesByHidden(hidden);
+    }
+
+    /**
+     * Returns which of a collection of compound names are known compounds.
+     *
+     * @param compoundNames The compound names to check for.
+     * @return The names of the compounds that exist.  This may be empty, but will never be {@code null}.
+     * @see #getCompoundExists(String)
+     */
+    public Set<String> getExistingCompoundNames(Collection<String> compoundNames) {
+
+        Set<String> existingNames = new HashSet<>();
+
+        for (List<String> batch : Util.partition(new HashSet<>(compoundNames), MAX_IN_CLAUSE_SIZE)) {
+            existingNames.addAll(compoundRepository.findCompoundNamesIn(batch));
+        }
+
+        return existingNames;
+    }
+
     /**
      * Returns information about compounds that are missing activity profiles.
      *
@@ -77,24 +222,9 @@ public class CompoundDao {
      * @param pageInfo How to sort the data and what page of the data to return.
      * @return The list of compounds.
      */
-    @SuppressWarnings("MagicNumber")
     public Page<CompoundCountPair> getCompoundsMissingActivityProfiles(String compound, Pageable pageInfo) {
 
-        // TODO: kinaseRepository.getAnalyzedKinaseCount();
-        long kinaseCount = 468; //kinaseRepository.count();
-
-        // TODO: This Postgres-specific query also checks the count for each compound name.
-        // I don't think this can be converted to jpql, due to an inability
-        // to do an inner select in the join clause (needed to fetch compounds
-        // with activity profile count > 0 but < 468), as well as path-defining
-        // difficulties due to the left join
-        StringBuilder sb = new StringBuilder("select compound.compound_nm, COALESCE(count, 0)\n" +
-            "   from compound left join(\n" +
-            "      select compound_nm, count(1) as count\n" +
-            "         from kinase_activity_profile group by kinase_activity_profile.compound_nm\n" +
-            "   ) countTable\n" +
-            "   on compound.compound_nm = countTable.compound_nm\n" +
-            "      where (count is null or count < ?)\n");
+        StringBuilder sb = new StringBuilder(MISSING_ACTIVITY_PROFILES_SQL);
 
         if (StringUtils.isNotBlank(compound)) {
             sb.append("      and upper(compound.compound_nm) like upper(?)\n");
@@ -108,7 +238,7 @@ public class CompoundDao {
         String sql = sb.toString();
 
         Query query = entityManager.createNativeQuery(sql);
-        query.setParameter(1, kinaseCount);
+        query.setParameter(1, ANALYZED_KINASE_COUNT);
 
         int index = 2;
         if (StringUtils.isNotBlank(compound)) {
@@ -137,7 +267,7 @@ public class CompoundDao {
         }
 
         query = entityManager.createNativeQuery(sql);
-        query.setParameter(1, kinaseCount);
+        query.setParameter(1, ANALYZED_KINASE_COUNT);
 
         if (StringUtils.isNotBlank(compound)) {
             query.setParameter(2, '%' + Util.escapeForLike(compound) + '%');
@@ -148,6 +278,70 @@ public class CompoundDao {
         return new PageImpl<>(compoundCountPairs, pageInfo, total);
     }
 
+    /**
+     * Returns a page of compounds that are missing activity profiles, by keyset paging.  Rather than skipping the
+     * compounds before the page, the page starts after the last compound name already returned, and the total
+     * isn't counted.  Only sorting by compound name is supported.
+     *
+     * @param compound A part of a compound name.  If specified, only compounds
+     *        whose name contains this substring (ignoring case) will be returned.
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param pageInfo How to sort the data, and the page size.  The page number is ignored.
+     * @return The page of compounds.
+     * @throws IllegalArgumentException If the sort isn't supported, or {@code after} doesn't match it.
+     */
+    public KeysetSlice<CompoundCountPair> getCompoundsMissingActivityProfiles(String compound,
+                                                                              ContinuationToken after,
+                                                                              Pageable pageInfo) {
+
+        if (!MISSING_ACTIVITY_PROFILES_KEYSET_SORT.equals(pageInfo.getSort())) {
+            throw new IllegalArgumentException("Unsupported sort for keyset paging: " + pageInfo.getSort());
+        }
+        if (after != null && (after.getKey().size() != 1 || !(after.getKey().get(0) instanceof String))) {
+            throw new IllegalArgumentException("Continuation token does not match the sort order: " +
+                after.getKey());
+        }
+
+        StringBuilder sb = new StringBuilder(MISSING_ACTIVITY_PROFILES_SQL);
+        if (StringUtils.isNotBlank(compound)) {
+            sb.append("      and upper(compound.compound_nm) like upper(?)\n");
+        }
+        if (after != null) {
+            sb.append("      and compound.compound_nm > ?\n");
+        }
+        sb.append("   order by compound.compound_nm\n      limit ?");
+
+        Query query = entityManager.createNativeQuery(sb.toString());
+        query.setParameter(1, ANALYZED_KINASE_COUNT);
+
+        int index = 2;
+        if (StringUtils.isNotBlank(compound)) {
+            query.setParameter(index++, '%' + Util.escapeForLike(compound) + '%');
+        }
+        if (after != null) {
+            query.setParameter(index++, after.getKey().get(0));
+        }
+        // Fetch one extra row to tell whether there's a next page, rather than counting
+        int size = pageInfo.getPageSize();
+        query.setParameter(index, size + 1);
+
+        @SuppressWarnings("unchecked")
+        List<Object[]> objResult = query.getResultList();
+
+        List<CompoundCountPair> compoundCountPairs = objResult.stream()
+            .limit(size)
+            .map(obj -> new CompoundCountPair(obj[0].toString(), ((Number)obj[1]).intValue()))
+            .collect(Collectors.toList());
+
+        long start = after == null ? 0 : after.getStart();
+        ContinuationToken next = null;
+        if (objResult.size() > size) {
+            String lastCompoundName = compoundCountPairs.get(size - 1).getCompoundName();
+            next = new ContinuationToken(start + size, Collections.singletonList(lastCompoundName));
+        }
+        return new KeysetSlice<>(compoundCountPairs, start, next);
+    }
+
     /**
      * Returns information about compounds that are missing publication information.
      *
@@ -160,6 +354,153 @@ public class CompoundDao {
         return compoundRepository.findAll(hasNullFields(compound, "primaryReference", "primaryReferenceUrl"), pageInfo);
     }
 
+    /**
+     * Returns the distinct compounds matching any combination of criteria, in a single query.  Each kinase and
+     * activity threshold adds an {@code exists} subquery, so compounds with several matching activity profiles
+     * are only returned once and pages are always full.  If the search has a single activity threshold and at
+     * most one kinase, each compound's best value is also fetched, by a correlated subquery.  The total is only
+     * counted if it can't be determined from the page itself.
+     *
+     * @param criteria The search criteria.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @see #searchCompoundSlice(CompoundSearchCriteria, Pageable)
+     * @see #countCompounds(CompoundSearchCriteria)
+     */
+    public Page<CompoundActivityPair> searchCompounds(CompoundSearchCriteria criteria, Pageable pageInfo) {
+
+        SearchQuery search = createSearchQuery(criteria);
+        List<CompoundActivityPair> compounds = getSearchResults(search, pageInfo,
+            pageInfo.isPaged() ? pageInfo.getPageSize() : null);
+
+        return PageableExecutionUtils.getPage(compounds, pageInfo, () -> countSearchResults(search));
+    }
+
+    /**
+     * Returns a page of the distinct compounds matching any combination of criteria, without counting the total.
+     * One more compound than the page size is fetched to tell whether there is a next page.
+     *
+     * @param criteria The search criteria.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @see #searchCompounds(CompoundSearchCriteria, Pageable)
+     */
+    public Slice<CompoundActivityPair> searchCompoundSlice(CompoundSearchCriteria criteria, Pageable pageInfo) {
+
+        if (pageInfo.isUnpaged()) {
+            return new SliceImpl<>(getSearchResults(createSearchQuery(criteria), pageInfo, null), pageInfo, false);
+        }
+
+        int size = pageInfo.getPageSize();
+        List<CompoundActivityPair> compounds = getSearchResults(createSearchQuery(criteria), pageInfo, size + 1);
+
+        boolean hasNext = compounds.size() > size;
+        return new SliceImpl<>(hasNext ? compounds.subList(0, size) : compounds, pageInfo, hasNext);
+    }
+
+    /**
+     * Returns the number of distinct compounds matching any combination of criteria.
+     *
+     * @param criteria The search criteria.
+     * @return The number of compounds.
+     * @see #searchCompounds(CompoundSearchCriteria, Pageable)
+     */
+    public long countCompounds(CompoundSearchCriteria criteria) {
+        return countSearchResults(createSearchQuery(criteria));
+    }
+
+    private static SearchQuery createSearchQuery(CompoundSearchCriteria criteria) {
+
+        Map<String, Object> parameters = new HashMap<>();
+        List<String> conditions = new ArrayList<>();
+
+        if (StringUtils.isNotBlank(criteria.getCompoundNamePart())) {
+            conditions.add("lower(c.compoundName) like :compoundNamePart escape '\\'");
+            parameters.put("compoundNamePart",
+                '%' + Util.escapeForLike(criteria.getCompoundNamePart().toLowerCase(Locale.US)) + '%');
+        }
+        if (!criteria.isIncludeHidden()) {
+            conditions.add("c.hidden = false");
+        }
+
+        List<Threshold> thresholds = new ArrayList<>();
+        addThreshold(thresholds, parameters, "ActivityProfile", "percentControl", criteria.getMaxPercentControl());
+        addThreshold(thresholds, parameters, "ActivityProfile", "kd", criteria.getMaxKd());
+        addThreshold(thresholds, parameters, "NanoBretActivityProfile", "ic50", criteria.getMaxIc50());
+
+        List<String> kinaseConditions = new ArrayList<>();
+        for (List<Long> kinaseIds : criteria.getKinaseIds()) {
+            String name = "kinaseIds" + kinaseConditions.size();
+            kinaseConditions.add("p.kinase.id in :" + name);
+            parameters.put(name, kinaseIds);
+        }
+        if (kinaseConditions.isEmpty() && !thresholds.isEmpty()) {
+            kinaseConditions.add(null); // The thresholds can be met against any kinase
+        }
+
+        for (String kinaseCondition : kinaseConditions) {
+            if (thresholds.isEmpty()) {
+                conditions.add("(exists (select p.id" + profiles("ActivityProfile", kinaseCondition, null) +
+                    ") or exists (select p.id" + profiles("NanoBretActivityProfile", kinaseCondition, null) + "))");
+            }
+            for (Threshold threshold : thresholds) {
+                conditions.add("exists (select p.id" +
+                    profiles(threshold.entity, kinaseCondition, threshold.getCondition()) + ')');
+            }
+        }
+
+        String from = " from Compound c" + (conditions.isEmpty() ? "" : " where " + String.join(" and ", conditions));
+
+        String bestValue = null;
+        if (thresholds.size() == 1 && kinaseConditions.size() == 1) {
+            Threshold threshold = thresholds.get(0);
+            bestValue = "(select min(p." + threshold.property + ")" +
+                profiles(threshold.entity, kinaseConditions.get(0), threshold.getCondition()) + ')';
+        }
+
+        return new SearchQuery(from, bestValue, parameters);
+    }
+
+    /**
+     * Runs a compound search.
+     *
+     * @param search The search.
+     * @param pageInfo How to sort the compounds, and the offset of the first one to return.
+     * @param maxResults The maximum number of compounds to return, or {@code null} for no limit.
+     * @return The compounds.
+     */
+    private List<CompoundActivityPair> getSearchResults(SearchQuery search, Pageable pageInfo, Integer maxResults) {
+
+        Query query = entityManager.createQuery("select c" +
+            (search.bestValue == null ? "" : ", " + search.bestValue) + search.from + ' ' +
+            sortToJpqlOrderBy(pageInfo.getSort(), "c"));
+        search.parameters.forEach(query::setParameter);
+        if (pageInfo.isPaged()) {
+            query.setFirstResult((int)pageInfo.getOffset());
+        }
+        if (maxResults != null) {
+            query.setMaxResults(maxResults);
+        }
+
+        List<CompoundActivityPair> compounds = new ArrayList<>();
+        for (Object row : query.getResultList()) {
+            if (search.bestValue == null) {
+                compounds.add(new CompoundActivityPair((Compound)row, null));
+            }
+            else {
+                Object[] values = (Object[])row;
+                compounds.add(new CompoundActivityPair((Compound)values[0], (Double)values[1]));
+            }
+        }
+        return compounds;
+    }
+
+    private long countSearchResults(SearchQuery search) {
+        Query countQuery = entityManager.createQuery("select count(c)" + search.from);
+        search.parameters.forEach(countQuery::setParameter);
+        return ((Number)countQuery.getSingleResult()).longValue();
+    }
+
     /**
      * Returns information about compounds that are hidden.
      *
@@ -242,4 +583,122 @@ public class CompoundDao {
 
         return sb.toString();
     }
+
+    private static void addThreshold(List<Threshold> thresholds, Map<String, Object> parameters, String entity,
+                                     String property, Double max) {
+        if (max != null) {
+            Threshold threshold = new Threshold(entity, property);
+            thresholds.add(threshold);
+            parameters.put(threshold.parameter, max);
+        }
+    }
+
+    private static Map<String, Boolean> createSortableProperties() {
+        Map<String, Boolean> properties = new HashMap<>();
+        properties.put("compoundName", true);
+        properties.put("chemotype", true);
+        properties.put("s10", false);
+        properties.put("solubility", false);
+        properties.put("smiles", true);
+        properties.put("source", true);
+        properties.put("primaryReference", true);
+        properties.put("primaryReferenceUrl", true);
+        properties.put("hidden", false);
+        return properties;
+    }
+
+    /**
+     * Converts a Spring Data {@code Sort} instance to a JPQL order by clause for compounds.  The compound name is
+     * always the last sort criterion, so that the order (and thus paging) is deterministic.
+     *
+     * @param sort The sort instance.
+     * @param alias The alias of the compound in the query.
+     * @return The order by clause.
+     * @throws IllegalArgumentException If the sort references an unknown property.
+     */
+    static String sortToJpqlOrderBy(Sort sort, String alias) {
+
+        StringBuilder sb = new StringBuilder("order by ");
+        boolean sortedByCompoundName = false;
+
+        for (Sort.Order order : sort) {
+
+            String property = order.getProperty();
+            Boolean isString = SORTABLE_PROPERTIES.get(property);
+            if (isString == null) {
+                throw new IllegalArgumentException("Unexpected order property: " + property);
+            }
+
+            String path = alias + '.' + property;
+            if (order.isIgnoreCase() && isString) {
+                path = "lower(" + path + ')';
+            }
+            sb.append(path).append(' ').append(order.getDirection()).append(", ");
+            sortedByCompoundName |= "compoundName".equals(property);
+        }
+
+        if (sortedByCompoundName) {
+            sb.setLength(sb.length() - 2);
+        }
+        else {
+            sb.append(alias).append(".compoundName");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the from and where clauses of a subquery over a compound's activity profiles.
+     *
+     * @param entity The activity profile entity to query.
+     * @param kinaseCondition A condition on the profile's kinase, or {@code null} for none.
+     * @param valueCondition A condition on the profile's value, or {@code null} for none.
+     * @return The clauses.
+     */
+    private static String profiles(String entity, String kinaseCondition, String valueCondition) {
+        StringBuilder sb = new StringBuilder(" from ").append(entity)
+            .append(" p where p.compoundName = c.compoundName");
+        if (kinaseCondition != null) {
+            sb.append(" and ").append(kinaseCondition);
+        }
+        if (valueCondition != null) {
+            sb.append(" and ").append(valueCondition);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * A maximum value for a property of an activity profile entity.
+     */
+    private static final class Threshold {
+
+        private final String entity;
+        private final String property;
+        private final String parameter;
+
+        Threshold(String entity, String property) {
+            this.entity = entity;
+            this.property = property;
+            this.parameter = "max" + Character.toUpperCase(property.charAt(0)) + property.substring(1);
+        }
+
+        String getCondition() {
+            return "p." + property + " <= :" + parameter;
+        }
+    }
+
+    /**
+     * The parts of a compound search's query shared by fetching a page of results and counting them.
+     */
+    private static final class SearchQuery {
+
+        private final String from;
+        private final String bestValue;
+        private final Map<String, Object> parameters;
+
+        SearchQuery(String from, String bestValue, Map<String, Object> parameters) {
+            this.from = from;
+            this.bestValue = bestValue;
+            this.parameters = parameters;
+        }
+    }
 }
@@ -0,0 +1,128 @@
+package org.sgc.rak.dao;
+
+import org.sgc.rak.util.ContinuationToken;
+import org.sgc.rak.util.KeysetQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fetches pages of entities by keyset paging.  Unlike offset paging, the database doesn't have to read and
+ * discard the rows before a page, and the total isn't counted, so every page costs about the same to fetch.
+ * Pages can also be fetched by offset, in any order, still without counting the total.
+ */
+public class KeysetDao {
+
+    /**
+     * The JPA hint used to fetch associations in the same query as the entities.
+     */
+    private static final String LOAD_GRAPH_HINT = "javax.persistence.loadgraph";
+
+    @Autowired
+    private EntityManager entityManager;
+
+    /**
+     * Returns a page of entities.
+     *
+     * @param keyset The order to page through the entities in.
+     * @param spec Restricts the entities returned.  This may be {@code null}.
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param size The maximum number of entities to return.
+     * @param <T> The type of entity.
+     * @return The page.
+     * @throws IllegalArgumentException If {@code after} doesn't match the order.
+     */
+    public <T> KeysetSlice<T> getSlice(KeysetQuery<T> keyset, Specification<T> spec, ContinuationToken after,
+                                       int size) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(keyset.getType());
+        Root<T> root = query.from(keyset.getType());
+
+        List<Predicate> predicates = new ArrayList<>();
+        Predicate specPredicate = spec == null ? null : spec.toPredicate(root, query, builder);
+        if (specPredicate != null) {
+            predicates.add(specPredicate);
+        }
+        if (after != null) {
+            predicates.add(keyset.toPredicate(root, builder, after.getKey()));
+        }
+
+        query.select(root)
+            .where(predicates.toArray(new Predicate[0]))
+            .orderBy(keyset.toOrders(root, builder));
+
+        // Fetch one extra row to tell whether there's a next page, rather than counting
+        List<T> rows = createQuery(keyset, query).setMaxResults(size + 1).getResultList();
+
+        long start = after == null ? 0 : after.getStart();
+        if (rows.size() <= size) {
+            return new KeysetSlice<>(rows, start, null);
+        }
+
+        List<T> content = new ArrayList<>(rows.subList(0, size));
+        ContinuationToken next = new ContinuationToken(start + size, keyset.getKey(content.get(size - 1)));
+        return new KeysetSlice<>(content, start, next);
+    }
+
+    /**
+     * Returns a page of entities by offset, without counting the total.  One more entity than the page size is
+     * fetched to tell whether there is a next page.
+     *
+     * @param keyset Provides the type of entity, and the associations to fetch with it.  Its order isn't used.
+     * @param spec Restricts the entities returned.  This may be {@code null}.
+     * @param pageInfo How to sort the entities and what page of them to return.
+     * @param <T> The type of entity.
+     * @return The page.
+     */
+    public <T> Slice<T> getSlice(KeysetQuery<T> keyset, Specification<T> spec, Pageable pageInfo) {
+
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = builder.createQuery(keyset.getType());
+        Root<T> root = query.from(keyset.getType());
+
+        Predicate specPredicate = spec == null ? null : spec.toPredicate(root, query, builder);
+        if (specPredicate != null) {
+            query.where(specPredicate);
+        }
+        query.select(root)
+            .orderBy(QueryUtils.toOrders(pageInfo.getSort(), root, builder));
+
+        TypedQuery<T> typedQuery = createQuery(keyset, query);
+        if (pageInfo.isUnpaged()) {
+            return new SliceImpl<>(typedQuery.getResultList(), pageInfo, false);
+        }
+
+        int size = pageInfo.getPageSize();
+        List<T> rows = typedQuery.setFirstResult((int)pageInfo.getOffset())
+            .setMaxResults(size + 1)
+            .getResultList();
+
+        boolean hasNext = rows.size() > size;
+        return new SliceImpl<>(hasNext ? rows.subList(0, size) : rows, pageInfo, hasNext);
+    }
+
+    private <T> TypedQuery<T> createQuery(KeysetQuery<T> keyset, CriteriaQuery<T> query) {
+
+        TypedQuery<T> typedQuery = entityManager.createQuery(query);
+        if (!keyset.getFetchedAttributes().isEmpty()) {
+            EntityGraph<T> graph = entityManager.createEntityGraph(keyset.getType());
+            graph.addAttributeNodes(keyset.getFetchedAttributes().toArray(new String[0]));
+            typedQuery.setHint(LOAD_GRAPH_HINT, graph);
+        }
+        return typedQuery;
+    }
+}
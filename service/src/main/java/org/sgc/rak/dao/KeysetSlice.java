@@ -0,0 +1,49 @@
+package org.sgc.rak.dao;
+
+import org.sgc.rak.util.ContinuationToken;
+
+import java.util.List;
+
+/**
+ * A page of rows fetched by keyset paging.  The total number of rows isn't counted; instead, one more row than
+ * requested is fetched to determine whether there is a next page.
+ *
+ * @param <T> The type of row.
+ * @see KeysetDao
+ */
+public class KeysetSlice<T> {
+
+    private final List<T> content;
+    private final long start;
+    private final ContinuationToken next;
+
+    /**
+     * Constructor.
+     *
+     * @param content The rows.
+     * @param start The index of the first row.
+     * @param next Where the next page starts, or {@code null} if this is the last page.
+     */
+    public KeysetSlice(List<T> content, long start, ContinuationToken next) {
+        this.content = content;
+        this.start = start;
+        this.next = next;
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    /**
+     * Returns where the next page starts.
+     *
+     * @return Where the next page starts, or {@code null} if this is the last page.
+     */
+    public ContinuationToken getNext() {
+        return next;
+    }
+
+    public long getStart() {
+        return start;
+    }
+}
@@ -6,7 +6,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * DAO for manipulating kinases.
@@ -16,6 +19,15 @@ public class KinaseDao {
     @Autowired
     private KinaseRepository kinaseRepository;
 
+    /**
+     * Returns the number of activity profiles for each kinase.
+     *
+     * @return A map from kinase ID to activity profile count.  Kinases without activity profiles are omitted.
+     */
+    public Map<Long, Long> getActivityProfileCounts() {
+        return toCountMap(kinaseRepository.countActivityProfilesByKinase());
+    }
+
     /**
      * Returns information on a kinase by its discoverx gene symbol.
      *
@@ -36,6 +48,27 @@ public class KinaseDao {
         return kinaseRepository.findByEntrezGeneSymbolIgnoreCase(entrez);
     }
 
+    /**
+     * Returns all known kinases.
+     *
+     * @return The kinases.
+     */
+    public List<Kinase> getKinases() {
+        List<Kinase> kinases = new ArrayList<>();
+        kinaseRepository.findAll().forEach(kinases::add);
+        return kinases;
+    }
+
+    /**
+     * Returns the number of NanoBRET activity profiles for each kinase.
+     *
+     * @return A map from kinase ID to NanoBRET activity profile count.  Kinases without NanoBRET activity profiles
+     *         are omitted.
+     */
+    public Map<Long, Long> getNanoBretActivityProfileCounts() {
+        return toCountMap(kinaseRepository.countNanoBretActivityProfilesByKinase());
+    }
+
     /**
      * Returns kinase information.
      *
@@ -59,4 +92,12 @@ public class KinaseDao {
         return kinaseRepository.getKinasesByEntrezGeneSymbolStartsWithIgnoreCase(
             entrez, pageInfo);
     }
+
+    private static Map<Long, Long> toCountMap(List<Object[]> rows) {
+        Map<Long, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(((Number)row[0]).longValue(), ((Number)row[1]).longValue());
+        }
+        return counts;
+    }
 }
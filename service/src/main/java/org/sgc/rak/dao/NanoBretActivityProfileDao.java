@@ -1,9 +1,14 @@
 package org.sgc.rak.dao;
 
 import org.sgc.rak.model.NanoBretActivityProfile;
+import org.sgc.rak.model.NanoBretActivityProfileModifier;
 import org.sgc.rak.repositories.NanoBretActivityProfileRepository;
+import org.sgc.rak.util.Util;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.util.*;
 
 /**
@@ -11,15 +16,40 @@ import java.util.*;
  */
 public class NanoBretActivityProfileDao {
 
+    /**
+     * The maximum number of values passed in a single {@code IN} clause when bulk-fetching activity profiles.
+     */
+    static final int MAX_IN_CLAUSE_SIZE = 500;
+
+    private static final String INSERT_SQL = "insert into nanobret_activity_profile " +
+        "(compound_nm, kinase, nluc_orientation, modifier, ic50, nanobret_percent_inhibition, concentration, " +
+        "points, comment, run_date) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final int[] INSERT_ARG_TYPES = { Types.VARCHAR, Types.BIGINT, Types.VARCHAR, Types.VARCHAR,
+        Types.DOUBLE, Types.DOUBLE, Types.INTEGER, Types.INTEGER, Types.VARCHAR, Types.TIMESTAMP };
+
     private final NanoBretActivityProfileRepository activityProfileRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
 
+    /**
+     * Constructor.
+     *
+     * @param repository The repository used for queries.
+     * @param jdbcTemplate Used to write activity profiles in JDBC batches.
+     * @param batchSize The maximum number of statements sent to the database in a single JDBC batch.
+     */
     @Autowired
-    public NanoBretActivityProfileDao(NanoBretActivityProfileRepository repository) {
+    public NanoBretActivityProfileDao(NanoBretActivityProfileRepository repository, JdbcTemplate jdbcTemplate,
+                                      int batchSize) {
         this.activityProfileRepository = repository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
     }
 
     /**
-     * Fetches all kinase activity profiles that match one of a number of compound name/entrez pairs.
+     * Fetches all kinase activity profiles that match one of a number of compound name/discoverx/date triples.
+     * Profiles are fetched for batches of distinct compound names, discoverx gene symbols and dates, and any that
+     * don't match a requested triple are discarded.
      *
      * @param compoundNames The compound names to check for.  This should be the same length as {@code entrezes} and
      *        {@code dates}.
@@ -39,28 +69,66 @@ public class NanoBretActivityProfileDao {
             throw new IllegalStateException("List of compound names and dates aren't the same length");
         }
 
-        Set<NanoBretActivityProfile> profiles = new HashSet<>();
-
+        Set<List<Object>> keys = new HashSet<>();
         for (int i = 0; i < compoundNames.size(); i++) {
+            keys.add(createKey(compoundNames.get(i), discoverxes.get(i), dates.get(i)));
+        }
+
+        Set<NanoBretActivityProfile> profiles = new HashSet<>();
 
-            String compoundName = compoundNames.get(i);
-            String discoverx = discoverxes.get(i);
-            Date date = dates.get(i);
+        List<List<String>> compoundBatches = Util.partition(new LinkedHashSet<>(compoundNames), MAX_IN_CLAUSE_SIZE);
+        List<List<String>> discoverxBatches = Util.partition(new LinkedHashSet<>(discoverxes), MAX_IN_CLAUSE_SIZE);
+        List<List<Date>> dateBatches = Util.partition(new LinkedHashSet<>(dates), MAX_IN_CLAUSE_SIZE);
 
-            Optional<NanoBretActivityProfile> possibleProfile = activityProfileRepository
-                .findByCompoundNameAndKinaseDiscoverxGeneSymbolAndDate(compoundName, discoverx, date);
-            possibleProfile.ifPresent(profiles::add);
+        for (List<String> compoundBatch : compoundBatches) {
+            for (List<String> discoverxBatch : discoverxBatches) {
+                for (List<Date> dateBatch : dateBatches) {
+                    activityProfileRepository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolInAndDateIn(
+                            compoundBatch, discoverxBatch, dateBatch).stream()
+                        .filter(profile -> keys.contains(createKey(profile.getCompoundName(),
+                            profile.getKinase().getDiscoverxGeneSymbol(), profile.getDate())))
+                        .forEach(profiles::add);
+                }
+            }
         }
 
         return profiles;
     }
 
     /**
-     * Saves a collection of activity profiles.
+     * Returns a key identifying a NanoBRET activity profile.  Dates are compared by their millisecond values,
+     * since the ones loaded by JPA are {@code java.sql.Timestamp}s, which never equal plain {@code Date}s.
+     */
+    private static List<Object> createKey(String compoundName, String discoverx, Date date) {
+        return Arrays.asList(compoundName, discoverx, date == null ? null : date.getTime());
+    }
+
+    /**
+     * Saves a collection of activity profiles.  Since activity profiles use identity columns, Hibernate can't
+     * batch their inserts, so new profiles are inserted via JDBC batches instead.  Note that this means any
+     * new profiles will not have their IDs populated.<p>
+     *
+     * No columns of an existing NanoBRET activity profile are updatable, so existing profiles are skipped.
      *
      * @param activityProfiles The activity profiles to save.
      */
     public void save(Iterable<NanoBretActivityProfile> activityProfiles) {
-        activityProfileRepository.saveAll(activityProfiles);
+
+        List<Object[]> inserts = new ArrayList<>();
+
+        for (NanoBretActivityProfile profile : activityProfiles) {
+            if (profile.getId() == null) {
+                NanoBretActivityProfileModifier modifier = profile.getModifier();
+                Date date = profile.getDate();
+                inserts.add(new Object[] { profile.getCompoundName(), profile.getKinase().getId(),
+                    profile.getNlucOrientation(), modifier == null ? null : modifier.name(), profile.getIc50(),
+                    profile.getPercentInhibition(), profile.getConcentration(), profile.getPoints(),
+                    profile.getComment(), date == null ? null : new Timestamp(date.getTime()) });
+            }
+        }
+
+        for (List<Object[]> batch : Util.partition(inserts, batchSize)) {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, INSERT_ARG_TYPES);
+        }
     }
 }
@@ -0,0 +1,13 @@
+package org.sgc.rak.exceptions;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Thrown when a 503 should occur.
+ */
+public class ServiceUnavailableException extends AbstractRestException {
+
+    public ServiceUnavailableException(String message) {
+        super(HttpStatus.SERVICE_UNAVAILABLE, message);
+    }
+}
@@ -0,0 +1,38 @@
+package org.sgc.rak.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+/**
+ * A compound and its best (lowest) percent control, Kd or IC50 value against a kinase.  Used for the results
+ * of searches by kinase.  The compound's fields are serialized inline, so clients can treat this as a compound
+ * with one extra field.  That field comes last, so CSV exports keep the same columns as for plain compounds.
+ */
+@JsonPropertyOrder({ "compound", "bestValue" })
+public class CompoundActivityPair {
+
+    @JsonUnwrapped
+    private final Compound compound;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private final Double bestValue;
+
+    public CompoundActivityPair(Compound compound, Double bestValue) {
+        this.compound = compound;
+        this.bestValue = bestValue;
+    }
+
+    /**
+     * Returns the compound's best value for the search criteria, i.e. its lowest percent control, Kd or IC50.
+     *
+     * @return The best value, or {@code null} if the search wasn't by kinase.
+     */
+    public Double getBestValue() {
+        return bestValue;
+    }
+
+    public Compound getCompound() {
+        return compound;
+    }
+}
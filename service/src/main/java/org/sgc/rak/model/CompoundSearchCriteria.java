@@ -0,0 +1,83 @@
+package org.sgc.rak.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria for a compound search.  All specified criteria must match.  Activity thresholds apply to each kinase
+ * searched for, so a compound must meet every threshold against every kinase; if no kinases are specified, the
+ * thresholds may be met against any kinase.
+ */
+public class CompoundSearchCriteria {
+
+    private String compoundNamePart;
+    private final List<List<Long>> kinaseIds;
+    private Double maxPercentControl;
+    private Double maxKd;
+    private Double maxIc50;
+    private boolean includeHidden;
+
+    public CompoundSearchCriteria() {
+        kinaseIds = new ArrayList<>();
+    }
+
+    /**
+     * Adds a kinase that matching compounds must have data for.
+     *
+     * @param kinaseIds The IDs of all records for the kinase, e.g. all records for an entrez gene symbol.
+     *        A compound matches if it meets the thresholds against any one of them.
+     */
+    public void addKinase(List<Long> kinaseIds) {
+        this.kinaseIds.add(kinaseIds);
+    }
+
+    public String getCompoundNamePart() {
+        return compoundNamePart;
+    }
+
+    public void setCompoundNamePart(String compoundNamePart) {
+        this.compoundNamePart = compoundNamePart;
+    }
+
+    /**
+     * Returns the kinases that matching compounds must have data for.
+     *
+     * @return The record IDs of each kinase.
+     * @see #addKinase(List)
+     */
+    public List<List<Long>> getKinaseIds() {
+        return kinaseIds;
+    }
+
+    public Double getMaxIc50() {
+        return maxIc50;
+    }
+
+    public void setMaxIc50(Double maxIc50) {
+        this.maxIc50 = maxIc50;
+    }
+
+    public Double getMaxKd() {
+        return maxKd;
+    }
+
+    public void setMaxKd(Double maxKd) {
+        this.maxKd = maxKd;
+    }
+
+    public Double getMaxPercentControl() {
+        return maxPercentControl;
+    }
+
+    public void setMaxPercentControl(Double maxPercentControl) {
+        this.maxPercentControl = maxPercentControl;
+    }
+
+    public boolean isIncludeHidden() {
+        return includeHidden;
+    }
+
+    public void setIncludeHidden(boolean includeHidden) {
+        this.includeHidden = includeHidden;
+    }
+}
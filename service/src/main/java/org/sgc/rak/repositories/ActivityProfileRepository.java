@@ -3,20 +3,33 @@ package org.sgc.rak.repositories;
 import org.sgc.rak.model.ActivityProfile;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
+import java.util.Collection;
 import java.util.List;
-import java.util.Optional;
 
 /**
- * JPA repository for kinase activity profiles.
+ * JPA repository for kinase activity profiles.  Queries returning many profiles fetch their kinases in the same
+ * query, rather than with a separate select per kinase.
  */
 public interface ActivityProfileRepository extends PagingAndSortingRepository<ActivityProfile, String>,
         JpaSpecificationExecutor<ActivityProfile> {
 
-    Optional<ActivityProfile> findByCompoundNameAndKinaseDiscoverxGeneSymbol(String compoundName,
-                                                                             String discoverx);
+    @Override
+    @EntityGraph(attributePaths = "kinase")
+    Page<ActivityProfile> findAll(Specification<ActivityProfile> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = "kinase")
+    List<ActivityProfile> findAll(Specification<ActivityProfile> spec, Sort sort);
+
+    @EntityGraph(attributePaths = "kinase")
+    List<ActivityProfile> findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(Collection<String> compoundNames,
+                                                                             Collection<String> discoverxes);
 
     Page<ActivityProfile> getActivityProfilesByCompoundNameIgnoreCase(String compoundName,
                                                                     Pageable pageInfo);
@@ -24,10 +37,4 @@ public interface ActivityProfileRepository extends PagingAndSortingRepository<Ac
     Page<ActivityProfile>
             getActivityProfilesByCompoundNameIgnoreCaseAndKinaseIdAndPercentControlLessThanEqual(
         String compoundName, long kinase, double activity, Pageable pageInfo);
-
-    Page<ActivityProfile> getActivityProfilesByKinaseIdInAndPercentControlLessThanEqual(List<Long> kinases,
-                                                                                double activity, Pageable pageInfo);
-
-    Page<ActivityProfile> getActivityProfilesByKinaseIdInAndKdLessThanEqual(List<Long> kinases, double kd,
-                                                                            Pageable pageInfo);
 }
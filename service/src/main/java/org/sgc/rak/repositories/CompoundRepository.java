@@ -2,8 +2,11 @@ package org.sgc.rak.repositories;
 
 import org.sgc.rak.model.Compound;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -12,5 +15,13 @@ import java.util.List;
 public interface CompoundRepository extends PagingAndSortingRepository<Compound, String>,
         JpaSpecificationExecutor<Compound> {
 
+    List<Compound> findByCompoundNameIgnoreCase(String compoundName);
+
     List<Compound> findByCompoundNameInIgnoreCase(List<String> compoundNames);
+
+    @Query("select c.compoundName from Compound c where c.compoundName in :compoundNames")
+    List<String> findCompoundNamesIn(@Param("compoundNames") Collection<String> compoundNames);
+
+    @Query("select c.compoundName from Compound c where c.hidden = :hidden")
+    List<String> findCompoundNamesByHidden(@Param("hidden") boolean hidden);
 }
@@ -3,6 +3,7 @@ package org.sgc.rak.repositories;
 import org.sgc.rak.model.Kinase;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.PagingAndSortingRepository;
 
 import java.util.List;
@@ -17,4 +18,10 @@ public interface KinaseRepository extends PagingAndSortingRepository<Kinase, Str
     Kinase findOneByDiscoverxGeneSymbolIgnoreCase(String discoverx);
 
     Page<Kinase> getKinasesByEntrezGeneSymbolStartsWithIgnoreCase(String prefix, Pageable pageInfo);
+
+    @Query("select p.kinase.id, count(p) from ActivityProfile p group by p.kinase.id")
+    List<Object[]> countActivityProfilesByKinase();
+
+    @Query("select p.kinase.id, count(p) from NanoBretActivityProfile p group by p.kinase.id")
+    List<Object[]> countNanoBretActivityProfilesByKinase();
 }
@@ -0,0 +1,158 @@
+package org.sgc.rak.reps;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Represents the state of an asynchronous import job.
+ */
+public class ImportJobRep {
+
+    private String id;
+    private String type;
+    private Status status;
+    private boolean commit;
+    private long rowsParsed;
+    private long rowsValidated;
+    private long rowsWritten;
+    private Map<String, Long> phaseTimings;
+    private Date submitted;
+    private Date started;
+    private Date finished;
+    private ObjectImportRep result;
+    private String error;
+
+    public ImportJobRep() {
+        phaseTimings = new LinkedHashMap<>();
+    }
+
+    public boolean getCommit() {
+        return commit;
+    }
+
+    public void setCommit(boolean commit) {
+        this.commit = commit;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Date getFinished() {
+        return finished;
+    }
+
+    public void setFinished(Date finished) {
+        this.finished = finished;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the number of milliseconds spent in each phase of the import so far.
+     *
+     * @return A mapping from phase name to elapsed milliseconds.
+     */
+    public Map<String, Long> getPhaseTimings() {
+        return phaseTimings;
+    }
+
+    public void setPhaseTimings(Map<String, Long> phaseTimings) {
+        this.phaseTimings = phaseTimings != null ? phaseTimings : new LinkedHashMap<>();
+    }
+
+    public ObjectImportRep getResult() {
+        return result;
+    }
+
+    public void setResult(ObjectImportRep result) {
+        this.result = result;
+    }
+
+    public long getRowsParsed() {
+        return rowsParsed;
+    }
+
+    public void setRowsParsed(long rowsParsed) {
+        this.rowsParsed = rowsParsed;
+    }
+
+    public long getRowsValidated() {
+        return rowsValidated;
+    }
+
+    public void setRowsValidated(long rowsValidated) {
+        this.rowsValidated = rowsValidated;
+    }
+
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    public void setRowsWritten(long rowsWritten) {
+        this.rowsWritten = rowsWritten;
+    }
+
+    public Date getStarted() {
+        return started;
+    }
+
+    public void setStarted(Date started) {
+        this.started = started;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Date getSubmitted() {
+        return submitted;
+    }
+
+    public void setSubmitted(Date submitted) {
+        this.submitted = submitted;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * The possible states of an import job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED,
+        CANCELLED;
+
+        /**
+         * Returns whether this is a terminal state.
+         *
+         * @return Whether a job in this state is finished.
+         */
+        public boolean isFinished() {
+            return this != QUEUED && this != RUNNING;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package org.sgc.rak.reps;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A summary of an import preview stored on the server.  The changed rows themselves are fetched a page at a time,
+ * and the preview can be committed by its ID without uploading the file again.
+ */
+public class ImportPreviewRep {
+
+    private String id;
+    private String type;
+    private Date created;
+    private long rowCount;
+    private long newCount;
+    private long modifiedCount;
+    private long unchangedCount;
+    private long invalidCount;
+    private Map<String, Long> fieldChangeCounts;
+
+    public ImportPreviewRep() {
+        fieldChangeCounts = new LinkedHashMap<>();
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    /**
+     * Returns the number of modified rows in which each field changes.
+     *
+     * @return A mapping from field name to the number of modified rows in which it changes.
+     */
+    public Map<String, Long> getFieldChangeCounts() {
+        return fieldChangeCounts;
+    }
+
+    public void setFieldChangeCounts(Map<String, Long> fieldChangeCounts) {
+        this.fieldChangeCounts = fieldChangeCounts != null ? fieldChangeCounts : new LinkedHashMap<>();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the number of rows that cannot be imported, e.g. because they reference an unknown compound.  These
+     * rows are skipped if the preview is committed.
+     *
+     * @return The number of invalid rows.
+     */
+    public long getInvalidCount() {
+        return invalidCount;
+    }
+
+    public void setInvalidCount(long invalidCount) {
+        this.invalidCount = invalidCount;
+    }
+
+    public long getModifiedCount() {
+        return modifiedCount;
+    }
+
+    public void setModifiedCount(long modifiedCount) {
+        this.modifiedCount = modifiedCount;
+    }
+
+    public long getNewCount() {
+        return newCount;
+    }
+
+    public void setNewCount(long newCount) {
+        this.newCount = newCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public void setUnchangedCount(long unchangedCount) {
+        this.unchangedCount = unchangedCount;
+    }
+}
@@ -0,0 +1,59 @@
+package org.sgc.rak.reps;
+
+import java.util.List;
+
+/**
+ * A new or modified row in an import preview.
+ */
+public class ImportPreviewRowRep {
+
+    private long rowNumber;
+    private Status status;
+    private List<ObjectImportRep.FieldStatus> fieldStatuses;
+
+    public ImportPreviewRowRep() {
+    }
+
+    public ImportPreviewRowRep(long rowNumber, Status status, List<ObjectImportRep.FieldStatus> fieldStatuses) {
+        this.rowNumber = rowNumber;
+        this.status = status;
+        this.fieldStatuses = fieldStatuses;
+    }
+
+    public List<ObjectImportRep.FieldStatus> getFieldStatuses() {
+        return fieldStatuses;
+    }
+
+    public void setFieldStatuses(List<ObjectImportRep.FieldStatus> fieldStatuses) {
+        this.fieldStatuses = fieldStatuses;
+    }
+
+    /**
+     * Returns the 1-based number of this row among the data rows of the imported file.
+     *
+     * @return The row number.
+     */
+    public long getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(long rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    /**
+     * How a row would change the existing data.
+     */
+    public enum Status {
+        NEW,
+        MODIFIED
+    }
+}
@@ -0,0 +1,129 @@
+package org.sgc.rak.reps;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The result of validating a file of data to import.  Every problem found with every row is counted, but only a
+ * bounded number of them are returned.
+ */
+public class ImportValidationRep {
+
+    private String type;
+    private long rowCount;
+    private long invalidRowCount;
+    private long errorCount;
+    private boolean truncated;
+    private List<RowError> errors;
+
+    public ImportValidationRep() {
+        this.errors = new ArrayList<>();
+    }
+
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    public void setErrorCount(long errorCount) {
+        this.errorCount = errorCount;
+    }
+
+    /**
+     * Returns the errors found, in row order.
+     *
+     * @return The errors.  If {@link #isTruncated()} returns {@code true}, only the first of the
+     *         {@link #getErrorCount()} errors are included.
+     */
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors != null ? errors : new ArrayList<>();
+    }
+
+    public long getInvalidRowCount() {
+        return invalidRowCount;
+    }
+
+    public void setInvalidRowCount(long invalidRowCount) {
+        this.invalidRowCount = invalidRowCount;
+    }
+
+    public long getRowCount() {
+        return rowCount;
+    }
+
+    public void setRowCount(long rowCount) {
+        this.rowCount = rowCount;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    /**
+     * Returns whether more errors were found than are returned.
+     *
+     * @return Whether the list of errors is incomplete.
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    public void setTruncated(boolean truncated) {
+        this.truncated = truncated;
+    }
+
+    /**
+     * A problem with a single field of a single row.
+     */
+    public static class RowError {
+
+        private long row;
+        private String field;
+        private String message;
+
+        public RowError() {
+        }
+
+        public RowError(long row, String field, String message) {
+            this.row = row;
+            this.field = field;
+            this.message = message;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public void setField(String field) {
+            this.field = field;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public void setMessage(String message) {
+            this.message = message;
+        }
+
+        /**
+         * Returns the number of the row with the error.
+         *
+         * @return The row number.  This is 1-based, and does not include any header row.
+         */
+        public long getRow() {
+            return row;
+        }
+
+        public void setRow(long row) {
+            this.row = row;
+        }
+    }
+}
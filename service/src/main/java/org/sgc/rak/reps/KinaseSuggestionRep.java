@@ -0,0 +1,63 @@
+package org.sgc.rak.reps;
+
+import org.sgc.rak.model.Kinase;
+
+/**
+ * A kinase suggested while typing a gene symbol, along with how much data there is for it.
+ */
+public class KinaseSuggestionRep {
+
+    private Kinase kinase;
+    private String matchedSymbol;
+    private long activityProfileCount;
+    private long nanoBretActivityProfileCount;
+
+    public KinaseSuggestionRep() {
+    }
+
+    public KinaseSuggestionRep(Kinase kinase, String matchedSymbol, long activityProfileCount,
+                               long nanoBretActivityProfileCount) {
+        this.kinase = kinase;
+        this.matchedSymbol = matchedSymbol;
+        this.activityProfileCount = activityProfileCount;
+        this.nanoBretActivityProfileCount = nanoBretActivityProfileCount;
+    }
+
+    public long getActivityProfileCount() {
+        return activityProfileCount;
+    }
+
+    public void setActivityProfileCount(long activityProfileCount) {
+        this.activityProfileCount = activityProfileCount;
+    }
+
+    public Kinase getKinase() {
+        return kinase;
+    }
+
+    public void setKinase(Kinase kinase) {
+        this.kinase = kinase;
+    }
+
+    /**
+     * Returns the gene symbol of the kinase that matched the search, which may be its entrez, discoverx or
+     * nanosyn gene symbol.
+     *
+     * @return The matched gene symbol.
+     */
+    public String getMatchedSymbol() {
+        return matchedSymbol;
+    }
+
+    public void setMatchedSymbol(String matchedSymbol) {
+        this.matchedSymbol = matchedSymbol;
+    }
+
+    public long getNanoBretActivityProfileCount() {
+        return nanoBretActivityProfileCount;
+    }
+
+    public void setNanoBretActivityProfileCount(long nanoBretActivityProfileCount) {
+        this.nanoBretActivityProfileCount = nanoBretActivityProfileCount;
+    }
+}
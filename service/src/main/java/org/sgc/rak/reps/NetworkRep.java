@@ -0,0 +1,112 @@
+package org.sgc.rak.reps;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.sgc.rak.model.Kinase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A network of compounds and the kinases they interact with.  To keep the response small, edges refer to
+ * compounds and kinases by their position in the {@code compounds} and {@code kinases} lists.
+ */
+public class NetworkRep {
+
+    private List<String> compounds;
+    private List<Kinase> kinases;
+    private List<Edge> edges;
+
+    public NetworkRep() {
+        compounds = new ArrayList<>();
+        kinases = new ArrayList<>();
+        edges = new ArrayList<>();
+    }
+
+    public List<String> getCompounds() {
+        return compounds;
+    }
+
+    public void setCompounds(List<String> compounds) {
+        this.compounds = compounds;
+    }
+
+    public List<Edge> getEdges() {
+        return edges;
+    }
+
+    public void setEdges(List<Edge> edges) {
+        this.edges = edges;
+    }
+
+    public List<Kinase> getKinases() {
+        return kinases;
+    }
+
+    public void setKinases(List<Kinase> kinases) {
+        this.kinases = kinases;
+    }
+
+    /**
+     * An interaction between a compound and a kinase, i.e. an activity profile.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Edge {
+
+        private int compound;
+        private int kinase;
+        private Double percentControl;
+        private Double kd;
+
+        public Edge() {
+        }
+
+        public Edge(int compound, int kinase, Double percentControl, Double kd) {
+            this.compound = compound;
+            this.kinase = kinase;
+            this.percentControl = percentControl;
+            this.kd = kd;
+        }
+
+        /**
+         * Returns the position of the compound in the network's list of compounds.
+         *
+         * @return The compound's position.
+         */
+        public int getCompound() {
+            return compound;
+        }
+
+        public void setCompound(int compound) {
+            this.compound = compound;
+        }
+
+        public Double getKd() {
+            return kd;
+        }
+
+        public void setKd(Double kd) {
+            this.kd = kd;
+        }
+
+        /**
+         * Returns the position of the kinase in the network's list of kinases.
+         *
+         * @return The kinase's position.
+         */
+        public int getKinase() {
+            return kinase;
+        }
+
+        public void setKinase(int kinase) {
+            this.kinase = kinase;
+        }
+
+        public Double getPercentControl() {
+            return percentControl;
+        }
+
+        public void setPercentControl(Double percentControl) {
+            this.percentControl = percentControl;
+        }
+    }
+}
@@ -9,6 +9,9 @@ import java.util.List;
 public class ObjectImportRep {
 
     private List<List<FieldStatus>> fieldStatuses;
+    private long newCount;
+    private long modifiedCount;
+    private long unchangedCount;
 
     public ObjectImportRep() {
         this.fieldStatuses = new ArrayList<>();
@@ -22,6 +25,30 @@ public class ObjectImportRep {
         this.fieldStatuses = fieldStatuses != null ? fieldStatuses : new ArrayList<>();
     }
 
+    public long getModifiedCount() {
+        return modifiedCount;
+    }
+
+    public void setModifiedCount(long modifiedCount) {
+        this.modifiedCount = modifiedCount;
+    }
+
+    public long getNewCount() {
+        return newCount;
+    }
+
+    public void setNewCount(long newCount) {
+        this.newCount = newCount;
+    }
+
+    public long getUnchangedCount() {
+        return unchangedCount;
+    }
+
+    public void setUnchangedCount(long unchangedCount) {
+        this.unchangedCount = unchangedCount;
+    }
+
     /**
      * Represents the status of a field - changed or unchanged, prior and new values.
      */
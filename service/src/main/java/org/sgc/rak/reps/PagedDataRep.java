@@ -1,29 +1,45 @@
 package org.sgc.rak.reps;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.Collections;
 import java.util.List;
 
 /**
- * Represents a page of data in a resource collection.
+ * Represents a page of data in a resource collection.  Pages fetched by keyset paging have a continuation token
+ * for fetching the next page, but don't know the total.  Pages fetched without counting the total instead say
+ * whether there is a next page.
  *
  * @param <T> The type of data being paged through.
  */
 public class PagedDataRep<T> {
 
+    /**
+     * The total reported when it isn't known.
+     */
+    public static final long UNKNOWN_TOTAL = -1;
+
     private List<T> data;
     private long start;
     private int count;
     private long total;
+    private String next;
+    private Boolean hasNext;
 
     public PagedDataRep() {
         this(Collections.emptyList(), 0, 0);
     }
 
     public PagedDataRep(List<T> data, long start, long total) {
+        this(data, start, total, null);
+    }
+
+    public PagedDataRep(List<T> data, long start, long total, String next) {
         this.data = data;
         this.start = start;
         this.count = data.size();
         this.total = total;
+        this.next = next;
     }
 
     public int getCount() {
@@ -39,6 +55,35 @@ public class PagedDataRep<T> {
         this.count = data.size();
     }
 
+    /**
+     * Returns whether there is a next page, for pages fetched without counting the total.
+     *
+     * @return Whether there is a next page, or {@code null} if the total was counted or the page was fetched by
+     *         keyset paging.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public Boolean getHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(Boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+
+    /**
+     * Returns the continuation token for fetching the next page by keyset paging.
+     *
+     * @return The token, or {@code null} if this is the last page or the page wasn't fetched by keyset paging.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public String getNext() {
+        return next;
+    }
+
+    public void setNext(String next) {
+        this.next = next;
+    }
+
     public long getStart() {
         return start;
     }
@@ -0,0 +1,127 @@
+package org.sgc.rak.reps;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Represents the state of a resumable, chunked file upload.
+ */
+public class UploadSessionRep {
+
+    private String id;
+    private Date created;
+    private Date lastModified;
+    private int chunkCount;
+    private long expectedSize;
+    private String sha256;
+    private long size;
+    private List<Integer> receivedChunks;
+    private int nextChunk;
+
+    public UploadSessionRep() {
+        receivedChunks = new ArrayList<>();
+    }
+
+    /**
+     * Returns the number of chunks the file is sent as, as declared when the upload was started.
+     *
+     * @return The number of chunks.
+     */
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public void setChunkCount(int chunkCount) {
+        this.chunkCount = chunkCount;
+    }
+
+    public Date getCreated() {
+        return created;
+    }
+
+    public void setCreated(Date created) {
+        this.created = created;
+    }
+
+    /**
+     * Returns the size of the file, as declared when the upload was started.
+     *
+     * @return The size, in bytes.
+     */
+    public long getExpectedSize() {
+        return expectedSize;
+    }
+
+    public void setExpectedSize(long expectedSize) {
+        this.expectedSize = expectedSize;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Date getLastModified() {
+        return lastModified;
+    }
+
+    public void setLastModified(Date lastModified) {
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the index of the first chunk not yet received.  An interrupted upload should resume from here.
+     *
+     * @return The index of the next chunk to upload.
+     */
+    public int getNextChunk() {
+        return nextChunk;
+    }
+
+    public void setNextChunk(int nextChunk) {
+        this.nextChunk = nextChunk;
+    }
+
+    /**
+     * Returns the indexes of the chunks received so far.
+     *
+     * @return The chunk indexes, in ascending order.
+     */
+    public List<Integer> getReceivedChunks() {
+        return receivedChunks;
+    }
+
+    public void setReceivedChunks(List<Integer> receivedChunks) {
+        this.receivedChunks = receivedChunks != null ? receivedChunks : new ArrayList<>();
+    }
+
+    /**
+     * Returns the SHA-256 checksum of the file, as declared when the upload was started.
+     *
+     * @return The checksum, as lower case hex digits, or {@code null} if none was declared.
+     */
+    public String getSha256() {
+        return sha256;
+    }
+
+    public void setSha256(String sha256) {
+        this.sha256 = sha256;
+    }
+
+    /**
+     * Returns the total size of the chunks received so far.
+     *
+     * @return The size, in bytes.
+     */
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
@@ -1,15 +1,88 @@
 package org.sgc.rak.rest;
 
+import org.sgc.rak.dao.KeysetSlice;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.PagedDataRep;
+import org.sgc.rak.util.ContinuationToken;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Slice;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContext;
 import org.springframework.security.core.context.SecurityContextHolder;
 
+import java.util.function.Function;
+
 /**
  * A base class for services.
  */
 abstract class AbstractRakController {
 
+    /**
+     * The {@code total} parameter value that counts the total for each page requested.  This is the default.
+     */
+    protected static final String TOTAL_EXACT = "exact";
+
+    /**
+     * The {@code total} parameter value that counts the total for a query once, and reuses it for every page
+     * until the data changes.
+     */
+    protected static final String TOTAL_CACHED = "cached";
+
+    /**
+     * The {@code total} parameter value that doesn't count the total, only reporting whether there is a next page.
+     */
+    protected static final String TOTAL_NONE = "none";
+
+    /**
+     * Returns a page of data fetched by keyset paging.
+     *
+     * @param after The continuation token returned with the previous page, or an empty string for the first page.
+     * @param fetcher Fetches the page starting at a parsed continuation token, or the first page if it is passed
+     *        {@code null}.  This should throw an {@code IllegalArgumentException} if the token or requested sort
+     *        isn't supported.
+     * @param messages Used to localize the error if the token or sort isn't supported.
+     * @param <T> The type of data being paged through.
+     * @return The page.
+     * @throws BadRequestException If the token or sort isn't supported.
+     */
+    protected static <T> PagedDataRep<T> getKeysetPage(String after,
+                                                       Function<ContinuationToken, KeysetSlice<T>> fetcher,
+                                                       Messages messages) {
+
+        KeysetSlice<T> slice;
+        try {
+            slice = fetcher.apply(after.isEmpty() ? null : ContinuationToken.decode(after));
+        } catch (IllegalArgumentException iae) {
+            throw new BadRequestException(messages.get("error.invalidContinuationToken", after));
+        }
+
+        String next = slice.getNext() == null ? null : slice.getNext().encode();
+        return new PagedDataRep<>(slice.getContent(), slice.getStart(), PagedDataRep.UNKNOWN_TOTAL, next);
+    }
+
+    /**
+     * Returns a page of data.  If the page's total wasn't counted, {@link PagedDataRep#UNKNOWN_TOTAL} is reported
+     * along with whether there's a next page.
+     *
+     * @param slice The page of data.  This is treated as a {@code Page} with a known total if it is one.
+     * @param pageSize The page size requested.
+     * @param <T> The type of data being paged through.
+     * @return The page.
+     */
+    protected static <T> PagedDataRep<T> toPagedDataRep(Slice<T> slice, int pageSize) {
+
+        long start = (long)slice.getNumber() * pageSize;
+        if (slice instanceof Page) {
+            return new PagedDataRep<>(slice.getContent(), start, ((Page<T>)slice).getTotalElements());
+        }
+
+        PagedDataRep<T> rep = new PagedDataRep<>(slice.getContent(), start, PagedDataRep.UNKNOWN_TOTAL);
+        rep.setHasNext(slice.hasNext());
+        return rep;
+    }
+
     protected boolean isAdmin() {
         return hasRole("ROLE_ADMIN");
     }
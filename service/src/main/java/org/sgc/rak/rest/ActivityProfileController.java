@@ -5,16 +5,21 @@ import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.ActivityProfile;
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.NetworkRep;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.ActivityProfileService;
 import org.sgc.rak.services.KinaseService;
+import org.sgc.rak.services.NetworkService;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.SortDefault;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -22,19 +27,31 @@ import java.util.stream.Collectors;
  */
 @RestController
 @RequestMapping(path = "/api/activityProfiles")
-class ActivityProfileController {
+class ActivityProfileController extends AbstractRakController {
 
     private final ActivityProfileService activityProfileService;
     private final KinaseService kinaseService;
+    private final NetworkService networkService;
     private final Messages messages;
 
     private static final int MAX_ACTIVITY = 100;
 
+    /**
+     * The maximum number of compounds whose activity profiles can be fetched at once.
+     */
+    private static final int MAX_BATCH_COMPOUNDS = 200;
+
+    /**
+     * The maximum number of kinases a network can be built around.
+     */
+    private static final int MAX_NETWORK_KINASES = 10;
+
     @Autowired
     ActivityProfileController(ActivityProfileService activityProfileService, KinaseService kinaseService,
-                              Messages messages) {
+                              NetworkService networkService, Messages messages) {
         this.activityProfileService = activityProfileService;
         this.kinaseService = kinaseService;
+        this.networkService = networkService;
         this.messages = messages;
     }
 
@@ -47,6 +64,12 @@ class ActivityProfileController {
      *        the search to one particular kinase.
      * @param activity The value that the percent control of the activity profile must be less than or
      *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param after If specified, the page is fetched by keyset paging, starting after the continuation token
+     *        returned with the previous page, or at the beginning if this is empty.  The page number is ignored,
+     *        only the default sort is supported, and the total is not counted.
+     * @param total How to compute the total: {@code exact}, the default, counts it for every page; {@code cached}
+     *        counts it once per filter until the data changes; and {@code none} doesn't count it, reporting a
+     *        total of {@code -1} and whether there's a next page instead.  This is ignored when keyset paging.
      * @param pageInfo How to sort the data and what page of the data to return.
      * @return The list of kinase activity profiles.
      */
@@ -54,30 +77,148 @@ class ActivityProfileController {
     PagedDataRep<ActivityProfile> getActivityProfiles(@RequestParam(required = false) String compound,
                                     @RequestParam(required = false, name = "kinase") String kinaseEntrez,
                                     @RequestParam(required = false) Double activity,
+                                    @RequestParam(required = false) String after,
+                                    @RequestParam(defaultValue = TOTAL_EXACT) String total,
                                     @SortDefault.SortDefaults({ @SortDefault("kd"), @SortDefault("percentControl") })
                                     Pageable pageInfo) {
 
-        // Activity must be between 0 and 1
-        if (activity != null && (activity > MAX_ACTIVITY || activity < 0)) {
-            throw new BadRequestException(messages.get("error.actvityOutOfRange"));
+        validateActivity(activity);
+        List<Long> kinaseIds = getKinaseIds(kinaseEntrez);
+
+        if (after != null) {
+            return getKeysetPage(after, token -> activityProfileService.getActivityProfiles(compound, kinaseIds,
+                activity, token, pageInfo), messages);
+        }
+
+        Slice<ActivityProfile> slice;
+        switch (total) {
+            case TOTAL_EXACT:
+                slice = activityProfileService.getActivityProfiles(compound, kinaseIds, activity, pageInfo);
+                break;
+            case TOTAL_CACHED:
+                slice = activityProfileService.getActivityProfilesWithCachedTotal(compound, kinaseIds, activity,
+                    pageInfo);
+                break;
+            case TOTAL_NONE:
+                slice = activityProfileService.getActivityProfileSlice(compound, kinaseIds, activity, pageInfo);
+                break;
+            default:
+                throw new BadRequestException(messages.get("error.invalidTotal", total));
+        }
+
+        return toPagedDataRep(slice, pageInfo.getPageSize());
+    }
+
+    /**
+     * Returns kinase activity profile information for several compounds at once, grouped by compound.
+     *
+     * @param compoundNames The names of the compounds.  Blank and duplicate names are ignored.
+     * @param kinaseEntrez The kinase involved in the activity profiles.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param activity The value that the percent control of the activity profiles must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param kd The value that the Kd of the activity profiles must be less than or equal to. This may be
+     *        {@code null} to not restrict by Kd.
+     * @return The kinase activity profiles, keyed by compound name, in the order the compounds were specified.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/batch")
+    Map<String, List<ActivityProfile>> getActivityProfilesByCompound(
+                                    @RequestParam(name = "compound") List<String> compoundNames,
+                                    @RequestParam(required = false, name = "kinase") String kinaseEntrez,
+                                    @RequestParam(required = false) Double activity,
+                                    @RequestParam(required = false) Double kd) {
+
+        validateActivity(activity);
+
+        List<String> names = getDistinctValues(compoundNames);
+        if (names.size() > MAX_BATCH_COMPOUNDS) {
+            throw new BadRequestException(messages.get("error.tooManyBatchCompounds", MAX_BATCH_COMPOUNDS));
+        }
+
+        List<Long> kinaseIds = getKinaseIds(kinaseEntrez);
+        return activityProfileService.getActivityProfilesByCompound(names, kinaseIds, activity, kd);
+    }
+
+    /**
+     * Returns the network of interactions between compounds and kinases, built around either a set of compounds
+     * or a set of kinases.  If compounds are specified, they are all included, along with the kinases they
+     * interact with; otherwise the kinases are included, along with the compounds that interact with them.  If
+     * both are specified, only the interactions between them are included.  Hidden compounds are only included
+     * for admins.
+     *
+     * @param compoundNames The names of the compounds.  Blank and duplicate names are ignored.
+     * @param kinaseEntrezes The entrez gene symbols of the kinases.  Blank and duplicate symbols are ignored.
+     * @param activity The value that the percent control of an interaction must be less than or equal to.  This
+     *        may be {@code null} to not restrict by percent control.
+     * @param kd The value that the Kd of an interaction must be less than or equal to.  This may be {@code null}
+     *        to not restrict by Kd.
+     * @return The network.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "/network")
+    NetworkRep getNetwork(@RequestParam(required = false, name = "compound") List<String> compoundNames,
+                          @RequestParam(required = false, name = "kinase") List<String> kinaseEntrezes,
+                          @RequestParam(required = false) Double activity,
+                          @RequestParam(required = false) Double kd) {
+
+        validateActivity(activity);
+
+        List<String> names = getDistinctValues(compoundNames);
+        List<String> entrezes = getDistinctValues(kinaseEntrezes);
+
+        if (names.isEmpty() && entrezes.isEmpty()) {
+            throw new BadRequestException(messages.get("error.networkRequiresCompoundsOrKinases"));
+        }
+        if (names.size() > MAX_BATCH_COMPOUNDS) {
+            throw new BadRequestException(messages.get("error.tooManyBatchCompounds", MAX_BATCH_COMPOUNDS));
+        }
+        if (entrezes.size() > MAX_NETWORK_KINASES) {
+            throw new BadRequestException(messages.get("error.tooManySearchKinases", MAX_NETWORK_KINASES));
         }
 
         List<Long> kinaseIds = null;
-        if (StringUtils.isNotEmpty(kinaseEntrez)) {
-            List<Kinase> kinases = kinaseService.getKinase(kinaseEntrez);
-            if (kinases.isEmpty()) {
-                throw new BadRequestException(messages.get("error.noSuchKinase", kinaseEntrez));
+        if (!entrezes.isEmpty()) {
+            kinaseIds = new ArrayList<>();
+            for (String entrez : entrezes) {
+                kinaseIds.addAll(getKinaseIds(entrez));
             }
-            kinaseIds = kinases.stream()
-                .map(Kinase::getId)
-                .collect(Collectors.toList());
         }
 
-        Page<ActivityProfile> page = activityProfileService.getActivityProfiles(compound, kinaseIds,
-            activity, pageInfo);
+        return networkService.getNetwork(names.isEmpty() ? null : names, kinaseIds, activity, kd, isAdmin());
+    }
 
-        long start = page.getNumber() * pageInfo.getPageSize();
-        long total = page.getTotalElements();
-        return new PagedDataRep<>(page.getContent(), start, total);
+    /**
+     * Returns the distinct, non-blank values of a request parameter, in order.
+     */
+    private static List<String> getDistinctValues(List<String> values) {
+        if (values == null) {
+            return Collections.emptyList();
+        }
+        return values.stream()
+            .filter(StringUtils::isNotBlank)
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    private List<Long> getKinaseIds(String kinaseEntrez) {
+
+        if (StringUtils.isEmpty(kinaseEntrez)) {
+            return null;
+        }
+
+        List<Kinase> kinases = kinaseService.getKinase(kinaseEntrez);
+        if (kinases.isEmpty()) {
+            throw new BadRequestException(messages.get("error.noSuchKinase", kinaseEntrez));
+        }
+        return kinases.stream()
+            .map(Kinase::getId)
+            .collect(Collectors.toList());
+    }
+
+    private void validateActivity(Double activity) {
+
+        // Activity must be between 0 and 1
+        if (activity != null && (activity > MAX_ACTIVITY || activity < 0)) {
+            throw new BadRequestException(messages.get("error.actvityOutOfRange"));
+        }
     }
 }
@@ -26,7 +26,7 @@ import java.util.Date;
  */
 @RestController
 @RequestMapping(path = "/admin/api/audits")
-public class AuditController {
+public class AuditController extends AbstractRakController {
 
     private final AuditService auditService;
     private final Messages messages;
@@ -40,6 +40,9 @@ public class AuditController {
     /**
      * Returns audit records.
      *
+     * @param after If specified, the page is fetched by keyset paging, starting after the continuation token
+     *        returned with the previous page, or at the beginning if this is empty.  The page number is ignored,
+     *        only the default sort is supported, and the total is not counted.
      * @param pageInfo How to sort the data and what page of the data to return.
      * @return The list of audit records.
      */
@@ -50,11 +53,17 @@ public class AuditController {
                             @RequestParam(required = false) Boolean success,
                             @RequestParam(required = false) String fromDate,
                             @RequestParam(required = false) String toDate,
+                            @RequestParam(required = false) String after,
                             @SortDefault(value = "createDate", direction = Sort.Direction.DESC) Pageable pageInfo) {
 
         Date from = getDate("fromDate", fromDate, false);
         Date to = getDate("toDate", toDate, true);
 
+        if (after != null) {
+            return getKeysetPage(after, token -> auditService.getAudits(token, pageInfo, user, action, ipAddress,
+                success, from, to), messages);
+        }
+
         Page<Audit> page = auditService.getAudits(pageInfo, user, action, ipAddress, success, from, to);
         long start = page.getNumber() * pageInfo.getPageSize();
         long total = page.getTotalElements();
@@ -8,6 +8,7 @@ import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.AuditAction;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.AuditService;
 import org.sgc.rak.services.CompoundService;
@@ -20,6 +21,7 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.web.SortDefault;
 import org.springframework.http.CacheControl;
 import org.springframework.http.MediaType;
@@ -29,7 +31,10 @@ import org.springframework.web.bind.annotation.*;
 import javax.annotation.security.RolesAllowed;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
 
 /**
  * REST API for compound information.
@@ -45,6 +50,16 @@ class CompoundController extends AbstractRakController {
 
     private static final String MEDIA_TYPE_SVG = "image/svg+xml";
 
+    /**
+     * The maximum number of kinases a compound search can filter by.
+     */
+    private static final int MAX_SEARCH_KINASES = 10;
+
+    /**
+     * The maximum number of compound names returned by a typeahead request.
+     */
+    private static final int MAX_TYPEAHEAD_LIMIT = 50;
+
     private static final CacheControl ICON_CACHE_CONTROL_HEADER = CacheControl.maxAge(8, TimeUnit.HOURS);
 
     @Autowired
@@ -91,29 +106,54 @@ class CompoundController extends AbstractRakController {
     }
 
     /**
-     * Returns compound information, possibly filtered.
+     * Returns compound information, possibly filtered.  If searching by kinase, each compound's best (lowest)
+     * percent control, Kd or IC50 value against the kinase is also returned.
      *
      * @param compound A part of a compound name.  If specified, only compounds
      *        whose name contains this substring (ignoring case) will be returned.
+     * @param total How to compute the total: {@code exact}, the default, counts it for every page; {@code cached}
+     *        counts it once per search until the data changes; and {@code none} doesn't count it, reporting a
+     *        total of {@code -1} and whether there's a next page instead.
      * @param pageInfo How to sort the data and what page of the data to return.
      * @return The list of compounds.
      */
     @GetMapping
-    PagedDataRep<Compound> getCompounds(@RequestParam(required = false) String compound,
+    PagedDataRep<CompoundActivityPair> getCompounds(@RequestParam(required = false) String compound,
                                 @RequestParam(required = false, name = "kinase") String kinaseEntrez,
                                 @RequestParam(required = false) Double activity,
                                 @RequestParam(required = false) Double kd,
                                 @RequestParam(required = false) Double ic50,
+                                @RequestParam(defaultValue = TOTAL_EXACT) String total,
                                 @SortDefault("compoundName") Pageable pageInfo) {
 
         // Force all varchar sorts to be case-insensitive.  This does not affect non-varchar fields
         pageInfo = Util.getCaseInsensitivePageable(pageInfo);
 
         boolean isAdmin = isAdmin();
-        Page<Compound> page;
+
+        if (!TOTAL_EXACT.equals(total)) {
+
+            // The same filters, expressed as a search.  Searches by kinase include hidden compounds, as below
+            List<String> kinases = Collections.singletonList(kinaseEntrez);
+            if (StringUtils.isNotBlank(compound) || StringUtils.isBlank(kinaseEntrez)) {
+                return searchCompounds(total, compound, Collections.emptyList(), null, null, null, isAdmin, pageInfo);
+            }
+            else if (activity != null) {
+                return searchCompounds(total, null, kinases, activity, null, null, true, pageInfo);
+            }
+            else if (kd != null) {
+                return searchCompounds(total, null, kinases, null, kd, null, true, pageInfo);
+            }
+            else if (ic50 != null) {
+                return searchCompounds(total, null, kinases, null, null, ic50, true, pageInfo);
+            }
+            return searchCompounds(total, null, Collections.emptyList(), null, null, null, isAdmin, pageInfo);
+        }
+
+        Page<CompoundActivityPair> page;
 
         if (StringUtils.isNotBlank(compound)) {
-            page = compoundService.getCompounds(compound, pageInfo, isAdmin);
+            page = compoundService.getCompounds(compound, pageInfo, isAdmin).map(CompoundController::toPair);
         }
         else if (StringUtils.isNotBlank(kinaseEntrez) && activity != null) {
             page = compoundService.getCompoundsByKinaseAndActivity(kinaseEntrez, activity, pageInfo);
@@ -125,12 +165,109 @@ class CompoundController extends AbstractRakController {
             page = compoundService.getCompoundsByKinaseAndIc50(kinaseEntrez, ic50, pageInfo);
         }
         else {
-            page = compoundService.getCompounds(null, pageInfo, isAdmin);
+            page = compoundService.getCompounds(null, pageInfo, isAdmin).map(CompoundController::toPair);
         }
 
         long start = page.getNumber() * pageInfo.getPageSize();
-        long total = page.getTotalElements();
-        return new PagedDataRep<>(page.getContent(), start, total);
+        return new PagedDataRep<>(page.getContent(), start, page.getTotalElements());
+    }
+
+    /**
+     * Searches for compounds matching any combination of criteria.  Unlike {@link #getCompounds}, all criteria
+     * specified must match, so e.g. compounds with a name containing a string, that inhibit several kinases
+     * below a percent control and Kd, can be fetched in a single request.
+     *
+     * @param compound A part of a compound name.  If specified, only compounds whose name contains this
+     *        substring (ignoring case) are returned.
+     * @param kinaseEntrezes The entrez gene symbols of kinases.  If specified, only compounds with data for all
+     *        of these kinases (meeting any thresholds specified) are returned.
+     * @param activity If specified, the maximum percent control against each kinase.
+     * @param kd If specified, the maximum Kd against each kinase.
+     * @param ic50 If specified, the maximum NanoBRET IC50 against each kinase.
+     * @param total How to compute the total: {@code exact}, the default, counts it for every page; {@code cached}
+     *        counts it once per search until the data changes; and {@code none} doesn't count it, reporting a
+     *        total of {@code -1} and whether there's a next page instead.
+     * @param pageInfo How to sort the data and what page of the data to return.
+     * @return The matching compounds.
+     */
+    @GetMapping(path = "/search")
+    PagedDataRep<CompoundActivityPair> searchCompounds(@RequestParam(required = false) String compound,
+                            @RequestParam(required = false, name = "kinase") List<String> kinaseEntrezes,
+                            @RequestParam(required = false) Double activity,
+                            @RequestParam(required = false) Double kd,
+                            @RequestParam(required = false) Double ic50,
+                            @RequestParam(defaultValue = TOTAL_EXACT) String total,
+                            @SortDefault("compoundName") Pageable pageInfo) {
+
+        List<String> kinases = kinaseEntrezes == null ? Collections.emptyList() : kinaseEntrezes.stream()
+            .filter(StringUtils::isNotBlank)
+            .distinct()
+            .collect(Collectors.toList());
+        if (kinases.size() > MAX_SEARCH_KINASES) {
+            throw new BadRequestException(messages.get("error.tooManySearchKinases", MAX_SEARCH_KINASES));
+        }
+
+        // Force all varchar sorts to be case-insensitive.  This does not affect non-varchar fields
+        pageInfo = Util.getCaseInsensitivePageable(pageInfo);
+
+        if (!TOTAL_EXACT.equals(total)) {
+            return searchCompounds(total, StringUtils.trimToNull(compound), kinases, activity, kd, ic50, isAdmin(),
+                pageInfo);
+        }
+
+        Page<CompoundActivityPair> page = compoundService.searchCompounds(StringUtils.trimToNull(compound), kinases,
+            activity, kd, ic50, isAdmin(), pageInfo);
+
+        long start = page.getNumber() * pageInfo.getPageSize();
+        return new PagedDataRep<>(page.getContent(), start, page.getTotalElements());
+    }
+
+    /**
+     * Searches for compounds without counting the total for each page.
+     *
+     * @param total Either {@code cached} or {@code none}.
+     * @return The matching compounds.
+     * @throws BadRequestException If {@code total} isn't a known value.
+     */
+    private PagedDataRep<CompoundActivityPair> searchCompounds(String total, String compound, List<String> kinases,
+                                                               Double activity, Double kd, Double ic50,
+                                                               boolean includeHidden, Pageable pageInfo) {
+
+        Slice<CompoundActivityPair> slice;
+        switch (total) {
+            case TOTAL_CACHED:
+                slice = compoundService.searchCompoundsWithCachedTotal(compound, kinases, activity, kd, ic50,
+                    includeHidden, pageInfo);
+                break;
+            case TOTAL_NONE:
+                slice = compoundService.searchCompoundSlice(compound, kinases, activity, kd, ic50, includeHidden,
+                    pageInfo);
+                break;
+            default:
+                throw new BadRequestException(messages.get("error.invalidTotal", total));
+        }
+
+        return toPagedDataRep(slice, pageInfo.getPageSize());
+    }
+
+    /**
+     * Returns the names of compounds containing a string (ignoring case), best matches first, for typeahead.
+     * Hidden compounds are only returned to admins.
+     *
+     * @param compound A part of a compound name.
+     * @param limit The maximum number of names to return.  This is capped at {@value #MAX_TYPEAHEAD_LIMIT}.
+     * @return The matching compound names.
+     */
+    @GetMapping(path = "/typeahead")
+    List<String> getCompoundNameSuggestions(@RequestParam String compound,
+                                            @RequestParam(defaultValue = "10") int limit) {
+
+        if (StringUtils.isBlank(compound)) {
+            return Collections.emptyList();
+        }
+
+        limit = Math.max(1, Math.min(limit, MAX_TYPEAHEAD_LIMIT));
+        return compoundService.getCompoundNameSuggestions(compound.trim(), limit, isAdmin());
     }
 
     /**
@@ -225,8 +362,9 @@ class CompoundController extends AbstractRakController {
 
         Util.convertEmptyStringsToNulls(compound);
 
+        // The lookup ignores case, but only an exact match is updated rather than another compound being added
         Compound currentCompound = compoundService.getCompound(compoundName);
-        if (currentCompound == null) {
+        if (currentCompound == null || !compoundName.equals(currentCompound.getCompoundName())) {
             throw new NotFoundException(messages.get("error.noSuchCompound", compoundName));
         }
 
@@ -241,4 +379,8 @@ class CompoundController extends AbstractRakController {
             auditService.createAudit(null, AuditAction.UPDATE_COMPOUND, successful, details);
         }
     }
+
+    private static CompoundActivityPair toPair(Compound compound) {
+        return new CompoundActivityPair(compound, null);
+    }
 }
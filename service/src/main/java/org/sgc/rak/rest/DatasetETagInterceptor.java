@@ -0,0 +1,88 @@
+package org.sgc.rak.rest;
+
+import org.sgc.rak.services.DatasetVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Tags responses built from compound and activity profile data with a strong ETag derived from the
+ * {@link DatasetVersion} and the request.  If the caller already has the current response, as indicated by an
+ * {@code If-None-Match} header, a 304 is returned without the request being handled, so neither the data nor
+ * its serialization is recomputed.
+ */
+@Component
+public class DatasetETagInterceptor implements HandlerInterceptor {
+
+    private final DatasetVersion datasetVersion;
+
+    /**
+     * Responses may be stored, but must be revalidated before they are reused.  They are private since what
+     * admins see differs from what everyone else sees.
+     */
+    private static final String CACHE_CONTROL = CacheControl.noCache().cachePrivate().getHeaderValue();
+
+    @Autowired
+    public DatasetETagInterceptor(DatasetVersion datasetVersion) {
+        this.datasetVersion = datasetVersion;
+    }
+
+    /**
+     * Returns a description of everything about a request that determines how its response is built from the
+     * data: the path, parameters (in any order), requested content type, and whether the caller is an admin.
+     *
+     * @param request The request.
+     * @return The description.
+     */
+    static String describeRequest(HttpServletRequest request) {
+
+        StringBuilder sb = new StringBuilder(request.getRequestURI());
+        for (Map.Entry<String, String[]> param : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            sb.append('&').append(param.getKey());
+            for (String value : param.getValue()) {
+                sb.append('=').append(value);
+            }
+        }
+        sb.append('|').append(request.getHeader(HttpHeaders.ACCEPT));
+        sb.append('|').append(request.isUserInRole("ADMIN"));
+        return sb.toString();
+    }
+
+    /**
+     * Returns the ETag of the response to a request.  This identifies the data the response is built from, and
+     * how the response is built from it.
+     *
+     * @param request The request.
+     * @return The ETag, without quotes.
+     * @see #describeRequest(HttpServletRequest)
+     */
+    String getETag(HttpServletRequest request) {
+        String requestHash = DigestUtils.md5DigestAsHex(describeRequest(request).getBytes(StandardCharsets.UTF_8));
+        return datasetVersion.getVersion() + "-" + requestHash;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+
+        if (!HttpMethod.GET.matches(request.getMethod()) && !HttpMethod.HEAD.matches(request.getMethod())) {
+            return true;
+        }
+
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+
+        // Sets the ETag header, and the status to 304 if the caller's version matches
+        return !new ServletWebRequest(request, response).checkNotModified(getETag(request));
+    }
+}
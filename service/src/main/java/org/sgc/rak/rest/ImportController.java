@@ -1,10 +1,5 @@
 package org.sgc.rak.rest;
 
-import com.fasterxml.jackson.databind.DeserializationFeature;
-import com.fasterxml.jackson.databind.MappingIterator;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.dataformat.csv.CsvMapper;
-import com.fasterxml.jackson.dataformat.csv.CsvParser;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.exceptions.InternalServerErrorException;
@@ -14,21 +9,52 @@ import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.KdCsvRecord;
 import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.SScoreCsvRecord;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.reps.ImportJobRep;
+import org.sgc.rak.reps.ImportPreviewRep;
+import org.sgc.rak.reps.ImportPreviewRowRep;
+import org.sgc.rak.reps.ImportValidationRep;
 import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.ActivityProfileService;
 import org.sgc.rak.services.CompoundService;
+import org.sgc.rak.services.ImportJob;
+import org.sgc.rak.services.ImportErrorReport;
+import org.sgc.rak.services.ImportJobService;
+import org.sgc.rak.services.ImportPreviewService;
+import org.sgc.rak.services.ImportPublisher;
+import org.sgc.rak.services.UploadService;
 import org.sgc.rak.services.NanoBretActivityProfileService;
+import org.sgc.rak.util.CsvRecordReader;
 import org.sgc.rak.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -41,52 +67,243 @@ public class ImportController {
     private final CompoundService compoundService;
     private final ActivityProfileService activityProfileService;
     private final NanoBretActivityProfileService nanoBretActivityProfileService;
+    private final ImportJobService importJobService;
+    private final ImportPreviewService importPreviewService;
+    private final ImportPublisher importPublisher;
+    private final UploadService uploadService;
 
     private final Messages messages;
+    private final Environment environment;
+
+    /**
+     * The types of data that can be previewed and validated, keyed by the path used to import them.  S scores
+     * aren't included since their importer drops rows, so its results can't be matched up with row numbers.
+     */
+    private final Map<String, ImportType<?>> importTypes;
+
+    /**
+     * The number of records read and imported at a time when an import is streamed.  This can be overridden
+     * via the {@code rak.import.chunk-size} property.
+     */
+    private static final int DEFAULT_CHUNK_SIZE = 1000;
+
+    /**
+     * The maximum number of problems returned when validating a file.  This can be overridden via the
+     * {@code rak.import.max-validation-errors} property.
+     */
+    private static final int DEFAULT_MAX_VALIDATION_ERRORS = 1000;
+
+    private static final int FINGERPRINT_BUFFER_SIZE = 64 * 1024;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ImportController.class);
 
     @Autowired
+    @SuppressWarnings("checkstyle:ParameterNumber")
     ImportController(CompoundService compoundService, ActivityProfileService activityProfileService,
                      NanoBretActivityProfileService nanoBretActivityProfileService,
-                     Messages messages) {
+                     ImportJobService importJobService, ImportPreviewService importPreviewService,
+                     ImportPublisher importPublisher, UploadService uploadService, Messages messages,
+                     Environment environment) {
         this.compoundService = compoundService;
         this.activityProfileService = activityProfileService;
         this.nanoBretActivityProfileService = nanoBretActivityProfileService;
+        this.importJobService = importJobService;
+        this.importPreviewService = importPreviewService;
+        this.importPublisher = importPublisher;
+        this.uploadService = uploadService;
         this.messages = messages;
+        this.environment = environment;
+
+        importTypes = Map.of(
+            "activityProfiles", new ImportType<>(ActivityProfileCsvRecord.class, createActivityProfileSchema(),
+                (records, commit) -> activityProfileService.importActivityProfiles(records, commit),
+                (records, report) -> activityProfileService.validateActivityProfiles(records, report)),
+            "compounds", new ImportType<>(Compound.class, createCompoundSchema(),
+                (records, commit) -> compoundService.importCompounds(records, commit),
+                (records, report) -> compoundService.validateCompounds(records, report)),
+            "kdValues", new ImportType<>(KdCsvRecord.class, createKdValueSchema(),
+                (records, commit) -> activityProfileService.importKdValues(records, commit),
+                (records, report) -> activityProfileService.validateKdValues(records, report)),
+            "nanoBretActivityProfiles", new ImportType<>(NanoBretActivityProfileCsvRecord.class,
+                createNanoBretActivityProfileSchema(),
+                (records, commit) -> nanoBretActivityProfileService.importNanoBretActivityProfiles(records, commit),
+                (records, report) -> nanoBretActivityProfileService.validateNanoBretActivityProfiles(records,
+                    report))
+        );
     }
 
-    private <T> List<T> loadFromCsv(MultipartFile file, boolean headerRow, Class<T> clazz, CsvSchema schema) {
+    private static CsvSchema createActivityProfileSchema() {
+        return CsvSchema.builder()
+            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+            .addColumn("discoverxGeneSymbol", CsvSchema.ColumnType.STRING)
+            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
+            .addColumn("percentControl", CsvSchema.ColumnType.NUMBER)
+            .addColumn("compoundConcentration", CsvSchema.ColumnType.NUMBER)
+            .build();
+    }
 
-        String csv;
-        try {
-            csv = new String(file.getBytes(), StandardCharsets.UTF_8);
+    private static CsvSchema createCompoundSchema() {
+        return CsvSchema.builder()
+            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+            .addColumn("chemotype", CsvSchema.ColumnType.STRING)
+            .addColumn("s10", CsvSchema.ColumnType.NUMBER)
+            .addColumn("solubility", CsvSchema.ColumnType.NUMBER)
+            .addColumn("smiles", CsvSchema.ColumnType.STRING)
+            .addColumn("source", CsvSchema.ColumnType.STRING)
+            .addColumn("primaryReference", CsvSchema.ColumnType.STRING)
+            .addColumn("primaryReferenceUrl", CsvSchema.ColumnType.STRING)
+            .addColumn("hidden", CsvSchema.ColumnType.BOOLEAN)
+            .build();
+    }
+
+    private static CsvSchema createKdValueSchema() {
+        return CsvSchema.builder()
+            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+            .addColumn("discoverxGeneSymbol", CsvSchema.ColumnType.STRING)
+            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
+            .addColumn("modifier", CsvSchema.ColumnType.STRING)
+            .addColumn("kd", CsvSchema.ColumnType.NUMBER)
+            .build();
+    }
+
+    private static CsvSchema createNanoBretActivityProfileSchema() {
+        return CsvSchema.builder()
+            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
+            .addColumn("nlucOrientation", CsvSchema.ColumnType.STRING)
+            .addColumn("modifier", CsvSchema.ColumnType.STRING)
+            .addColumn("ic50", CsvSchema.ColumnType.NUMBER)
+            .addColumn("percentInhibition", CsvSchema.ColumnType.NUMBER)
+            .addColumn("compoundConcentration", CsvSchema.ColumnType.NUMBER)
+            .addColumn("points", CsvSchema.ColumnType.NUMBER)
+            .addColumn("comment", CsvSchema.ColumnType.STRING)
+            .addColumn("date", CsvSchema.ColumnType.STRING)
+            .build();
+    }
+
+    private static CsvSchema createSScoreSchema() {
+        return CsvSchema.builder()
+            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+            .addColumn("selectivityScoreType", CsvSchema.ColumnType.STRING)
+            .addColumn("numberOfHits", CsvSchema.ColumnType.NUMBER)
+            .addColumn("numberOfNonMutantHits", CsvSchema.ColumnType.NUMBER)
+            .addColumn("screeningConcentration", CsvSchema.ColumnType.NUMBER)
+            .addColumn("selectivityScore", CsvSchema.ColumnType.NUMBER)
+            .build();
+    }
+
+    private int getChunkSize() {
+        return environment.getProperty("rak.import.chunk-size", Integer.class, DEFAULT_CHUNK_SIZE);
+    }
+
+    private ImportType<?> getImportType(String type) {
+        ImportType<?> importType = importTypes.get(type);
+        if (importType == null) {
+            throw new NotFoundException(messages.get("error.noSuchImportType", type));
+        }
+        return importType;
+    }
+
+    /**
+     * Hands an iterator over the CSV file's records to {@code importer}, which consumes them as it sends them to
+     * the database.  This is used for set-based imports, which only return record counts.
+     */
+    private <T> ObjectImportRep bulkFromCsv(String type, MultipartFile file, boolean headerRow, boolean commit,
+                                            Class<T> clazz, CsvSchema schema,
+                                            Function<Iterator<T>, ObjectImportRep> importer) {
+
+        try (CsvRecordReader<T> reader = openCsv(file, headerRow, clazz, schema)) {
+
+            Iterator<T> records = reader.iterator();
+            if (!records.hasNext()) {
+                throw new BadRequestException(messages.get("error.noDataInFile"));
+            }
+
+            return publishIfCommitting(type, file, headerRow, commit, () -> importer.apply(records));
+        } catch (UncheckedIOException uioe) {
+            throw invalidCsvFormat(clazz, uioe.getCause());
         } catch (IOException ioe) {
             throw new InternalServerErrorException(messages.get("error.importingData"));
         }
+    }
 
-        CsvMapper mapper = new CsvMapper();
-        ObjectReader reader;
-        List<T> data;
+    /**
+     * Imports a CSV file, either all at once or, if {@code stream} is {@code true}, a chunk at a time.
+     *
+     * @param type The type of data being imported, e.g. {@code activityProfiles}.
+     * @param file The CSV data.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether {@code importer} commits its changes.  If it does, they are published atomically.
+     * @param stream Whether to stream the data to {@code importer} in chunks.
+     * @param clazz The type of record in the CSV data.
+     * @param schema The schema of the CSV data.
+     * @param importer Imports a list of records and returns the result of the operation.
+     * @param <T> The type of record in the CSV data.
+     * @return The result of the operation.
+     */
+    private <T> ObjectImportRep importCsv(String type, MultipartFile file, boolean headerRow, boolean commit,
+                                          boolean stream, Class<T> clazz, CsvSchema schema,
+                                          Function<List<T>, ObjectImportRep> importer) {
+
+        if (stream) {
+            return publishIfCommitting(type, file, headerRow, commit,
+                () -> streamFromCsv(file, headerRow, clazz, schema, importer, null));
+        }
+
+        return publishIfCommitting(type, file, headerRow, commit,
+            () -> importer.apply(loadFromCsv(file, headerRow, clazz, schema)));
+    }
 
-        if (headerRow) {
-            schema = schema.withHeader();
+    /**
+     * Runs an import of a CSV file.  If it commits, all of its changes are made in a single transaction, so
+     * readers see either none of them or all of them, and a failed import leaves nothing behind.  A committing
+     * import of the same file as the last one published by this server may be skipped; see
+     * {@link ImportPublisher#publishFile(String, Supplier)}.
+     */
+    private ObjectImportRep publishIfCommitting(String type, InputStreamSource file, boolean headerRow,
+                                                boolean commit, Supplier<ObjectImportRep> importer) {
+        if (!commit) {
+            return importer.get();
         }
+        return importPublisher.publishFile(fingerprint(type, file, headerRow), importer);
+    }
+
+    /**
+     * Returns a SHA-256 hash identifying an import file's type and contents.  Hashing is much cheaper than
+     * parsing, so this lets unchanged files be recognized before they are imported.
+     */
+    private String fingerprint(String type, InputStreamSource file, boolean headerRow) {
 
+        MessageDigest digest;
         try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) { // Never happens; all JVMs support SHA-256
+            throw new InternalServerErrorException(messages.get("error.importingData"), nsae);
+        }
 
-            reader = mapper.readerFor(clazz).with(schema);
+        digest.update((type + ':' + headerRow + ':').getBytes(StandardCharsets.UTF_8));
 
-            MappingIterator<T> iter = reader
-                // Note this doesn't seem to work, so we manually null out empty strings later
-                .withFeatures(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT)
-                .withFeatures(CsvParser.Feature.FAIL_ON_MISSING_COLUMNS)
-                .readValues(csv);
-            data = iter.readAll();
-        } catch (Exception e) {
-            LOGGER.error("Error deserializing CSV into " + clazz.getSimpleName() + ": " + e.getMessage(),
-                LOGGER.isDebugEnabled() ? e : null);
-            throw new BadRequestException(messages.get("error.invalidCsvFormat"));
+        try (InputStream in = file.getInputStream()) {
+            byte[] buffer = new byte[FINGERPRINT_BUFFER_SIZE];
+            int count;
+            while ((count = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, count);
+            }
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.importingData"), ioe);
+        }
+
+        return type + ':' + Base64.getEncoder().encodeToString(digest.digest());
+    }
+
+    private <T> List<T> loadFromCsv(MultipartFile file, boolean headerRow, Class<T> clazz, CsvSchema schema) {
+
+        List<T> data;
+
+        try (CsvRecordReader<T> reader = openCsv(file, headerRow, clazz, schema)) {
+            data = readChunk(reader, Integer.MAX_VALUE, clazz);
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.importingData"));
         }
 
         if (data.isEmpty()) {
@@ -96,33 +313,334 @@ public class ImportController {
         return data;
     }
 
+    private <T> CsvRecordReader<T> openCsv(InputStreamSource source, boolean headerRow, Class<T> clazz,
+                                           CsvSchema schema) {
+
+        InputStream in;
+        try {
+            in = source.getInputStream();
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.importingData"));
+        }
+
+        try {
+            return new CsvRecordReader<>(in, clazz, schema, headerRow);
+        } catch (Exception e) {
+            closeQuietly(in);
+            throw invalidCsvFormat(clazz, e);
+        }
+    }
+
+    private static void closeQuietly(InputStream in) {
+        try {
+            in.close();
+        } catch (IOException ioe) {
+            LOGGER.debug("Error closing CSV input stream", ioe);
+        }
+    }
+
+    private <T> List<T> readChunk(CsvRecordReader<T> reader, int maxSize, Class<T> clazz) {
+        try {
+            return reader.readChunk(maxSize);
+        } catch (Exception e) {
+            throw invalidCsvFormat(clazz, e);
+        }
+    }
+
+    private BadRequestException invalidCsvFormat(Class<?> clazz, Exception e) {
+        LOGGER.error("Error deserializing CSV into " + clazz.getSimpleName() + ": " + e.getMessage(),
+            LOGGER.isDebugEnabled() ? e : null);
+        return new BadRequestException(messages.get("error.invalidCsvFormat"));
+    }
+
+    /**
+     * Reads records from the CSV file's input stream and hands them to {@code importer} in bounded chunks, so
+     * memory use stays flat regardless of the file's size.  If {@code importer} commits, this should be called
+     * via {@link #publishIfCommitting(String, InputStreamSource, boolean, boolean, Supplier)}, so that the chunks
+     * are written in a single transaction and published together.  Since field statuses aren't retained across
+     * chunks, the returned result contains only record counts.<p>
+     *
+     * If {@code job} is specified, progress is reported to it, and it is checked for cancellation before each
+     * chunk is read.
+     */
+    private <T> ObjectImportRep streamFromCsv(InputStreamSource source, boolean headerRow, Class<T> clazz,
+                                              CsvSchema schema, Function<List<T>, ObjectImportRep> importer,
+                                              ImportJob job) {
+
+        ObjectImportRep result = new ObjectImportRep();
+        int chunkSize = getChunkSize();
+        long recordCount = 0;
+
+        try (CsvRecordReader<T> reader = openCsv(source, headerRow, clazz, schema)) {
+
+            while (true) {
+
+                if (job != null) {
+                    job.checkCancelled();
+                }
+
+                long start = System.currentTimeMillis();
+                List<T> chunk = readChunk(reader, chunkSize, clazz);
+                if (chunk.isEmpty()) {
+                    break;
+                }
+                if (job != null) {
+                    job.rowsParsed(chunk.size(), System.currentTimeMillis() - start);
+                }
+
+                start = System.currentTimeMillis();
+                Util.addRecordCounts(result, importer.apply(chunk));
+                importPublisher.endChunk();
+                if (job != null) {
+                    job.rowsImported(chunk.size(), System.currentTimeMillis() - start);
+                }
+
+                recordCount += chunk.size();
+                LOGGER.debug("Imported {} {} records so far", recordCount, clazz.getSimpleName());
+            }
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.importingData"));
+        }
+
+        if (recordCount == 0) {
+            throw new BadRequestException(messages.get("error.noDataInFile"));
+        }
+
+        return result;
+    }
+
+    /**
+     * Queues a CSV file to be imported in the background, a chunk at a time.  The file is either uploaded with
+     * the request or, if it is larger than a single request allows, assembled from a completed chunked upload.
+     * Since an uploaded file is removed when the request completes, it is first copied to a temporary file.
+     * Either way, the file is deleted when the job finishes.  A chunked upload is only removed once its job is
+     * queued, so if the queue is full it can be submitted again later without being uploaded again.
+     */
+    private <T> ImportJobRep submitImportJob(String type, MultipartFile file, String uploadId, boolean headerRow,
+                                             boolean commit, Class<T> clazz, CsvSchema schema,
+                                             Function<List<T>, ObjectImportRep> importer) {
+
+        Function<Path, ImportJobRep> submitter = temp -> {
+            FileSystemResource resource = new FileSystemResource(temp);
+            return importJobService.submitJob(type, commit,
+                job -> publishIfCommitting(type, resource, headerRow, commit,
+                    () -> streamFromCsv(resource, headerRow, clazz, schema, importer, job)),
+                () -> deleteQuietly(temp));
+        };
+
+        if (uploadId != null) {
+            return uploadService.completeSession(uploadId, submitter);
+        }
+        if (file != null) {
+            return submitter.apply(copyToTempFile(file));
+        }
+        throw new BadRequestException(messages.get("error.noImportFile"));
+    }
+
+    private Path copyToTempFile(MultipartFile file) {
+
+        Path temp;
+        try {
+            temp = Files.createTempFile("rak-import-", ".csv");
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.importingData"), ioe);
+        }
+
+        try {
+            file.transferTo(temp);
+        } catch (IOException ioe) {
+            deleteQuietly(temp);
+            throw new InternalServerErrorException(messages.get("error.importingData"), ioe);
+        }
+
+        return temp;
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ioe) {
+            LOGGER.warn("Error deleting temporary import file " + file, ioe);
+        }
+    }
+
+    private <T> ImportPreviewRep createPreview(String type, ImportType<T> importType, MultipartFile file,
+                                               boolean headerRow) {
+        List<T> records = loadFromCsv(file, headerRow, importType.clazz, importType.schema);
+        return importPreviewService.createPreview(type, records, getChunkSize(), importType.importer,
+            importType.validator);
+    }
+
+    /**
+     * Previews an import and stores the preview on the server.  Rather than the status of every field of every
+     * row, only a summary is returned; the changed rows can then be fetched a page at a time via
+     * {@link #getImportPreviewRows(String, ImportPreviewRowRep.Status, Pageable)}, and the preview committed via
+     * {@link #commitImportPreview(String)}.
+     *
+     * @param type The type of data being imported: {@code activityProfiles}, {@code compounds}, {@code kdValues}
+     *        or {@code nanoBretActivityProfiles}.
+     * @param file The CSV data.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @return A summary of the preview.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importPreviews/{type}")
+    @ResponseStatus(HttpStatus.CREATED)
+    ImportPreviewRep createImportPreview(@PathVariable String type, @RequestPart("file") MultipartFile file,
+                                         @RequestParam(defaultValue = "true") boolean headerRow) {
+
+        return createPreview(type, getImportType(type), file, headerRow);
+    }
+
+    /**
+     * Returns a summary of a stored import preview.
+     *
+     * @param id The ID of the preview.
+     * @return The summary.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "importPreviews/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    ImportPreviewRep getImportPreview(@PathVariable String id) {
+        return importPreviewService.getPreview(id);
+    }
+
+    /**
+     * Returns a page of the new and modified rows of a stored import preview, in file order.
+     *
+     * @param id The ID of the preview.
+     * @param status If specified, only rows with this status are returned.
+     * @param pageInfo The page of rows to return.
+     * @return The rows.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "importPreviews/{id}/rows")
+    @ResponseStatus(HttpStatus.OK)
+    PagedDataRep<ImportPreviewRowRep> getImportPreviewRows(@PathVariable String id,
+                                                           @RequestParam(required = false)
+                                                               ImportPreviewRowRep.Status status,
+                                                           Pageable pageInfo) {
+
+        Page<ImportPreviewRowRep> page = importPreviewService.getPreviewRows(id, status, pageInfo);
+
+        long start = page.getNumber() * pageInfo.getPageSize();
+        long total = page.getTotalElements();
+        return new PagedDataRep<>(page.getContent(), start, total);
+    }
+
+    /**
+     * Commits a stored import preview, without the file being uploaded and parsed again.  Records are imported a
+     * chunk at a time, and published together once all have been imported.  Invalid rows are skipped.
+     *
+     * @param id The ID of the preview.  The preview is discarded once committed.
+     * @return The result of the operation.  Only record counts are returned.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importPreviews/{id}/commit")
+    @ResponseStatus(HttpStatus.OK)
+    ObjectImportRep commitImportPreview(@PathVariable String id) {
+        return importPreviewService.commitPreview(id, getChunkSize());
+    }
+
+    /**
+     * Discards a stored import preview.
+     *
+     * @param id The ID of the preview.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, path = "importPreviews/{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    void discardImportPreview(@PathVariable String id) {
+        importPreviewService.discardPreview(id);
+    }
+
+    private <T> ImportValidationRep validate(String type, ImportType<T> importType, MultipartFile file,
+                                             boolean headerRow) {
+
+        int maxErrors = environment.getProperty("rak.import.max-validation-errors", Integer.class,
+            DEFAULT_MAX_VALIDATION_ERRORS);
+        ImportErrorReport report = new ImportErrorReport(maxErrors);
+
+        streamFromCsv(file, headerRow, importType.clazz, importType.schema, records -> {
+            importType.validator.accept(records, report);
+            return new ObjectImportRep();
+        }, null);
+
+        LOGGER.info("Validated {} file: {} errors found", type, report.getErrorCount());
+        return report.toRep(type);
+    }
+
+    /**
+     * Validates a CSV file without importing it.  Rather than failing on the first bad row, the whole file is
+     * checked in a single pass, a chunk at a time, and every problem found is reported with its row and field.
+     * Only the first {@code rak.import.max-validation-errors} problems are returned, but all are counted.
+     *
+     * @param type The type of data being imported: {@code activityProfiles}, {@code compounds}, {@code kdValues}
+     *        or {@code nanoBretActivityProfiles}.
+     * @param file The CSV data.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @return The problems found.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importValidations/{type}")
+    @ResponseStatus(HttpStatus.OK)
+    ImportValidationRep validateImport(@PathVariable String type, @RequestPart("file") MultipartFile file,
+                                       @RequestParam(defaultValue = "true") boolean headerRow) {
+        return validate(type, getImportType(type), file, headerRow);
+    }
+
+    /**
+     * Returns the state of an import job.
+     *
+     * @param id The ID of the job.
+     * @return The state of the job, including its progress and, once it has finished, its result.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "importJobs/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    ImportJobRep getImportJob(@PathVariable String id) {
+        return importJobService.getJob(id);
+    }
+
+    /**
+     * Cancels an import job.  A queued job is cancelled immediately; a running job stops before its next chunk
+     * of records.  Anything a committing job has already imported is rolled back.
+     *
+     * @param id The ID of the job.
+     * @return The state of the job.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, path = "importJobs/{id}")
+    @ResponseStatus(HttpStatus.OK)
+    ImportJobRep cancelImportJob(@PathVariable String id) {
+        return importJobService.cancelJob(id);
+    }
+
     /**
      * Imports a CSV file of activity profiles.  The data is merged/patched into the existing activity profile data;
      * that is, new activity profiles are added, and existing activity profiles have their non-null/empty values
-     * merged into the existing record.
+     * merged into the existing record.  Rows that wouldn't change an existing record aren't written.  If the file
+     * is identical to the last one committed through this server, and nothing has been changed through it since,
+     * it isn't imported again, and only record counts are returned, without field statuses; see
+     * {@link ImportPublisher}.
      *
      * @param file The CSV activity profile data from Discoverx.
      * @param headerRow Whether the CSV data contains a header row.
      * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @param stream Whether to read and import the file in chunks.  When committing, the chunks are published
+     *        together once all have been imported.  Only record counts are returned.
+     * @param bulk Whether to import the file with a single set-based merge, if the database supports it.  This
+     *        takes precedence over {@code stream}.  Only record counts are returned.
      * @return The result of the operation.
      */
     @RequestMapping(method = RequestMethod.PATCH, path = "activityProfiles")
     @ResponseStatus(HttpStatus.OK)
     ObjectImportRep importActivityProfiles(@RequestPart("file") MultipartFile file,
                                            @RequestParam(defaultValue = "true") boolean headerRow,
-                                           @RequestParam(defaultValue = "true") boolean commit) {
+                                           @RequestParam(defaultValue = "true") boolean commit,
+                                           @RequestParam(defaultValue = "false") boolean stream,
+                                           @RequestParam(defaultValue = "false") boolean bulk) {
 
-        CsvSchema schema = CsvSchema.builder()
-            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
-            .addColumn("discoverxGeneSymbol", CsvSchema.ColumnType.STRING)
-            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
-            .addColumn("percentControl", CsvSchema.ColumnType.NUMBER)
-            .addColumn("compoundConcentration", CsvSchema.ColumnType.NUMBER)
-            .build();
+        CsvSchema schema = createActivityProfileSchema();
 
-        List<ActivityProfileCsvRecord> activityProfiles = loadFromCsv(file, headerRow,
-            ActivityProfileCsvRecord.class, schema);
-        return activityProfileService.importActivityProfiles(activityProfiles, commit);
+        if (bulk) {
+            return bulkFromCsv("activityProfiles", file, headerRow, commit, ActivityProfileCsvRecord.class, schema,
+                records -> activityProfileService.bulkImportActivityProfiles(records, commit));
+        }
+        return importCsv("activityProfiles", file, headerRow, commit, stream, ActivityProfileCsvRecord.class, schema,
+            records -> activityProfileService.importActivityProfiles(records, commit));
     }
 
     /**
@@ -130,95 +648,98 @@ public class ImportController {
      * utility provided for easy bulk modification of compounds.<p>
      *
      * The data is merged/patched into the existing compound data; that is, new compounds are added, and existing
-     * compounds have their non-null/empty values merged into the existing compound record.
+     * compounds have their non-null/empty values merged into the existing compound record.  If the file is identical to
+     * the last one committed through this server, and nothing has been changed through it since, it isn't imported
+     * again, and only record counts are returned, without field statuses; see {@link ImportPublisher}.
      *
      * @param file The CSV compound data.
      * @param headerRow Whether the CSV data contains a header row.
      * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @param stream Whether to read and import the file in chunks.  When committing, the chunks are published
+     *        together once all have been imported.  Only record counts are returned.
      * @return The result of the operation.
      */
     @RequestMapping(method = RequestMethod.PATCH, path = "compounds")
     @ResponseStatus(HttpStatus.OK)
     ObjectImportRep importCompounds(@RequestPart("file") MultipartFile file,
                                     @RequestParam(defaultValue = "true") boolean headerRow,
-                                    @RequestParam(defaultValue = "true") boolean commit) {
+                                    @RequestParam(defaultValue = "true") boolean commit,
+                                    @RequestParam(defaultValue = "false") boolean stream) {
 
-        CsvSchema schema = CsvSchema.builder()
-            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
-            .addColumn("chemotype", CsvSchema.ColumnType.STRING)
-            .addColumn("s10", CsvSchema.ColumnType.NUMBER)
-            .addColumn("solubility", CsvSchema.ColumnType.NUMBER)
-            .addColumn("smiles", CsvSchema.ColumnType.STRING)
-            .addColumn("source", CsvSchema.ColumnType.STRING)
-            .addColumn("primaryReference", CsvSchema.ColumnType.STRING)
-            .addColumn("primaryReferenceUrl", CsvSchema.ColumnType.STRING)
-            .addColumn("hidden", CsvSchema.ColumnType.BOOLEAN)
-            .build();
+        CsvSchema schema = createCompoundSchema();
 
-        List<Compound> compounds = loadFromCsv(file, headerRow, Compound.class, schema);
-        return compoundService.importCompounds(compounds, commit);
+        return importCsv("compounds", file, headerRow, commit, stream, Compound.class, schema,
+            records -> compoundService.importCompounds(records, commit));
     }
 
     /**
      * Imports a CSV file of Kd values from Discoverx.  The data is merged/patched into the existing activity
      * profile data; that is, new activity profiles are added, and existing activity profiles have their non-null/empty
-     * values merged into the existing record.
+     * values merged into the existing record.  If the file is identical to the last one committed through this server,
+     * and nothing has been changed through it since, it isn't imported again, and only record counts are returned,
+     * without field statuses; see {@link ImportPublisher}.
      *
      * @param file The CSV Kd data from Discoverx.
      * @param headerRow Whether the CSV data contains a header row.
      * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @param stream Whether to read and import the file in chunks.  When committing, the chunks are published
+     *        together once all have been imported.  Only record counts are returned.
+     * @param bulk Whether to import the file with a single set-based merge, if the database supports it.  This
+     *        takes precedence over {@code stream}.  Only record counts are returned.
      * @return The result of the operation.
      */
     @RequestMapping(method = RequestMethod.PATCH, path = "kdValues")
     @ResponseStatus(HttpStatus.OK)
     ObjectImportRep importKdValues(@RequestPart("file") MultipartFile file,
                                    @RequestParam(defaultValue = "true") boolean headerRow,
-                                   @RequestParam(defaultValue = "true") boolean commit) {
+                                   @RequestParam(defaultValue = "true") boolean commit,
+                                   @RequestParam(defaultValue = "false") boolean stream,
+                                   @RequestParam(defaultValue = "false") boolean bulk) {
 
-        CsvSchema schema = CsvSchema.builder()
-            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
-            .addColumn("discoverxGeneSymbol", CsvSchema.ColumnType.STRING)
-            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
-            .addColumn("modifier", CsvSchema.ColumnType.STRING)
-            .addColumn("kd", CsvSchema.ColumnType.NUMBER)
-            .build();
+        CsvSchema schema = createKdValueSchema();
 
-        List<KdCsvRecord> kdValues = loadFromCsv(file, headerRow, KdCsvRecord.class, schema);
-        return activityProfileService.importKdValues(kdValues, commit);
+        if (bulk) {
+            return bulkFromCsv("kdValues", file, headerRow, commit, KdCsvRecord.class, schema,
+                records -> activityProfileService.bulkImportKdValues(records, commit));
+        }
+        return importCsv("kdValues", file, headerRow, commit, stream, KdCsvRecord.class, schema,
+            records -> activityProfileService.importKdValues(records, commit));
     }
 
     /**
      * Imports a CSV file of nanoBRET activity profiles.  The data is merged/patched into the existing activity profile
      * data; that is, new activity profiles are added, and existing activity profiles have their non-null/empty values
-     * merged into the existing record.
+     * merged into the existing record.  If the file is identical to the last one committed through this server, and
+     * nothing has been changed through it since, it isn't imported again, and only record counts are returned, without
+     * field statuses; see {@link ImportPublisher}.
      *
      * @param file The CSV NanoBRET activity profile data from SGC employees.
      * @param headerRow Whether the CSV data contains a header row.
      * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @param stream Whether to read and import the file in chunks.  When committing, the chunks are published
+     *        together once all have been imported.  Only record counts are returned.
+     * @param bulk Whether to import the file with a single set-based merge, if the database supports it.  This
+     *        takes precedence over {@code stream}.  Only record counts are returned.
      * @return The result of the operation.
      */
     @RequestMapping(method = RequestMethod.PATCH, path = "nanoBretActivityProfiles")
     @ResponseStatus(HttpStatus.OK)
     ObjectImportRep importNanoBretActivityProfiles(@RequestPart("file") MultipartFile file,
                                                    @RequestParam(defaultValue = "true") boolean headerRow,
-                                                   @RequestParam(defaultValue = "true") boolean commit) {
+                                                   @RequestParam(defaultValue = "true") boolean commit,
+                                                   @RequestParam(defaultValue = "false") boolean stream,
+                                                   @RequestParam(defaultValue = "false") boolean bulk) {
 
-        CsvSchema schema = CsvSchema.builder()
-            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
-            .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
-            .addColumn("nlucOrientation", CsvSchema.ColumnType.STRING)
-            .addColumn("modifier", CsvSchema.ColumnType.STRING)
-            .addColumn("ic50", CsvSchema.ColumnType.NUMBER)
-            .addColumn("percentInhibition", CsvSchema.ColumnType.NUMBER)
-            .addColumn("compoundConcentration", CsvSchema.ColumnType.NUMBER)
-            .addColumn("points", CsvSchema.ColumnType.NUMBER)
-            .addColumn("comment", CsvSchema.ColumnType.STRING)
-            .addColumn("date", CsvSchema.ColumnType.STRING)
-            .build();
+        CsvSchema schema = createNanoBretActivityProfileSchema();
 
-        List<NanoBretActivityProfileCsvRecord> activityProfiles = loadFromCsv(file, headerRow,
-            NanoBretActivityProfileCsvRecord.class, schema);
-        return nanoBretActivityProfileService.importNanoBretActivityProfiles(activityProfiles, commit);
+        if (bulk) {
+            return bulkFromCsv("nanoBretActivityProfiles", file, headerRow, commit,
+                NanoBretActivityProfileCsvRecord.class, schema,
+                records -> nanoBretActivityProfileService.bulkImportNanoBretActivityProfiles(records, commit));
+        }
+        return importCsv("nanoBretActivityProfiles", file, headerRow, commit, stream,
+            NanoBretActivityProfileCsvRecord.class, schema,
+            records -> nanoBretActivityProfileService.importNanoBretActivityProfiles(records, commit));
     }
 
     /**
@@ -226,34 +747,176 @@ public class ImportController {
      * profile data; that is, new activity profiles are added, and existing activity profiles have their non-null/empty
      * values merged into the existing record.<p>
      *
-     * If the CSV data contains any S scores other than s(10)s (for example, s(1)s or s(35)s), they are ignored.
+     * If the CSV data contains any S scores other than s(10)s (for example, s(1)s or s(35)s), they are ignored.  If the
+     * file is identical to the last one committed through this server, and nothing has been changed through it since,
+     * it isn't imported again, and only record counts are returned, without field statuses; see
+     * {@link ImportPublisher}.
      *
      * @param file The CSV S Score data from Discoverx.
      * @param headerRow Whether the CSV data contains a header row.
      * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @param stream Whether to read and import the file in chunks.  When committing, the chunks are published
+     *        together once all have been imported.  Only record counts are returned.
      * @return The result of the operation.
      */
     @RequestMapping(method = RequestMethod.PATCH, path = "sScores")
     @ResponseStatus(HttpStatus.OK)
     ObjectImportRep importSScores(@RequestPart("file") MultipartFile file,
                                    @RequestParam(defaultValue = "true") boolean headerRow,
-                                   @RequestParam(defaultValue = "true") boolean commit) {
+                                   @RequestParam(defaultValue = "true") boolean commit,
+                                   @RequestParam(defaultValue = "false") boolean stream) {
 
-        CsvSchema schema = CsvSchema.builder()
-            .addColumn("compoundName", CsvSchema.ColumnType.STRING)
-            .addColumn("selectivityScoreType", CsvSchema.ColumnType.STRING)
-            .addColumn("numberOfHits", CsvSchema.ColumnType.NUMBER)
-            .addColumn("numberOfNonMutantHits", CsvSchema.ColumnType.NUMBER)
-            .addColumn("screeningConcentration", CsvSchema.ColumnType.NUMBER)
-            .addColumn("selectivityScore", CsvSchema.ColumnType.NUMBER)
-            .build();
+        CsvSchema schema = createSScoreSchema();
 
-        List<SScoreCsvRecord> sScores = loadFromCsv(file, headerRow, SScoreCsvRecord.class, schema);
+        return importCsv("sScores", file, headerRow, commit, stream, SScoreCsvRecord.class, schema,
+            records -> importSScoreRecords(records, commit));
+    }
 
+    private ObjectImportRep importSScoreRecords(List<SScoreCsvRecord> sScores, boolean commit) {
         List<Compound> compounds = sScores.stream()
             .filter(s -> "S(10)".equals(s.getSelectivityScoreType())) // Only care about s(10) for now
             .map(Util::sScoreCsvRecordToCompound)
             .collect(Collectors.toList());
         return compoundService.importCompounds(compounds, commit);
     }
+
+    /**
+     * Queues a CSV file of activity profiles to be imported in the background, as per
+     * {@link #importActivityProfiles(MultipartFile, boolean, boolean, boolean, boolean)}.  The file is imported a
+     * chunk at a time; when committing, the chunks are published together once all have been imported.
+     *
+     * @param file The CSV activity profile data from Discoverx.
+     *        This may be omitted if {@code uploadId} is specified.
+     * @param uploadId The ID of a chunked upload of the CSV data, for files too large to upload with the request.
+     *        See {@link UploadController}.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @return The state of the newly-queued job.  Its progress can be polled via {@link #getImportJob(String)}.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importJobs/activityProfiles")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    ImportJobRep submitActivityProfileImportJob(@RequestPart(value = "file", required = false) MultipartFile file,
+                                                @RequestParam(required = false) String uploadId,
+                                                @RequestParam(defaultValue = "true") boolean headerRow,
+                                                @RequestParam(defaultValue = "true") boolean commit) {
+        return submitImportJob("activityProfiles", file, uploadId, headerRow, commit,
+            ActivityProfileCsvRecord.class, createActivityProfileSchema(),
+            records -> activityProfileService.importActivityProfiles(records, commit));
+    }
+
+    /**
+     * Queues a CSV file of compounds to be imported in the background, as per
+     * {@link #importCompounds(MultipartFile, boolean, boolean, boolean)}.  The file is imported a chunk at a time;
+     * when committing, the chunks are published together once all have been imported.
+     *
+     * @param file The CSV compound data.
+     *        This may be omitted if {@code uploadId} is specified.
+     * @param uploadId The ID of a chunked upload of the CSV data, for files too large to upload with the request.
+     *        See {@link UploadController}.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @return The state of the newly-queued job.  Its progress can be polled via {@link #getImportJob(String)}.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importJobs/compounds")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    ImportJobRep submitCompoundImportJob(@RequestPart(value = "file", required = false) MultipartFile file,
+                                         @RequestParam(required = false) String uploadId,
+                                         @RequestParam(defaultValue = "true") boolean headerRow,
+                                         @RequestParam(defaultValue = "true") boolean commit) {
+        return submitImportJob("compounds", file, uploadId, headerRow, commit, Compound.class, createCompoundSchema(),
+            records -> compoundService.importCompounds(records, commit));
+    }
+
+    /**
+     * Queues a CSV file of Kd values to be imported in the background, as per
+     * {@link #importKdValues(MultipartFile, boolean, boolean, boolean, boolean)}.  The file is imported a chunk at
+     * a time; when committing, the chunks are published together once all have been imported.
+     *
+     * @param file The CSV Kd data from Discoverx.
+     *        This may be omitted if {@code uploadId} is specified.
+     * @param uploadId The ID of a chunked upload of the CSV data, for files too large to upload with the request.
+     *        See {@link UploadController}.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @return The state of the newly-queued job.  Its progress can be polled via {@link #getImportJob(String)}.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importJobs/kdValues")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    ImportJobRep submitKdValueImportJob(@RequestPart(value = "file", required = false) MultipartFile file,
+                                        @RequestParam(required = false) String uploadId,
+                                        @RequestParam(defaultValue = "true") boolean headerRow,
+                                        @RequestParam(defaultValue = "true") boolean commit) {
+        return submitImportJob("kdValues", file, uploadId, headerRow, commit, KdCsvRecord.class, createKdValueSchema(),
+            records -> activityProfileService.importKdValues(records, commit));
+    }
+
+    /**
+     * Queues a CSV file of NanoBRET activity profiles to be imported in the background, as per
+     * {@link #importNanoBretActivityProfiles(MultipartFile, boolean, boolean, boolean, boolean)}.  The file is
+     * imported a chunk at a time; when committing, the chunks are published together once all have been
+     * imported.
+     *
+     * @param file The CSV NanoBRET activity profile data from SGC employees.
+     *        This may be omitted if {@code uploadId} is specified.
+     * @param uploadId The ID of a chunked upload of the CSV data, for files too large to upload with the request.
+     *        See {@link UploadController}.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @return The state of the newly-queued job.  Its progress can be polled via {@link #getImportJob(String)}.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importJobs/nanoBretActivityProfiles")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    ImportJobRep submitNanoBretActivityProfileImportJob(
+                                        @RequestPart(value = "file", required = false) MultipartFile file,
+                                        @RequestParam(required = false) String uploadId,
+                                        @RequestParam(defaultValue = "true") boolean headerRow,
+                                        @RequestParam(defaultValue = "true") boolean commit) {
+        return submitImportJob("nanoBretActivityProfiles", file, uploadId, headerRow, commit,
+            NanoBretActivityProfileCsvRecord.class, createNanoBretActivityProfileSchema(),
+            records -> nanoBretActivityProfileService.importNanoBretActivityProfiles(records, commit));
+    }
+
+    /**
+     * Queues a CSV file of S scores to be imported in the background, as per
+     * {@link #importSScores(MultipartFile, boolean, boolean, boolean)}.  The file is imported a chunk at a time;
+     * when committing, the chunks are published together once all have been imported.
+     *
+     * @param file The CSV S Score data from Discoverx.
+     *        This may be omitted if {@code uploadId} is specified.
+     * @param uploadId The ID of a chunked upload of the CSV data, for files too large to upload with the request.
+     *        See {@link UploadController}.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @param commit Whether the upsert should be committed (vs. a dry run with just the results returned).
+     * @return The state of the newly-queued job.  Its progress can be polled via {@link #getImportJob(String)}.
+     */
+    @RequestMapping(method = RequestMethod.POST, path = "importJobs/sScores")
+    @ResponseStatus(HttpStatus.ACCEPTED)
+    ImportJobRep submitSScoreImportJob(@RequestPart(value = "file", required = false) MultipartFile file,
+                                       @RequestParam(required = false) String uploadId,
+                                       @RequestParam(defaultValue = "true") boolean headerRow,
+                                       @RequestParam(defaultValue = "true") boolean commit) {
+        return submitImportJob("sScores", file, uploadId, headerRow, commit, SScoreCsvRecord.class,
+            createSScoreSchema(), records -> importSScoreRecords(records, commit));
+    }
+
+    /**
+     * How to parse, import and validate a type of data that can be previewed.
+     *
+     * @param <T> The type of record in the CSV data.
+     */
+    private static final class ImportType<T> {
+
+        private final Class<T> clazz;
+        private final CsvSchema schema;
+        private final BiFunction<List<T>, Boolean, ObjectImportRep> importer;
+        private final BiConsumer<List<T>, ImportErrorReport> validator;
+
+        private ImportType(Class<T> clazz, CsvSchema schema, BiFunction<List<T>, Boolean, ObjectImportRep> importer,
+                           BiConsumer<List<T>, ImportErrorReport> validator) {
+            this.clazz = clazz;
+            this.schema = schema;
+            this.importer = importer;
+            this.validator = validator;
+        }
+    }
 }
@@ -1,14 +1,19 @@
 package org.sgc.rak.rest;
 
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.KinaseService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
 
+import javax.annotation.security.RolesAllowed;
+import java.util.List;
+
 /**
  * REST API for kinase information.
  */
@@ -18,6 +23,11 @@ class KinaseController {
 
     private final KinaseService kinaseService;
 
+    /**
+     * The maximum number of kinases returned by an autocomplete request.
+     */
+    private static final int MAX_SUGGESTION_LIMIT = 50;
+
     @Autowired
     KinaseController(KinaseService kinaseService) {
         this.kinaseService = kinaseService;
@@ -44,4 +54,30 @@ class KinaseController {
         long total = page.getTotalElements();
         return new PagedDataRep<>(page.getContent(), start, total);
     }
+
+    /**
+     * Returns kinases with a gene symbol starting with a prefix, for autocomplete.  Entrez, discoverx and nanosyn
+     * gene symbols are all searched, and kinases with the most activity profiles are returned first.
+     *
+     * @param symbol The prefix to search for, ignoring case.
+     * @param limit The maximum number of kinases to return.  This is capped at {@value #MAX_SUGGESTION_LIMIT}.
+     * @return The matching kinases, along with their activity profile counts.
+     */
+    @GetMapping(path = "/suggestions")
+    List<KinaseSuggestionRep> getKinaseSuggestions(@RequestParam(defaultValue = "") String symbol,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        limit = Math.max(1, Math.min(limit, MAX_SUGGESTION_LIMIT));
+        return kinaseService.getKinaseSuggestions(symbol.trim(), limit);
+    }
+
+    /**
+     * Reloads the in-memory kinase catalog from the database.  This should be called after kinases are added,
+     * since they are otherwise only loaded at startup.
+     */
+    @RolesAllowed("ADMIN")
+    @PostMapping(path = "/refresh")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    void refreshKinases() {
+        kinaseService.refreshKinases();
+    }
 }
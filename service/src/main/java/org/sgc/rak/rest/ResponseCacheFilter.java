@@ -0,0 +1,335 @@
+package org.sgc.rak.rest;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.sgc.rak.services.DatasetVersion;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caches the serialized, gzipped bodies of responses to the most frequently made read requests, such as the
+ * first page of compounds.  Cached responses are written straight from memory, so neither the data, its
+ * serialization nor its compression is recomputed.  Callers that don't accept gzip are sent the body
+ * uncompressed.  Since the two are different representations, the gzipped body's ETag gets a {@code -gzip}
+ * suffix.<p>
+ *
+ * Responses are cached by the {@link DatasetVersion} and everything about the request that determines the
+ * response, so cached responses are no longer used once the data changes.  They also expire after a while, for
+ * data that can only be changed in the database.  The cache is bounded by the total size of the compressed
+ * bodies, evicting the least recently used responses first.
+ */
+@Component
+public class ResponseCacheFilter extends OncePerRequestFilter {
+
+    private final DatasetVersion datasetVersion;
+
+    private final long maxBytes;
+    private final long ttlMillis;
+
+    private final Map<String, CachedResponse> responses;
+    private long totalBytes;
+
+    private final LongAdder hits;
+    private final LongAdder misses;
+
+    /**
+     * The paths of the requests whose responses are cached.
+     */
+    private static final Set<String> CACHED_PATHS = new HashSet<>(Arrays.asList(
+        "/api/compounds", "/api/kinases", "/api/partners", "/api/blogPosts"));
+
+    /**
+     * Response headers that are not cached, since they describe the body as sent or are specific to a caller.
+     */
+    private static final Set<String> UNCACHED_HEADERS = new HashSet<>(Arrays.asList(
+        HttpHeaders.CONTENT_LENGTH.toLowerCase(Locale.US), HttpHeaders.CONTENT_ENCODING.toLowerCase(Locale.US),
+        HttpHeaders.TRANSFER_ENCODING.toLowerCase(Locale.US), HttpHeaders.SET_COOKIE.toLowerCase(Locale.US)));
+
+    /**
+     * The default maximum total size of the cached, compressed responses, in megabytes.  This can be overridden
+     * via the {@code rak.response-cache.max-size-mb} property.  Setting that to {@code 0} disables the cache.
+     */
+    private static final long DEFAULT_MAX_SIZE_MB = 32;
+
+    /**
+     * The default number of seconds a response is cached.  This can be overridden via the
+     * {@code rak.response-cache.ttl-seconds} property.
+     */
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    /**
+     * Appended to the ETag of a response when it is sent gzipped.
+     */
+    private static final String GZIP_ETAG_SUFFIX = "-gzip";
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    @Autowired
+    public ResponseCacheFilter(DatasetVersion datasetVersion, Environment environment, MeterRegistry meterRegistry) {
+
+        this.datasetVersion = datasetVersion;
+
+        maxBytes = environment.getProperty("rak.response-cache.max-size-mb", Long.class, DEFAULT_MAX_SIZE_MB) *
+            BYTES_PER_MB;
+        ttlMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("rak.response-cache.ttl-seconds", Long.class,
+            DEFAULT_TTL_SECONDS));
+
+        responses = new LinkedHashMap<>(INITIAL_CAPACITY, LOAD_FACTOR, true);
+        hits = new LongAdder();
+        misses = new LongAdder();
+
+        FunctionCounter.builder("rak.response-cache.gets", hits, LongAdder::sum)
+            .tag("result", "hit")
+            .description("The number of cacheable requests")
+            .register(meterRegistry);
+        FunctionCounter.builder("rak.response-cache.gets", misses, LongAdder::sum)
+            .tag("result", "miss")
+            .description("The number of cacheable requests")
+            .register(meterRegistry);
+        Gauge.builder("rak.response-cache.size", this, ResponseCacheFilter::getTotalBytes)
+            .description("The total size of the cached, compressed responses, in bytes")
+            .register(meterRegistry);
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        return acceptEncoding != null && acceptEncoding.toLowerCase(Locale.US).contains("gzip");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String key = getKey(request);
+        CachedResponse cached = get(key);
+        if (cached != null) {
+            hits.increment();
+            write(cached, request, response);
+            return;
+        }
+
+        misses.increment();
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        chain.doFilter(request, wrapper);
+
+        cached = toCachedResponse(wrapper);
+        if (cached != null) {
+            put(key, cached);
+            wrapper.resetBuffer();
+            writeEncoded(cached, request, response);
+        }
+        else {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private synchronized CachedResponse get(String key) {
+
+        CachedResponse cached = responses.get(key);
+        if (cached != null && System.currentTimeMillis() - cached.created >= ttlMillis) {
+            remove(key);
+            cached = null;
+        }
+        return cached;
+    }
+
+    /**
+     * Returns the key a response is cached under.  This identifies the data the response is built from, and how
+     * the response is built from it.
+     *
+     * @param request The request.
+     * @return The key.
+     * @see DatasetETagInterceptor#describeRequest(HttpServletRequest)
+     */
+    String getKey(HttpServletRequest request) {
+        return datasetVersion.getVersion() + "|" + DatasetETagInterceptor.describeRequest(request);
+    }
+
+    /**
+     * Returns the total size of the cached, compressed responses.
+     *
+     * @return The size, in bytes.
+     */
+    synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    private synchronized void put(String key, CachedResponse cached) {
+
+        if (cached.body.length > maxBytes) {
+            return;
+        }
+
+        remove(key);
+        responses.put(key, cached);
+        totalBytes += cached.body.length;
+
+        // Evict the least recently used responses until the cache fits
+        while (totalBytes > maxBytes) {
+            remove(responses.keySet().iterator().next());
+        }
+    }
+
+    private void remove(String key) {
+        CachedResponse removed = responses.remove(key);
+        if (removed != null) {
+            totalBytes -= removed.body.length;
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return maxBytes == 0 || !HttpMethod.GET.matches(request.getMethod()) ||
+            !CACHED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    /**
+     * Returns a response to cache, or {@code null} if the response can't be cached.  Only successful,
+     * uncompressed responses that don't set cookies are cached.
+     */
+    private CachedResponse toCachedResponse(ContentCachingResponseWrapper response) throws IOException {
+
+        if (response.getStatus() != HttpServletResponse.SC_OK || response.getContentType() == null ||
+                response.containsHeader(HttpHeaders.CONTENT_ENCODING) ||
+                response.containsHeader(HttpHeaders.SET_COOKIE)) {
+            return null;
+        }
+
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (String name : response.getHeaderNames()) {
+            if (!UNCACHED_HEADERS.contains(name.toLowerCase(Locale.US))) {
+                headers.putIfAbsent(name, new ArrayList<>(response.getHeaders(name)));
+            }
+        }
+
+        return new CachedResponse(response.getContentType(), headers, gzip(response.getContentAsByteArray()),
+            System.currentTimeMillis());
+    }
+
+    private static void write(CachedResponse cached, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+
+        for (Map.Entry<String, List<String>> header : cached.headers.entrySet()) {
+            List<String> values = header.getValue();
+            response.setHeader(header.getKey(), values.get(0));
+            for (String value : values.subList(1, values.size())) {
+                response.addHeader(header.getKey(), value);
+            }
+        }
+
+        response.setContentType(cached.contentType);
+        writeEncoded(cached, request, response);
+    }
+
+    /**
+     * Writes a cached body in the encoding the caller accepts, or a 304 if the caller already has it.
+     */
+    private static void writeEncoded(CachedResponse cached, HttpServletRequest request,
+                                     HttpServletResponse response) throws IOException {
+
+        boolean gzip = acceptsGzip(request);
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        // Responses are tagged by DatasetETagInterceptor.  The gzipped body is a different representation, so
+        // it gets its own tag
+        String etag = response.getHeader(HttpHeaders.ETAG);
+        if (etag != null) {
+            if (gzip) {
+                etag = toGzipETag(etag);
+                response.setHeader(HttpHeaders.ETAG, etag);
+            }
+            if (new ServletWebRequest(request, response).checkNotModified(etag)) {
+                return;
+            }
+        }
+
+        if (gzip) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            response.setContentLength(cached.body.length);
+            response.getOutputStream().write(cached.body);
+        }
+        else {
+            try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(cached.body))) {
+                StreamUtils.copy(in, response.getOutputStream());
+            }
+        }
+    }
+
+    /**
+     * Returns the ETag of the gzipped form of a response.
+     *
+     * @param etag The ETag of the response, possibly quoted or weak.
+     * @return The ETag of the gzipped response.
+     */
+    static String toGzipETag(String etag) {
+        if (etag.endsWith("\"") && etag.length() > 1) {
+            return etag.substring(0, etag.length() - 1) + GZIP_ETAG_SUFFIX + "\"";
+        }
+        return etag + GZIP_ETAG_SUFFIX;
+    }
+
+    /**
+     * A cached response.
+     */
+    private static final class CachedResponse {
+
+        private final String contentType;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+        private final long created;
+
+        /**
+         * Constructor.
+         *
+         * @param contentType The content type of the body.
+         * @param headers The response headers.
+         * @param body The gzipped body.
+         * @param created When the response was created.
+         */
+        private CachedResponse(String contentType, Map<String, List<String>> headers, byte[] body, long created) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.created = created;
+        }
+    }
+}
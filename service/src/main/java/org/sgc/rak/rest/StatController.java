@@ -1,5 +1,6 @@
 package org.sgc.rak.rest;
 
+import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Compound;
 import org.sgc.rak.model.CompoundCountPair;
 import org.sgc.rak.reps.PagedDataRep;
@@ -19,13 +20,15 @@ import javax.annotation.security.RolesAllowed;
 @RestController
 @RolesAllowed("ADMIN")
 @RequestMapping(path = "/admin/api/stats")
-public class StatController {
+public class StatController extends AbstractRakController {
 
     private final CompoundService compoundService;
+    private final Messages messages;
 
     @Autowired
-    StatController(CompoundService compoundService) {
+    StatController(CompoundService compoundService, Messages messages) {
         this.compoundService = compoundService;
+        this.messages = messages;
     }
 
     /**
@@ -33,13 +36,20 @@ public class StatController {
      *
      * @param compound A part of a compound name.  If specified, only compounds
      *        whose name contains this substring (ignoring case) will be returned.
+     * @param after If specified, the page is fetched by keyset paging, starting after the continuation token
+     *        returned with the previous page, or at the beginning if this is empty.  The page number is ignored,
+     *        only sorting by compound name is supported, and the total is not counted.
      * @param pageInfo How to sort the data and what page of the data to return.
      * @return The list of compounds.
      */
     @GetMapping(path = "/compoundsMissingActivityProfiles",
         produces = { MediaType.APPLICATION_JSON_VALUE, "text/csv" })
     PagedDataRep<CompoundCountPair> getCompoundsMissingActivityProfiles(@RequestParam(required = false) String compound,
-            @SortDefault("compoundName") Pageable pageInfo) {
+            @RequestParam(required = false) String after, @SortDefault("compoundName") Pageable pageInfo) {
+        if (after != null) {
+            return getKeysetPage(after, token -> compoundService.getCompoundsMissingActivityProfiles(compound, token,
+                pageInfo), messages);
+        }
         Page<CompoundCountPair> page = compoundService.getCompoundsMissingActivityProfiles(compound, pageInfo);
         return pageToPagedDataRep(page, pageInfo.getPageSize());
     }
@@ -0,0 +1,98 @@
+package org.sgc.rak.rest;
+
+import org.sgc.rak.reps.UploadSessionRep;
+import org.sgc.rak.services.UploadService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.annotation.security.RolesAllowed;
+import java.io.InputStream;
+
+/**
+ * REST API for resumable, chunked uploads of files too large for a single request.  A client:
+ *
+ * <ol>
+ *     <li>Starts an upload session, declaring how many chunks it will send and the size of the file, and
+ *         optionally its SHA-256 checksum.</li>
+ *     <li>Sends the file as a sequence of numbered chunks, starting at {@code 0}.  Each chunk must be smaller
+ *         than the request size limit.</li>
+ *     <li>If interrupted, fetches the session to find the first missing chunk, and resumes from there.</li>
+ *     <li>Passes the session's ID to an import job endpoint in place of a file; see
+ *         {@link ImportController}.  This fails if any chunks are missing, or the file isn't the size, or doesn't
+ *         have the checksum, declared.</li>
+ * </ol>
+ *
+ * Accessible only by admins.
+ */
+@RestController
+@RolesAllowed("ADMIN")
+@RequestMapping(path = "/admin/api/uploads")
+public class UploadController {
+
+    private final UploadService uploadService;
+
+    @Autowired
+    public UploadController(UploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    /**
+     * Starts an upload.
+     *
+     * @param chunkCount The number of chunks the file will be sent as.
+     * @param size The size of the file, in bytes.
+     * @param sha256 The SHA-256 checksum of the file, as hex digits.  If specified, the file is only imported if
+     *        its checksum matches.
+     * @return The state of the new upload session.
+     */
+    @RequestMapping(method = RequestMethod.POST)
+    @ResponseStatus(HttpStatus.CREATED)
+    UploadSessionRep createUpload(@RequestParam int chunkCount, @RequestParam long size,
+                                  @RequestParam(required = false) String sha256) {
+        return uploadService.createSession(chunkCount, size, sha256);
+    }
+
+    /**
+     * Discards an upload and any chunks received.
+     *
+     * @param id The ID of the upload session.
+     */
+    @RequestMapping(method = RequestMethod.DELETE, path = "{id}")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    void discardUpload(@PathVariable String id) {
+        uploadService.discardSession(id);
+    }
+
+    /**
+     * Returns the state of an upload, including the chunks received so far.
+     *
+     * @param id The ID of the upload session.
+     * @return The state of the upload.
+     */
+    @RequestMapping(method = RequestMethod.GET, path = "{id}")
+    @ResponseStatus(HttpStatus.OK)
+    UploadSessionRep getUpload(@PathVariable String id) {
+        return uploadService.getSession(id);
+    }
+
+    /**
+     * Receives a chunk of an upload.  The request body is the chunk's raw data.  Sending the same chunk again,
+     * e.g. after an interrupted request, replaces it.
+     *
+     * @param id The ID of the upload session.
+     * @param index The index of the chunk.
+     * @param body The chunk's data.
+     * @return The state of the upload.
+     */
+    @RequestMapping(method = RequestMethod.PUT, path = "{id}/chunks/{index}")
+    @ResponseStatus(HttpStatus.OK)
+    UploadSessionRep uploadChunk(@PathVariable String id, @PathVariable int index, InputStream body) {
+        return uploadService.writeChunk(id, index, body);
+    }
+}
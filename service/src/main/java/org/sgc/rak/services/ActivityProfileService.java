@@ -1,6 +1,10 @@
 package org.sgc.rak.services;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sgc.rak.dao.ActivityProfileDao;
+import org.sgc.rak.dao.BulkImportDao;
+import org.sgc.rak.dao.BulkImportResult;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.ActivityProfile;
@@ -8,48 +12,83 @@ import org.sgc.rak.model.Kinase;
 import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.KdCsvRecord;
 import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.Util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
- * Service for manipulating kinase activity profiles.
+ * Service for manipulating kinase activity profiles.  Activity profile queries are cached, and the cache is
+ * invalidated when activity profiles are imported.
  */
 @Service
 public class ActivityProfileService {
 
     private final ActivityProfileDao activityProfileDao;
+    private final BulkImportDao bulkImportDao;
     private final CompoundService compoundService;
     private final KinaseService kinaseService;
+    private final NetworkService networkService;
+    private final DatasetVersion datasetVersion;
 
     private final Messages messages;
 
+    private final ReadThroughCache<List<Object>, Page<ActivityProfile>> activityProfileCache;
+    private final ReadThroughCache<List<Object>, Slice<ActivityProfile>> activityProfileSliceCache;
+    private final ReadThroughCache<List<Object>, Long> activityProfileCountCache;
+
     private static final Logger LOGGER = LoggerFactory.getLogger(ActivityProfileService.class);
 
     @Autowired
-    public ActivityProfileService(ActivityProfileDao activityProfileDao, CompoundService compoundService,
-                                  KinaseService kinaseService, Messages messages) {
+    public ActivityProfileService(ActivityProfileDao activityProfileDao, BulkImportDao bulkImportDao,
+                                  CompoundService compoundService, KinaseService kinaseService,
+                                  NetworkService networkService, ReadCaches readCaches,
+                                  DatasetVersion datasetVersion, Messages messages) {
         this.activityProfileDao = activityProfileDao;
+        this.bulkImportDao = bulkImportDao;
         this.compoundService = compoundService;
         this.kinaseService = kinaseService;
+        this.networkService = networkService;
+        this.datasetVersion = datasetVersion;
         this.messages = messages;
+        activityProfileCache = readCaches.create("activityProfiles");
+        activityProfileSliceCache = readCaches.create("activityProfileSlices");
+        activityProfileCountCache = readCaches.create("activityProfileCounts");
+    }
+
+    /**
+     * Notes that activity profiles were committed, so that data derived from them is recomputed.
+     */
+    private void activityProfilesChanged() {
+        Util.runAfterCommit(() -> {
+            activityProfileCache.invalidateAll();
+            activityProfileSliceCache.invalidateAll();
+            activityProfileCountCache.invalidateAll();
+        });
+        compoundService.activityProfilesChanged();
+        kinaseService.activityProfilesChanged();
+        networkService.activityProfilesChanged();
+        datasetVersion.dataChanged();
     }
 
-    private ActivityProfile activityProfileCsvRecordToActivityProfile(ActivityProfileCsvRecord csvRep) {
+    private ActivityProfile activityProfileCsvRecordToActivityProfile(ActivityProfileCsvRecord csvRep,
+                                                                      ImportValidationContext context) {
 
-        if (!compoundService.getCompoundExists(csvRep.getCompoundName())) {
+        if (!context.getCompoundExists(csvRep.getCompoundName())) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownCompound",
                 csvRep.getCompoundName()));
         }
 
-        Kinase kinase = kinaseService.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
+        Kinase kinase = context.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
         if (kinase == null) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownKinase",
                 csvRep.getDiscoverxGeneSymbol()));
@@ -64,6 +103,61 @@ public class ActivityProfileService {
         return profile;
     }
 
+    /**
+     * Upserts activity profiles with a single set-based merge.  This is much faster than
+     * {@link #importActivityProfiles(List, boolean)} for large imports, but only returns record counts.  If the
+     * database doesn't support set-based merges, the records are imported via that method instead.
+     *
+     * @param activityProfileCsvRecords The activity profiles to upsert.  These are consumed by this method.
+     * @param commit Whether to actually commit the patch, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public ObjectImportRep bulkImportActivityProfiles(Iterator<ActivityProfileCsvRecord> activityProfileCsvRecords,
+                                                      boolean commit) {
+
+        if (!bulkImportDao.isSupported()) {
+            List<ActivityProfileCsvRecord> records = new ArrayList<>();
+            activityProfileCsvRecords.forEachRemaining(records::add);
+            ObjectImportRep importRep = importActivityProfiles(records, commit);
+            importRep.setFieldStatuses(null);
+            return importRep;
+        }
+
+        BulkImportResult result = bulkImportDao.importActivityProfiles(activityProfileCsvRecords, commit);
+        ObjectImportRep importRep = BulkImportResults.toImportRep(result, messages);
+        if (commit) {
+            activityProfilesChanged();
+        }
+        return importRep;
+    }
+
+    /**
+     * Upserts Kd values into activity profiles with a single set-based merge.  This is much faster than
+     * {@link #importKdValues(List, boolean)} for large imports, but only returns record counts.  If the database
+     * doesn't support set-based merges, the records are imported via that method instead.
+     *
+     * @param kdValueCsvRecords The Kd data to upsert.  These are consumed by this method.
+     * @param commit Whether to actually commit the patch, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public ObjectImportRep bulkImportKdValues(Iterator<KdCsvRecord> kdValueCsvRecords, boolean commit) {
+
+        if (!bulkImportDao.isSupported()) {
+            List<KdCsvRecord> records = new ArrayList<>();
+            kdValueCsvRecords.forEachRemaining(records::add);
+            ObjectImportRep importRep = importKdValues(records, commit);
+            importRep.setFieldStatuses(null);
+            return importRep;
+        }
+
+        BulkImportResult result = bulkImportDao.importKdValues(kdValueCsvRecords, commit);
+        ObjectImportRep importRep = BulkImportResults.toImportRep(result, messages);
+        if (commit) {
+            activityProfilesChanged();
+        }
+        return importRep;
+    }
+
     private List<ObjectImportRep.FieldStatus> activityProfileCsvRecordToFieldStatusList(
         ActivityProfile newProfile, ActivityProfile existingProfile) {
 
@@ -93,6 +187,37 @@ public class ActivityProfileService {
         );
     }
 
+    /**
+     * Returns all kinase activity profiles for a set of compounds, grouped by compound.  The compounds are
+     * validated, and their profiles fetched, in set-based queries rather than one query per compound.
+     *
+     * @param compoundNames The names of the compounds.  Duplicates are ignored.
+     * @param kinaseIds The kinases involved in the activity profiles.  This may be {@code null} to not limit
+     *        the search to particular kinases.
+     * @param percentControl The value that the percent control of the activity profiles must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param kd The value that the Kd of the activity profiles must be less than or equal to.  This may be
+     *        {@code null} to not restrict by Kd.
+     * @return The activity profiles, keyed by compound name, in the order the compounds were specified.  Every
+     *         compound has an entry, even if no profiles match.
+     * @throws BadRequestException If any of the compounds does not exist.
+     */
+    public Map<String, List<ActivityProfile>> getActivityProfilesByCompound(List<String> compoundNames,
+                                                                           List<Long> kinaseIds,
+                                                                           Double percentControl, Double kd) {
+
+        Set<String> uniqueCompoundNames = new LinkedHashSet<>(compoundNames);
+
+        Set<String> existingCompoundNames = compoundService.getExistingCompoundNames(uniqueCompoundNames);
+        for (String compoundName : uniqueCompoundNames) {
+            if (!existingCompoundNames.contains(compoundName)) {
+                throw new BadRequestException(messages.get("error.noSuchCompound", compoundName));
+            }
+        }
+
+        return activityProfileDao.getActivityProfilesByCompound(uniqueCompoundNames, kinaseIds, percentControl, kd);
+    }
+
     /**
      * Returns kinase activity profiles for a given compound/inhibitor, kinase and activity.
      *
@@ -108,15 +233,117 @@ public class ActivityProfileService {
     public Page<ActivityProfile> getActivityProfiles(String compoundName, List<Long> kinaseIds, Double percentControl,
                                                      Pageable pageInfo) {
 
-        if (compoundName != null && !compoundService.getCompoundExists(compoundName)) {
+        List<Object> key = ReadThroughCache.key(getFilterKey(compoundName, kinaseIds, percentControl), pageInfo);
+
+        return activityProfileCache.get(key, () -> {
+            checkCompoundExists(compoundName);
+            return activityProfileDao.getActivityProfiles(compoundName, kinaseIds, percentControl, pageInfo);
+        });
+    }
+
+    /**
+     * Returns kinase activity profiles for a given compound/inhibitor, kinase and activity, like
+     * {@link #getActivityProfiles(String, List, Double, Pageable)}, but without counting the total.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the returned
+     *        list should not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param pageInfo How to sort the data and what page of the data to return.
+     * @return The list of kinase activity profiles.
+     * @see #getActivityProfilesWithCachedTotal(String, List, Double, Pageable)
+     */
+    public Slice<ActivityProfile> getActivityProfileSlice(String compoundName, List<Long> kinaseIds,
+                                                          Double percentControl, Pageable pageInfo) {
+
+        List<Object> key = ReadThroughCache.key(getFilterKey(compoundName, kinaseIds, percentControl), pageInfo);
+
+        return activityProfileSliceCache.get(key, () -> {
+            checkCompoundExists(compoundName);
+            return activityProfileDao.getActivityProfileSlice(compoundName, kinaseIds, percentControl, pageInfo);
+        });
+    }
+
+    /**
+     * Returns kinase activity profiles for a given compound/inhibitor, kinase and activity, like
+     * {@link #getActivityProfiles(String, List, Double, Pageable)}, but only counts the total the first time any
+     * page of them is requested.  The total is then reused for every page and sort order until activity profiles
+     * change.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the returned
+     *        list should not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param pageInfo How to sort the data and what page of the data to return.
+     * @return The list of kinase activity profiles.
+     * @see #getActivityProfileSlice(String, List, Double, Pageable)
+     */
+    public Page<ActivityProfile> getActivityProfilesWithCachedTotal(String compoundName, List<Long> kinaseIds,
+                                                                    Double percentControl, Pageable pageInfo) {
+
+        Slice<ActivityProfile> slice = getActivityProfileSlice(compoundName, kinaseIds, percentControl, pageInfo);
+
+        // The total can be determined from the last page itself, unless it's past the end
+        long total;
+        if (slice.hasNext() || (!slice.hasContent() && pageInfo.isPaged() && pageInfo.getOffset() > 0)) {
+            total = activityProfileCountCache.get(getFilterKey(compoundName, kinaseIds, percentControl),
+                () -> activityProfileDao.countActivityProfiles(compoundName, kinaseIds, percentControl));
+        }
+        else {
+            total = (pageInfo.isPaged() ? pageInfo.getOffset() : 0) + slice.getNumberOfElements();
+        }
+
+        return new PageImpl<>(slice.getContent(), pageInfo, total);
+    }
+
+    /**
+     * Returns the part of an activity profile query's cache key that identifies its results, regardless of paging.
+     */
+    private static List<Object> getFilterKey(String compoundName, List<Long> kinaseIds, Double percentControl) {
+        // The compound name is matched ignoring case, and kinases with "in", so their order doesn't matter
+        return ReadThroughCache.key(ReadThroughCache.normalize(compoundName),
+            kinaseIds == null ? null : new TreeSet<>(kinaseIds), percentControl);
+    }
+
+    private void checkCompoundExists(String compoundName) {
+        // Checked the way activity profiles are matched: ignoring case, and not at all if blank.  Results cached
+        // under a normalized name are then valid for every name normalized to it
+        if (StringUtils.isNotBlank(compoundName) && compoundService.getCompound(compoundName) == null) {
             throw new BadRequestException(messages.get("error.noSuchCompound", compoundName));
         }
+    }
+
+    /**
+     * Returns a page of kinase activity profiles for a given compound/inhibitor, kinase and activity, by keyset
+     * paging.  Unlike {@link #getActivityProfiles(String, List, Double, Pageable)}, deep pages are as fast to
+     * fetch as the first, and the total isn't counted.
+     *
+     * @param compoundName The compound name.  Case is ignored.  This may be {@code null} if the returned
+     *        list should not be restricted to a particular compound.
+     * @param kinaseIds The kinase involved in the activity profile.  This may be {@code null} to not limit
+     *        the search to one particular kinase.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param pageInfo How to sort the data, and the page size.  Only the default sort is supported.
+     * @return The page of kinase activity profiles.
+     * @throws IllegalArgumentException If the sort isn't supported, or {@code after} doesn't match it.
+     */
+    public KeysetSlice<ActivityProfile> getActivityProfiles(String compoundName, List<Long> kinaseIds,
+                                                            Double percentControl, ContinuationToken after,
+                                                            Pageable pageInfo) {
 
-        return activityProfileDao.getActivityProfiles(compoundName, kinaseIds, percentControl, pageInfo);
+        checkCompoundExists(compoundName);
+        return activityProfileDao.getActivityProfiles(compoundName, kinaseIds, percentControl, after, pageInfo);
     }
 
     /**
-     * Upserts a list of activity profiles.  New profiles are added, existing ones are updated.
+     * Upserts a list of activity profiles.  New profiles are added, existing ones are updated.  Profiles the
+     * import wouldn't change aren't written.
      *
      * @param activityProfileCsvRecords The activity profiles to upsert.
      * @param commit Whether to actually commit the patch, or just return the possible result.
@@ -129,8 +356,10 @@ public class ActivityProfileService {
             .map(ActivityProfileCsvRecord::getCompoundName).collect(Collectors.toList());
         List<String> discoverxes = activityProfileCsvRecords.stream()
             .map(ActivityProfileCsvRecord::getDiscoverxGeneSymbol).collect(Collectors.toList());
-        Set<ActivityProfile> existingProfiles = activityProfileDao
-            .getActivityProfiles(compoundNames, discoverxes);
+        Map<List<String>, ActivityProfile> existingProfiles = indexActivityProfiles(activityProfileDao
+            .getActivityProfiles(compoundNames, discoverxes));
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            compoundNames);
 
         ObjectImportRep importRep = new ObjectImportRep();
         List<List<ObjectImportRep.FieldStatus>> records = new ArrayList<>();
@@ -150,23 +379,30 @@ public class ActivityProfileService {
                 newActivityProfile = Util.patchActivityProfile(existingProfile, activityProfileCsvRecord);
             }
             else {
-                newActivityProfile = activityProfileCsvRecordToActivityProfile(activityProfileCsvRecord);
+                newActivityProfile = activityProfileCsvRecordToActivityProfile(activityProfileCsvRecord, context);
             }
 
-            toPersist.add(newActivityProfile);
-            records.add(activityProfileCsvRecordToFieldStatusList(newActivityProfile, existingProfile));
+            List<ObjectImportRep.FieldStatus> fieldStatuses =
+                activityProfileCsvRecordToFieldStatusList(newActivityProfile, existingProfile);
+            records.add(fieldStatuses);
+            if (!Util.isUnchangedRecord(fieldStatuses)) {
+                toPersist.add(newActivityProfile);
+            }
         }
 
         possiblyLogImportOperation(commit, toPersist);
         if (commit) {
             activityProfileDao.save(toPersist);
+            activityProfilesChanged();
         }
 
+        Util.updateRecordCounts(importRep);
         return importRep;
     }
 
     /**
      * Upserts a list of Kd values into activity profiles.  New profiles are added, existing ones are updated.
+     * Profiles the import wouldn't change aren't written.
      *
      * @param kdValueCsvRecords The Kd data to upsert.
      * @param commit Whether to actually commit the patch, or just return the possible result.
@@ -179,8 +415,10 @@ public class ActivityProfileService {
             .map(KdCsvRecord::getCompoundName).collect(Collectors.toList());
         List<String> discoverxes = kdValueCsvRecords.stream()
             .map(KdCsvRecord::getDiscoverxGeneSymbol).collect(Collectors.toList());
-        Set<ActivityProfile> existingProfiles = activityProfileDao
-            .getActivityProfiles(compoundNames, discoverxes);
+        Map<List<String>, ActivityProfile> existingProfiles = indexActivityProfiles(activityProfileDao
+            .getActivityProfiles(compoundNames, discoverxes));
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            compoundNames);
 
         ObjectImportRep importRep = new ObjectImportRep();
         List<List<ObjectImportRep.FieldStatus>> records = new ArrayList<>();
@@ -200,29 +438,76 @@ public class ActivityProfileService {
                 newActivityProfile = Util.patchActivityProfile(existingProfile, kdValueCsvRecord);
             }
             else {
-                newActivityProfile = kdCsvRecordToActivityProfile(kdValueCsvRecord);
+                newActivityProfile = kdCsvRecordToActivityProfile(kdValueCsvRecord, context);
             }
 
-            toPersist.add(newActivityProfile);
-            records.add(kdValueCsvRecordToFieldStatusList(newActivityProfile, existingProfile));
+            List<ObjectImportRep.FieldStatus> fieldStatuses =
+                kdValueCsvRecordToFieldStatusList(newActivityProfile, existingProfile);
+            records.add(fieldStatuses);
+            if (!Util.isUnchangedRecord(fieldStatuses)) {
+                toPersist.add(newActivityProfile);
+            }
         }
 
         possiblyLogImportOperation(commit, toPersist);
         if (commit) {
             activityProfileDao.save(toPersist);
+            activityProfilesChanged();
         }
 
+        Util.updateRecordCounts(importRep);
         return importRep;
     }
 
-    private ActivityProfile kdCsvRecordToActivityProfile(KdCsvRecord csvRep) {
+    /**
+     * Validates a list of activity profiles without importing them.  Rather than stopping at the first problem,
+     * every problem with every record is reported.
+     *
+     * @param activityProfileCsvRecords The activity profiles to validate.
+     * @param report Receives the problems found.  Records are numbered following any already in the report.
+     */
+    public void validateActivityProfiles(List<ActivityProfileCsvRecord> activityProfileCsvRecords,
+                                         ImportErrorReport report) {
 
-        if (!compoundService.getCompoundExists(csvRep.getCompoundName())) {
+        activityProfileCsvRecords.forEach(Util::convertEmptyStringsToNulls);
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            activityProfileCsvRecords.stream().map(ActivityProfileCsvRecord::getCompoundName)
+                .filter(Objects::nonNull).collect(Collectors.toList()));
+
+        for (ActivityProfileCsvRecord record : activityProfileCsvRecords) {
+            context.validateReferences(report.nextRow(), record.getCompoundName(), record.getDiscoverxGeneSymbol(),
+                messages, report);
+        }
+    }
+
+    /**
+     * Validates a list of Kd values without importing them.  Rather than stopping at the first problem, every
+     * problem with every record is reported.
+     *
+     * @param kdValueCsvRecords The Kd data to validate.
+     * @param report Receives the problems found.  Records are numbered following any already in the report.
+     */
+    public void validateKdValues(List<KdCsvRecord> kdValueCsvRecords, ImportErrorReport report) {
+
+        kdValueCsvRecords.forEach(Util::convertEmptyStringsToNulls);
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            kdValueCsvRecords.stream().map(KdCsvRecord::getCompoundName)
+                .filter(Objects::nonNull).collect(Collectors.toList()));
+
+        for (KdCsvRecord record : kdValueCsvRecords) {
+            context.validateReferences(report.nextRow(), record.getCompoundName(), record.getDiscoverxGeneSymbol(),
+                messages, report);
+        }
+    }
+
+    private ActivityProfile kdCsvRecordToActivityProfile(KdCsvRecord csvRep, ImportValidationContext context) {
+
+        if (!context.getCompoundExists(csvRep.getCompoundName())) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownCompound",
                 csvRep.getCompoundName()));
         }
 
-        Kinase kinase = kinaseService.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
+        Kinase kinase = context.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
         if (kinase == null) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownKinase",
                 csvRep.getDiscoverxGeneSymbol()));
@@ -260,13 +545,27 @@ public class ActivityProfileService {
         );
     }
 
-    private static ActivityProfile possiblyGetActivityProfile(Set<ActivityProfile> profiles,
+    /**
+     * Returns a key uniquely identifying an activity profile in an import.
+     */
+    private static List<String> createActivityProfileKey(String compoundName, String discoverx) {
+        return Arrays.asList(compoundName, discoverx);
+    }
+
+    /**
+     * Indexes activity profiles by compound name and discoverx gene symbol, so that each record in an
+     * import can be matched to its existing profile in constant time.
+     */
+    private static Map<List<String>, ActivityProfile> indexActivityProfiles(Collection<ActivityProfile> profiles) {
+        return profiles.stream().collect(Collectors.toMap(
+            kap -> createActivityProfileKey(kap.getCompoundName(), kap.getKinase().getDiscoverxGeneSymbol()),
+            kap -> kap,
+            (kap1, kap2) -> kap1));
+    }
+
+    private static ActivityProfile possiblyGetActivityProfile(Map<List<String>, ActivityProfile> profiles,
                                                               String compoundName, String discoverx) {
-        Optional<ActivityProfile> optional = profiles.stream()
-            .filter(kap -> compoundName.equals(kap.getCompoundName()) &&
-                        discoverx.equals(kap.getKinase().getDiscoverxGeneSymbol()))
-            .findFirst();
-        return optional.orElse(null);
+        return profiles.get(createActivityProfileKey(compoundName, discoverx));
     }
 
     private static void possiblyLogImportOperation(boolean commit, List<ActivityProfile> toPersist) {
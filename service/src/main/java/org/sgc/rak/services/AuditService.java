@@ -1,16 +1,21 @@
 package org.sgc.rak.services;
 
 
+import org.sgc.rak.dao.KeysetDao;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.model.Audit;
 import org.sgc.rak.model.AuditAction;
 import org.sgc.rak.model.ModelConstants;
 import org.sgc.rak.repositories.AuditRepository;
+import org.sgc.rak.util.ContinuationToken;
+import org.sgc.rak.util.KeysetQuery;
 import org.sgc.rak.util.QuerySpecifications;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -30,13 +35,22 @@ public class AuditService {
      */
     static final String UNKNOWN_USER_NAME = "<unknown>";
 
+    /**
+     * The order audit records are keyset-paged through: newest first, which is the REST API's default order.
+     */
+    private static final KeysetQuery<Audit> KEYSET = new KeysetQuery<>(Audit.class)
+        .orderBy("createDate", Sort.Direction.DESC, false, Audit::getCreateDate)
+        .orderBy("id", Sort.Direction.DESC, false, Audit::getId);
+
     private final AuditRepository repository;
+    private final KeysetDao keysetDao;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(AuditService.class);
 
     @Autowired
-    public AuditService(AuditRepository repository) {
+    public AuditService(AuditRepository repository, KeysetDao keysetDao) {
         this.repository = repository;
+        this.keysetDao = keysetDao;
     }
 
     /**
@@ -129,6 +143,35 @@ public class AuditService {
             fromDate, toDate), pageInfo);
     }
 
+    /**
+     * Returns a page of audit records by keyset paging.  Unlike
+     * {@link #getAudits(Pageable, String, AuditAction, String, Boolean, Date, Date)}, deep pages are as fast to
+     * fetch as the first, and the total isn't counted.
+     *
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param pageInfo How to sort the data, and the page size.  Only the default sort, newest first, is
+     *        supported.
+     * @param user If specified, filter on user names starting with this prefix, ignoring case.  May be {@code null}.
+     * @param action If specified, filter on this action type.  May be {@code null}.
+     * @param ipAddress If specified, filter on IP address starting with this prefix, ignoring case.  May be
+     *                  {@code null}.
+     * @param success Whether the action was successful.  May be {@code null} to denote to ignore this property.
+     * @param fromDate The starting date from which to fetch audits.  May be {@code null}.
+     * @param toDate The ending date to which to fetch audits.  May be {@code null}.
+     * @return The page of audit records.
+     * @throws IllegalArgumentException If the sort isn't supported, or {@code after} doesn't match it.
+     */
+    public KeysetSlice<Audit> getAudits(ContinuationToken after, Pageable pageInfo, String user, AuditAction action,
+                                        String ipAddress, Boolean success, Date fromDate, Date toDate) {
+
+        if (!KEYSET.isSortedBy(pageInfo.getSort())) {
+            throw new IllegalArgumentException("Unsupported sort for keyset paging: " + pageInfo.getSort());
+        }
+
+        return keysetDao.getSlice(KEYSET, QuerySpecifications.auditRecordsMatching(user, action, ipAddress, success,
+            fromDate, toDate), after, pageInfo.getPageSize());
+    }
+
     /**
      * Populates the user and IP address fields of an audit record if we're on a request-bound thread (which should
      * always be this case for this application).
@@ -4,6 +4,7 @@ import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.BlogPost;
 import org.sgc.rak.repositories.BlogPostRepository;
+import org.sgc.rak.util.Util;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -13,19 +14,35 @@ import java.util.Date;
 import java.util.Optional;
 
 /**
- * Service for manipulating blog posts.
+ * Service for manipulating blog posts.  Pages of blog posts are cached, and the cache is invalidated when a blog
+ * post is created, updated or deleted.
  */
 @Service
 public class BlogPostService {
 
     private final BlogPostRepository repository;
+    private final DatasetVersion datasetVersion;
 
     private final Messages messages;
 
+    private final ReadThroughCache<Pageable, Page<BlogPost>> blogPostPageCache;
+
     @Autowired
-    public BlogPostService(BlogPostRepository repository, Messages messages) {
+    public BlogPostService(BlogPostRepository repository, ReadCaches readCaches, DatasetVersion datasetVersion,
+                           Messages messages) {
         this.repository = repository;
+        this.datasetVersion = datasetVersion;
         this.messages = messages;
+        blogPostPageCache = readCaches.create("blogPosts");
+    }
+
+    /**
+     * Discards cached blog posts and bumps the dataset version.  If called in a transaction, this takes effect
+     * when it commits.
+     */
+    private void blogPostsChanged() {
+        Util.runAfterCommit(blogPostPageCache::invalidateAll);
+        datasetVersion.dataChanged();
     }
 
     /**
@@ -36,6 +53,7 @@ public class BlogPostService {
     public void createBlogPost(BlogPost post) {
         post.setCreateDate(new Date());
         repository.save(post);
+        blogPostsChanged();
     }
 
     /**
@@ -45,6 +63,7 @@ public class BlogPostService {
      */
     public void deleteBlogPost(Long id) {
         repository.deleteById(id);
+        blogPostsChanged();
     }
 
     /**
@@ -54,7 +73,7 @@ public class BlogPostService {
      * @return The list of blog posts.
      */
     public Page<BlogPost> getBlogPosts(Pageable pageInfo) {
-        return repository.findAll(pageInfo);
+        return blogPostPageCache.get(pageInfo, () -> repository.findAll(pageInfo));
     }
 
     /**
@@ -77,6 +96,8 @@ public class BlogPostService {
         currentPost.setBody(post.getBody());
         currentPost.setViewCount(currentPost.getViewCount() + 1);
 
-        return repository.save(currentPost);
+        BlogPost updatedPost = repository.save(currentPost);
+        blogPostsChanged();
+        return updatedPost;
     }
 }
@@ -0,0 +1,44 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.dao.BulkImportResult;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ObjectImportRep;
+
+/**
+ * Converts the results of set-based imports into the results returned by the import APIs.
+ */
+final class BulkImportResults {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private BulkImportResults() {
+    }
+
+    /**
+     * Returns an import result containing only the record counts of a set-based import.
+     *
+     * @param result The result of the set-based import.
+     * @param messages Used to localize the error if the import referenced an unknown compound or kinase.
+     * @return The import result.  Its list of field statuses will be empty.
+     * @throws BadRequestException If the import referenced an unknown compound or kinase.
+     */
+    static ObjectImportRep toImportRep(BulkImportResult result, Messages messages) {
+
+        if (result.getUnknownCompoundName() != null) {
+            throw new BadRequestException(messages.get("error.importReferencesUnknownCompound",
+                result.getUnknownCompoundName()));
+        }
+        if (result.getUnknownDiscoverx() != null) {
+            throw new BadRequestException(messages.get("error.importReferencesUnknownKinase",
+                result.getUnknownDiscoverx()));
+        }
+
+        ObjectImportRep importRep = new ObjectImportRep();
+        importRep.setNewCount(result.getNewCount());
+        importRep.setModifiedCount(result.getModifiedCount());
+        importRep.setUnchangedCount(result.getUnchangedCount());
+        return importRep;
+    }
+}
@@ -0,0 +1,244 @@
+package org.sgc.rak.services;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An in-memory trigram index over compound names, for fast case-insensitive substring search.  A
+ * {@code LIKE '%part%'} query can't use an index, so each search would otherwise scan the compound table; here,
+ * only the names containing the rarest trigram of the search string are examined.<p>
+ *
+ * The index is updated incrementally as compounds are added or changed.  All methods are thread-safe.
+ */
+public class CompoundNameIndex {
+
+    /**
+     * The length of the n-grams indexed.  Searches for shorter strings scan every name.
+     */
+    private static final int GRAM_LENGTH = 3;
+
+    private final Map<String, IndexedName> names;
+    private final Map<String, Set<IndexedName>> postings;
+    private final ReadWriteLock lock;
+
+    /**
+     * Constructor.
+     */
+    public CompoundNameIndex() {
+        names = new HashMap<>();
+        postings = new HashMap<>();
+        lock = new ReentrantReadWriteLock();
+    }
+
+    private static Set<String> getGrams(String lowerCaseName) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= lowerCaseName.length(); i++) {
+            grams.add(lowerCaseName.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    /**
+     * Returns whether a compound is hidden.
+     *
+     * @param compoundName The compound's name.
+     * @return Whether the compound is hidden.  This is {@code false} if the compound isn't in the index.
+     */
+    public boolean isHidden(String compoundName) {
+        lock.readLock().lock();
+        try {
+            IndexedName name = names.get(compoundName);
+            return name != null && name.hidden;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a compound to the index, or updates whether it is hidden.
+     *
+     * @param compoundName The compound's name.
+     * @param hidden Whether the compound is hidden.
+     */
+    public void put(String compoundName, boolean hidden) {
+
+        lock.writeLock().lock();
+        try {
+            IndexedName existing = names.get(compoundName);
+            if (existing != null) {
+                existing.hidden = hidden;
+                return;
+            }
+
+            IndexedName name = new IndexedName(compoundName, hidden);
+            names.put(compoundName, name);
+            for (String gram : getGrams(name.lowerCaseName)) {
+                postings.computeIfAbsent(gram, g -> new HashSet<>()).add(name);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a compound from the index.
+     *
+     * @param compoundName The compound's name.
+     */
+    public void remove(String compoundName) {
+
+        lock.writeLock().lock();
+        try {
+            IndexedName name = names.remove(compoundName);
+            if (name != null) {
+                for (String gram : getGrams(name.lowerCaseName)) {
+                    Set<IndexedName> posting = postings.get(gram);
+                    posting.remove(name);
+                    if (posting.isEmpty()) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the names of compounds containing a string, ignoring case, best matches first.  An exact match
+     * ranks first, then names starting with the string, then names where it starts a new word, then any other
+     * names containing it.  Ties are broken by how early the string occurs, then by name length, then
+     * alphabetically.
+     *
+     * @param part The string to search for.
+     * @param limit The maximum number of names to return.
+     * @param includeHidden Whether to include hidden compounds.
+     * @return The matching compound names.  This may be empty, but will never be {@code null}.
+     */
+    public List<String> search(String part, int limit, boolean includeHidden) {
+
+        String lowerCasePart = part.toLowerCase(Locale.US);
+        if (lowerCasePart.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = new ArrayList<>();
+
+        lock.readLock().lock();
+        try {
+            for (IndexedName name : getCandidates(lowerCasePart)) {
+                if (includeHidden || !name.hidden) {
+                    int index = name.lowerCaseName.indexOf(lowerCasePart);
+                    if (index > -1) {
+                        matches.add(new Match(name, index, lowerCasePart.length()));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        matches.sort(Match.COMPARATOR);
+
+        List<String> result = new ArrayList<>(Math.min(limit, matches.size()));
+        for (int i = 0; i < limit && i < matches.size(); i++) {
+            result.add(matches.get(i).name.compoundName);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names that might contain a string.  Any name containing it must contain all of its trigrams,
+     * so the names containing its least common trigram are a superset of the matches.
+     */
+    private Iterable<IndexedName> getCandidates(String lowerCasePart) {
+
+        if (lowerCasePart.length() < GRAM_LENGTH) {
+            return names.values();
+        }
+
+        Set<IndexedName> smallest = null;
+        for (String gram : getGrams(lowerCasePart)) {
+            Set<IndexedName> posting = postings.get(gram);
+            if (posting == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || posting.size() < smallest.size()) {
+                smallest = posting;
+            }
+        }
+        return smallest;
+    }
+
+    /**
+     * Returns the number of compounds in the index.
+     *
+     * @return The number of compounds.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return names.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * A compound in the index.
+     */
+    private static final class IndexedName {
+
+        private final String compoundName;
+        private final String lowerCaseName;
+        private volatile boolean hidden;
+
+        IndexedName(String compoundName, boolean hidden) {
+            this.compoundName = compoundName;
+            this.lowerCaseName = compoundName.toLowerCase(Locale.US);
+            this.hidden = hidden;
+        }
+    }
+
+    /**
+     * A compound name matching a search, and how well it matches.
+     */
+    private static final class Match {
+
+        private static final int RANK_EXACT = 0;
+        private static final int RANK_PREFIX = 1;
+        private static final int RANK_WORD_START = 2;
+        private static final int RANK_INFIX = 3;
+
+        static final Comparator<Match> COMPARATOR = Comparator.<Match>comparingInt(m -> m.rank)
+            .thenComparingInt(m -> m.index)
+            .thenComparingInt(m -> m.name.compoundName.length())
+            .thenComparing(m -> m.name.lowerCaseName)
+            .thenComparing(m -> m.name.compoundName);
+
+        private final IndexedName name;
+        private final int index;
+        private final int rank;
+
+        Match(IndexedName name, int index, int partLength) {
+            this.name = name;
+            this.index = index;
+            if (index == 0) {
+                rank = partLength == name.lowerCaseName.length() ? RANK_EXACT : RANK_PREFIX;
+            }
+            else {
+                rank = Character.isLetterOrDigit(name.lowerCaseName.charAt(index - 1)) ? RANK_INFIX :
+                    RANK_WORD_START;
+            }
+        }
+    }
+}
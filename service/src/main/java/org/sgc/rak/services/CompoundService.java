@@ -1,47 +1,103 @@
 package org.sgc.rak.services;
 
+import org.apache.commons.lang3.StringUtils;
 import org.sgc.rak.dao.CompoundDao;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.*;
-import org.sgc.rak.repositories.ActivityProfileRepository;
-import org.sgc.rak.repositories.NanoBretActivityProfileRepository;
 import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.sgc.rak.services.ReadThroughCache.normalize;
+
 /**
- * Service for manipulating compounds.
+ * Service for manipulating compounds.  Compound name typeahead is served from an in-memory
+ * {@link CompoundNameIndex}, which is loaded at startup and kept up to date as compounds are imported and edited.
+ * Compound lookups and searches are cached, and the caches are invalidated when compounds or activity profiles
+ * change.  The totals of searches are cached separately from their pages, so paging through a search only counts
+ * its results once.
  */
 @Service
 public class CompoundService {
 
     private final CompoundDao compoundDao;
     private final KinaseService kinaseService;
-    private final ActivityProfileRepository activityProfileRepository;
-    private final NanoBretActivityProfileRepository nanoBretActivityProfileRepository;
+    private final ImportPublisher importPublisher;
+    private final DatasetVersion datasetVersion;
     private final Messages messages;
 
+    private volatile CompoundNameIndex compoundNameIndex;
+
+    private final ReadThroughCache<String, Compound> compoundCache;
+    private final ReadThroughCache<List<Object>, Page<Compound>> compoundPageCache;
+    private final ReadThroughCache<List<Object>, Page<CompoundActivityPair>> compoundSearchCache;
+    private final ReadThroughCache<List<Object>, Slice<CompoundActivityPair>> compoundSliceCache;
+    private final ReadThroughCache<List<Object>, Long> compoundCountCache;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompoundService.class);
+
     @Autowired
-    public CompoundService(CompoundDao compoundDao, KinaseService kinaseService,
-                           ActivityProfileRepository activityProfileRepository,
-                           NanoBretActivityProfileRepository nanoBretActivityProfileRepository,
-                           Messages messages) {
+    public CompoundService(CompoundDao compoundDao, KinaseService kinaseService, ImportPublisher importPublisher,
+                           ReadCaches readCaches, DatasetVersion datasetVersion, Messages messages) {
         this.compoundDao = compoundDao;
         this.kinaseService = kinaseService;
-        this.activityProfileRepository = activityProfileRepository;
-        this.nanoBretActivityProfileRepository = nanoBretActivityProfileRepository;
+        this.importPublisher = importPublisher;
+        this.datasetVersion = datasetVersion;
         this.messages = messages;
+        compoundCache = readCaches.create("compound");
+        compoundPageCache = readCaches.create("compounds");
+        compoundSearchCache = readCaches.create("compoundSearches");
+        compoundSliceCache = readCaches.create("compoundSlices");
+        compoundCountCache = readCaches.create("compoundCounts");
+    }
+
+    /**
+     * Notes that activity profiles have been added or changed, so that cached searches for compounds by their
+     * activity against kinases are discarded.  If called in a transaction, this takes effect when it commits.
+     */
+    public void activityProfilesChanged() {
+        Util.runAfterCommit(() -> {
+            compoundSearchCache.invalidateAll();
+            compoundSliceCache.invalidateAll();
+            compoundCountCache.invalidateAll();
+        });
+    }
+
+    /**
+     * Discards cached compounds and compound searches, and bumps the dataset version.  If called in a transaction,
+     * this takes effect when it commits.
+     */
+    private void compoundsChanged() {
+        Util.runAfterCommit(() -> {
+            compoundCache.invalidateAll();
+            compoundPageCache.invalidateAll();
+            compoundSearchCache.invalidateAll();
+            compoundSliceCache.invalidateAll();
+            compoundCountCache.invalidateAll();
+        });
+        datasetVersion.dataChanged();
     }
 
     /**
@@ -97,7 +153,7 @@ public class CompoundService {
      * @see #getCompoundExists(String)
      */
     public Compound getCompound(String compoundName) {
-        return compoundDao.getCompound(compoundName);
+        return compoundCache.get(normalize(compoundName), () -> compoundDao.getCompound(compoundName));
     }
 
     /**
@@ -111,6 +167,27 @@ public class CompoundService {
         return compoundDao.getCompoundExists(compoundName);
     }
 
+    /**
+     * Returns whether a compound is hidden.  This is answered from the compound name index rather than a query.
+     *
+     * @param compoundName The name of the compound.
+     * @return Whether the compound is hidden.  This is {@code false} if no such compound is known.
+     */
+    public boolean getCompoundHidden(String compoundName) {
+        return getCompoundNameIndex().isHidden(compoundName);
+    }
+
+    /**
+     * Returns which of a collection of compound names are known compounds.
+     *
+     * @param compoundNames The compound names to check for.
+     * @return The names of the compounds that exist.
+     * @see #getCompoundExists(String)
+     */
+    public Set<String> getExistingCompoundNames(Collection<String> compoundNames) {
+        return compoundDao.getExistingCompoundNames(compoundNames);
+    }
+
     /**
      * Returns compound information.
      *
@@ -121,56 +198,249 @@ public class CompoundService {
      * @return The list of compounds.
      */
     public Page<Compound> getCompounds(String compoundNamePart, Pageable pageInfo, boolean includeHidden) {
-        return compoundDao.getCompounds(compoundNamePart, pageInfo, includeHidden);
+        return compoundPageCache.get(ReadThroughCache.key(normalize(compoundNamePart), pageInfo, includeHidden),
+            () -> compoundDao.getCompounds(compoundNamePart, pageInfo, includeHidden));
     }
 
-    public Page<Compound> getCompoundsByKinaseAndActivity(String kinaseEntrez, double activity, Pageable pageInfo) {
+    /**
+     * Searches for compounds matching any combination of criteria, in a single query.
+     *
+     * @param compoundNamePart A part of a compound name, or {@code null} to not filter by name.
+     * @param kinaseEntrezes The entrez gene symbols of kinases that compounds must have data for.  This may be
+     *        empty.
+     * @param activity The maximum percent control value against each kinase, or {@code null} for none.
+     * @param kd The maximum Kd value against each kinase, or {@code null} for none.
+     * @param ic50 The maximum NanoBRET IC50 value against each kinase, or {@code null} for none.
+     * @param includeHidden Whether hidden compounds should be included in the result.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.  If there is a single activity threshold and at most one kinase, each compound's
+     *         best value is also returned.
+     * @throws NotFoundException If a kinase is not known.
+     * @see CompoundSearchCriteria
+     */
+    public Page<CompoundActivityPair> searchCompounds(String compoundNamePart, List<String> kinaseEntrezes,
+                                                      Double activity, Double kd, Double ic50,
+                                                      boolean includeHidden, Pageable pageInfo) {
+
+        List<Object> key = ReadThroughCache.key(getSearchKey(compoundNamePart, kinaseEntrezes, activity, kd, ic50,
+            includeHidden), pageInfo);
+
+        return compoundSearchCache.get(key, () -> compoundDao.searchCompounds(createSearchCriteria(compoundNamePart,
+            kinaseEntrezes, activity, kd, ic50, includeHidden), pageInfo));
+    }
 
-        List<Long> kinaseIds = getKinaseRecordIds(kinaseEntrez);
+    /**
+     * Searches for compounds matching any combination of criteria, like
+     * {@link #searchCompounds(String, List, Double, Double, Double, boolean, Pageable)}, but without counting the
+     * total.  Use this when callers only need to know whether there are more compounds, e.g. for infinite
+     * scrolling.
+     *
+     * @param compoundNamePart A part of a compound name, or {@code null} to not filter by name.
+     * @param kinaseEntrezes The entrez gene symbols of kinases that compounds must have data for.  This may be
+     *        empty.
+     * @param activity The maximum percent control value against each kinase, or {@code null} for none.
+     * @param kd The maximum Kd value against each kinase, or {@code null} for none.
+     * @param ic50 The maximum NanoBRET IC50 value against each kinase, or {@code null} for none.
+     * @param includeHidden Whether hidden compounds should be included in the result.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @throws NotFoundException If a kinase is not known.
+     * @see #searchCompoundsWithCachedTotal(String, List, Double, Double, Double, boolean, Pageable)
+     */
+    public Slice<CompoundActivityPair> searchCompoundSlice(String compoundNamePart, List<String> kinaseEntrezes,
+                                                           Double activity, Double kd, Double ic50,
+                                                           boolean includeHidden, Pageable pageInfo) {
 
-        Page<ActivityProfile> profiles = activityProfileRepository.
-            getActivityProfilesByKinaseIdInAndPercentControlLessThanEqual(kinaseIds, activity, pageInfo);
+        List<Object> key = ReadThroughCache.key(getSearchKey(compoundNamePart, kinaseEntrezes, activity, kd, ic50,
+            includeHidden), pageInfo);
 
-        List<Compound> compounds = getCompoundsFromActivityProfiles(profiles);
-        return new PageImpl<>(compounds, pageInfo, profiles.getTotalElements());
+        return compoundSliceCache.get(key, () -> compoundDao.searchCompoundSlice(createSearchCriteria(
+            compoundNamePart, kinaseEntrezes, activity, kd, ic50, includeHidden), pageInfo));
     }
 
-    public Page<Compound> getCompoundsByKinaseAndIc50(String kinaseEntrez, double ic50, Pageable pageInfo) {
+    /**
+     * Searches for compounds matching any combination of criteria, like
+     * {@link #searchCompounds(String, List, Double, Double, Double, boolean, Pageable)}, but only counts the total
+     * the first time any page of the search is requested.  The total is then reused for every page and sort order
+     * until compounds or activity profiles change.
+     *
+     * @param compoundNamePart A part of a compound name, or {@code null} to not filter by name.
+     * @param kinaseEntrezes The entrez gene symbols of kinases that compounds must have data for.  This may be
+     *        empty.
+     * @param activity The maximum percent control value against each kinase, or {@code null} for none.
+     * @param kd The maximum Kd value against each kinase, or {@code null} for none.
+     * @param ic50 The maximum NanoBRET IC50 value against each kinase, or {@code null} for none.
+     * @param includeHidden Whether hidden compounds should be included in the result.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @throws NotFoundException If a kinase is not known.
+     * @see #searchCompoundSlice(String, List, Double, Double, Double, boolean, Pageable)
+     */
+    public Page<CompoundActivityPair> searchCompoundsWithCachedTotal(String compoundNamePart,
+                                                                     List<String> kinaseEntrezes, Double activity,
+                                                                     Double kd, Double ic50, boolean includeHidden,
+                                                                     Pageable pageInfo) {
+
+        Slice<CompoundActivityPair> slice = searchCompoundSlice(compoundNamePart, kinaseEntrezes, activity, kd,
+            ic50, includeHidden, pageInfo);
+
+        // The total can be determined from the last page itself, unless it's past the end
+        long total;
+        if (slice.hasNext() || (!slice.hasContent() && pageInfo.isPaged() && pageInfo.getOffset() > 0)) {
+            total = compoundCountCache.get(getSearchKey(compoundNamePart, kinaseEntrezes, activity, kd, ic50,
+                includeHidden), () -> compoundDao.countCompounds(createSearchCriteria(compoundNamePart,
+                kinaseEntrezes, activity, kd, ic50, includeHidden)));
+        }
+        else {
+            total = (pageInfo.isPaged() ? pageInfo.getOffset() : 0) + slice.getNumberOfElements();
+        }
 
-        List<Long> kinaseIds = getKinaseRecordIds(kinaseEntrez);
+        return new PageImpl<>(slice.getContent(), pageInfo, total);
+    }
 
-        Page<NanoBretActivityProfile> profiles = nanoBretActivityProfileRepository.
-            getActivityProfilesByKinaseIdInAndIc50LessThanEqual(kinaseIds, ic50, pageInfo);
+    /**
+     * Returns the part of a compound search's cache key that identifies its results, regardless of paging.
+     */
+    private static List<Object> getSearchKey(String compoundNamePart, List<String> kinaseEntrezes, Double activity,
+                                             Double kd, Double ic50, boolean includeHidden) {
 
-        List<Compound> compounds = getCompoundsFromNanoBretActivityProfiles(profiles);
-        return new PageImpl<>(compounds, pageInfo, profiles.getTotalElements());
+        List<String> normalizedEntrezes = kinaseEntrezes.stream()
+            .map(ReadThroughCache::normalize)
+            .collect(Collectors.toList());
+        return ReadThroughCache.key("search", normalize(compoundNamePart), normalizedEntrezes, activity, kd, ic50,
+            includeHidden);
     }
 
-    public Page<Compound> getCompoundsByKinaseAndKd(String kinaseEntrez, double kd, Pageable pageInfo) {
+    private CompoundSearchCriteria createSearchCriteria(String compoundNamePart, List<String> kinaseEntrezes,
+                                                        Double activity, Double kd, Double ic50,
+                                                        boolean includeHidden) {
 
-        List<Long> kinaseIds = getKinaseRecordIds(kinaseEntrez);
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.setCompoundNamePart(compoundNamePart);
+        for (String kinaseEntrez : kinaseEntrezes) {
+            criteria.addKinase(getKinaseRecordIds(kinaseEntrez));
+        }
+        criteria.setMaxPercentControl(activity);
+        criteria.setMaxKd(kd);
+        criteria.setMaxIc50(ic50);
+        criteria.setIncludeHidden(includeHidden);
+        return criteria;
+    }
 
-        Page<ActivityProfile> profiles = activityProfileRepository.
-            getActivityProfilesByKinaseIdInAndKdLessThanEqual(kinaseIds, kd, pageInfo);
+    /**
+     * Returns the names of compounds containing a string, ignoring case, for typeahead.
+     *
+     * @param compoundNamePart A part of a compound name.
+     * @param limit The maximum number of names to return.
+     * @param includeHidden Whether hidden compounds should be included in the result.
+     * @return The matching compound names, best matches first.
+     * @see CompoundNameIndex#search(String, int, boolean)
+     */
+    public List<String> getCompoundNameSuggestions(String compoundNamePart, int limit, boolean includeHidden) {
+        return getCompoundNameIndex().search(compoundNamePart, limit, includeHidden);
+    }
 
-        List<Compound> compounds = getCompoundsFromActivityProfiles(profiles);
-        return new PageImpl<>(compounds, pageInfo, profiles.getTotalElements());
+    private CompoundNameIndex getCompoundNameIndex() {
+        CompoundNameIndex result = compoundNameIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = compoundNameIndex;
+                if (result == null) {
+                    result = loadCompoundNameIndex();
+                }
+            }
+        }
+        return result;
     }
 
-    private List<Compound> getCompoundsFromActivityProfiles(Page<ActivityProfile> profiles) {
+    private synchronized CompoundNameIndex loadCompoundNameIndex() {
 
-        List<String> compoundNames = profiles.getContent().stream().map(ActivityProfile::getCompoundName)
-            .collect(Collectors.toList());
+        CompoundNameIndex index = new CompoundNameIndex();
+        compoundDao.getCompoundNames(false).forEach(name -> index.put(name, false));
+        compoundDao.getCompoundNames(true).forEach(name -> index.put(name, true));
 
-        return compoundDao.getCompounds(compoundNames);
+        compoundNameIndex = index;
+        LOGGER.info("Indexed {} compound names", index.size());
+        return index;
     }
 
-    private List<Compound> getCompoundsFromNanoBretActivityProfiles(Page<NanoBretActivityProfile> profiles) {
+    /**
+     * Loads the compound name index when the application starts, so the first typeahead requests don't have to.
+     * If this fails, the index is loaded when it is first needed instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadCompoundNames() {
+        try {
+            loadCompoundNameIndex();
+        } catch (DataAccessException dae) {
+            LOGGER.warn("Could not preload compound names, they will be loaded on first use", dae);
+        }
+    }
 
-        List<String> compoundNames = profiles.getContent().stream().map(NanoBretActivityProfile::getCompoundName)
-            .collect(Collectors.toList());
+    /**
+     * Adds compounds to the name index, or updates whether they're hidden.  If called in a transaction, this is
+     * deferred until it commits, so that typeahead never suggests compounds that were rolled back.
+     */
+    private void indexCompounds(Collection<Compound> compounds) {
+
+        Util.runAfterCommit(() -> {
+            synchronized (this) {
+                // If the index isn't loaded yet, these changes will be picked up when it is
+                if (compoundNameIndex != null) {
+                    compounds.forEach(c -> compoundNameIndex.put(c.getCompoundName(),
+                        Boolean.TRUE.equals(c.isHidden())));
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the compounds with a percent control value at or below a threshold against a kinase, along with
+     * each compound's best (lowest) value.  Each compound is only returned once, even if several of the kinase's
+     * records match.
+     *
+     * @param kinaseEntrez The entrez gene symbol of the kinase.
+     * @param activity The maximum percent control value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @throws NotFoundException If the kinase is not known.
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndActivity(String kinaseEntrez, double activity,
+                                                                      Pageable pageInfo) {
+        return compoundSearchCache.get(ReadThroughCache.key("activity", normalize(kinaseEntrez), activity, pageInfo),
+            () -> compoundDao.getCompoundsByKinaseAndActivity(getKinaseRecordIds(kinaseEntrez), activity, pageInfo));
+    }
+
+    /**
+     * Returns the compounds with a NanoBRET IC50 value at or below a threshold against a kinase, along with each
+     * compound's best (lowest) value.  Each compound is only returned once, even if several of the kinase's
+     * records match.
+     *
+     * @param kinaseEntrez The entrez gene symbol of the kinase.
+     * @param ic50 The maximum IC50 value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @throws NotFoundException If the kinase is not known.
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndIc50(String kinaseEntrez, double ic50,
+                                                                  Pageable pageInfo) {
+        return compoundSearchCache.get(ReadThroughCache.key("ic50", normalize(kinaseEntrez), ic50, pageInfo),
+            () -> compoundDao.getCompoundsByKinaseAndIc50(getKinaseRecordIds(kinaseEntrez), ic50, pageInfo));
+    }
 
-        return compoundDao.getCompounds(compoundNames);
+    /**
+     * Returns the compounds with a Kd value at or below a threshold against a kinase, along with each compound's
+     * best (lowest) value.  Each compound is only returned once, even if several of the kinase's records match.
+     *
+     * @param kinaseEntrez The entrez gene symbol of the kinase.
+     * @param kd The maximum Kd value.
+     * @param pageInfo How to sort the compounds and what page of them to return.
+     * @return The compounds.
+     * @throws NotFoundException If the kinase is not known.
+     */
+    public Page<CompoundActivityPair> getCompoundsByKinaseAndKd(String kinaseEntrez, double kd, Pageable pageInfo) {
+        return compoundSearchCache.get(ReadThroughCache.key("kd", normalize(kinaseEntrez), kd, pageInfo),
+            () -> compoundDao.getCompoundsByKinaseAndKd(getKinaseRecordIds(kinaseEntrez), kd, pageInfo));
     }
 
     /**
@@ -187,6 +457,24 @@ public class CompoundService {
         return compoundDao.getCompoundsMissingActivityProfiles(compound, pageInfo);
     }
 
+    /**
+     * Returns a page of compounds that are missing activity profiles, by keyset paging.  Unlike
+     * {@link #getCompoundsMissingActivityProfiles(String, Pageable)}, deep pages are as fast to fetch as the
+     * first, and the total isn't counted.
+     *
+     * @param compound A part of a compound name.  If specified, only compounds
+     *        whose name contains this substring (ignoring case) will be returned.
+     * @param after Where the page starts.  This may be {@code null} to return the first page.
+     * @param pageInfo How to sort the data, and the page size.  Only sorting by compound name is supported.
+     * @return The page of compounds.
+     * @throws IllegalArgumentException If the sort isn't supported, or {@code after} doesn't match it.
+     */
+    public KeysetSlice<CompoundCountPair> getCompoundsMissingActivityProfiles(String compound,
+                                                                              ContinuationToken after,
+                                                                              Pageable pageInfo) {
+        return compoundDao.getCompoundsMissingActivityProfiles(compound, after, pageInfo);
+    }
+
     /**
      * Returns information about compounds that are missing one or more publication information fields.
      *
@@ -241,7 +529,8 @@ public class CompoundService {
     }
 
     /**
-     * Upserts a list of compounds.  New compounds are added, existing ones are updated.
+     * Upserts a list of compounds.  New compounds are added, existing ones are updated.  Compounds the import
+     * wouldn't change aren't written.
      *
      * @param compounds The compounds to upsert.
      * @param commit Whether to actually commit the patch, or just return the possible result.
@@ -250,7 +539,8 @@ public class CompoundService {
     public ObjectImportRep importCompounds(List<Compound> compounds, boolean commit) {
 
         List<String> compoundNames = compounds.stream().map(Compound::getCompoundName).collect(Collectors.toList());
-        List<Compound> existingCompounds = compoundDao.getCompounds(compoundNames);
+        Map<String, Compound> existingCompounds = compoundDao.getCompounds(compoundNames).stream()
+            .collect(Collectors.toMap(Compound::getCompoundName, c -> c, (c1, c2) -> c1));
 
         ObjectImportRep importRep = new ObjectImportRep();
         List<List<ObjectImportRep.FieldStatus>> records = new ArrayList<>();
@@ -272,30 +562,59 @@ public class CompoundService {
                 newCompound = compound;
             }
 
-            toPersist.add(newCompound);
-            records.add(compoundToFieldStatusList(newCompound, existingCompound));
+            List<ObjectImportRep.FieldStatus> fieldStatuses = compoundToFieldStatusList(newCompound, existingCompound);
+            records.add(fieldStatuses);
+            if (!Util.isUnchangedRecord(fieldStatuses)) {
+                toPersist.add(newCompound);
+            }
         }
 
         if (commit) {
             compoundDao.save(toPersist);
+            indexCompounds(toPersist);
+            compoundsChanged();
         }
 
+        Util.updateRecordCounts(importRep);
         return importRep;
     }
 
-    private static Compound possiblyGetCompound(List<Compound> compounds, String compoundName) {
-        Optional<Compound> optional = compounds.stream().filter(c -> compoundName.equals(c.getCompoundName()))
-            .findFirst();
-        return optional.orElse(null);
+    /**
+     * Validates a list of compounds without importing them.  Rather than stopping at the first problem, every
+     * problem with every record is reported.
+     *
+     * @param compounds The compounds to validate.
+     * @param report Receives the problems found.  Records are numbered following any already in the report.
+     */
+    public void validateCompounds(List<Compound> compounds, ImportErrorReport report) {
+
+        for (Compound compound : compounds) {
+
+            Util.convertEmptyStringsToNulls(compound);
+            long row = report.nextRow();
+
+            if (StringUtils.isBlank(compound.getCompoundName())) {
+                report.addError(row, "compoundName", messages.get("error.fieldRequired", "compoundName"));
+            }
+        }
+    }
+
+    private static Compound possiblyGetCompound(Map<String, Compound> compounds, String compoundName) {
+        return compounds.get(compoundName);
     }
 
     /**
-     * Updates a compound.
+     * Updates a compound.  Since this changes data outside of an import, re-importing the last file imported is
+     * no longer skipped.
      *
      * @param compound The compound to update.
      * @return The updated compound.
      */
     public Compound updateCompound(Compound compound) {
-        return compoundDao.save(compound);
+        Compound updated = compoundDao.save(compound);
+        indexCompounds(Collections.singletonList(updated));
+        compoundsChanged();
+        importPublisher.invalidatePublishedFile();
+        return updated;
     }
 }
@@ -0,0 +1,42 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.util.Util;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A version number for the data served by the public read APIs (compounds, activity profiles, kinases and blog
+ * posts), which increases whenever that data is changed.  Responses built from the data can be tagged or cached
+ * by it, so clients and caches can tell whether responses they already have are still current without the data
+ * being queried again.<p>
+ *
+ * The version starts at the time the application starts, so that it also increases across restarts.
+ */
+@Service
+public class DatasetVersion {
+
+    private final AtomicLong version;
+
+    public DatasetVersion() {
+        version = new AtomicLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Notes that the data has changed.  If called in a transaction, this takes effect when it commits.  This
+     * should be called after any cached data is invalidated, so that the new version is never paired with old
+     * data.
+     */
+    public void dataChanged() {
+        Util.runAfterCommit(version::incrementAndGet);
+    }
+
+    /**
+     * Returns the current version.
+     *
+     * @return The version.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+}
@@ -0,0 +1,86 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.reps.ImportValidationRep;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects the errors found while validating a file of data to import.  Rows are numbered as they are validated,
+ * so a large file can be validated a chunk at a time into a single report.  Every error is counted, but only the
+ * first few are kept, so memory use stays bounded however bad the file is.
+ */
+public class ImportErrorReport {
+
+    private final int maxErrors;
+    private final List<ImportValidationRep.RowError> errors;
+    private long rowCount;
+    private long invalidRowCount;
+    private long errorCount;
+    private long lastInvalidRow;
+
+    /**
+     * Constructor.
+     *
+     * @param maxErrors The maximum number of errors to keep.
+     */
+    public ImportErrorReport(int maxErrors) {
+        this.maxErrors = maxErrors;
+        this.errors = new ArrayList<>();
+    }
+
+    /**
+     * Records an error with the current row.
+     *
+     * @param row The row number, as returned by {@link #nextRow()}.
+     * @param field The name of the field with the error.
+     * @param message A description of the error.
+     */
+    public void addError(long row, String field, String message) {
+
+        errorCount++;
+        if (row != lastInvalidRow) {
+            invalidRowCount++;
+            lastInvalidRow = row;
+        }
+
+        if (errors.size() < maxErrors) {
+            errors.add(new ImportValidationRep.RowError(row, field, message));
+        }
+    }
+
+    /**
+     * Returns the number of errors found so far.
+     *
+     * @return The number of errors.
+     */
+    public long getErrorCount() {
+        return errorCount;
+    }
+
+    /**
+     * Starts validating the next row.
+     *
+     * @return The row's number.  Rows are numbered from 1.
+     */
+    public long nextRow() {
+        return ++rowCount;
+    }
+
+    /**
+     * Returns the contents of this report.
+     *
+     * @param type The type of data validated, e.g. {@code activityProfiles}.
+     * @return The report.
+     */
+    public ImportValidationRep toRep(String type) {
+        ImportValidationRep rep = new ImportValidationRep();
+        rep.setType(type);
+        rep.setRowCount(rowCount);
+        rep.setInvalidRowCount(invalidRowCount);
+        rep.setErrorCount(errorCount);
+        rep.setTruncated(errorCount > errors.size());
+        rep.setErrors(new ArrayList<>(errors));
+        return rep;
+    }
+}
@@ -0,0 +1,229 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.reps.ImportJobRep;
+import org.sgc.rak.reps.ObjectImportRep;
+
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Future;
+
+/**
+ * An import running (or waiting to run) in the background.  The code performing the import reports its progress
+ * here, and is expected to call {@link #checkCancelled()} between units of work so that it can be cancelled.
+ * All methods are thread-safe.
+ */
+public class ImportJob {
+
+    /**
+     * The name of the phase during which CSV data is read and deserialized.
+     */
+    public static final String PHASE_PARSE = "parse";
+
+    /**
+     * The name of the phase during which records are validated and, if committing, written to the database.
+     */
+    public static final String PHASE_IMPORT = "import";
+
+    private final String id;
+    private final String type;
+    private final boolean commit;
+    private final Date submitted;
+
+    private ImportJobRep.Status status;
+    private Date started;
+    private Date finished;
+    private long rowsParsed;
+    private long rowsValidated;
+    private long rowsWritten;
+    private final Map<String, Long> phaseTimings;
+    private ObjectImportRep result;
+    private String error;
+    private boolean cancelRequested;
+    private Future<?> future;
+    private Runnable cleanup;
+
+    /**
+     * Constructor.
+     *
+     * @param id The ID of this job.
+     * @param type The type of data being imported, e.g. {@code activityProfiles}.
+     * @param commit Whether the import is committed (vs. a dry run).
+     * @param cleanup Run once when this job finishes, however it finishes, e.g. to delete the data being
+     *        imported.  This may be {@code null}.
+     */
+    public ImportJob(String id, String type, boolean commit, Runnable cleanup) {
+        this.id = id;
+        this.type = type;
+        this.commit = commit;
+        this.cleanup = cleanup;
+        this.submitted = new Date();
+        this.status = ImportJobRep.Status.QUEUED;
+        this.phaseTimings = new LinkedHashMap<>();
+    }
+
+    /**
+     * Throws a {@code CancellationException} if this job has been cancelled.
+     */
+    public synchronized void checkCancelled() {
+        if (cancelRequested) {
+            throw new CancellationException();
+        }
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns when this job finished, if it has.
+     *
+     * @return When this job finished, or {@code null} if it has not.
+     */
+    synchronized Date getFinished() {
+        return finished;
+    }
+
+    /**
+     * Returns whether this job's import is committed (vs. a dry run).
+     *
+     * @return Whether the import is committed.
+     */
+    public boolean isCommit() {
+        return commit;
+    }
+
+    private synchronized void finish(ImportJobRep.Status status) {
+        this.status = status;
+        this.finished = new Date();
+        if (cleanup != null) {
+            cleanup.run();
+            cleanup = null;
+        }
+    }
+
+    /**
+     * Marks this job as having failed.
+     *
+     * @param error A description of the error.
+     */
+    synchronized void markFailed(String error) {
+        this.error = error;
+        finish(cancelRequested ? ImportJobRep.Status.CANCELLED : ImportJobRep.Status.FAILED);
+    }
+
+    /**
+     * Marks this job as running.
+     *
+     * @return Whether the job should run.  This is {@code false} if it was cancelled while queued.
+     */
+    synchronized boolean markRunning() {
+        if (status != ImportJobRep.Status.QUEUED) {
+            return false;
+        }
+        status = ImportJobRep.Status.RUNNING;
+        started = new Date();
+        return true;
+    }
+
+    /**
+     * Marks this job as having completed successfully.
+     *
+     * @param result The result of the import.
+     */
+    synchronized void markSucceeded(ObjectImportRep result) {
+        this.result = result;
+        finish(ImportJobRep.Status.SUCCEEDED);
+    }
+
+    /**
+     * Records that a number of rows were parsed.
+     *
+     * @param count The number of rows parsed.
+     * @param millis The time taken to parse them, in milliseconds.
+     */
+    public synchronized void rowsParsed(long count, long millis) {
+        rowsParsed += count;
+        phaseTimings.merge(PHASE_PARSE, millis, Long::sum);
+    }
+
+    /**
+     * Records that a number of rows were validated and, if this job commits, written to the database.
+     *
+     * @param count The number of rows imported.
+     * @param millis The time taken to import them, in milliseconds.
+     */
+    public synchronized void rowsImported(long count, long millis) {
+        rowsValidated += count;
+        if (commit) {
+            rowsWritten += count;
+        }
+        phaseTimings.merge(PHASE_IMPORT, millis, Long::sum);
+    }
+
+    /**
+     * Requests that this job be cancelled.  A queued job is cancelled immediately; a running job stops the next
+     * time it calls {@link #checkCancelled()}.  A committing job publishes its changes atomically, so any data it
+     * has already written is rolled back.
+     *
+     * @return Whether the job was still queued or running.
+     */
+    synchronized boolean requestCancel() {
+
+        if (status.isFinished()) {
+            return false;
+        }
+
+        cancelRequested = true;
+        if (status == ImportJobRep.Status.QUEUED) {
+            finish(ImportJobRep.Status.CANCELLED);
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+        return true;
+    }
+
+    synchronized void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Returns a snapshot of this job's state.
+     *
+     * @return The job's state.
+     */
+    public synchronized ImportJobRep toRep() {
+        ImportJobRep rep = new ImportJobRep();
+        rep.setId(id);
+        rep.setType(type);
+        rep.setStatus(status);
+        rep.setCommit(commit);
+        rep.setRowsParsed(rowsParsed);
+        rep.setRowsValidated(rowsValidated);
+        rep.setRowsWritten(rowsWritten);
+        rep.setPhaseTimings(new LinkedHashMap<>(phaseTimings));
+        rep.setSubmitted(submitted);
+        rep.setStarted(started);
+        rep.setFinished(finished);
+        rep.setResult(result);
+        rep.setError(error);
+        return rep;
+    }
+
+    /**
+     * Performs the work of an import job.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        /**
+         * Runs the import.
+         *
+         * @param job The job to report progress to.
+         * @return The result of the import.
+         */
+        ObjectImportRep run(ImportJob job);
+    }
+}
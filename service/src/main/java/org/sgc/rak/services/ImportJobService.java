@@ -0,0 +1,173 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.exceptions.ServiceUnavailableException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ImportJobRep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Date;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Service for running imports in the background.  Jobs run on a small, bounded pool of threads separate from the
+ * request threads, so long imports neither time out nor starve other requests.  If too many jobs are already
+ * queued, further submissions are rejected.  Finished jobs are remembered for a while so their results can be
+ * polled.
+ */
+@Service
+public class ImportJobService {
+
+    private final Messages messages;
+
+    private final ThreadPoolExecutor executor;
+    private final Map<String, ImportJob> jobs;
+    private final long retentionMillis;
+
+    /**
+     * The default number of import jobs run concurrently.  This can be overridden via the
+     * {@code rak.import.job-threads} property.
+     */
+    private static final int DEFAULT_JOB_THREADS = 2;
+
+    /**
+     * The default number of import jobs that can wait to run.  This can be overridden via the
+     * {@code rak.import.job-queue-size} property.
+     */
+    private static final int DEFAULT_JOB_QUEUE_SIZE = 10;
+
+    /**
+     * The default number of minutes a finished job is remembered.  This can be overridden via the
+     * {@code rak.import.job-retention-minutes} property.
+     */
+    private static final long DEFAULT_JOB_RETENTION_MINUTES = 60;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportJobService.class);
+
+    @Autowired
+    public ImportJobService(Environment environment, Messages messages) {
+
+        this.messages = messages;
+
+        int threads = environment.getProperty("rak.import.job-threads", Integer.class, DEFAULT_JOB_THREADS);
+        int queueSize = environment.getProperty("rak.import.job-queue-size", Integer.class,
+            DEFAULT_JOB_QUEUE_SIZE);
+        executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueSize), new CustomizableThreadFactory("rak-import-"));
+
+        retentionMillis = TimeUnit.MINUTES.toMillis(environment.getProperty("rak.import.job-retention-minutes",
+            Long.class, DEFAULT_JOB_RETENTION_MINUTES));
+        jobs = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Requests that an import job be cancelled.
+     *
+     * @param id The ID of the job.
+     * @return The state of the job.
+     * @throws NotFoundException If the job does not exist.
+     * @see ImportJob#checkCancelled()
+     */
+    public ImportJobRep cancelJob(String id) {
+        ImportJob job = getImportJob(id);
+        job.requestCancel();
+        return job.toRep();
+    }
+
+    private ImportJob getImportJob(String id) {
+        ImportJob job = jobs.get(id);
+        if (job == null) {
+            throw new NotFoundException(messages.get("error.noSuchImportJob", id));
+        }
+        return job;
+    }
+
+    /**
+     * Returns the state of an import job.
+     *
+     * @param id The ID of the job.
+     * @return The state of the job.
+     * @throws NotFoundException If the job does not exist.
+     */
+    public ImportJobRep getJob(String id) {
+        return getImportJob(id).toRep();
+    }
+
+    private void removeExpiredJobs() {
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        jobs.values().removeIf(job -> {
+            Date finished = job.getFinished();
+            return finished != null && finished.getTime() < cutoff;
+        });
+    }
+
+    private void runJob(ImportJob job, ImportJob.Task task) {
+
+        if (!job.markRunning()) {
+            return;
+        }
+
+        try {
+            job.markSucceeded(task.run(job));
+            LOGGER.info("Import job {} completed", job.getId());
+        } catch (CancellationException ce) {
+            LOGGER.info("Import job {} cancelled", job.getId());
+            job.markFailed(null);
+        } catch (BadRequestException bre) {
+            LOGGER.info("Import job {} failed: {}", job.getId(), bre.getMessage());
+            job.markFailed(bre.getMessage());
+        } catch (RuntimeException re) {
+            LOGGER.error("Import job " + job.getId() + " failed", re);
+            job.markFailed(messages.get("error.importingData"));
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues an import to run in the background.
+     *
+     * @param type The type of data being imported, e.g. {@code activityProfiles}.
+     * @param commit Whether the import is committed (vs. a dry run).
+     * @param task Performs the import.
+     * @param cleanup Run once the job finishes (or if it is rejected), e.g. to delete the data being imported.
+     *        This may be {@code null}.
+     * @return The state of the newly-queued job.
+     * @throws ServiceUnavailableException If too many jobs are already queued.
+     */
+    public ImportJobRep submitJob(String type, boolean commit, ImportJob.Task task, Runnable cleanup) {
+
+        removeExpiredJobs();
+
+        ImportJob job = new ImportJob(UUID.randomUUID().toString(), type, commit, cleanup);
+        jobs.put(job.getId(), job);
+
+        try {
+            job.setFuture(executor.submit(() -> runJob(job, task)));
+        } catch (RejectedExecutionException ree) {
+            jobs.remove(job.getId());
+            job.markFailed(messages.get("error.tooManyImportJobs"));
+            throw new ServiceUnavailableException(messages.get("error.tooManyImportJobs"));
+        }
+
+        LOGGER.info("Queued import job {} ({})", job.getId(), type);
+        return job.toRep();
+    }
+}
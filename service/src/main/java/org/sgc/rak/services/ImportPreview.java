@@ -0,0 +1,154 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.reps.ImportPreviewRep;
+import org.sgc.rak.reps.ImportPreviewRowRep;
+import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.util.Util;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+
+/**
+ * An import preview stored on the server.  Only the rows that would change existing data are kept for display,
+ * along with the valid records so the preview can be committed without re-parsing the file.
+ *
+ * @param <T> The type of record being imported.
+ */
+class ImportPreview<T> {
+
+    private final String id;
+    private final String type;
+    private final Date created;
+    private final BiFunction<List<T>, Boolean, ObjectImportRep> importer;
+    private final List<T> validRecords;
+    private final List<ImportPreviewRowRep> changedRows;
+    private final Map<String, Long> fieldChangeCounts;
+    private long rowCount;
+    private long unchangedCount;
+    private long invalidCount;
+    private volatile long lastAccessed;
+
+    /**
+     * Constructor.
+     *
+     * @param id The ID of this preview.
+     * @param type The type of data being imported, e.g. {@code activityProfiles}.
+     * @param importer Imports a list of records, optionally committing them.
+     */
+    ImportPreview(String id, String type, BiFunction<List<T>, Boolean, ObjectImportRep> importer) {
+        this.id = id;
+        this.type = type;
+        this.created = new Date();
+        this.importer = importer;
+        this.validRecords = new ArrayList<>();
+        this.changedRows = new ArrayList<>();
+        this.fieldChangeCounts = new LinkedHashMap<>();
+        touch();
+    }
+
+    /**
+     * Adds a valid record and the preview of how it would change the existing data.
+     *
+     * @param record The record.
+     * @param fieldStatuses The record's field statuses, as returned by the importer.
+     */
+    void addRecord(T record, List<ObjectImportRep.FieldStatus> fieldStatuses) {
+
+        long rowNumber = ++rowCount;
+        validRecords.add(record);
+
+        if (Util.isNewRecord(fieldStatuses)) {
+            changedRows.add(new ImportPreviewRowRep(rowNumber, ImportPreviewRowRep.Status.NEW, fieldStatuses));
+        }
+        else if (Util.isUnchangedRecord(fieldStatuses)) {
+            unchangedCount++;
+        }
+        else {
+            changedRows.add(new ImportPreviewRowRep(rowNumber, ImportPreviewRowRep.Status.MODIFIED, fieldStatuses));
+            for (ObjectImportRep.FieldStatus status : fieldStatuses) {
+                if (!Objects.equals(status.getNewValue(), status.getOldValue())) {
+                    fieldChangeCounts.merge(status.getFieldName(), 1L, Long::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * Records that a row is invalid and will not be imported.
+     */
+    void addInvalidRecord() {
+        rowCount++;
+        invalidCount++;
+    }
+
+    /**
+     * Returns the new and modified rows, optionally filtered by status.
+     *
+     * @param status The status of rows to return, or {@code null} for both new and modified rows.
+     * @return The rows, in file order.
+     */
+    List<ImportPreviewRowRep> getChangedRows(ImportPreviewRowRep.Status status) {
+        touch();
+        if (status == null) {
+            return changedRows;
+        }
+        List<ImportPreviewRowRep> rows = new ArrayList<>();
+        for (ImportPreviewRowRep row : changedRows) {
+            if (row.getStatus() == status) {
+                rows.add(row);
+            }
+        }
+        return rows;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    BiFunction<List<T>, Boolean, ObjectImportRep> getImporter() {
+        return importer;
+    }
+
+    long getLastAccessed() {
+        return lastAccessed;
+    }
+
+    List<T> getValidRecords() {
+        return validRecords;
+    }
+
+    private void touch() {
+        lastAccessed = System.currentTimeMillis();
+    }
+
+    /**
+     * Returns a summary of this preview.
+     *
+     * @return The summary.
+     */
+    ImportPreviewRep toRep() {
+
+        touch();
+
+        ImportPreviewRep rep = new ImportPreviewRep();
+        rep.setId(id);
+        rep.setType(type);
+        rep.setCreated(created);
+        rep.setRowCount(rowCount);
+        rep.setUnchangedCount(unchangedCount);
+        rep.setInvalidCount(invalidCount);
+        rep.setFieldChangeCounts(new LinkedHashMap<>(fieldChangeCounts));
+
+        long newCount = changedRows.stream()
+            .filter(row -> row.getStatus() == ImportPreviewRowRep.Status.NEW)
+            .count();
+        rep.setNewCount(newCount);
+        rep.setModifiedCount(changedRows.size() - newCount);
+        return rep;
+    }
+}
@@ -0,0 +1,229 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ImportPreviewRep;
+import org.sgc.rak.reps.ImportPreviewRowRep;
+import org.sgc.rak.reps.ImportValidationRep;
+import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Service for previewing imports.  Rather than returning the status of every field of every row at once, a
+ * preview is stored on the server and summarized, and its changed rows are fetched a page at a time.  A stored
+ * preview can then be committed without the file being uploaded and parsed again.<p>
+ *
+ * Previews are held in memory, so only a few are kept, and they expire if not accessed for a while.
+ */
+@Service
+public class ImportPreviewService {
+
+    private final ImportPublisher importPublisher;
+    private final Messages messages;
+
+    private final Map<String, ImportPreview<?>> previews;
+    private final int maxPreviews;
+    private final long retentionMillis;
+
+    /**
+     * The default maximum number of previews stored at once.  This can be overridden via the
+     * {@code rak.import.max-previews} property.
+     */
+    private static final int DEFAULT_MAX_PREVIEWS = 5;
+
+    /**
+     * The default number of minutes an unused preview is kept.  This can be overridden via the
+     * {@code rak.import.preview-retention-minutes} property.
+     */
+    private static final long DEFAULT_PREVIEW_RETENTION_MINUTES = 30;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportPreviewService.class);
+
+    @Autowired
+    public ImportPreviewService(ImportPublisher importPublisher, Environment environment, Messages messages) {
+        this.importPublisher = importPublisher;
+        this.messages = messages;
+        this.maxPreviews = environment.getProperty("rak.import.max-previews", Integer.class, DEFAULT_MAX_PREVIEWS);
+        this.retentionMillis = TimeUnit.MINUTES.toMillis(environment.getProperty(
+            "rak.import.preview-retention-minutes", Long.class, DEFAULT_PREVIEW_RETENTION_MINUTES));
+        this.previews = new ConcurrentHashMap<>();
+    }
+
+    /**
+     * Commits a stored preview.  The valid records are imported a chunk at a time, against the data as it is
+     * now, so the result may differ from the preview if the data has changed since.  The changes are published
+     * atomically, once all chunks have been imported.  The preview is discarded.
+     *
+     * @param id The ID of the preview.
+     * @param chunkSize The maximum number of records imported at a time.
+     * @return The result of the import.  Only record counts are returned.
+     * @throws NotFoundException If the preview does not exist or has expired.
+     */
+    public ObjectImportRep commitPreview(String id, int chunkSize) {
+
+        ImportPreview<?> preview = previews.remove(id);
+        if (preview == null) {
+            throw new NotFoundException(messages.get("error.noSuchImportPreview", id));
+        }
+
+        LOGGER.info("Committing import preview {}", id);
+        return importPublisher.publish(() -> commitPreview(preview, chunkSize));
+    }
+
+    private <T> ObjectImportRep commitPreview(ImportPreview<T> preview, int chunkSize) {
+
+        ObjectImportRep result = new ObjectImportRep();
+
+        for (List<T> chunk : Util.partition(preview.getValidRecords(), chunkSize)) {
+            Util.addRecordCounts(result, preview.getImporter().apply(chunk, true));
+            importPublisher.endChunk();
+        }
+
+        return result;
+    }
+
+    /**
+     * Previews an import and stores the preview.  Records are validated and previewed a chunk at a time.  Invalid
+     * records are counted and excluded from the preview, so only the valid records in each chunk are previewed.
+     *
+     * @param type The type of data being imported, e.g. {@code activityProfiles}.
+     * @param records The records to import.
+     * @param chunkSize The maximum number of records previewed at a time.
+     * @param importer Imports a list of records, optionally committing them.  It must return the field statuses
+     *        of each record, in order.
+     * @param validator Reports the problems with a list of records.
+     * @param <T> The type of record being imported.
+     * @return A summary of the preview.
+     */
+    public <T> ImportPreviewRep createPreview(String type, List<T> records, int chunkSize,
+                                              BiFunction<List<T>, Boolean, ObjectImportRep> importer,
+                                              BiConsumer<List<T>, ImportErrorReport> validator) {
+
+        removeExpiredPreviews();
+
+        ImportPreview<T> preview = new ImportPreview<>(UUID.randomUUID().toString(), type, importer);
+
+        for (List<T> chunk : Util.partition(records, chunkSize)) {
+
+            // Rows in the report are numbered from 1 within the chunk
+            ImportErrorReport report = new ImportErrorReport(Integer.MAX_VALUE);
+            validator.accept(chunk, report);
+            Set<Long> invalidRows = report.toRep(type).getErrors().stream()
+                .map(ImportValidationRep.RowError::getRow)
+                .collect(Collectors.toSet());
+
+            List<T> validRecords = new ArrayList<>();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (!invalidRows.contains(i + 1L)) {
+                    validRecords.add(chunk.get(i));
+                }
+            }
+
+            Iterator<List<ObjectImportRep.FieldStatus>> fieldStatuses = validRecords.isEmpty() ?
+                Collections.emptyIterator() : importer.apply(validRecords, false).getFieldStatuses().iterator();
+            for (int i = 0; i < chunk.size(); i++) {
+                if (invalidRows.contains(i + 1L)) {
+                    preview.addInvalidRecord();
+                }
+                else {
+                    preview.addRecord(chunk.get(i), fieldStatuses.next());
+                }
+            }
+        }
+
+        previews.put(preview.getId(), preview);
+        LOGGER.info("Created import preview {} ({}) for {} records", preview.getId(), type, records.size());
+        return preview.toRep();
+    }
+
+    /**
+     * Discards a stored preview.
+     *
+     * @param id The ID of the preview.
+     * @throws NotFoundException If the preview does not exist or has expired.
+     */
+    public void discardPreview(String id) {
+        if (previews.remove(id) == null) {
+            throw new NotFoundException(messages.get("error.noSuchImportPreview", id));
+        }
+    }
+
+    private ImportPreview<?> getImportPreview(String id) {
+        ImportPreview<?> preview = previews.get(id);
+        if (preview == null) {
+            throw new NotFoundException(messages.get("error.noSuchImportPreview", id));
+        }
+        return preview;
+    }
+
+    /**
+     * Returns a summary of a stored preview.
+     *
+     * @param id The ID of the preview.
+     * @return The summary.
+     * @throws NotFoundException If the preview does not exist or has expired.
+     */
+    public ImportPreviewRep getPreview(String id) {
+        return getImportPreview(id).toRep();
+    }
+
+    /**
+     * Returns a page of the new and modified rows of a stored preview.
+     *
+     * @param id The ID of the preview.
+     * @param status The status of rows to return, or {@code null} for both new and modified rows.
+     * @param pageInfo The page of rows to return.
+     * @return The rows, in file order.
+     * @throws NotFoundException If the preview does not exist or has expired.
+     */
+    public Page<ImportPreviewRowRep> getPreviewRows(String id, ImportPreviewRowRep.Status status,
+                                                    Pageable pageInfo) {
+
+        List<ImportPreviewRowRep> rows = getImportPreview(id).getChangedRows(status);
+
+        int start = (int)Math.min(pageInfo.getOffset(), rows.size());
+        int end = Math.min(start + pageInfo.getPageSize(), rows.size());
+        return new PageImpl<>(rows.subList(start, end), pageInfo, rows.size());
+    }
+
+    /**
+     * Removes previews that haven't been accessed recently, and then the least recently accessed previews
+     * until there is room for a new one.
+     */
+    private synchronized void removeExpiredPreviews() {
+
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        previews.values().removeIf(preview -> preview.getLastAccessed() < cutoff);
+
+        while (!previews.isEmpty() && previews.size() >= maxPreviews) {
+            previews.values().stream()
+                .min(Comparator.comparingLong(ImportPreview::getLastAccessed))
+                .ifPresent(preview -> {
+                    LOGGER.info("Evicting import preview {} to make room for a new one", preview.getId());
+                    previews.remove(preview.getId());
+                });
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.reps.ObjectImportRep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManager;
+import java.util.function.Supplier;
+
+/**
+ * Publishes committed imports atomically.  All of an import's writes, across every chunk, are staged in a single
+ * database transaction, so nothing is visible to readers until the whole import succeeds, and a failed or
+ * cancelled import leaves nothing behind.  Since the database is MVCC-based, readers meanwhile keep seeing the
+ * previous committed snapshot of the data (including views derived from it, such as
+ * {@code compound_with_kinase_activity_profile}) without waiting on the import's locks.<p>
+ *
+ * The last file successfully published is remembered, so that importing a byte-identical file again, with
+ * nothing else changed in between, can be skipped entirely.  It is only remembered in memory, by this instance,
+ * so this assumes a single instance of the application writes to the database, and that data isn't changed
+ * directly in the database in between; changes made any other way aren't noticed, and the skipped import won't
+ * undo them.  Deployments where this doesn't hold should set {@code rak.import.skip-identical-files} to
+ * {@code false}.
+ */
+@Service
+public class ImportPublisher {
+
+    private final TransactionTemplate transactionTemplate;
+    private final EntityManager entityManager;
+    private final boolean skipIdenticalFiles;
+
+    private String publishedFile;
+    private long publishedRecordCount;
+    private long generation;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ImportPublisher.class);
+
+    @Autowired
+    public ImportPublisher(PlatformTransactionManager transactionManager, EntityManager entityManager,
+                           Environment environment) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.entityManager = entityManager;
+        skipIdenticalFiles = environment.getProperty("rak.import.skip-identical-files", Boolean.class, true);
+    }
+
+    /**
+     * Called after each chunk of a publishing import has been written.  Pending changes are sent to the
+     * database, still uncommitted, and the persistence context is cleared so that memory use doesn't grow with
+     * the size of the import.  This does nothing if no import is being published.
+     */
+    public void endChunk() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            entityManager.flush();
+            entityManager.clear();
+        }
+    }
+
+    /**
+     * Forgets the last file published, so that importing it again isn't skipped.  This should be called when
+     * imported data is changed other than by an import.
+     */
+    public synchronized void invalidatePublishedFile() {
+        publishedFile = null;
+        generation++;
+    }
+
+    /**
+     * Runs an import in a single transaction, publishing its changes when it completes successfully.  If it
+     * throws an exception, all of its changes are rolled back.
+     *
+     * @param importer Performs the import.
+     * @param <T> The type of result.
+     * @return The result of the import.
+     * @see #publishFile(String, Supplier)
+     */
+    public <T> T publish(Supplier<T> importer) {
+        invalidatePublishedFile();
+        return runInTransaction(importer);
+    }
+
+    /**
+     * Publishes an import of a file, as per {@link #publish(Supplier)}.  If the file is identical to the last
+     * one published by this instance, and no data has been changed through this instance since, the import is
+     * skipped and all of its records are reported as unchanged.  See the class documentation for when that's
+     * safe.
+     *
+     * @param fingerprint Identifies the file's type and contents, e.g. a hash of them.
+     * @param importer Imports the file.
+     * @return The result of the import.  If it was skipped, only record counts are returned, without any
+     *         per-record field statuses.
+     */
+    public ObjectImportRep publishFile(String fingerprint, Supplier<ObjectImportRep> importer) {
+
+        long fileGeneration;
+
+        synchronized (this) {
+            if (skipIdenticalFiles && fingerprint.equals(publishedFile)) {
+                LOGGER.info("Skipping import of a file identical to the last one published");
+                ObjectImportRep result = new ObjectImportRep();
+                result.setUnchangedCount(publishedRecordCount);
+                return result;
+            }
+            invalidatePublishedFile();
+            fileGeneration = generation;
+        }
+
+        ObjectImportRep result = runInTransaction(importer);
+
+        // Only remember the file if nothing else was published while it was being imported
+        synchronized (this) {
+            if (generation == fileGeneration) {
+                publishedFile = fingerprint;
+                publishedRecordCount = result.getNewCount() + result.getModifiedCount() + result.getUnchangedCount();
+            }
+        }
+
+        return result;
+    }
+
+    private <T> T runInTransaction(Supplier<T> importer) {
+
+        long start = System.currentTimeMillis();
+        T result = transactionTemplate.execute(status -> importer.get());
+
+        LOGGER.info("Published import in {} ms", System.currentTimeMillis() - start);
+        return result;
+    }
+}
@@ -0,0 +1,79 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.model.Kinase;
+
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * Reference data used to validate the records in a single import.  The compounds referenced by the import are
+ * loaded once when this context is created, and kinases are looked up in the in-memory kinase catalog, so that
+ * each record can then be validated without going to the database.
+ */
+final class ImportValidationContext {
+
+    private final Set<String> existingCompoundNames;
+    private final KinaseCatalog kinaseCatalog;
+
+    /**
+     * Constructor.
+     *
+     * @param compoundService Used to look up which referenced compounds exist.
+     * @param kinaseService Provides the kinase catalog.
+     * @param compoundNames The compound names referenced by the import.
+     */
+    ImportValidationContext(CompoundService compoundService, KinaseService kinaseService,
+                            Collection<String> compoundNames) {
+
+        existingCompoundNames = compoundService.getExistingCompoundNames(compoundNames);
+        kinaseCatalog = kinaseService.getKinaseCatalog();
+    }
+
+    /**
+     * Returns whether a compound referenced by the import exists.
+     *
+     * @param compoundName The compound name.
+     * @return Whether the compound exists.
+     */
+    boolean getCompoundExists(String compoundName) {
+        return existingCompoundNames.contains(compoundName);
+    }
+
+    /**
+     * Returns a kinase by its discoverx gene symbol.
+     *
+     * @param discoverx The discoverx gene symbol.  Case is ignored.
+     * @return The kinase, or {@code null} if no such kinase is known.
+     */
+    Kinase getKinaseByDiscoverx(String discoverx) {
+        return kinaseCatalog.getKinaseByDiscoverx(discoverx);
+    }
+
+    /**
+     * Reports any problems with the compound and kinase referenced by a record.
+     *
+     * @param row The number of the record's row.
+     * @param compoundName The compound name.
+     * @param discoverx The discoverx gene symbol of the kinase.
+     * @param messages Used to describe the problems.
+     * @param report Receives the problems found.
+     */
+    void validateReferences(long row, String compoundName, String discoverx, Messages messages,
+                            ImportErrorReport report) {
+
+        if (compoundName == null) {
+            report.addError(row, "compoundName", messages.get("error.fieldRequired", "compoundName"));
+        }
+        else if (!getCompoundExists(compoundName)) {
+            report.addError(row, "compoundName", messages.get("error.noSuchCompound", compoundName));
+        }
+
+        if (discoverx == null) {
+            report.addError(row, "discoverxGeneSymbol", messages.get("error.fieldRequired", "discoverxGeneSymbol"));
+        }
+        else if (getKinaseByDiscoverx(discoverx) == null) {
+            report.addError(row, "discoverxGeneSymbol", messages.get("error.noSuchKinase", discoverx));
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.NetworkRep;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+/**
+ * An immutable graph of the interactions between compounds and kinases, for drawing compound/kinase networks.
+ * Each activity profile is an edge, weighted by its percent control and Kd.  Edges are kept in primitive arrays
+ * grouped by compound, and are also indexed by kinase, so a network only visits the edges of the compounds or
+ * kinases it is built from.
+ */
+public final class InteractionNetwork {
+
+    private final String[] compoundNames;
+    private final Map<String, Integer> compoundIndexes;
+    private final Kinase[] kinases;
+    private final Map<Long, Integer> kinaseIndexes;
+
+    /**
+     * Compound {@code i}'s edges are at indexes {@code compoundOffsets[i]} (inclusive) to
+     * {@code compoundOffsets[i + 1]} (exclusive) of the edge arrays.
+     */
+    private final int[] compoundOffsets;
+    private final int[] edgeCompounds;
+    private final int[] edgeKinases;
+    private final double[] edgePercentControls;
+    private final double[] edgeKds;
+
+    /**
+     * Kinase {@code i}'s edge indexes are at indexes {@code kinaseOffsets[i]} (inclusive) to
+     * {@code kinaseOffsets[i + 1]} (exclusive) of {@code kinaseEdges}.
+     */
+    private final int[] kinaseOffsets;
+    private final int[] kinaseEdges;
+
+    private InteractionNetwork(Builder builder) {
+
+        compoundNames = builder.compoundIndexes.keySet().toArray(new String[0]);
+        compoundIndexes = new HashMap<>(builder.compoundIndexes);
+        kinases = builder.kinases;
+        kinaseIndexes = builder.kinaseIndexes;
+
+        int edgeCount = builder.edgeCount;
+        compoundOffsets = toOffsets(builder.edgeCompounds, edgeCount, compoundNames.length);
+        edgeCompounds = new int[edgeCount];
+        edgeKinases = new int[edgeCount];
+        edgePercentControls = new double[edgeCount];
+        edgeKds = new double[edgeCount];
+
+        // Counting sort the edges by compound, keeping them in the order they were added
+        int[] next = Arrays.copyOf(compoundOffsets, compoundNames.length);
+        for (int i = 0; i < edgeCount; i++) {
+            int edge = next[builder.edgeCompounds[i]]++;
+            edgeCompounds[edge] = builder.edgeCompounds[i];
+            edgeKinases[edge] = builder.edgeKinases[i];
+            edgePercentControls[edge] = builder.edgePercentControls[i];
+            edgeKds[edge] = builder.edgeKds[i];
+        }
+
+        kinaseOffsets = toOffsets(edgeKinases, edgeCount, kinases.length);
+        kinaseEdges = new int[edgeCount];
+        next = Arrays.copyOf(kinaseOffsets, kinases.length);
+        for (int edge = 0; edge < edgeCount; edge++) {
+            kinaseEdges[next[edgeKinases[edge]]++] = edge;
+        }
+    }
+
+    /**
+     * Returns the offsets of each node's edges when edges are grouped by node.
+     */
+    private static int[] toOffsets(int[] edgeNodes, int edgeCount, int nodeCount) {
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < edgeCount; i++) {
+            offsets[edgeNodes[i] + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns the number of edges (activity profiles) in this network.
+     *
+     * @return The number of edges.
+     */
+    public int getEdgeCount() {
+        return edgeCompounds.length;
+    }
+
+    /**
+     * Returns the part of this network around a set of compounds or kinases.  If compounds are specified, they
+     * are all included, along with the kinases they interact with; otherwise the specified kinases are included,
+     * along with the compounds that interact with them.  If both are specified, only interactions between them
+     * are included.
+     *
+     * @param compoundNames The names of the compounds.  This may be {@code null} if {@code kinaseIds} is not.
+     * @param kinaseIds The IDs of the kinases.  This may be {@code null} if {@code compoundNames} is not.
+     * @param maxPercentControl Interactions must have a percent control less than or equal to this value.  This
+     *        may be {@code null} to not restrict by percent control.
+     * @param maxKd Interactions must have a Kd less than or equal to this value.  This may be {@code null} to not
+     *        restrict by Kd.
+     * @param compoundFilter Only compounds passing this filter are included.
+     * @return The network.
+     */
+    public NetworkRep getNetwork(Collection<String> compoundNames, Collection<Long> kinaseIds,
+                                 Double maxPercentControl, Double maxKd, Predicate<String> compoundFilter) {
+
+        NetworkBuilder network = new NetworkBuilder();
+
+        if (compoundNames != null) {
+            compoundNames.stream()
+                .filter(compoundFilter)
+                .forEach(network::addCompound);
+        }
+        if (kinaseIds != null) {
+            kinaseIds.stream()
+                .map(kinaseIndexes::get)
+                .filter(Objects::nonNull)
+                .forEach(network::addKinase);
+        }
+
+        if (compoundNames != null) {
+            for (String compoundName : network.compounds.keySet().toArray(new String[0])) {
+                Integer compound = compoundIndexes.get(compoundName);
+                if (compound != null) {
+                    for (int edge = compoundOffsets[compound]; edge < compoundOffsets[compound + 1]; edge++) {
+                        if ((kinaseIds == null || network.kinases.containsKey(edgeKinases[edge])) &&
+                                matches(edge, maxPercentControl, maxKd)) {
+                            network.addEdge(edge);
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            for (int kinase : network.kinases.keySet().toArray(new Integer[0])) {
+                for (int i = kinaseOffsets[kinase]; i < kinaseOffsets[kinase + 1]; i++) {
+                    int edge = kinaseEdges[i];
+                    if (matches(edge, maxPercentControl, maxKd) &&
+                            compoundFilter.test(this.compoundNames[edgeCompounds[edge]])) {
+                        network.addEdge(edge);
+                    }
+                }
+            }
+        }
+
+        return network.rep;
+    }
+
+    private boolean matches(int edge, Double maxPercentControl, Double maxKd) {
+        // Comparisons with NaN (unknown values) are always false
+        return (maxPercentControl == null || edgePercentControls[edge] <= maxPercentControl) &&
+            (maxKd == null || edgeKds[edge] <= maxKd);
+    }
+
+    private static Double toDouble(double value) {
+        return Double.isNaN(value) ? null : value;
+    }
+
+    /**
+     * Builds an interaction network.
+     */
+    public static final class Builder {
+
+        private final Map<String, Integer> compoundIndexes;
+        private final Kinase[] kinases;
+        private final Map<Long, Integer> kinaseIndexes;
+
+        private int edgeCount;
+        private int[] edgeCompounds;
+        private int[] edgeKinases;
+        private double[] edgePercentControls;
+        private double[] edgeKds;
+
+        private static final int INITIAL_CAPACITY = 1024;
+
+        /**
+         * Constructor.
+         *
+         * @param kinases All known kinases.
+         */
+        public Builder(List<Kinase> kinases) {
+
+            compoundIndexes = new LinkedHashMap<>();
+            this.kinases = kinases.toArray(new Kinase[0]);
+            kinaseIndexes = new HashMap<>();
+            for (int i = 0; i < this.kinases.length; i++) {
+                kinaseIndexes.put(this.kinases[i].getId(), i);
+            }
+
+            edgeCompounds = new int[INITIAL_CAPACITY];
+            edgeKinases = new int[INITIAL_CAPACITY];
+            edgePercentControls = new double[INITIAL_CAPACITY];
+            edgeKds = new double[INITIAL_CAPACITY];
+        }
+
+        /**
+         * Adds an interaction between a compound and a kinase.
+         *
+         * @param compoundName The name of the compound.
+         * @param kinaseId The ID of the kinase.  If this isn't a known kinase, the interaction is ignored.
+         * @param percentControl The percent control, or {@code null} if unknown.
+         * @param kd The Kd, or {@code null} if unknown.
+         * @return This builder.
+         */
+        public Builder add(String compoundName, long kinaseId, Double percentControl, Double kd) {
+
+            Integer kinase = kinaseIndexes.get(kinaseId);
+            if (kinase == null) {
+                return this;
+            }
+
+            if (edgeCount == edgeCompounds.length) {
+                int capacity = edgeCount * 2;
+                edgeCompounds = Arrays.copyOf(edgeCompounds, capacity);
+                edgeKinases = Arrays.copyOf(edgeKinases, capacity);
+                edgePercentControls = Arrays.copyOf(edgePercentControls, capacity);
+                edgeKds = Arrays.copyOf(edgeKds, capacity);
+            }
+
+            edgeCompounds[edgeCount] = compoundIndexes.computeIfAbsent(compoundName, n -> compoundIndexes.size());
+            edgeKinases[edgeCount] = kinase;
+            edgePercentControls[edgeCount] = percentControl == null ? Double.NaN : percentControl;
+            edgeKds[edgeCount] = kd == null ? Double.NaN : kd;
+            edgeCount++;
+            return this;
+        }
+
+        /**
+         * Builds the network.
+         *
+         * @return The network.
+         */
+        public InteractionNetwork build() {
+            return new InteractionNetwork(this);
+        }
+    }
+
+    /**
+     * Collects the nodes and edges of a network being returned, assigning each node its position in the result.
+     */
+    private final class NetworkBuilder {
+
+        private final NetworkRep rep = new NetworkRep();
+        private final Map<String, Integer> compounds = new LinkedHashMap<>();
+        private final Map<Integer, Integer> kinases = new LinkedHashMap<>();
+
+        private int addCompound(String compoundName) {
+            return compounds.computeIfAbsent(compoundName, n -> {
+                rep.getCompounds().add(n);
+                return rep.getCompounds().size() - 1;
+            });
+        }
+
+        private void addEdge(int edge) {
+            rep.getEdges().add(new NetworkRep.Edge(addCompound(compoundNames[edgeCompounds[edge]]),
+                addKinase(edgeKinases[edge]), toDouble(edgePercentControls[edge]), toDouble(edgeKds[edge])));
+        }
+
+        private int addKinase(int kinase) {
+            return kinases.computeIfAbsent(kinase, k -> {
+                rep.getKinases().add(InteractionNetwork.this.kinases[k]);
+                return rep.getKinases().size() - 1;
+            });
+        }
+    }
+}
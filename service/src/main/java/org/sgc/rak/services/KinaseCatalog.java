@@ -0,0 +1,99 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.model.Kinase;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of all known kinases, indexed by each of their gene symbols.  There are only a few hundred
+ * kinases and they are never modified, so keeping them in memory lets them be looked up without a query.  All
+ * lookups ignore case.
+ */
+public final class KinaseCatalog {
+
+    private final List<Kinase> kinases;
+    private final Map<String, List<Kinase>> kinasesByEntrez;
+    private final Map<String, Kinase> kinasesByDiscoverx;
+    private final Map<String, Kinase> kinasesByNanosyn;
+
+    /**
+     * Constructor.
+     *
+     * @param kinases All known kinases.
+     */
+    public KinaseCatalog(Collection<Kinase> kinases) {
+
+        this.kinases = Collections.unmodifiableList(new ArrayList<>(kinases));
+
+        Map<String, List<Kinase>> byEntrez = new HashMap<>();
+        Map<String, Kinase> byDiscoverx = new HashMap<>();
+        Map<String, Kinase> byNanosyn = new HashMap<>();
+
+        for (Kinase kinase : this.kinases) {
+            if (kinase.getEntrezGeneSymbol() != null) {
+                byEntrez.computeIfAbsent(toKey(kinase.getEntrezGeneSymbol()), k -> new ArrayList<>()).add(kinase);
+            }
+            if (kinase.getDiscoverxGeneSymbol() != null) {
+                byDiscoverx.putIfAbsent(toKey(kinase.getDiscoverxGeneSymbol()), kinase);
+            }
+            if (kinase.getNanosynGeneSymbol() != null) {
+                byNanosyn.putIfAbsent(toKey(kinase.getNanosynGeneSymbol()), kinase);
+            }
+        }
+
+        byEntrez.replaceAll((entrez, list) -> Collections.unmodifiableList(list));
+        kinasesByEntrez = byEntrez;
+        kinasesByDiscoverx = byDiscoverx;
+        kinasesByNanosyn = byNanosyn;
+    }
+
+    /**
+     * Returns a kinase by its discoverx gene symbol.
+     *
+     * @param discoverx The discoverx gene symbol.  Case is ignored.
+     * @return The kinase, or {@code null} if no such kinase is known.
+     */
+    public Kinase getKinaseByDiscoverx(String discoverx) {
+        return discoverx == null ? null : kinasesByDiscoverx.get(toKey(discoverx));
+    }
+
+    /**
+     * Returns a kinase by its nanosyn gene symbol.
+     *
+     * @param nanosyn The nanosyn gene symbol.  Case is ignored.
+     * @return The kinase, or {@code null} if no such kinase is known.
+     */
+    public Kinase getKinaseByNanosyn(String nanosyn) {
+        return nanosyn == null ? null : kinasesByNanosyn.get(toKey(nanosyn));
+    }
+
+    /**
+     * Returns all known kinases.
+     *
+     * @return The kinases.  This list is unmodifiable.
+     */
+    public List<Kinase> getKinases() {
+        return kinases;
+    }
+
+    /**
+     * Returns the kinases with an entrez gene symbol.  There may be more than one, e.g. for mutants.
+     *
+     * @param entrez The entrez gene symbol.  Case is ignored.
+     * @return The kinases, or an empty list if no such kinase is known.  This list is unmodifiable.
+     */
+    public List<Kinase> getKinasesByEntrez(String entrez) {
+        return entrez == null ? Collections.emptyList() :
+            kinasesByEntrez.getOrDefault(toKey(entrez), Collections.emptyList());
+    }
+
+    private static String toKey(String symbol) {
+        return symbol.toLowerCase(Locale.US);
+    }
+}
@@ -3,27 +3,57 @@ package org.sgc.rak.services;
 import org.sgc.rak.dao.KinaseDao;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
+import org.sgc.rak.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.Locale;
 
 /**
- * Service for manipulating kinases.
+ * Service for manipulating kinases.  Lookups by gene symbol are served from an in-memory {@link KinaseCatalog},
+ * which is loaded at startup and must be refreshed via {@link #refreshKinases()} if kinases are added.  Gene
+ * symbol autocomplete is served from an in-memory {@link KinaseSymbolIndex}, which is rebuilt when activity
+ * profiles are imported.  Pages of kinases are cached until kinases are refreshed.
  */
 @Service
 public class KinaseService {
 
     private final KinaseDao kinaseDao;
+    private final DatasetVersion datasetVersion;
 
     private final Messages messages;
 
+    private volatile KinaseCatalog catalog;
+    private volatile KinaseSymbolIndex symbolIndex;
+
+    private final ReadThroughCache<List<Object>, Page<Kinase>> kinasePageCache;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(KinaseService.class);
+
     @Autowired
-    public KinaseService(KinaseDao kinaseDao, Messages messages) {
+    public KinaseService(KinaseDao kinaseDao, ReadCaches readCaches, DatasetVersion datasetVersion,
+                         Messages messages) {
         this.kinaseDao = kinaseDao;
+        this.datasetVersion = datasetVersion;
         this.messages = messages;
+        kinasePageCache = readCaches.create("kinases");
+    }
+
+    /**
+     * Notes that activity profiles have been added or changed, so that the activity profile counts used to rank
+     * kinase suggestions are recomputed.  If called in a transaction, this takes effect when it commits.
+     */
+    public void activityProfilesChanged() {
+        Util.runAfterCommit(this::invalidateKinaseSymbolIndex);
     }
 
     /**
@@ -34,7 +64,34 @@ public class KinaseService {
      *         {@code null} if no such kinase is known.
      */
     public List<Kinase> getKinase(String entrez) {
-        return kinaseDao.getKinases(entrez);
+        return getKinaseCatalog().getKinasesByEntrez(entrez);
+    }
+
+    /**
+     * Returns the catalog of all known kinases, loading it if necessary.
+     *
+     * @return The kinase catalog.
+     */
+    public KinaseCatalog getKinaseCatalog() {
+        KinaseCatalog result = catalog;
+        if (result == null) {
+            synchronized (this) {
+                result = catalog;
+                if (result == null) {
+                    result = refreshKinases();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all known kinases.
+     *
+     * @return The kinases.
+     */
+    public List<Kinase> getKinases() {
+        return getKinaseCatalog().getKinases();
     }
 
     /**
@@ -44,7 +101,53 @@ public class KinaseService {
      * @return The kinase record, or {@code null} if no such kinase is known.
      */
     public Kinase getKinaseByDiscoverx(String discoverx) {
-        return kinaseDao.getKinaseByDiscoverx(discoverx);
+        return getKinaseCatalog().getKinaseByDiscoverx(discoverx);
+    }
+
+    /**
+     * Returns kinases with a gene symbol starting with a prefix, for autocomplete.  Entrez, discoverx and nanosyn
+     * gene symbols are all searched.  Kinases with the most activity profiles are returned first.
+     *
+     * @param prefix The prefix to search for, ignoring case.
+     * @param limit The maximum number of kinases to return.
+     * @return The matching kinases, along with their activity profile counts.
+     * @see KinaseSymbolIndex#search(String, int)
+     */
+    public List<KinaseSuggestionRep> getKinaseSuggestions(String prefix, int limit) {
+        return getKinaseSymbolIndex().search(prefix, limit);
+    }
+
+    private KinaseSymbolIndex getKinaseSymbolIndex() {
+        KinaseSymbolIndex result = symbolIndex;
+        if (result == null) {
+            synchronized (this) {
+                result = symbolIndex;
+                if (result == null) {
+                    result = new KinaseSymbolIndex(getKinases(), kinaseDao.getActivityProfileCounts(),
+                        kinaseDao.getNanoBretActivityProfileCounts());
+                    symbolIndex = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Discards the kinase symbol index so it is rebuilt when next needed.  This is synchronized so that an index
+     * being built from stale data when this is called is discarded too.
+     */
+    private synchronized void invalidateKinaseSymbolIndex() {
+        symbolIndex = null;
+    }
+
+    /**
+     * Returns information on a kinase by its nanosyn gene symbol.
+     *
+     * @param nanosyn The nanosyn gene symbol.  Case is ignored.
+     * @return The kinase record, or {@code null} if no such kinase is known.
+     */
+    public Kinase getKinaseByNanosyn(String nanosyn) {
+        return getKinaseCatalog().getKinaseByNanosyn(nanosyn);
     }
 
     /**
@@ -57,10 +160,42 @@ public class KinaseService {
      * @return The list of kinases.
      */
     public Page<Kinase> getKinases(String entrez, Pageable pageInfo) {
-        if (entrez != null) {
-            return kinaseDao.getKinasesByEntrezGeneSymbolStartingWith(
-                entrez, pageInfo);
+        String normalizedEntrez = entrez == null ? null : entrez.toLowerCase(Locale.US);
+        return kinasePageCache.get(ReadThroughCache.key(normalizedEntrez, pageInfo), () -> {
+            if (entrez != null) {
+                return kinaseDao.getKinasesByEntrezGeneSymbolStartingWith(
+                    entrez, pageInfo);
+            }
+            return kinaseDao.getKinases(pageInfo);
+        });
+    }
+
+    /**
+     * Loads the kinase catalog and symbol index when the application starts, so the first requests don't have to.
+     * If this fails, they are loaded when first needed instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadKinases() {
+        try {
+            refreshKinases();
+            getKinaseSymbolIndex();
+        } catch (DataAccessException dae) {
+            LOGGER.warn("Could not preload kinases, they will be loaded on first use", dae);
         }
-        return kinaseDao.getKinases(pageInfo);
+    }
+
+    /**
+     * Reloads the kinase catalog from the database.  This should be called after kinases are added.
+     *
+     * @return The new kinase catalog.
+     */
+    public KinaseCatalog refreshKinases() {
+        KinaseCatalog newCatalog = new KinaseCatalog(kinaseDao.getKinases());
+        catalog = newCatalog;
+        invalidateKinaseSymbolIndex();
+        kinasePageCache.invalidateAll();
+        datasetVersion.dataChanged();
+        LOGGER.info("Loaded {} kinases", newCatalog.getKinases().size());
+        return newCatalog;
     }
 }
@@ -0,0 +1,160 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * An immutable index of kinases by all of their gene symbols, for autocomplete.  Symbols are kept in a sorted
+ * array, so the kinases with a symbol starting with a prefix are found with a binary search rather than a query.
+ * Matches are ranked by how many activity profiles exist for each kinase, so the most useful kinases are suggested
+ * first.
+ */
+public final class KinaseSymbolIndex {
+
+    private final String[] symbols;
+    private final Kinase[] kinases;
+    private final Map<Long, Long> activityProfileCounts;
+    private final Map<Long, Long> nanoBretActivityProfileCounts;
+
+    /**
+     * Constructor.
+     *
+     * @param kinases All known kinases.
+     * @param activityProfileCounts The number of activity profiles for each kinase ID.
+     * @param nanoBretActivityProfileCounts The number of NanoBRET activity profiles for each kinase ID.
+     */
+    public KinaseSymbolIndex(Collection<Kinase> kinases, Map<Long, Long> activityProfileCounts,
+                             Map<Long, Long> nanoBretActivityProfileCounts) {
+
+        List<Entry> entries = new ArrayList<>();
+        for (Kinase kinase : kinases) {
+            addEntries(entries, kinase);
+        }
+        entries.sort(Comparator.comparing(e -> e.symbol));
+
+        symbols = new String[entries.size()];
+        this.kinases = new Kinase[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            symbols[i] = entries.get(i).symbol;
+            this.kinases[i] = entries.get(i).kinase;
+        }
+
+        this.activityProfileCounts = new LinkedHashMap<>(activityProfileCounts);
+        this.nanoBretActivityProfileCounts = new LinkedHashMap<>(nanoBretActivityProfileCounts);
+    }
+
+    private static void addEntries(List<Entry> entries, Kinase kinase) {
+
+        String entrez = toKey(kinase.getEntrezGeneSymbol());
+        String discoverx = toKey(kinase.getDiscoverxGeneSymbol());
+        String nanosyn = toKey(kinase.getNanosynGeneSymbol());
+
+        if (entrez != null) {
+            entries.add(new Entry(entrez, kinase));
+        }
+        if (discoverx != null && !discoverx.equals(entrez)) {
+            entries.add(new Entry(discoverx, kinase));
+        }
+        if (nanosyn != null && !nanosyn.equals(entrez) && !nanosyn.equals(discoverx)) {
+            entries.add(new Entry(nanosyn, kinase));
+        }
+    }
+
+    /**
+     * Returns the index of the first symbol that is not less than a key.
+     */
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = symbols.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (symbols[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            }
+            else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static String getMatchedSymbol(Kinase kinase, String symbol) {
+        if (symbol.equals(toKey(kinase.getEntrezGeneSymbol()))) {
+            return kinase.getEntrezGeneSymbol();
+        }
+        if (symbol.equals(toKey(kinase.getDiscoverxGeneSymbol()))) {
+            return kinase.getDiscoverxGeneSymbol();
+        }
+        return kinase.getNanosynGeneSymbol();
+    }
+
+    /**
+     * Returns the kinases with a gene symbol starting with a prefix, ignoring case.  Kinases with a symbol exactly
+     * matching the prefix come first, then kinases with the most activity profiles (including NanoBRET activity
+     * profiles).  Ties are broken by entrez, then discoverx gene symbol.
+     *
+     * @param prefix The prefix to search for.  If this is empty, all kinases are returned.
+     * @param limit The maximum number of kinases to return.
+     * @return The matching kinases.  This may be empty, but will never be {@code null}.
+     */
+    public List<KinaseSuggestionRep> search(String prefix, int limit) {
+
+        String key = prefix.toLowerCase(Locale.US);
+
+        // A kinase may match on more than one of its symbols; prefer an exact match, then the first match
+        Map<Long, KinaseSuggestionRep> matches = new LinkedHashMap<>();
+        Map<Long, Boolean> exactMatches = new LinkedHashMap<>();
+
+        for (int i = lowerBound(key); i < symbols.length && symbols[i].startsWith(key); i++) {
+
+            Kinase kinase = kinases[i];
+            boolean exact = symbols[i].length() == key.length();
+
+            if (!matches.containsKey(kinase.getId()) || (exact && !exactMatches.get(kinase.getId()))) {
+                matches.put(kinase.getId(), new KinaseSuggestionRep(kinase, getMatchedSymbol(kinase, symbols[i]),
+                    activityProfileCounts.getOrDefault(kinase.getId(), 0L),
+                    nanoBretActivityProfileCounts.getOrDefault(kinase.getId(), 0L)));
+                exactMatches.put(kinase.getId(), exact);
+            }
+        }
+
+        Comparator<KinaseSuggestionRep> comparator = Comparator
+            .<KinaseSuggestionRep, Boolean>comparing(s -> !exactMatches.get(s.getKinase().getId()))
+            .thenComparing(s -> s.getActivityProfileCount() + s.getNanoBretActivityProfileCount(),
+                Comparator.reverseOrder())
+            .thenComparing(s -> s.getKinase().getEntrezGeneSymbol(),
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(s -> s.getKinase().getDiscoverxGeneSymbol(),
+                Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+        List<KinaseSuggestionRep> result = new ArrayList<>(matches.values());
+        result.sort(comparator);
+        return result.subList(0, Math.min(Math.max(limit, 0), result.size()));
+    }
+
+    private static String toKey(String symbol) {
+        return symbol == null ? null : symbol.toLowerCase(Locale.US);
+    }
+
+    /**
+     * A gene symbol and the kinase it belongs to.
+     */
+    private static final class Entry {
+
+        private final String symbol;
+        private final Kinase kinase;
+
+        Entry(String symbol, Kinase kinase) {
+            this.symbol = symbol;
+            this.kinase = kinase;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package org.sgc.rak.services;
 
+import org.sgc.rak.dao.BulkImportDao;
+import org.sgc.rak.dao.BulkImportResult;
 import org.sgc.rak.dao.NanoBretActivityProfileDao;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
@@ -24,8 +26,10 @@ import java.util.stream.Collectors;
 public class NanoBretActivityProfileService {
 
     private final NanoBretActivityProfileDao nanoBretActivityProfileDao;
+    private final BulkImportDao bulkImportDao;
     private final CompoundService compoundService;
     private final KinaseService kinaseService;
+    private final DatasetVersion datasetVersion;
 
     private final Messages messages;
 
@@ -33,22 +37,26 @@ public class NanoBretActivityProfileService {
 
     @Autowired
     public NanoBretActivityProfileService(NanoBretActivityProfileDao nanoBretActivityProfileDao,
-                                          CompoundService compoundService,
-                                          KinaseService kinaseService, Messages messages) {
+                                          BulkImportDao bulkImportDao, CompoundService compoundService,
+                                          KinaseService kinaseService, DatasetVersion datasetVersion,
+                                          Messages messages) {
         this.nanoBretActivityProfileDao = nanoBretActivityProfileDao;
+        this.bulkImportDao = bulkImportDao;
         this.compoundService = compoundService;
         this.kinaseService = kinaseService;
+        this.datasetVersion = datasetVersion;
         this.messages = messages;
     }
 
-    private NanoBretActivityProfile activityProfileCsvRecordToActivityProfile(NanoBretActivityProfileCsvRecord csvRep) {
+    private NanoBretActivityProfile activityProfileCsvRecordToActivityProfile(NanoBretActivityProfileCsvRecord csvRep,
+                                                                              ImportValidationContext context) {
 
-        if (!compoundService.getCompoundExists(csvRep.getCompoundName())) {
+        if (!context.getCompoundExists(csvRep.getCompoundName())) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownCompound",
                 csvRep.getCompoundName()));
         }
 
-        Kinase kinase = kinaseService.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
+        Kinase kinase = context.getKinaseByDiscoverx(csvRep.getDiscoverxGeneSymbol());
         if (kinase == null) {
             throw new BadRequestException(messages.get("error.importReferencesUnknownKinase",
                 csvRep.getDiscoverxGeneSymbol()));
@@ -115,9 +123,42 @@ public class NanoBretActivityProfileService {
         );
     }
 
+    /**
+     * Upserts NanoBRET activity profiles with a single set-based merge.  This is much faster than
+     * {@link #importNanoBretActivityProfiles(List, boolean)} for large imports, but only returns record counts.  If
+     * the database doesn't support set-based merges, the records are imported via that method instead.
+     *
+     * @param activityProfileCsvRecords The activity profiles to upsert.  These are consumed by this method.
+     * @param commit Whether to actually commit the patch, or just return the possible result.
+     * @return The result of the operation (or possible result, if {@code commit} is {@code false}).
+     */
+    public ObjectImportRep bulkImportNanoBretActivityProfiles(
+                                        Iterator<NanoBretActivityProfileCsvRecord> activityProfileCsvRecords,
+                                        boolean commit) {
+
+        if (!bulkImportDao.isSupported()) {
+            List<NanoBretActivityProfileCsvRecord> records = new ArrayList<>();
+            activityProfileCsvRecords.forEachRemaining(records::add);
+            ObjectImportRep importRep = importNanoBretActivityProfiles(records, commit);
+            importRep.setFieldStatuses(null);
+            return importRep;
+        }
+
+        BulkImportResult result = bulkImportDao.importNanoBretActivityProfiles(activityProfileCsvRecords, commit);
+        ObjectImportRep importRep = BulkImportResults.toImportRep(result, messages);
+
+        if (commit) {
+            compoundService.activityProfilesChanged();
+            kinaseService.activityProfilesChanged();
+            datasetVersion.dataChanged();
+        }
+        return importRep;
+    }
+
     /**
      * Upserts a list of NanoBRET activity profiles.  New profiles are added, existing ones are updated.
-     * Profiles are considered unique by the combination of compound name, entrez, and date.
+     * Profiles are considered unique by the combination of compound name, entrez, and date.  Profiles the import
+     * wouldn't change aren't written.
      *
      * @param activityProfileCsvRecords The activity profiles to upsert.
      * @param commit Whether to actually commit the patch, or just return the possible result.
@@ -135,8 +176,10 @@ public class NanoBretActivityProfileService {
             .map(NanoBretActivityProfileCsvRecord::getDate)
             .map(Util::nanoBretCsvDateToRealDate)
             .collect(Collectors.toList());
-        Set<NanoBretActivityProfile> existingProfiles = nanoBretActivityProfileDao
-            .getNanoBretActivityProfiles(compoundNames, discoverxes, dates);
+        Map<List<Object>, NanoBretActivityProfile> existingProfiles = indexNanoBretActivityProfiles(
+            nanoBretActivityProfileDao.getNanoBretActivityProfiles(compoundNames, discoverxes, dates));
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            compoundNames);
 
         ObjectImportRep importRep = new ObjectImportRep();
         List<List<ObjectImportRep.FieldStatus>> records = new ArrayList<>();
@@ -157,29 +200,89 @@ public class NanoBretActivityProfileService {
                 newActivityProfile = Util.patchNanoBretActivityProfile(existingProfile, csvRecord);
             }
             else {
-                newActivityProfile = activityProfileCsvRecordToActivityProfile(csvRecord);
+                newActivityProfile = activityProfileCsvRecordToActivityProfile(csvRecord, context);
             }
 
-            toPersist.add(newActivityProfile);
-            records.add(activityProfileCsvRecordToFieldStatusList(newActivityProfile, existingProfile));
+            List<ObjectImportRep.FieldStatus> fieldStatuses =
+                activityProfileCsvRecordToFieldStatusList(newActivityProfile, existingProfile);
+            records.add(fieldStatuses);
+            if (!Util.isUnchangedRecord(fieldStatuses)) {
+                toPersist.add(newActivityProfile);
+            }
         }
 
         possiblyLogImportOperation(commit, toPersist);
         if (commit) {
             nanoBretActivityProfileDao.save(toPersist);
+            compoundService.activityProfilesChanged();
+            kinaseService.activityProfilesChanged();
+            datasetVersion.dataChanged();
         }
 
+        Util.updateRecordCounts(importRep);
         return importRep;
     }
 
-    private static NanoBretActivityProfile possiblyGetNanoBretActivityProfile(Set<NanoBretActivityProfile> profiles,
-                                                                  String compoundName, String discoverx, Date date) {
-        Optional<NanoBretActivityProfile> optional = profiles.stream()
-            .filter(nbap -> compoundName.equals(nbap.getCompoundName()) &&
-                discoverx.equals(nbap.getKinase().getDiscoverxGeneSymbol()) &&
-                date.equals(nbap.getDate()))
-            .findFirst();
-        return optional.orElse(null);
+    /**
+     * Validates a list of NanoBRET activity profiles without importing them.  Rather than stopping at the first
+     * problem, every problem with every record is reported.
+     *
+     * @param activityProfileCsvRecords The activity profiles to validate.
+     * @param report Receives the problems found.  Records are numbered following any already in the report.
+     */
+    public void validateNanoBretActivityProfiles(List<NanoBretActivityProfileCsvRecord> activityProfileCsvRecords,
+                                                 ImportErrorReport report) {
+
+        activityProfileCsvRecords.forEach(Util::convertEmptyStringsToNulls);
+        ImportValidationContext context = new ImportValidationContext(compoundService, kinaseService,
+            activityProfileCsvRecords.stream().map(NanoBretActivityProfileCsvRecord::getCompoundName)
+                .filter(Objects::nonNull).collect(Collectors.toList()));
+
+        for (NanoBretActivityProfileCsvRecord record : activityProfileCsvRecords) {
+
+            long row = report.nextRow();
+            context.validateReferences(row, record.getCompoundName(), record.getDiscoverxGeneSymbol(), messages,
+                report);
+
+            if (record.getDate() == null) {
+                report.addError(row, "date", messages.get("error.fieldRequired", "date"));
+            }
+            else {
+                try {
+                    Util.nanoBretCsvDateToRealDate(record.getDate());
+                } catch (IllegalArgumentException iae) {
+                    report.addError(row, "date", messages.get("error.invalidDate", "date", record.getDate()));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a key uniquely identifying a NanoBRET activity profile in an import.  Dates are keyed by their
+     * millisecond values, since those loaded by JPA are {@code java.sql.Timestamp}s, which never equal plain
+     * {@code Date}s.
+     */
+    private static List<Object> createNanoBretActivityProfileKey(String compoundName, String discoverx, Date date) {
+        return Arrays.asList(compoundName, discoverx, date == null ? null : date.getTime());
+    }
+
+    /**
+     * Indexes NanoBRET activity profiles by compound name, discoverx gene symbol and date, so that each record
+     * in an import can be matched to its existing profile in constant time.
+     */
+    private static Map<List<Object>, NanoBretActivityProfile> indexNanoBretActivityProfiles(
+                                                                Collection<NanoBretActivityProfile> profiles) {
+        return profiles.stream().collect(Collectors.toMap(
+            nbap -> createNanoBretActivityProfileKey(nbap.getCompoundName(),
+                nbap.getKinase().getDiscoverxGeneSymbol(), nbap.getDate()),
+            nbap -> nbap,
+            (nbap1, nbap2) -> nbap1));
+    }
+
+    private static NanoBretActivityProfile possiblyGetNanoBretActivityProfile(
+                                                            Map<List<Object>, NanoBretActivityProfile> profiles,
+                                                            String compoundName, String discoverx, Date date) {
+        return profiles.get(createNanoBretActivityProfileKey(compoundName, discoverx, date));
     }
 
     private static void possiblyLogImportOperation(boolean commit, List<NanoBretActivityProfile> toPersist) {
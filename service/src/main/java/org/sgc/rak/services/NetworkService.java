@@ -0,0 +1,134 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.dao.ActivityProfileDao;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.NetworkRep;
+import org.sgc.rak.util.Util;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Service for compound/kinase interaction networks.  Networks are computed from an in-memory
+ * {@link InteractionNetwork} over all activity profiles, which is rebuilt when activity profiles change.
+ */
+@Service
+public class NetworkService {
+
+    private final ActivityProfileDao activityProfileDao;
+    private final CompoundService compoundService;
+    private final KinaseService kinaseService;
+    private final Messages messages;
+
+    private volatile InteractionNetwork network;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(NetworkService.class);
+
+    @Autowired
+    public NetworkService(ActivityProfileDao activityProfileDao, CompoundService compoundService,
+                          KinaseService kinaseService, Messages messages) {
+        this.activityProfileDao = activityProfileDao;
+        this.compoundService = compoundService;
+        this.kinaseService = kinaseService;
+        this.messages = messages;
+    }
+
+    /**
+     * Notes that activity profiles have been added or changed, so that the interaction network is rebuilt.  If
+     * called in a transaction, this takes effect when it commits.
+     */
+    public void activityProfilesChanged() {
+        Util.runAfterCommit(this::invalidateInteractionNetwork);
+    }
+
+    private InteractionNetwork getInteractionNetwork() {
+        InteractionNetwork result = network;
+        if (result == null) {
+            synchronized (this) {
+                result = network;
+                if (result == null) {
+                    result = loadInteractionNetwork();
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the network of interactions around a set of compounds or kinases.
+     *
+     * @param compoundNames The names of the compounds.  This may be {@code null} if {@code kinaseIds} is not.
+     * @param kinaseIds The IDs of the kinases.  This may be {@code null} if {@code compoundNames} is not.
+     * @param maxPercentControl Interactions must have a percent control less than or equal to this value.  This
+     *        may be {@code null} to not restrict by percent control.
+     * @param maxKd Interactions must have a Kd less than or equal to this value.  This may be {@code null} to not
+     *        restrict by Kd.
+     * @param includeHidden Whether hidden compounds should be included in the network.
+     * @return The network.
+     * @throws BadRequestException If any of the compounds does not exist.
+     * @see InteractionNetwork#getNetwork(Collection, Collection, Double, Double, Predicate)
+     */
+    public NetworkRep getNetwork(List<String> compoundNames, List<Long> kinaseIds, Double maxPercentControl,
+                                 Double maxKd, boolean includeHidden) {
+
+        Set<String> uniqueCompoundNames = null;
+        if (compoundNames != null) {
+            uniqueCompoundNames = new LinkedHashSet<>(compoundNames);
+            Set<String> existingCompoundNames = compoundService.getExistingCompoundNames(uniqueCompoundNames);
+            for (String compoundName : uniqueCompoundNames) {
+                if (!existingCompoundNames.contains(compoundName)) {
+                    throw new BadRequestException(messages.get("error.noSuchCompound", compoundName));
+                }
+            }
+        }
+
+        Predicate<String> compoundFilter = includeHidden ? compoundName -> true :
+            compoundName -> !compoundService.getCompoundHidden(compoundName);
+
+        return getInteractionNetwork().getNetwork(uniqueCompoundNames, kinaseIds, maxPercentControl, maxKd,
+            compoundFilter);
+    }
+
+    /**
+     * Discards the interaction network so it is rebuilt when next needed.  This is synchronized so that a network
+     * being built from stale data when this is called is discarded too.
+     */
+    private synchronized void invalidateInteractionNetwork() {
+        network = null;
+    }
+
+    private synchronized InteractionNetwork loadInteractionNetwork() {
+
+        InteractionNetwork.Builder builder = new InteractionNetwork.Builder(kinaseService.getKinases());
+        activityProfileDao.forEachActivityValue(builder::add);
+        InteractionNetwork result = builder.build();
+
+        network = result;
+        LOGGER.info("Loaded interaction network with {} edges", result.getEdgeCount());
+        return result;
+    }
+
+    /**
+     * Loads the interaction network when the application starts, so the first requests don't have to.  If this
+     * fails, it is loaded when first needed instead.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preloadInteractionNetwork() {
+        try {
+            loadInteractionNetwork();
+        } catch (DataAccessException dae) {
+            LOGGER.warn("Could not preload the interaction network, it will be loaded on first use", dae);
+        }
+    }
+}
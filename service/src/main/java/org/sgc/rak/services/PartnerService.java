@@ -8,16 +8,20 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 /**
- * Service for manipulating partners.
+ * Service for manipulating partners.  Partners are only changed directly in the database, so pages of partners
+ * are cached for the cache's time-to-live.
  */
 @Service
 public class PartnerService {
 
     private final PartnerRepository repository;
 
+    private final ReadThroughCache<Pageable, Page<Partner>> partnerPageCache;
+
     @Autowired
-    public PartnerService(PartnerRepository repository) {
+    public PartnerService(PartnerRepository repository, ReadCaches readCaches) {
         this.repository = repository;
+        partnerPageCache = readCaches.create("partners");
     }
 
     /**
@@ -27,6 +31,6 @@ public class PartnerService {
      * @return The list of partners.
      */
     public Page<Partner> getPartners(Pageable pageInfo) {
-        return repository.findAll(pageInfo);
+        return partnerPageCache.get(pageInfo, () -> repository.findAll(pageInfo));
     }
 }
@@ -0,0 +1,110 @@
+package org.sgc.rak.services;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Creates the {@link ReadThroughCache}s that services keep in front of frequently read, rarely changing data.
+ * All caches share the same limits and a small pool of threads that reload expired values.  Each cache's hits,
+ * stale hits, misses and size are published as metrics, e.g. {@code rak.cache.gets{cache=compounds,result=hit}}.
+ */
+@Service
+public class ReadCaches {
+
+    private final MeterRegistry meterRegistry;
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * The default maximum number of values each cache holds.  This can be overridden via the
+     * {@code rak.cache.max-entries} property.  Setting that to {@code 0} disables caching.
+     */
+    private static final int DEFAULT_MAX_ENTRIES = 500;
+
+    /**
+     * The default number of seconds a value is served before it is reloaded.  This can be overridden via the
+     * {@code rak.cache.ttl-seconds} property.
+     */
+    private static final long DEFAULT_TTL_SECONDS = 60;
+
+    /**
+     * The default number of seconds an expired value is still served while it is reloaded in the background.
+     * This can be overridden via the {@code rak.cache.stale-seconds} property.
+     */
+    private static final long DEFAULT_STALE_SECONDS = 300;
+
+    /**
+     * The maximum number of expired values waiting to be reloaded.  If more values expire, they are reloaded by
+     * later requests.
+     */
+    private static final int REFRESH_QUEUE_SIZE = 100;
+
+    @Autowired
+    public ReadCaches(Environment environment, MeterRegistry meterRegistry) {
+
+        this.meterRegistry = meterRegistry;
+
+        maxEntries = environment.getProperty("rak.cache.max-entries", Integer.class, DEFAULT_MAX_ENTRIES);
+        ttlMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("rak.cache.ttl-seconds", Long.class,
+            DEFAULT_TTL_SECONDS));
+        staleMillis = TimeUnit.SECONDS.toMillis(environment.getProperty("rak.cache.stale-seconds", Long.class,
+            DEFAULT_STALE_SECONDS));
+
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("rak-cache-");
+        threadFactory.setDaemon(true);
+        refreshExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(REFRESH_QUEUE_SIZE), threadFactory);
+    }
+
+    /**
+     * Creates a cache and registers its metrics.
+     *
+     * @param name The name of the cache.  This should be unique.
+     * @param <K> The type of keys.
+     * @param <V> The type of values.
+     * @return The cache.
+     */
+    public <K, V> ReadThroughCache<K, V> create(String name) {
+
+        ReadThroughCache<K, V> cache = new ReadThroughCache<>(name, maxEntries, ttlMillis, staleMillis,
+            refreshExecutor, System::currentTimeMillis);
+
+        registerCounter(cache, "hit", ReadThroughCache::getHitCount);
+        registerCounter(cache, "stale", ReadThroughCache::getStaleHitCount);
+        registerCounter(cache, "miss", ReadThroughCache::getMissCount);
+        Gauge.builder("rak.cache.size", cache, ReadThroughCache::size)
+            .tag("cache", name)
+            .description("The number of values cached")
+            .register(meterRegistry);
+
+        return cache;
+    }
+
+    private void registerCounter(ReadThroughCache<?, ?> cache, String result,
+                                 ToDoubleFunction<ReadThroughCache<?, ?>> count) {
+        FunctionCounter.builder("rak.cache.gets", cache, count)
+            .tag("cache", cache.getName())
+            .tag("result", result)
+            .description("The number of values requested from the cache")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+}
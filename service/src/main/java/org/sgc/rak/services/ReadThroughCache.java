@@ -0,0 +1,259 @@
+package org.sgc.rak.services;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * A bounded, in-memory cache of the results of reads.  Values are loaded when first requested and kept for a
+ * time-to-live, after which they are still served for a grace period while they are reloaded in the background.
+ * When the cache is full, the least recently used value is evicted.  All methods are thread-safe.<p>
+ *
+ * The cache should be invalidated via {@link #invalidateAll()} when the data it caches changes.  Values being
+ * loaded when the cache is invalidated are returned to their callers, but not cached.
+ *
+ * @param <K> The type of keys.
+ * @param <V> The type of values.  Values may be {@code null}, and must not be modified once loaded.
+ * @see ReadCaches
+ */
+public class ReadThroughCache<K, V> {
+
+    private final String name;
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final long staleMillis;
+    private final Executor refreshExecutor;
+    private final LongSupplier clock;
+
+    private final Map<K, Entry<V>> entries;
+    private long generation;
+
+    private final LongAdder hits;
+    private final LongAdder staleHits;
+    private final LongAdder misses;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadThroughCache.class);
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of this cache, used in logging and metrics.
+     * @param maxEntries The maximum number of values cached.  If this is {@code 0}, nothing is cached.
+     * @param ttlMillis How long a value is served before it is reloaded, in milliseconds.
+     * @param staleMillis How long an expired value is still served while it is reloaded in the background, in
+     *        milliseconds.  If this is {@code 0}, expired values are reloaded while the caller waits.
+     * @param refreshExecutor Reloads expired values in the background.
+     * @param clock Returns the current time, in milliseconds.
+     */
+    ReadThroughCache(String name, int maxEntries, long ttlMillis, long staleMillis, Executor refreshExecutor,
+                     LongSupplier clock) {
+
+        this.name = name;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.staleMillis = staleMillis;
+        this.refreshExecutor = refreshExecutor;
+        this.clock = clock;
+
+        entries = new LinkedHashMap<K, Entry<V>>(INITIAL_CAPACITY, LOAD_FACTOR, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > ReadThroughCache.this.maxEntries;
+            }
+        };
+
+        hits = new LongAdder();
+        staleHits = new LongAdder();
+        misses = new LongAdder();
+    }
+
+    /**
+     * Returns a value, loading it if it isn't cached.  If the cached value has expired but is within its grace
+     * period, it is returned and reloaded in the background.
+     *
+     * @param key The key of the value.
+     * @param loader Loads the value.  This may be called on another thread, so should not depend on the calling
+     *        thread's state.  If it throws an exception, nothing is cached.
+     * @return The value.
+     */
+    public V get(K key, Supplier<V> loader) {
+
+        long now = clock.getAsLong();
+        long loadGeneration;
+        Entry<V> entry;
+        boolean refresh = false;
+
+        synchronized (this) {
+
+            loadGeneration = generation;
+            entry = entries.get(key);
+
+            if (entry != null) {
+                long age = now - entry.loaded;
+                if (age < ttlMillis) {
+                    hits.increment();
+                    return entry.value;
+                }
+                if (age < ttlMillis + staleMillis) {
+                    staleHits.increment();
+                    refresh = !entry.refreshing;
+                    entry.refreshing = true;
+                }
+                else {
+                    entries.remove(key);
+                    entry = null;
+                }
+            }
+        }
+
+        if (entry != null) {
+            if (refresh) {
+                refresh(key, entry, loader, loadGeneration);
+            }
+            return entry.value;
+        }
+
+        misses.increment();
+        V value = loader.get();
+        put(key, value, loadGeneration, now);
+        return value;
+    }
+
+    /**
+     * Returns the number of requests served a value that hadn't expired.
+     *
+     * @return The number of hits.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of requests that had to wait for a value to be loaded.
+     *
+     * @return The number of misses.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the number of requests served an expired value while it was reloaded.
+     *
+     * @return The number of stale hits.
+     */
+    public long getStaleHitCount() {
+        return staleHits.sum();
+    }
+
+    /**
+     * Discards all cached values, including any being loaded.
+     */
+    public synchronized void invalidateAll() {
+        entries.clear();
+        generation++;
+    }
+
+    /**
+     * Normalizes a string that is matched ignoring case, for use in a key, so that values differing only in case
+     * share an entry.
+     *
+     * @param value The value.  This may be {@code null}.
+     * @return The normalized value, or {@code null} if {@code value} is blank.
+     */
+    public static String normalize(String value) {
+        return StringUtils.isBlank(value) ? null : value.toLowerCase(Locale.US);
+    }
+
+    /**
+     * Returns a key made up of several values, e.g. the parameters of a query.  Keys are equal if their values
+     * are.
+     *
+     * @param values The values.
+     * @return The key.
+     */
+    public static List<Object> key(Object... values) {
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Caches a value, unless the cache was invalidated since it started loading.
+     */
+    private synchronized void put(K key, V value, long loadGeneration, long loaded) {
+        if (loadGeneration == generation && maxEntries > 0) {
+            entries.put(key, new Entry<>(value, loaded));
+        }
+    }
+
+    private void refresh(K key, Entry<V> entry, Supplier<V> loader, long loadGeneration) {
+
+        Runnable task = () -> {
+            long now = clock.getAsLong();
+            try {
+                put(key, loader.get(), loadGeneration, now);
+            } catch (RuntimeException re) {
+                LOGGER.warn("Could not refresh an entry in cache {}", name, re);
+                refreshFailed(entry);
+            }
+        };
+
+        try {
+            refreshExecutor.execute(task);
+        } catch (RejectedExecutionException ree) {
+            // Too many refreshes are queued; a later request will try again
+            refreshFailed(entry);
+        }
+    }
+
+    private synchronized void refreshFailed(Entry<V> entry) {
+        entry.refreshing = false;
+    }
+
+    /**
+     * Returns the number of values cached.
+     *
+     * @return The number of values.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * A cached value.
+     *
+     * @param <V> The type of the value.
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+        private final long loaded;
+
+        /**
+         * Whether this value is being reloaded.  Guarded by the cache's lock.
+         */
+        private boolean refreshing;
+
+        private Entry(V value, long loaded) {
+            this.value = value;
+            this.loaded = loaded;
+        }
+    }
+}
@@ -0,0 +1,390 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.InternalServerErrorException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.exceptions.ServiceUnavailableException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.UploadSessionRep;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Service for resumable, chunked file uploads.  This lets clients upload files larger than the multipart request
+ * size limit: the file is sent as a sequence of numbered chunks, each spooled to local disk, and once all chunks
+ * are received they are assembled into a single file.  If an upload is interrupted, the client can ask which
+ * chunks were received and resume from the first missing one.  The number of chunks and size of the file are
+ * declared when the upload starts, and optionally its checksum, so a file missing its last chunks is never
+ * mistaken for a complete one.<p>
+ *
+ * Upload sessions are held in memory, so they don't survive a restart.  Sessions that aren't touched for a while
+ * are removed along with their chunks.
+ */
+@Service
+public class UploadService {
+
+    private final Messages messages;
+
+    private final Path uploadDirectory;
+    private final Map<String, UploadSession> sessions;
+    private final int maxSessions;
+    private final long maxUploadBytes;
+    private final long retentionMillis;
+
+    /**
+     * The default maximum number of uploads in progress at once.  This can be overridden via the
+     * {@code rak.upload.max-sessions} property.
+     */
+    private static final int DEFAULT_MAX_SESSIONS = 10;
+
+    /**
+     * The default maximum size of an uploaded file, in megabytes.  This can be overridden via the
+     * {@code rak.upload.max-size-mb} property.
+     */
+    private static final long DEFAULT_MAX_SIZE_MB = 1024;
+
+    /**
+     * The default number of minutes an upload session is kept after its last chunk is received.  This can be
+     * overridden via the {@code rak.upload.session-retention-minutes} property.
+     */
+    private static final long DEFAULT_SESSION_RETENTION_MINUTES = 24 * 60;
+
+    /**
+     * The maximum number of chunks in a single upload.
+     */
+    private static final int MAX_CHUNKS = 100_000;
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final long BYTES_PER_MB = 1024 * 1024;
+
+    private static final Pattern SHA256_PATTERN = Pattern.compile("[0-9a-fA-F]{64}");
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(UploadService.class);
+
+    @Autowired
+    public UploadService(Environment environment, Messages messages) {
+
+        this.messages = messages;
+
+        String directory = environment.getProperty("rak.upload.directory");
+        uploadDirectory = directory != null ? Paths.get(directory) :
+            Paths.get(System.getProperty("java.io.tmpdir"), "rak-uploads");
+        maxSessions = environment.getProperty("rak.upload.max-sessions", Integer.class, DEFAULT_MAX_SESSIONS);
+        maxUploadBytes = environment.getProperty("rak.upload.max-size-mb", Long.class, DEFAULT_MAX_SIZE_MB) *
+            BYTES_PER_MB;
+        retentionMillis = TimeUnit.MINUTES.toMillis(environment.getProperty(
+            "rak.upload.session-retention-minutes", Long.class, DEFAULT_SESSION_RETENTION_MINUTES));
+        sessions = new ConcurrentHashMap<>();
+    }
+
+    private static Path getChunkFile(UploadSession session, int index) {
+        return session.getDirectory().resolve(String.format("chunk-%06d", index));
+    }
+
+    /**
+     * Assembles the chunks of an upload into a single file, checking it against the size and checksum declared
+     * when the upload was started.
+     *
+     * @throws BadRequestException If the file's size or checksum is not what was declared.
+     */
+    private void assemble(UploadSession session, Path file) {
+
+        int chunkCount = session.getChunkCount();
+        MessageDigest digest = createDigest();
+        long size = 0;
+
+        try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)) {
+            for (int i = 0; i < chunkCount; i++) {
+                try (InputStream in = new DigestInputStream(Files.newInputStream(getChunkFile(session, i)),
+                        digest)) {
+                    size += copy(in, out, Long.MAX_VALUE);
+                }
+            }
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.uploadingData"), ioe);
+        }
+
+        if (size != session.getExpectedSize()) {
+            throw new BadRequestException(messages.get("error.uploadSizeMismatch", size,
+                session.getExpectedSize()));
+        }
+        String sha256 = toHex(digest.digest());
+        if (session.getSha256() != null && !session.getSha256().equals(sha256)) {
+            throw new BadRequestException(messages.get("error.uploadChecksumMismatch", sha256,
+                session.getSha256()));
+        }
+
+        LOGGER.info("Assembled upload {} from {} chunks ({} bytes, SHA-256 {})", session.getId(), chunkCount,
+            size, sha256);
+    }
+
+    /**
+     * Completes an upload, assembling its chunks into a single file and handing that to a consumer, e.g. to queue
+     * it for import.  The upload session is only removed once the consumer returns.  If the consumer fails, the
+     * assembled file is deleted but the session and its chunks are kept, so the upload can be completed again
+     * without its chunks being sent again.
+     *
+     * @param id The ID of the upload session.
+     * @param consumer Receives the assembled file.  If it returns normally, it is responsible for deleting the
+     *        file.
+     * @param <T> The type of value returned by the consumer.
+     * @return The value returned by the consumer.
+     * @throws NotFoundException If the session does not exist or has expired.
+     * @throws BadRequestException If any chunks are missing, or the file's size or checksum is not what was
+     *         declared when the upload was started.
+     */
+    public <T> T completeSession(String id, Function<Path, T> consumer) {
+
+        UploadSession session = getUploadSession(id);
+
+        synchronized (session) {
+            if (session.isClosed()) {
+                throw new NotFoundException(messages.get("error.noSuchUpload", id));
+            }
+            if (!session.isComplete()) {
+                throw new BadRequestException(messages.get("error.uploadIncomplete",
+                    session.toRep().getNextChunk()));
+            }
+            session.close();
+        }
+
+        Path file = uploadDirectory.resolve(id + ".csv");
+        T result;
+        try {
+            assemble(session, file);
+            result = consumer.apply(file);
+        } catch (RuntimeException re) {
+            deleteQuietly(file);
+            session.reopen();
+            throw re;
+        }
+
+        sessions.remove(id);
+        deleteSessionDirectory(session);
+        return result;
+    }
+
+    /**
+     * Copies at most {@code maxBytes} bytes from a stream.
+     *
+     * @return The number of bytes copied, or {@code -1} if the stream contained more than {@code maxBytes}.
+     */
+    private static long copy(InputStream in, OutputStream out, long maxBytes) throws IOException {
+
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long total = 0;
+        int count;
+
+        while ((count = in.read(buffer)) != -1) {
+            total += count;
+            if (total > maxBytes) {
+                return -1;
+            }
+            out.write(buffer, 0, count);
+        }
+
+        return total;
+    }
+
+    private static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) { // Never happens; every JVM supports SHA-256
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    /**
+     * Starts a new upload.
+     *
+     * @param chunkCount The number of chunks the file will be sent as.
+     * @param size The size of the file, in bytes.
+     * @param sha256 The SHA-256 checksum of the file, as hex digits.  This may be {@code null} if the file
+     *        should not be checked.
+     * @return The state of the new upload session.
+     * @throws BadRequestException If the number of chunks, size or checksum is invalid, or the file is too large.
+     * @throws ServiceUnavailableException If too many uploads are already in progress.
+     */
+    public UploadSessionRep createSession(int chunkCount, long size, String sha256) {
+
+        if (chunkCount < 1 || chunkCount > MAX_CHUNKS) {
+            throw new BadRequestException(messages.get("error.invalidUploadChunkCount", chunkCount, MAX_CHUNKS));
+        }
+        if (size < chunkCount) {
+            throw new BadRequestException(messages.get("error.invalidUploadSize", size));
+        }
+        if (size > maxUploadBytes) {
+            throw new BadRequestException(messages.get("error.uploadTooLarge", maxUploadBytes / BYTES_PER_MB));
+        }
+        if (sha256 != null && !SHA256_PATTERN.matcher(sha256).matches()) {
+            throw new BadRequestException(messages.get("error.invalidUploadChecksum", sha256));
+        }
+
+        removeExpiredSessions();
+        if (sessions.size() >= maxSessions) {
+            throw new ServiceUnavailableException(messages.get("error.tooManyUploads"));
+        }
+
+        String id = UUID.randomUUID().toString();
+        Path directory = uploadDirectory.resolve(id);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.uploadingData"), ioe);
+        }
+
+        UploadSession session = new UploadSession(id, directory, chunkCount, size,
+            sha256 != null ? sha256.toLowerCase(Locale.ROOT) : null);
+        sessions.put(id, session);
+        LOGGER.info("Started upload {}", id);
+        return session.toRep();
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ioe) {
+            LOGGER.warn("Error deleting upload file " + file, ioe);
+        }
+    }
+
+    private static void deleteSessionDirectory(UploadSession session) {
+        try {
+            FileSystemUtils.deleteRecursively(session.getDirectory());
+        } catch (IOException ioe) {
+            LOGGER.warn("Error deleting upload directory " + session.getDirectory(), ioe);
+        }
+    }
+
+    /**
+     * Discards an upload and any chunks received.
+     *
+     * @param id The ID of the upload session.
+     * @throws NotFoundException If the session does not exist or has expired.
+     */
+    public void discardSession(String id) {
+
+        UploadSession session = sessions.remove(id);
+        if (session == null) {
+            throw new NotFoundException(messages.get("error.noSuchUpload", id));
+        }
+
+        session.close();
+        deleteSessionDirectory(session);
+    }
+
+    /**
+     * Returns the state of an upload, including which chunks have been received.
+     *
+     * @param id The ID of the upload session.
+     * @return The state of the upload.
+     * @throws NotFoundException If the session does not exist or has expired.
+     */
+    public UploadSessionRep getSession(String id) {
+        return getUploadSession(id).toRep();
+    }
+
+    private UploadSession getUploadSession(String id) {
+        UploadSession session = sessions.get(id);
+        if (session == null) {
+            throw new NotFoundException(messages.get("error.noSuchUpload", id));
+        }
+        return session;
+    }
+
+    private void removeExpiredSessions() {
+
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+
+        sessions.values().removeIf(session -> {
+            if (session.getLastModified() < cutoff) {
+                LOGGER.info("Removing expired upload {}", session.getId());
+                session.close();
+                deleteSessionDirectory(session);
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private static String toHex(byte[] bytes) {
+        return String.format("%064x", new BigInteger(1, bytes));
+    }
+
+    /**
+     * Receives a chunk of an upload.  The chunk is written to disk before it is recorded, so if the transfer is
+     * interrupted, the chunk is simply reported as missing and can be sent again.  Sending a chunk that was
+     * already received replaces it.
+     *
+     * @param id The ID of the upload session.
+     * @param index The index of the chunk.  Chunks are numbered from {@code 0}.
+     * @param in The chunk's data.
+     * @return The state of the upload.
+     * @throws NotFoundException If the session does not exist or has expired.
+     * @throws BadRequestException If the chunk index is invalid, or the upload would be larger than declared.
+     */
+    public UploadSessionRep writeChunk(String id, int index, InputStream in) {
+
+        UploadSession session = getUploadSession(id);
+        if (index < 0 || index >= session.getChunkCount()) {
+            throw new BadRequestException(messages.get("error.invalidUploadChunk", index));
+        }
+
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(session.getDirectory(), "chunk-", ".tmp");
+
+            long maxBytes = session.getExpectedSize() - (session.getSize() - session.getChunkSize(index));
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                written = copy(in, out, maxBytes);
+            }
+            if (written < 0) {
+                throw new BadRequestException(messages.get("error.uploadLargerThanDeclared",
+                    session.getExpectedSize()));
+            }
+
+            synchronized (session) {
+                if (session.isClosed()) {
+                    throw new NotFoundException(messages.get("error.noSuchUpload", id));
+                }
+                Files.move(temp, getChunkFile(session, index), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+                session.addChunk(index, written);
+            }
+        } catch (IOException ioe) {
+            throw new InternalServerErrorException(messages.get("error.uploadingData"), ioe);
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+
+        return session.toRep();
+    }
+}
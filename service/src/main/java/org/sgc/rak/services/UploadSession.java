@@ -0,0 +1,169 @@
+package org.sgc.rak.services;
+
+import org.sgc.rak.reps.UploadSessionRep;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A resumable upload in progress.  Each chunk is spooled to its own file in this session's directory, and is
+ * only recorded here once it has been completely written, so a chunk interrupted mid-transfer is simply uploaded
+ * again.  All methods are thread-safe.
+ */
+class UploadSession {
+
+    private final String id;
+    private final Path directory;
+    private final int chunkCount;
+    private final long expectedSize;
+    private final String sha256;
+    private final Date created;
+    private final Map<Integer, Long> chunkSizes;
+    private long size;
+    private long lastModified;
+    private boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param id The ID of this session.
+     * @param directory The directory the chunks are spooled to.
+     * @param chunkCount The number of chunks the file is sent as.
+     * @param expectedSize The size of the file, in bytes.
+     * @param sha256 The SHA-256 checksum of the file, as lower case hex digits, or {@code null} if it wasn't
+     *        specified.
+     */
+    UploadSession(String id, Path directory, int chunkCount, long expectedSize, String sha256) {
+        this.id = id;
+        this.directory = directory;
+        this.chunkCount = chunkCount;
+        this.expectedSize = expectedSize;
+        this.sha256 = sha256;
+        this.created = new Date();
+        this.lastModified = created.getTime();
+        this.chunkSizes = new TreeMap<>();
+    }
+
+    /**
+     * Records that a chunk has been completely written.  If the chunk was already received, the new copy
+     * replaces it.
+     *
+     * @param index The index of the chunk.
+     * @param chunkSize The size of the chunk, in bytes.
+     */
+    synchronized void addChunk(int index, long chunkSize) {
+        Long previousSize = chunkSizes.put(index, chunkSize);
+        size += chunkSize - (previousSize != null ? previousSize : 0);
+        lastModified = System.currentTimeMillis();
+    }
+
+    /**
+     * Marks this session as closed, so that no more chunks are accepted.
+     */
+    synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Reopens this session after it was closed, e.g. because its completion failed.
+     */
+    synchronized void reopen() {
+        closed = false;
+    }
+
+    /**
+     * Returns the number of chunks the file is sent as, as declared when the upload was started.
+     *
+     * @return The number of chunks.
+     */
+    int getChunkCount() {
+        return chunkCount;
+    }
+
+    /**
+     * Returns the size of a chunk.
+     *
+     * @param index The index of the chunk.
+     * @return The chunk's size, in bytes, or {@code 0} if it hasn't been received.
+     */
+    synchronized long getChunkSize(int index) {
+        return chunkSizes.getOrDefault(index, 0L);
+    }
+
+    /**
+     * Returns the size of the file, as declared when the upload was started.
+     *
+     * @return The size, in bytes.
+     */
+    long getExpectedSize() {
+        return expectedSize;
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    synchronized long getLastModified() {
+        return lastModified;
+    }
+
+    private int getNextChunk() {
+        int next = 0;
+        while (chunkSizes.containsKey(next)) {
+            next++;
+        }
+        return next;
+    }
+
+    /**
+     * Returns the SHA-256 checksum of the file, as declared when the upload was started.
+     *
+     * @return The checksum, as lower case hex digits, or {@code null} if it wasn't specified.
+     */
+    String getSha256() {
+        return sha256;
+    }
+
+    synchronized long getSize() {
+        return size;
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Returns whether every chunk has been received.
+     *
+     * @return Whether all of the declared number of chunks have been received.
+     */
+    synchronized boolean isComplete() {
+        return chunkSizes.size() == chunkCount;
+    }
+
+    /**
+     * Returns a snapshot of this session's state.
+     *
+     * @return The session's state.
+     */
+    synchronized UploadSessionRep toRep() {
+        UploadSessionRep rep = new UploadSessionRep();
+        rep.setId(id);
+        rep.setCreated(created);
+        rep.setLastModified(new Date(lastModified));
+        rep.setChunkCount(chunkCount);
+        rep.setExpectedSize(expectedSize);
+        rep.setSha256(sha256);
+        rep.setSize(size);
+        rep.setReceivedChunks(new ArrayList<>(chunkSizes.keySet()));
+        rep.setNextChunk(getNextChunk());
+        return rep;
+    }
+}
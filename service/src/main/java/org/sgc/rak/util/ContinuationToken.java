@@ -0,0 +1,114 @@
+package org.sgc.rak.util;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Identifies where the next page of a keyset-paged query starts: the sort key of the last row already returned,
+ * and the number of rows returned before the next page.  Rather than skipping the earlier rows, the next page is
+ * fetched with a predicate on the sort key, so deep pages are as fast to fetch as the first.<p>
+ *
+ * Tokens are handed to callers as opaque, URL-safe strings.
+ *
+ * @see KeysetQuery
+ */
+public final class ContinuationToken {
+
+    private final long start;
+    private final List<Object> key;
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    /**
+     * Constructor.
+     *
+     * @param start The index of the first row of the next page.
+     * @param key The sort key of the last row already returned.  Dates are stored as milliseconds since the
+     *        epoch.
+     */
+    public ContinuationToken(long start, List<?> key) {
+        this.start = start;
+        List<Object> values = new ArrayList<>();
+        for (Object value : key) {
+            values.add(value instanceof Date ? ((Date)value).getTime() : value);
+        }
+        this.key = Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Parses a token returned by {@link #encode()}.
+     *
+     * @param token The token.
+     * @return The parsed token.
+     * @throws IllegalArgumentException If the token is malformed.
+     */
+    public static ContinuationToken decode(String token) {
+
+        List<?> values;
+        try {
+            values = MAPPER.readValue(Base64.getUrlDecoder().decode(token), List.class);
+        } catch (IllegalArgumentException | IOException e) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token, e);
+        }
+
+        if (values.isEmpty() || !(values.get(0) instanceof Number) || ((Number)values.get(0)).longValue() < 0) {
+            throw new IllegalArgumentException("Invalid continuation token: " + token);
+        }
+        for (Object value : values) {
+            if (value != null && !(value instanceof Number) && !(value instanceof String)) {
+                throw new IllegalArgumentException("Invalid continuation token: " + token);
+            }
+        }
+
+        return new ContinuationToken(((Number)values.get(0)).longValue(), values.subList(1, values.size()));
+    }
+
+    /**
+     * Returns this token as an opaque, URL-safe string.
+     *
+     * @return The token.
+     * @see #decode(String)
+     */
+    public String encode() {
+
+        List<Object> values = new ArrayList<>();
+        values.add(start);
+        values.addAll(key);
+
+        try {
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(MAPPER.writeValueAsBytes(values));
+        } catch (JsonProcessingException e) { // Never happens
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the sort key of the last row already returned.
+     *
+     * @return The sort key.  Dates are returned as milliseconds since the epoch.
+     */
+    public List<Object> getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the index of the first row of the next page.
+     *
+     * @return The index.
+     */
+    public long getStart() {
+        return start;
+    }
+
+    @Override
+    public String toString() {
+        return encode();
+    }
+}
@@ -0,0 +1,121 @@
+package org.sgc.rak.util;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads records from a stream of CSV data.  Records are deserialized lazily, so callers can process a large file
+ * in bounded chunks without ever holding the entire file in memory.
+ *
+ * @param <T> The type of record being read.
+ */
+public final class CsvRecordReader<T> implements Closeable {
+
+    private final MappingIterator<T> iterator;
+
+    /**
+     * Constructor.
+     *
+     * @param in The CSV data, which is assumed to be UTF-8.  This stream is closed when this reader is closed.
+     * @param clazz The type of record to deserialize each row into.
+     * @param schema The schema of the CSV data.
+     * @param headerRow Whether the CSV data contains a header row.
+     * @throws IOException If an error occurs reading the start of the stream.
+     */
+    public CsvRecordReader(InputStream in, Class<T> clazz, CsvSchema schema, boolean headerRow) throws IOException {
+
+        if (headerRow) {
+            schema = schema.withHeader();
+        }
+
+        iterator = new CsvMapper().readerFor(clazz).with(schema)
+            // Note this doesn't seem to work, so we manually null out empty strings later
+            .withFeatures(DeserializationFeature.ACCEPT_EMPTY_STRING_AS_NULL_OBJECT)
+            .withFeatures(CsvParser.Feature.FAIL_ON_MISSING_COLUMNS)
+            .readValues(new InputStreamReader(in, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void close() throws IOException {
+        iterator.close();
+    }
+
+    /**
+     * Returns all remaining records in the stream.
+     *
+     * @return The records.  This may be empty, but will never be {@code null}.
+     * @throws IOException If an error occurs reading or deserializing the data.
+     * @see #readChunk(int)
+     */
+    public List<T> readAll() throws IOException {
+        return readChunk(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an iterator over the remaining records in the stream.  Records are read as the iterator advances,
+     * so callers can process the entire file without holding it in memory.
+     *
+     * @return The iterator.  Any error reading or deserializing the data is thrown from its methods as an
+     *         {@code UncheckedIOException}.
+     * @see #readChunk(int)
+     */
+    public Iterator<T> iterator() {
+
+        return new Iterator<>() {
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    return iterator.hasNextValue();
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                try {
+                    return iterator.nextValue();
+                } catch (IOException ioe) {
+                    throw new UncheckedIOException(ioe);
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns the next chunk of records in the stream.
+     *
+     * @param maxSize The maximum number of records to return.
+     * @return The records.  This will only be empty if the end of the stream has been reached.
+     * @throws IOException If an error occurs reading or deserializing the data.
+     * @see #readAll()
+     */
+    public List<T> readChunk(int maxSize) throws IOException {
+
+        List<T> chunk = new ArrayList<>();
+
+        while (chunk.size() < maxSize && iterator.hasNextValue()) {
+            chunk.add(iterator.nextValue());
+        }
+
+        return chunk;
+    }
+}
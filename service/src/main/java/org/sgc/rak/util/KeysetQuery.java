@@ -0,0 +1,243 @@
+package org.sgc.rak.util;
+
+import org.springframework.data.domain.Sort;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Describes the order in which an entity is keyset-paged through.  Rather than skipping the rows before a page,
+ * the page is fetched with a predicate selecting the rows after the last one already returned, i.e. the
+ * expanded form of {@code (key1, key2, id) > (?, ?, ?)}.  The last property in the order must be unique and
+ * not {@code null}, so that the order is total.<p>
+ *
+ * Nullable properties can only be sorted ascending, with {@code null}s last.  That is PostgreSQL's native order
+ * for ascending sorts, so the order by clause is plain and can be satisfied by an index on the properties.
+ *
+ * @param <T> The type of entity being paged through.
+ * @see ContinuationToken
+ */
+public final class KeysetQuery<T> {
+
+    private final Class<T> type;
+    private final List<Key<T>> keys;
+    private final List<String> fetchedAttributes;
+
+    /**
+     * Constructor.
+     *
+     * @param type The type of entity being paged through.
+     * @param fetchedAttributes Any associations to fetch in the same query as the entities.
+     */
+    public KeysetQuery(Class<T> type, String... fetchedAttributes) {
+        this.type = type;
+        this.keys = new ArrayList<>();
+        this.fetchedAttributes = Collections.unmodifiableList(Arrays.asList(fetchedAttributes));
+    }
+
+    /**
+     * Returns the associations to fetch in the same query as the entities.
+     *
+     * @return The attribute names.
+     */
+    public List<String> getFetchedAttributes() {
+        return fetchedAttributes;
+    }
+
+    /**
+     * Returns the sort key of a row.
+     *
+     * @param row The row.
+     * @return The sort key.
+     */
+    public List<Object> getKey(T row) {
+        List<Object> key = new ArrayList<>();
+        keys.forEach(k -> key.add(k.getter.apply(row)));
+        return key;
+    }
+
+    /**
+     * Returns the type of entity being paged through.
+     *
+     * @return The entity type.
+     */
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Returns whether a sort is the same as this order.  The trailing unique property can be omitted from the
+     * sort, since it only breaks ties.
+     *
+     * @param sort The sort to check.
+     * @return Whether the sort is the same as this order.
+     */
+    public boolean isSortedBy(Sort sort) {
+
+        Iterator<Key<T>> keyIter = keys.iterator();
+        int count = 0;
+
+        for (Sort.Order order : sort) {
+            if (!keyIter.hasNext()) {
+                return false;
+            }
+            Key<T> key = keyIter.next();
+            if (!key.property.equals(order.getProperty()) || key.direction != order.getDirection() ||
+                    order.isIgnoreCase()) {
+                return false;
+            }
+            count++;
+        }
+
+        return count >= keys.size() - 1;
+    }
+
+    /**
+     * Adds a property to the end of this order.
+     *
+     * @param property The property.
+     * @param direction The direction to sort the property in.
+     * @param nullable Whether the property can be {@code null}.
+     * @param getter Returns the property's value.
+     * @return This object.
+     * @throws IllegalArgumentException If the property is nullable and sorted descending.
+     */
+    public KeysetQuery<T> orderBy(String property, Sort.Direction direction, boolean nullable,
+                                  Function<T, Object> getter) {
+        if (nullable && direction.isDescending()) {
+            throw new IllegalArgumentException("Nullable properties can only be sorted ascending: " + property);
+        }
+        keys.add(new Key<>(property, direction, nullable, getter));
+        return this;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static Predicate after(CriteriaBuilder builder, Key<?> key, Path path, Comparable value) {
+        return key.direction.isAscending() ? builder.greaterThan(path, value) : builder.lessThan(path, value);
+    }
+
+    /**
+     * Converts a value read from a continuation token to the type of the property it is compared to.
+     */
+    private static Comparable<?> toPropertyType(Class<?> propertyType, Object value) {
+
+        if (value instanceof Number) {
+            Number number = (Number)value;
+            if (propertyType == Double.class || propertyType == double.class) {
+                return number.doubleValue();
+            }
+            if (propertyType == Long.class || propertyType == long.class) {
+                return number.longValue();
+            }
+            if (propertyType == Integer.class || propertyType == int.class) {
+                return number.intValue();
+            }
+            if (Date.class.isAssignableFrom(propertyType)) {
+                return new Date(number.longValue());
+            }
+        }
+        else if (value instanceof String && propertyType == String.class) {
+            return (String)value;
+        }
+
+        throw new IllegalArgumentException("Invalid value in continuation token: " + value);
+    }
+
+    /**
+     * Returns the order by clause for this order.
+     *
+     * @param root The root of the query.
+     * @param builder The criteria builder.
+     * @return The order by clause.
+     */
+    public List<Order> toOrders(Root<T> root, CriteriaBuilder builder) {
+
+        List<Order> orders = new ArrayList<>();
+
+        for (Key<T> key : keys) {
+            Path<?> path = root.get(key.property);
+            orders.add(key.direction.isAscending() ? builder.asc(path) : builder.desc(path));
+        }
+
+        return orders;
+    }
+
+    /**
+     * Returns a predicate selecting the rows after a given one in this order.
+     *
+     * @param root The root of the query.
+     * @param builder The criteria builder.
+     * @param values The sort key of the row, as read from a continuation token.
+     * @return The predicate.
+     * @throws IllegalArgumentException If the sort key doesn't match this order.
+     */
+    public Predicate toPredicate(Root<T> root, CriteriaBuilder builder, List<Object> values) {
+
+        if (values.size() != keys.size() || values.get(values.size() - 1) == null) {
+            throw new IllegalArgumentException("Continuation token does not match the sort order: " + values);
+        }
+
+        // Built from the unique trailing key outward:
+        // k1 > v1 or (k1 = v1 and (k2 > v2 or (k2 = v2 and ...)))
+        Predicate predicate = null;
+
+        for (int i = keys.size() - 1; i >= 0; i--) {
+
+            Key<T> key = keys.get(i);
+            Path<?> path = root.get(key.property);
+            Object value = values.get(i);
+
+            if (value == null) {
+                if (!key.nullable) {
+                    throw new IllegalArgumentException("Continuation token does not match the sort order: " +
+                        values);
+                }
+                // Only later rows with null values, since nulls sort last
+                predicate = builder.and(builder.isNull(path), predicate);
+                continue;
+            }
+
+            Comparable<?> typedValue = toPropertyType(path.getJavaType(), value);
+            Predicate after = after(builder, key, path, typedValue);
+            if (predicate != null) {
+                after = builder.or(after, builder.and(builder.equal(path, typedValue), predicate));
+            }
+            if (key.nullable) {
+                after = builder.or(after, builder.isNull(path));
+            }
+            predicate = after;
+        }
+
+        return predicate;
+    }
+
+    /**
+     * A property in the order.
+     *
+     * @param <T> The type of entity being paged through.
+     */
+    private static final class Key<T> {
+
+        private final String property;
+        private final Sort.Direction direction;
+        private final boolean nullable;
+        private final Function<T, Object> getter;
+
+        private Key(String property, Sort.Direction direction, boolean nullable, Function<T, Object> getter) {
+            this.property = property;
+            this.direction = direction;
+            this.nullable = nullable;
+            this.getter = getter;
+        }
+    }
+}
@@ -13,6 +13,7 @@ import javax.persistence.criteria.CriteriaQuery;
 import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Locale;
@@ -26,6 +27,47 @@ public final class QuerySpecifications {
         // Do nothing (comment for Sonar)
     }
 
+    /**
+     * Returns a specification that looks for any {@code ActivityProfile}s for a set of compounds.
+     *
+     * @param compoundNames The names of the compounds.  These must match exactly.
+     * @param kinaseIds The kinases involved in the activity profiles.  This may be {@code null} to not limit
+     *        the search to particular kinases.
+     * @param percentControl The value that the percent control of the activity profile must be less than or
+     *        equal to. This may be {@code null} to not restrict by percent control.
+     * @param kd The value that the Kd of the activity profile must be less than or equal to.  This may be
+     *        {@code null} to not restrict by Kd.
+     * @return The specification.
+     */
+    public static Specification<ActivityProfile> activityProfilesForCompounds(Collection<String> compoundNames,
+                                                                              List<Long> kinaseIds,
+                                                                              Double percentControl, Double kd) {
+
+        return new Specification<ActivityProfile>() {
+
+            @Nullable
+            @Override
+            public Predicate toPredicate(Root<ActivityProfile> root, CriteriaQuery<?> query, CriteriaBuilder builder) {
+
+                Predicate predicate = root.get("compoundName").in(compoundNames);
+
+                if (kinaseIds != null && !kinaseIds.isEmpty()) {
+                    predicate = builder.and(predicate, root.get("kinase").get("id").in(kinaseIds));
+                }
+
+                if (percentControl != null) {
+                    predicate = builder.and(predicate, builder.le(root.get("percentControl"), percentControl));
+                }
+
+                if (kd != null) {
+                    predicate = builder.and(predicate, builder.le(root.get("kd"), kd));
+                }
+
+                return predicate;
+            }
+        };
+    }
+
     /**
      * Returns a specification that looks for any {@code ActivityProfile}s matching the given criteria.
      *
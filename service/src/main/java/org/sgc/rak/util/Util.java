@@ -12,6 +12,8 @@ import org.sgc.rak.reps.ObjectImportRep;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -31,6 +33,19 @@ public final class Util {
     private Util() {
     }
 
+    /**
+     * Adds the record counts of one import result to another, e.g. to total the results of importing a file
+     * a chunk at a time.
+     *
+     * @param total The result to add to.
+     * @param result The result whose counts are added.
+     */
+    public static void addRecordCounts(ObjectImportRep total, ObjectImportRep result) {
+        total.setNewCount(total.getNewCount() + result.getNewCount());
+        total.setModifiedCount(total.getModifiedCount() + result.getModifiedCount());
+        total.setUnchangedCount(total.getUnchangedCount() + result.getUnchangedCount());
+    }
+
     /**
      * Converts any fields that are empty strings into {@code null}.
      *
@@ -194,6 +209,28 @@ public final class Util {
         return String.join(", ", differences);
     }
 
+    /**
+     * Returns whether an imported record is new; that is, none of its fields have a prior value.
+     *
+     * @param record The field statuses of the imported record.
+     * @return Whether the record is new.
+     * @see #isUnchangedRecord(List)
+     */
+    public static boolean isNewRecord(List<ObjectImportRep.FieldStatus> record) {
+        return record.stream().allMatch(status -> status.getOldValue() == null);
+    }
+
+    /**
+     * Returns whether an imported record is identical to the existing record.
+     *
+     * @param record The field statuses of the imported record.
+     * @return Whether every field's new value is equal to its prior value.
+     * @see #isNewRecord(List)
+     */
+    public static boolean isUnchangedRecord(List<ObjectImportRep.FieldStatus> record) {
+        return record.stream().allMatch(status -> Objects.equals(status.getNewValue(), status.getOldValue()));
+    }
+
     /**
      * Returns whether a character is valid in a file name (e.g. for a suggested download
      * file name).
@@ -223,6 +260,36 @@ public final class Util {
         }
     }
 
+    /**
+     * Splits a collection into lists of at most {@code size} elements, preserving iteration order.
+     *
+     * @param values The values to split.
+     * @param size The maximum size of each returned list.  This must be positive.
+     * @return The lists of values.  This will be empty if {@code values} is empty.
+     */
+    public static <T> List<List<T>> partition(Collection<T> values, int size) {
+
+        if (size <= 0) {
+            throw new IllegalArgumentException("Partition size must be positive: " + size);
+        }
+
+        List<List<T>> partitions = new ArrayList<>();
+        List<T> current = new ArrayList<>(Math.min(size, values.size()));
+
+        for (T value : values) {
+            if (current.size() == size) {
+                partitions.add(current);
+                current = new ArrayList<>(size);
+            }
+            current.add(value);
+        }
+
+        if (!current.isEmpty()) {
+            partitions.add(current);
+        }
+        return partitions;
+    }
+
     /**
      * Creates and returns a new activity profile that is essentially a patch of {@code newProfile}'s fields into
      * {@code existing}.  That is, the returned activity profile will have any non-{@code null} property values
@@ -467,6 +534,28 @@ public final class Util {
         return createNanoBretDataDateFormat().format(date);
     }
 
+    /**
+     * Runs an action once the current transaction commits, or immediately if there is no transaction.  This is
+     * useful for keeping in-memory state in sync with the database without reflecting changes that are rolled
+     * back.  If the transaction rolls back, the action is not run.
+     *
+     * @param action The action to run.
+     */
+    public static void runAfterCommit(Runnable action) {
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        }
+        else {
+            action.run();
+        }
+    }
+
     /**
      * Sanitizes a string to be a file name, or part of a file name.  Useful for
      * file downloads, for example.
@@ -500,4 +589,29 @@ public final class Util {
         compound.setS10(rep.getSelectivityScore());
         return compound;
     }
+
+    /**
+     * Updates the new, modified and unchanged record counts of an import result from its field statuses.
+     *
+     * @param importRep The import result to update.
+     */
+    public static void updateRecordCounts(ObjectImportRep importRep) {
+
+        long newCount = 0;
+        long unchangedCount = 0;
+        List<List<ObjectImportRep.FieldStatus>> records = importRep.getFieldStatuses();
+
+        for (List<ObjectImportRep.FieldStatus> record : records) {
+            if (isNewRecord(record)) {
+                newCount++;
+            }
+            else if (isUnchangedRecord(record)) {
+                unchangedCount++;
+            }
+        }
+
+        importRep.setNewCount(newCount);
+        importRep.setUnchangedCount(unchangedCount);
+        importRep.setModifiedCount(records.size() - newCount - unchangedCount);
+    }
 }
@@ -7,9 +7,14 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.rest.CsvHttpMessageConverter;
+import org.sgc.rak.rest.DatasetETagInterceptor;
+import org.sgc.rak.services.DatasetVersion;
 import org.springframework.http.MediaType;
+import org.springframework.mock.env.MockEnvironment;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.web.servlet.config.annotation.ContentNegotiationConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -27,7 +32,7 @@ public class AppConfigurationTest {
 
     @BeforeEach
     public void setUp() {
-        config = new AppConfiguration();
+        config = new AppConfiguration(new DatasetETagInterceptor(new DatasetVersion()));
         origLocale = Locale.getDefault();
         Locale.setDefault(Locale.US);
     }
@@ -39,7 +44,24 @@ public class AppConfigurationTest {
 
     @Test
     public void testActivityProfileDao() {
-        Assertions.assertNotNull(config.activityProfileDao(null));
+        Assertions.assertNotNull(config.activityProfileDao(null, null, null, new MockEnvironment()));
+    }
+
+    @Test
+    public void testAddInterceptors() {
+
+        InterceptorRegistry registry = Mockito.mock(InterceptorRegistry.class);
+        InterceptorRegistration registration = Mockito.mock(InterceptorRegistration.class, Mockito.RETURNS_SELF);
+        Mockito.doReturn(registration).when(registry).addInterceptor(any(DatasetETagInterceptor.class));
+
+        config.addInterceptors(registry);
+        verify(registry, times(1)).addInterceptor(any(DatasetETagInterceptor.class));
+        verify(registration, times(1)).excludePathPatterns(eq("/api/compounds/images/**"));
+    }
+
+    @Test
+    public void testBulkImportDao() {
+        Assertions.assertNotNull(config.bulkImportDao(null, null));
     }
 
     @Test
@@ -66,11 +88,22 @@ public class AppConfigurationTest {
         Assertions.assertTrue(converters.get(0) instanceof CsvHttpMessageConverter);
     }
 
+    @Test
+    public void testKeysetDao() {
+        Assertions.assertNotNull(config.keysetDao());
+    }
+
     @Test
     public void testKinaseDao() {
         Assertions.assertNotNull(config.kinaseDao());
     }
 
+    @Test
+    public void testNanoBretActivityProfileDao() {
+        MockEnvironment environment = new MockEnvironment().withProperty("rak.import.batch-size", "100");
+        Assertions.assertNotNull(config.nanoBretActivityProfileDao(null, null, environment));
+    }
+
     @Test
     public void testMessages() {
         Messages messages = config.messages();
@@ -3,21 +3,28 @@ package org.sgc.rak.dao;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sgc.rak.model.ActivityProfile;
+import org.sgc.rak.model.Kinase;
 import org.sgc.rak.repositories.ActivityProfileRepository;
+import org.sgc.rak.util.ContinuationToken;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 /**
@@ -29,7 +36,12 @@ public class ActivityProfileDaoTest {
     @Mock
     private ActivityProfileRepository mockRepository;
 
-    @InjectMocks
+    @Mock
+    private KeysetDao mockKeysetDao;
+
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+
     private ActivityProfileDao activityProfileDao;
 
     private static final String COMPOUND_NAME = "compoundA";
@@ -37,6 +49,7 @@ public class ActivityProfileDaoTest {
     @BeforeEach
     public void setUp() {
         MockitoAnnotations.openMocks(this);
+        activityProfileDao = new ActivityProfileDao(mockRepository, mockKeysetDao, mockJdbcTemplate, 2);
     }
 
     @Test
@@ -54,20 +67,113 @@ public class ActivityProfileDaoTest {
     @Test
     public void testGetActivityProfiles_compoundNamesAndDiscoverxes_happyPath() {
 
-        List<String> compoundNames = Arrays.asList("compoundA", "compoundB");
-        List<String> discoverxes = Arrays.asList("discoverxA", "discoverxB");
+        List<String> compoundNames = Arrays.asList("compoundA", "compoundA", "compoundB");
+        List<String> discoverxes = Arrays.asList("discoverxA", "discoverxB", "discoverxB");
 
-        when(mockRepository.findByCompoundNameAndKinaseDiscoverxGeneSymbol(anyString(), anyString()))
-            .thenAnswer(answer -> {
-                // This isn't fully fleshed out, but is sufficient for the test to complete.
-                ActivityProfile profile = new ActivityProfile();
-                profile.setId((long)answer.getArgument(0).hashCode());
-                profile.setCompoundName(answer.getArgument(0));
-                return Optional.of(profile);
-            });
+        // compoundB/discoverxA wasn't requested, but is returned by the bulk query
+        List<ActivityProfile> candidates = Arrays.asList(
+            createActivityProfile(1, "compoundA", "discoverxA"),
+            createActivityProfile(2, "compoundA", "discoverxB"),
+            createActivityProfile(3, "compoundB", "discoverxA"),
+            createActivityProfile(4, "compoundB", "discoverxB")
+        );
+        when(mockRepository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(any(), any()))
+            .thenReturn(candidates);
 
         Set<ActivityProfile> actualProfiles = activityProfileDao.getActivityProfiles(compoundNames, discoverxes);
-        Assertions.assertEquals(compoundNames.size(), actualProfiles.size());
+        Assertions.assertEquals(3, actualProfiles.size());
+        Assertions.assertFalse(actualProfiles.contains(candidates.get(2)));
+
+        // Distinct compound names and discoverxes are fetched in a single query
+        verify(mockRepository, times(1)).findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(
+            eq(Arrays.asList("compoundA", "compoundB")), eq(Arrays.asList("discoverxA", "discoverxB")));
+    }
+
+    @Test
+    public void testGetActivityProfiles_compoundNamesAndDiscoverxes_manyCompounds() {
+
+        int count = ActivityProfileDao.MAX_IN_CLAUSE_SIZE + 1;
+        List<String> compoundNames = new ArrayList<>();
+        List<String> discoverxes = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            compoundNames.add("compound" + i);
+            discoverxes.add("discoverxA");
+        }
+
+        when(mockRepository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(any(), any()))
+            .thenReturn(Collections.emptyList());
+
+        Assertions.assertTrue(activityProfileDao.getActivityProfiles(compoundNames, discoverxes).isEmpty());
+        verify(mockRepository, times(2)).findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(any(), any());
+    }
+
+    @Test
+    public void testGetActivityProfiles_compoundNamesAndDiscoverxes_noPairs() {
+        Assertions.assertTrue(activityProfileDao.getActivityProfiles(Collections.emptyList(),
+            Collections.emptyList()).isEmpty());
+        verify(mockRepository, never()).findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(any(), any());
+    }
+
+    @Test
+    public void testForEachActivityValue() throws SQLException {
+
+        ResultSet rs = mock(ResultSet.class);
+        doReturn("compoundA").when(rs).getString("compound_nm");
+        doReturn(42L).when(rs).getLong("kinase");
+        doReturn(0.5).when(rs).getDouble("percent_control");
+        doReturn(0.0).when(rs).getDouble("kd");
+        when(rs.wasNull()).thenReturn(false, true);
+
+        doAnswer(invocation -> {
+            invocation.<RowCallbackHandler>getArgument(1).processRow(rs);
+            return null;
+        }).when(mockJdbcTemplate).query(anyString(), any(RowCallbackHandler.class));
+
+        List<Object[]> values = new ArrayList<>();
+        activityProfileDao.forEachActivityValue((compoundName, kinaseId, percentControl, kd) ->
+            values.add(new Object[] { compoundName, kinaseId, percentControl, kd }));
+
+        Assertions.assertEquals(1, values.size());
+        Assertions.assertArrayEquals(new Object[] { "compoundA", 42L, 0.5, null }, values.get(0));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetActivityProfilesByCompound_happyPath() {
+
+        List<ActivityProfile> profiles = Arrays.asList(
+            createActivityProfile(1, "compoundB", "discoverxA"),
+            createActivityProfile(2, "compoundA", "discoverxA"),
+            createActivityProfile(3, "compoundB", "discoverxB")
+        );
+        doReturn(profiles).when(mockRepository).findAll(any(Specification.class), any(Sort.class));
+
+        List<String> compoundNames = Arrays.asList("compoundB", "compoundA", "compoundC");
+        Map<String, List<ActivityProfile>> actual = activityProfileDao.getActivityProfilesByCompound(compoundNames,
+            null, 0.5, null);
+
+        // Compounds are in the requested order, and compounds without profiles are included
+        Assertions.assertEquals(compoundNames, new ArrayList<>(actual.keySet()));
+        Assertions.assertEquals(Arrays.asList(profiles.get(0), profiles.get(2)), actual.get("compoundB"));
+        Assertions.assertEquals(Collections.singletonList(profiles.get(1)), actual.get("compoundA"));
+        Assertions.assertTrue(actual.get("compoundC").isEmpty());
+        verify(mockRepository, times(1)).findAll(any(Specification.class), any(Sort.class));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetActivityProfilesByCompound_manyCompounds() {
+
+        List<String> compoundNames = new ArrayList<>();
+        for (int i = 0; i <= ActivityProfileDao.MAX_IN_CLAUSE_SIZE; i++) {
+            compoundNames.add("compound" + i);
+        }
+        doReturn(Collections.emptyList()).when(mockRepository).findAll(any(Specification.class), any(Sort.class));
+
+        Map<String, List<ActivityProfile>> actual = activityProfileDao.getActivityProfilesByCompound(compoundNames,
+            null, null, null);
+        Assertions.assertEquals(compoundNames.size(), actual.size());
+        verify(mockRepository, times(2)).findAll(any(Specification.class), any(Sort.class));
     }
 
     @Test
@@ -87,8 +193,61 @@ public class ActivityProfileDaoTest {
 
     @Test
     public void testSave() {
-        activityProfileDao.save(null);
-        verify(mockRepository, times(1)).saveAll(any());
+
+        ActivityProfile existing1 = createActivityProfile(1, "compoundA", "discoverxA");
+        existing1.setPercentControl(0.5);
+        ActivityProfile existing2 = createActivityProfile(2, "compoundA", "discoverxB");
+        ActivityProfile existing3 = createActivityProfile(3, "compoundB", "discoverxA");
+        ActivityProfile newProfile = createActivityProfile(4, "compoundB", "discoverxB");
+        newProfile.setId(null);
+        newProfile.setKd(3.0);
+
+        activityProfileDao.save(Arrays.asList(existing1, existing2, existing3, newProfile));
+
+        // A batch size of 2 => 2 batches of updates, 1 batch of inserts
+        verify(mockJdbcTemplate, times(2)).batchUpdate(startsWith("update "), anyList(), any(int[].class));
+        verify(mockJdbcTemplate, times(1)).batchUpdate(startsWith("insert "),
+            argThat((List<Object[]> batch) -> batch.size() == 1 && Double.valueOf(3.0).equals(batch.get(0)[4])),
+            any(int[].class));
+        verify(mockRepository, never()).saveAll(any());
+    }
+
+    @Test
+    public void testGetActivityProfiles_keyset() {
+
+        ContinuationToken after = new ContinuationToken(20, Arrays.asList(1.0, 0.3, 42L));
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.asc("kd"), Sort.Order.asc("percentControl")));
+
+        KeysetSlice<ActivityProfile> expected = new KeysetSlice<>(Collections.emptyList(), 20, null);
+        doReturn(expected).when(mockKeysetDao).getSlice(eq(ActivityProfileDao.KEYSET), any(), eq(after), eq(20));
+
+        Assertions.assertSame(expected, activityProfileDao.getActivityProfiles(COMPOUND_NAME, null, null, after, pr));
+    }
+
+    @Test
+    public void testGetActivityProfiles_keyset_unsupportedSort() {
+
+        PageRequest pr = PageRequest.of(0, 20, Sort.by("compoundName"));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            activityProfileDao.getActivityProfiles(COMPOUND_NAME, null, null, null, pr));
+        verifyNoInteractions(mockKeysetDao);
+    }
+
+    @Test
+    public void testSave_empty() {
+        activityProfileDao.save(Collections.emptyList());
+        verifyNoInteractions(mockJdbcTemplate);
+    }
+
+    private static ActivityProfile createActivityProfile(long id, String compoundName, String discoverx) {
+        Kinase kinase = new Kinase();
+        kinase.setDiscoverxGeneSymbol(discoverx);
+        ActivityProfile profile = new ActivityProfile();
+        profile.setId(id);
+        profile.setCompoundName(compoundName);
+        profile.setKinase(kinase);
+        return profile;
     }
 
     private static void comparePages(Page<ActivityProfile> expectedPage, Page<ActivityProfile> actualPage) {
@@ -0,0 +1,129 @@
+package org.sgc.rak.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
+import org.sgc.rak.model.csv.KdCsvRecord;
+import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for the {@code BulkImportDao} class.  The staging and merging is done by PostgreSQL-specific SQL,
+ * so these tests check the SQL generated rather than running it.
+ */
+public class BulkImportDaoTest {
+
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+
+    @Mock
+    private PlatformTransactionManager mockTransactionManager;
+
+    private BulkImportDao dao;
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+        doAnswer(invocation -> new SimpleTransactionStatus()).when(mockTransactionManager).getTransaction(any());
+        dao = new BulkImportDao(mockJdbcTemplate, mockTransactionManager);
+
+        Map<String, Object> counts = new HashMap<>();
+        counts.put("total_count", 5L);
+        counts.put("new_count", 2L);
+        counts.put("unchanged_count", 1L);
+        doReturn(counts).when(mockJdbcTemplate).queryForMap(anyString());
+    }
+
+    private String getMergeSql(String target) {
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(mockJdbcTemplate, atLeastOnce()).update(captor.capture());
+
+        List<String> merges = captor.getAllValues().stream()
+            .filter(sql -> sql.contains("insert into " + target))
+            .collect(Collectors.toList());
+        Assertions.assertEquals(1, merges.size());
+        return merges.get(0);
+    }
+
+    private static int countOccurrences(String s, String substring) {
+        return s.split(substring, -1).length - 1;
+    }
+
+    @Test
+    public void testImportActivityProfiles_commit() {
+
+        BulkImportResult result = dao.importActivityProfiles(
+            Collections.singletonList(new ActivityProfileCsvRecord()).iterator(), true);
+        Assertions.assertEquals(2, result.getNewCount());
+        Assertions.assertEquals(1, result.getUnchangedCount());
+        Assertions.assertEquals(2, result.getModifiedCount());
+
+        // Only staged rows matching no existing profile are inserted
+        String mergeSql = getMergeSql("kinase_activity_profile");
+        Assertions.assertEquals(1, countOccurrences(mergeSql, "not exists"));
+        Assertions.assertTrue(mergeSql.contains("where not exists (select 1 from kinase_activity_profile p " +
+            "where p.compound_nm = s.compound_nm and p.kinase = s.kinase)"), mergeSql);
+        Assertions.assertTrue(mergeSql.contains("and not ((s.percent_control is null"), mergeSql);
+    }
+
+    @Test
+    public void testImportActivityProfiles_noCommit() {
+
+        dao.importActivityProfiles(Collections.singletonList(new ActivityProfileCsvRecord()).iterator(), false);
+
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(mockJdbcTemplate, atLeastOnce()).update(captor.capture());
+        Assertions.assertTrue(captor.getAllValues().stream().noneMatch(sql -> sql.contains("insert into")));
+    }
+
+    @Test
+    public void testImportKdValues_commit() {
+
+        dao.importKdValues(Collections.singletonList(new KdCsvRecord()).iterator(), true);
+
+        String mergeSql = getMergeSql("kinase_activity_profile");
+        Assertions.assertEquals(1, countOccurrences(mergeSql, "not exists"));
+    }
+
+    @Test
+    public void testImportNanoBretActivityProfiles_commit() {
+
+        dao.importNanoBretActivityProfiles(
+            Collections.singletonList(new NanoBretActivityProfileCsvRecord()).iterator(), true);
+
+        String mergeSql = getMergeSql("nanobret_activity_profile");
+        Assertions.assertEquals(1, countOccurrences(mergeSql, "not exists"));
+        Assertions.assertTrue(mergeSql.contains("where not exists (select 1 from nanobret_activity_profile p " +
+            "where p.compound_nm = s.compound_nm and p.kinase = s.kinase and p.run_date = s.run_date)"), mergeSql);
+    }
+
+    @Test
+    public void testImportActivityProfiles_unknownCompound() {
+
+        doReturn(Collections.singletonList("compoundA")).when(mockJdbcTemplate)
+            .queryForList(contains("from compound c"), eq(String.class));
+
+        BulkImportResult result = dao.importActivityProfiles(
+            Collections.singletonList(new ActivityProfileCsvRecord()).iterator(), true);
+        Assertions.assertEquals("compoundA", result.getUnknownCompoundName());
+        verify(mockJdbcTemplate, never()).update(anyString());
+    }
+}
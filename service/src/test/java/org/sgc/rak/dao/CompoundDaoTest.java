@@ -10,8 +10,11 @@ import static org.mockito.Mockito.*;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.model.CompoundCountPair;
+import org.sgc.rak.model.CompoundSearchCriteria;
 import org.sgc.rak.repositories.CompoundRepository;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.*;
 
@@ -21,7 +24,7 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 
 /**
  * Unit tests for the {@code CompoundDao} class.  This is really just testing
@@ -49,13 +52,28 @@ public class CompoundDaoTest {
         String expectedCompoundName = "compoundA";
 
         Compound expectedCompound = TestUtil.createCompound(expectedCompoundName);
-        Optional<Compound> optional = Optional.of(expectedCompound);
-        doReturn(optional).when(compoundRepository).findById(eq(expectedCompoundName));
+        doReturn(Collections.singletonList(expectedCompound)).when(compoundRepository)
+            .findByCompoundNameIgnoreCase(eq("COMPOUNDA"));
 
-        Compound compound = compoundDao.getCompound(expectedCompoundName);
+        Compound compound = compoundDao.getCompound("COMPOUNDA");
         Assertions.assertEquals(expectedCompoundName, compound.getCompoundName());
     }
 
+    @Test
+    public void testGetCompound_prefersExactMatch() {
+
+        doReturn(Arrays.asList(TestUtil.createCompound("COMPOUNDA"), TestUtil.createCompound("compoundA")))
+            .when(compoundRepository).findByCompoundNameIgnoreCase(eq("compoundA"));
+
+        Assertions.assertEquals("compoundA", compoundDao.getCompound("compoundA").getCompoundName());
+    }
+
+    @Test
+    public void testGetCompound_notFound() {
+        doReturn(Collections.emptyList()).when(compoundRepository).findByCompoundNameIgnoreCase(any());
+        Assertions.assertNull(compoundDao.getCompound("compoundA"));
+    }
+
     @Test
     public void testGetCompoundExists() {
 
@@ -97,6 +115,17 @@ public class CompoundDaoTest {
         compareLists(expectedList, actualList);
     }
 
+    @Test
+    public void testGetExistingCompoundNames() {
+
+        doReturn(Collections.singletonList("compoundA")).when(compoundRepository).findCompoundNamesIn(any());
+
+        Set<String> actual = compoundDao.getExistingCompoundNames(Arrays.asList("compoundA", "compoundB",
+            "compoundA"));
+        Assertions.assertEquals(Collections.singleton("compoundA"), actual);
+        verify(compoundRepository, times(1)).findCompoundNamesIn(any());
+    }
+
     @Test
     public void testGetCompoundsMissingActivityProfiles() {
 
@@ -146,6 +175,287 @@ public class CompoundDaoTest {
         }
     }
 
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_firstPage() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createNativeQuery(anyString());
+
+        // One more row than the page size means there's a next page
+        List<Object[]> rows = Arrays.asList(
+            new Object[] { "compoundA", 3 },
+            new Object[] { "compoundB", 4 },
+            new Object[] { "compoundC", 5 }
+        );
+        doReturn(rows).when(mockQuery).getResultList();
+
+        Pageable pageInfo = PageRequest.of(0, 2, Sort.by("compoundName"));
+        KeysetSlice<CompoundCountPair> slice = compoundDao.getCompoundsMissingActivityProfiles(null, null,
+            pageInfo);
+
+        Assertions.assertEquals(2, slice.getContent().size());
+        Assertions.assertEquals("compoundB", slice.getContent().get(1).getCompoundName());
+        Assertions.assertEquals(0, slice.getStart());
+        Assertions.assertEquals(2, slice.getNext().getStart());
+        Assertions.assertEquals(Collections.singletonList("compoundB"), slice.getNext().getKey());
+
+        verify(entityManager, times(1)).createNativeQuery(argThat((String sql) -> !sql.contains("compound_nm > ?")));
+        verify(mockQuery, times(1)).setParameter(eq(2), eq(3));
+        verify(mockQuery, never()).getSingleResult();
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_lastPage() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createNativeQuery(anyString());
+
+        List<Object[]> rows = Collections.singletonList(new Object[] { "compoundC", 5 });
+        doReturn(rows).when(mockQuery).getResultList();
+
+        ContinuationToken after = new ContinuationToken(2, Collections.singletonList("compoundB"));
+        Pageable pageInfo = PageRequest.of(0, 2, Sort.by("compoundName"));
+        KeysetSlice<CompoundCountPair> slice = compoundDao.getCompoundsMissingActivityProfiles("foo", after,
+            pageInfo);
+
+        Assertions.assertEquals(1, slice.getContent().size());
+        Assertions.assertEquals(2, slice.getStart());
+        Assertions.assertNull(slice.getNext());
+
+        verify(entityManager, times(1)).createNativeQuery(argThat((String sql) -> sql.contains("compound_nm > ?")));
+        verify(mockQuery, times(1)).setParameter(eq(2), eq("%foo%"));
+        verify(mockQuery, times(1)).setParameter(eq(3), eq("compoundB"));
+        verify(mockQuery, times(1)).setParameter(eq(4), eq(3));
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_unsupportedSort() {
+
+        Pageable pageInfo = PageRequest.of(0, 2, Sort.by("count"));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            compoundDao.getCompoundsMissingActivityProfiles(null, null, pageInfo));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_tokenDoesNotMatchSort() {
+
+        ContinuationToken after = new ContinuationToken(2, Arrays.asList(0.3, 42L));
+        Pageable pageInfo = PageRequest.of(0, 2, Sort.by("compoundName"));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            compoundDao.getCompoundsMissingActivityProfiles(null, after, pageInfo));
+        verifyNoInteractions(entityManager);
+    }
+
+    @Test
+    public void testGetCompoundsByKinaseAndActivity_partialPage() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+
+        List<Object[]> rows = Arrays.asList(
+            new Object[] { TestUtil.createCompound("compoundA"), 0.5 },
+            new Object[] { TestUtil.createCompound("compoundB"), 1.5 }
+        );
+        doReturn(rows).when(mockQuery).getResultList();
+
+        List<Long> kinaseIds = Arrays.asList(1L, 2L);
+        Pageable pageInfo = PageRequest.of(0, 20, Sort.by("compoundName").descending());
+        Page<CompoundActivityPair> actualPage = compoundDao.getCompoundsByKinaseAndActivity(kinaseIds, 2, pageInfo);
+
+        Assertions.assertEquals(2, actualPage.getNumberOfElements());
+        Assertions.assertEquals(2, actualPage.getTotalElements());
+        Assertions.assertEquals("compoundA", actualPage.getContent().get(0).getCompound().getCompoundName());
+        Assertions.assertEquals(0.5, actualPage.getContent().get(0).getBestValue());
+
+        // A single query, filtering by all kinase records for the entrez symbol; no count query was needed
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.contains("from ActivityProfile p") && jpql.contains("min(p.percentControl)") &&
+            jpql.endsWith("order by c.compoundName DESC")));
+        verify(mockQuery, times(1)).setParameter(eq("kinaseIds0"), eq(kinaseIds));
+        verify(mockQuery, times(1)).setParameter(eq("maxPercentControl"), eq(2d));
+        verify(mockQuery, times(1)).setMaxResults(eq(20));
+        verify(mockQuery, never()).getSingleResult();
+    }
+
+    @Test
+    public void testGetCompoundsByKinaseAndIc50_fullPageIsCounted() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+
+        List<Object[]> rows = Collections.singletonList(new Object[] { TestUtil.createCompound("compoundA"), 7d });
+        doReturn(rows).when(mockQuery).getResultList();
+        doReturn(12L).when(mockQuery).getSingleResult();
+
+        Pageable pageInfo = PageRequest.of(0, 1);
+        Page<CompoundActivityPair> actualPage = compoundDao.getCompoundsByKinaseAndIc50(
+            Collections.singletonList(1L), 10, pageInfo);
+
+        Assertions.assertEquals(1, actualPage.getNumberOfElements());
+        Assertions.assertEquals(12, actualPage.getTotalElements());
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.contains("from NanoBretActivityProfile p") && jpql.contains("min(p.ic50)")));
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) -> jpql.startsWith("select count(c)")));
+    }
+
+    @Test
+    public void testGetCompoundsByKinaseAndKd() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.emptyList()).when(mockQuery).getResultList();
+
+        Page<CompoundActivityPair> actualPage = compoundDao.getCompoundsByKinaseAndKd(
+            Collections.singletonList(1L), 10, PageRequest.of(0, 20));
+
+        Assertions.assertEquals(0, actualPage.getTotalElements());
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.contains("from ActivityProfile p") && jpql.contains("p.kd <= :maxKd")));
+    }
+
+    @Test
+    public void testSearchCompounds_allCriteria() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.singletonList(TestUtil.createCompound("compoundA"))).when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.setCompoundNamePart("SGC_1");
+        criteria.addKinase(Arrays.asList(1L, 2L));
+        criteria.addKinase(Collections.singletonList(3L));
+        criteria.setMaxPercentControl(10d);
+        criteria.setMaxKd(100d);
+
+        Page<CompoundActivityPair> actualPage = compoundDao.searchCompounds(criteria, PageRequest.of(0, 20));
+        Assertions.assertEquals(1, actualPage.getTotalElements());
+        Assertions.assertEquals("compoundA", actualPage.getContent().get(0).getCompound().getCompoundName());
+        Assertions.assertNull(actualPage.getContent().get(0).getBestValue());
+
+        // One exists clause per kinase and threshold, in a single query with no best value
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.startsWith("select c from Compound c where lower(c.compoundName) like :compoundNamePart") &&
+            jpql.contains("c.hidden = false") &&
+            jpql.split("exists \\(").length == 5 &&
+            jpql.contains("p.kinase.id in :kinaseIds1 and p.kd <= :maxKd")));
+        verify(mockQuery, times(1)).setParameter(eq("compoundNamePart"), eq("%sgc\\_1%"));
+        verify(mockQuery, times(1)).setParameter(eq("kinaseIds0"), eq(Arrays.asList(1L, 2L)));
+        verify(mockQuery, times(1)).setParameter(eq("kinaseIds1"), eq(Collections.singletonList(3L)));
+        verify(mockQuery, times(1)).setParameter(eq("maxPercentControl"), eq(10d));
+        verify(mockQuery, times(1)).setParameter(eq("maxKd"), eq(100d));
+    }
+
+    @Test
+    public void testSearchCompounds_kinaseWithoutThreshold() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.emptyList()).when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.addKinase(Collections.singletonList(1L));
+        criteria.setIncludeHidden(true);
+        compoundDao.searchCompounds(criteria, PageRequest.of(0, 20));
+
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.contains("from ActivityProfile p where p.compoundName = c.compoundName and p.kinase.id in " +
+                ":kinaseIds0) or exists (select p.id from NanoBretActivityProfile p") &&
+            !jpql.contains("hidden")));
+    }
+
+    @Test
+    public void testSearchCompounds_thresholdWithoutKinase() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.singletonList(new Object[] { TestUtil.createCompound("compoundA"), 3d }))
+            .when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.setMaxIc50(5d);
+        Page<CompoundActivityPair> actualPage = compoundDao.searchCompounds(criteria, PageRequest.of(0, 20));
+
+        Assertions.assertEquals(3d, actualPage.getContent().get(0).getBestValue());
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.startsWith("select c, (select min(p.ic50) from NanoBretActivityProfile p where " +
+                "p.compoundName = c.compoundName and p.ic50 <= :maxIc50)") && !jpql.contains("kinase")));
+    }
+
+    @Test
+    public void testSearchCompounds_noCriteria() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.emptyList()).when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.setIncludeHidden(true);
+        compoundDao.searchCompounds(criteria, PageRequest.of(0, 20));
+
+        verify(entityManager, times(1)).createQuery(eq("select c from Compound c order by c.compoundName"));
+    }
+
+    @Test
+    public void testSearchCompoundSlice_hasNext() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Arrays.asList(TestUtil.createCompound("compoundA"), TestUtil.createCompound("compoundB"),
+            TestUtil.createCompound("compoundC"))).when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.setCompoundNamePart("compound");
+        Slice<CompoundActivityPair> slice = compoundDao.searchCompoundSlice(criteria, PageRequest.of(1, 2));
+
+        Assertions.assertEquals(2, slice.getNumberOfElements());
+        Assertions.assertEquals("compoundB", slice.getContent().get(1).getCompound().getCompoundName());
+        Assertions.assertTrue(slice.hasNext());
+
+        // One extra row is fetched rather than counting
+        verify(mockQuery, times(1)).setFirstResult(eq(2));
+        verify(mockQuery, times(1)).setMaxResults(eq(3));
+        verify(entityManager, never()).createQuery(argThat((String jpql) -> jpql.startsWith("select count(c)")));
+    }
+
+    @Test
+    public void testSearchCompoundSlice_lastPage() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(Collections.singletonList(new Object[] { TestUtil.createCompound("compoundA"), 3d }))
+            .when(mockQuery).getResultList();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.addKinase(Collections.singletonList(1L));
+        criteria.setMaxKd(5d);
+        Slice<CompoundActivityPair> slice = compoundDao.searchCompoundSlice(criteria, PageRequest.of(0, 2));
+
+        Assertions.assertEquals(1, slice.getNumberOfElements());
+        Assertions.assertEquals(3d, slice.getContent().get(0).getBestValue());
+        Assertions.assertFalse(slice.hasNext());
+        verify(mockQuery, never()).getSingleResult();
+    }
+
+    @Test
+    public void testCountCompounds() {
+
+        Query mockQuery = Mockito.mock(Query.class);
+        doReturn(mockQuery).when(entityManager).createQuery(anyString());
+        doReturn(601L).when(mockQuery).getSingleResult();
+
+        CompoundSearchCriteria criteria = new CompoundSearchCriteria();
+        criteria.addKinase(Collections.singletonList(1L));
+        criteria.setMaxPercentControl(10d);
+
+        Assertions.assertEquals(601, compoundDao.countCompounds(criteria));
+        verify(entityManager, times(1)).createQuery(argThat((String jpql) ->
+            jpql.startsWith("select count(c) from Compound c where c.hidden = false and exists (") &&
+            !jpql.contains("order by")));
+        verify(mockQuery, times(1)).setParameter(eq("kinaseIds0"), eq(Collections.singletonList(1L)));
+        verify(mockQuery, times(1)).setParameter(eq("maxPercentControl"), eq(10d));
+    }
+
     @Test
     public void testGetHiddenCompounds() {
 
@@ -205,6 +515,30 @@ public class CompoundDaoTest {
         Assertions.assertEquals("order by compound_nm DESC, count ASC", CompoundDao.sortToOrderBy(sort));
     }
 
+    @Test
+    public void testSortToJpqlOrderBy_unsorted() {
+        Assertions.assertEquals("order by c.compoundName", CompoundDao.sortToJpqlOrderBy(Sort.unsorted(), "c"));
+    }
+
+    @Test
+    public void testSortToJpqlOrderBy_ignoreCase() {
+        Sort sort = Sort.by(Sort.Order.asc("chemotype").ignoreCase(), Sort.Order.desc("s10").ignoreCase());
+        Assertions.assertEquals("order by lower(c.chemotype) ASC, c.s10 DESC, c.compoundName",
+            CompoundDao.sortToJpqlOrderBy(sort, "c"));
+    }
+
+    @Test
+    public void testSortToJpqlOrderBy_compoundName() {
+        Sort sort = Sort.by(Sort.Order.desc("compoundName"));
+        Assertions.assertEquals("order by c.compoundName DESC", CompoundDao.sortToJpqlOrderBy(sort, "c"));
+    }
+
+    @Test
+    public void testSortToJpqlOrderBy_unknownProperty() {
+        Sort sort = Sort.by("compoundName; delete from compound");
+        Assertions.assertThrows(IllegalArgumentException.class, () -> CompoundDao.sortToJpqlOrderBy(sort, "c"));
+    }
+
     private static void compareLists(List<Compound> expectedList, List<Compound> actualList) {
         Assertions.assertEquals(expectedList.size(), actualList.size());
         for (int i = 0; i < expectedList.size(); i++) {
@@ -0,0 +1,180 @@
+package org.sgc.rak.dao;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.sgc.rak.core.Application;
+import org.sgc.rak.model.ActivityProfile;
+import org.sgc.rak.model.Audit;
+import org.sgc.rak.util.ContinuationToken;
+import org.sgc.rak.util.KeysetQuery;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.sgc.rak.util.QuerySpecifications.activityProfilesMatching;
+
+/**
+ * Unit tests for keyset paging.  The generated SQL is the interesting part, so we use an in-memory database and
+ * essentially integration-test it.  H2 sorts {@code null}s first, so this relies on application.yml telling
+ * Hibernate to sort them last, as PostgreSQL does for ascending sorts.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@ContextConfiguration(classes = Application.class)
+@Sql("keyset-dao-test-data.sql")
+public class KeysetDaoTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private KeysetDao keysetDao;
+
+    private static final KeysetQuery<Audit> AUDIT_KEYSET = new KeysetQuery<>(Audit.class)
+        .orderBy("createDate", Sort.Direction.DESC, false, Audit::getCreateDate)
+        .orderBy("id", Sort.Direction.DESC, false, Audit::getId);
+
+    @BeforeEach
+    public void setUp() {
+        keysetDao = new KeysetDao();
+        ReflectionTestUtils.setField(keysetDao, "entityManager", entityManager);
+    }
+
+    private static String describe(ActivityProfile profile) {
+        return profile.getCompoundName() + ':' + profile.getKinase().getDiscoverxGeneSymbol();
+    }
+
+    private static List<String> describeAll(List<ActivityProfile> profiles) {
+        return profiles.stream().map(KeysetDaoTest::describe).collect(Collectors.toList());
+    }
+
+    /**
+     * Pages through all rows, checking that each page starts where the previous one ended.
+     */
+    private <T> List<String> getAllPages(KeysetQuery<T> keyset, Specification<T> spec, int size,
+                                         Function<T, String> describer) {
+
+        List<String> rows = new ArrayList<>();
+        ContinuationToken after = null;
+
+        do {
+            // Round-trip the token as a caller would
+            after = after == null ? null : ContinuationToken.decode(after.encode());
+            KeysetSlice<T> slice = keysetDao.getSlice(keyset, spec, after, size);
+
+            Assertions.assertEquals(rows.size(), slice.getStart());
+            Assertions.assertTrue(slice.getContent().size() <= size);
+            slice.getContent().forEach(row -> rows.add(describer.apply(row)));
+            after = slice.getNext();
+        } while (after != null);
+
+        return rows;
+    }
+
+    @Test
+    public void testGetSlice_nullableKeys() {
+
+        List<String> expected = Arrays.asList(
+            "compoundA:kinaseB", // Kd 50
+            "compoundA:kinaseA", // Kd 100, percent control 0.3
+            "compoundB:kinaseB", // Kd 100, percent control 0.4, lower ID
+            "compoundB:kinaseC", // Kd 100, percent control 0.4
+            "compoundC:kinaseC", // Kd 100, percent control 0.5
+            "compoundC:kinaseA", // No Kd, percent control 0.1
+            "compoundA:kinaseC", // No Kd, percent control 0.2
+            "compoundB:kinaseA"  // Neither
+        );
+
+        for (int size = 1; size <= expected.size() + 1; size++) {
+            Assertions.assertEquals(expected, getAllPages(ActivityProfileDao.KEYSET, null, size,
+                KeysetDaoTest::describe));
+        }
+    }
+
+    @Test
+    public void testGetSlice_withSpecification() {
+
+        List<String> actual = getAllPages(ActivityProfileDao.KEYSET, activityProfilesMatching("compoundA", null,
+            null), 2, KeysetDaoTest::describe);
+        Assertions.assertEquals(Arrays.asList("compoundA:kinaseB", "compoundA:kinaseA", "compoundA:kinaseC"),
+            actual);
+    }
+
+    @Test
+    public void testGetSlice_descending() {
+
+        List<String> expected = Arrays.asList("gclooney:LOGOUT", "capplegate:UPDATE_COMPOUND", "gclooney:LOGIN",
+            "bpitt:LOGIN");
+
+        for (int size = 1; size <= expected.size(); size++) {
+            Assertions.assertEquals(expected, getAllPages(AUDIT_KEYSET, null, size,
+                audit -> audit.getUserName() + ':' + audit.getAction()));
+        }
+    }
+
+    @Test
+    public void testGetSlice_lastPage() {
+
+        KeysetSlice<ActivityProfile> slice = keysetDao.getSlice(ActivityProfileDao.KEYSET, null, null, 8);
+        Assertions.assertEquals(8, slice.getContent().size());
+        Assertions.assertNull(slice.getNext());
+    }
+
+    @Test
+    public void testGetSlice_byOffset() {
+
+        Specification<ActivityProfile> spec = activityProfilesMatching("compoundA", null, null);
+
+        Slice<ActivityProfile> slice = keysetDao.getSlice(ActivityProfileDao.KEYSET, spec,
+            PageRequest.of(0, 2, Sort.by("kinase.discoverxGeneSymbol")));
+        Assertions.assertEquals(Arrays.asList("compoundA:kinaseA", "compoundA:kinaseB"),
+            describeAll(slice.getContent()));
+        Assertions.assertTrue(slice.hasNext());
+
+        slice = keysetDao.getSlice(ActivityProfileDao.KEYSET, spec,
+            PageRequest.of(1, 2, Sort.by("kinase.discoverxGeneSymbol")));
+        Assertions.assertEquals(Collections.singletonList("compoundA:kinaseC"), describeAll(slice.getContent()));
+        Assertions.assertFalse(slice.hasNext());
+    }
+
+    @Test
+    public void testGetSlice_unpaged() {
+
+        Slice<ActivityProfile> slice = keysetDao.getSlice(ActivityProfileDao.KEYSET, null, Pageable.unpaged());
+        Assertions.assertEquals(8, slice.getNumberOfElements());
+        Assertions.assertFalse(slice.hasNext());
+    }
+
+    @Test
+    public void testGetSlice_tokenDoesNotMatchOrder() {
+
+        ContinuationToken after = new ContinuationToken(2, Collections.singletonList(5L));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            keysetDao.getSlice(ActivityProfileDao.KEYSET, null, after, 2));
+    }
+
+    @Test
+    public void testGetSlice_tokenHasWrongTypes() {
+
+        ContinuationToken after = new ContinuationToken(2, Arrays.asList("foo", 0.3, 5L));
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            keysetDao.getSlice(ActivityProfileDao.KEYSET, null, after, 2));
+    }
+}
@@ -60,6 +60,20 @@ public class KinaseDaoTest {
         TestUtil.assertKinasesEqual(expected, actual);
     }
 
+    @Test
+    public void testGetKinases_all() {
+
+        List<Kinase> expected = Arrays.asList(
+            TestUtil.createKinase(42, "discoverxA", "entrezA"),
+            TestUtil.createKinase(43, "discoverxB", "entrezB")
+        );
+        doReturn(expected).when(kinaseRepository).findAll();
+
+        List<Kinase> actual = kinaseDao.getKinases();
+
+        TestUtil.assertKinasesEqual(expected, actual);
+    }
+
     @Test
     public void testGetKinases_pageable() {
 
@@ -3,16 +3,18 @@ package org.sgc.rak.dao;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.model.Kinase;
 import org.sgc.rak.model.NanoBretActivityProfile;
+import org.sgc.rak.model.NanoBretActivityProfileModifier;
 import org.sgc.rak.repositories.NanoBretActivityProfileRepository;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.sql.Timestamp;
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 public class NanoBretActivityProfileDaoTest {
@@ -20,13 +22,16 @@ public class NanoBretActivityProfileDaoTest {
     @Mock
     private NanoBretActivityProfileRepository mockRepository;
 
-    @InjectMocks
+    @Mock
+    private JdbcTemplate mockJdbcTemplate;
+
     private NanoBretActivityProfileDao dao;
 
     @BeforeEach
     public void setUp() {
 
         MockitoAnnotations.openMocks(this);
+        dao = new NanoBretActivityProfileDao(mockRepository, mockJdbcTemplate, 2);
     }
 
     @Test
@@ -60,23 +65,56 @@ public class NanoBretActivityProfileDaoTest {
         List<String> discoverxes = Arrays.asList("discoverxA", "discoverxB");
         List<Date> dates = Arrays.asList(new Date(0), new Date(1000));
 
-        when(mockRepository.findByCompoundNameAndKinaseDiscoverxGeneSymbolAndDate(anyString(), anyString(), any()))
-            .thenAnswer(answer -> {
-                // This isn't fully fleshed out, but is sufficient for the test to complete.
-                NanoBretActivityProfile profile = new NanoBretActivityProfile();
-                profile.setId((long)answer.getArgument(0).hashCode());
-                profile.setCompoundName(answer.getArgument(0));
-                return Optional.of(profile);
-            });
+        // JPA returns Timestamps, which should still match the requested Dates.  compoundA/discoverxA on
+        // the second date wasn't requested, but is returned by the bulk query
+        List<NanoBretActivityProfile> candidates = Arrays.asList(
+            createProfile(1, "compoundA", "discoverxA", new Timestamp(0)),
+            createProfile(2, "compoundA", "discoverxA", new Timestamp(1000)),
+            createProfile(3, "compoundB", "discoverxB", new Timestamp(1000))
+        );
+        when(mockRepository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolInAndDateIn(any(), any(), any()))
+            .thenReturn(candidates);
 
         Set<NanoBretActivityProfile> actualProfiles = dao.getNanoBretActivityProfiles(compoundNames, discoverxes,
             dates);
-        Assertions.assertEquals(compoundNames.size(), actualProfiles.size());
+        Assertions.assertEquals(2, actualProfiles.size());
+        Assertions.assertFalse(actualProfiles.contains(candidates.get(1)));
+        verify(mockRepository, times(1))
+            .findByCompoundNameInAndKinaseDiscoverxGeneSymbolInAndDateIn(any(), any(), any());
+    }
+
+    private static NanoBretActivityProfile createProfile(long id, String compoundName, String discoverx, Date date) {
+        Kinase kinase = new Kinase();
+        kinase.setDiscoverxGeneSymbol(discoverx);
+        NanoBretActivityProfile profile = new NanoBretActivityProfile();
+        profile.setId(id);
+        profile.setCompoundName(compoundName);
+        profile.setKinase(kinase);
+        profile.setDate(date);
+        return profile;
     }
 
     @Test
     public void testSave() {
-        dao.save(null);
-        verify(mockRepository, times(1)).saveAll(any());
+
+        NanoBretActivityProfile existing = createProfile(1, "compoundA", "discoverxA", new Date(0));
+        NanoBretActivityProfile new1 = createProfile(2, "compoundB", "discoverxA", new Date(0));
+        new1.setId(null);
+        new1.setModifier(NanoBretActivityProfileModifier.EQUAL_TO);
+        NanoBretActivityProfile new2 = createProfile(3, "compoundB", "discoverxB", new Date(0));
+        new2.setId(null);
+        NanoBretActivityProfile new3 = createProfile(4, "compoundC", "discoverxB", new Date(0));
+        new3.setId(null);
+
+        dao.save(Arrays.asList(existing, new1, new2, new3));
+
+        // Existing profiles aren't updatable.  A batch size of 2 => 2 batches of inserts
+        verify(mockJdbcTemplate, times(1)).batchUpdate(startsWith("insert "),
+            argThat((List<Object[]> batch) -> batch.size() == 2 && "EQUAL_TO".equals(batch.get(0)[3]) &&
+                batch.get(0)[9] instanceof Timestamp),
+            any(int[].class));
+        verify(mockJdbcTemplate, times(1)).batchUpdate(startsWith("insert "),
+            argThat((List<Object[]> batch) -> batch.size() == 1), any(int[].class));
+        verify(mockRepository, never()).saveAll(any());
     }
 }
@@ -0,0 +1,90 @@
+package org.sgc.rak.repositories;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.sgc.rak.core.Application;
+import org.sgc.rak.model.ActivityProfile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import javax.persistence.EntityManager;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.sgc.rak.util.QuerySpecifications.activityProfilesForCompounds;
+import static org.sgc.rak.util.QuerySpecifications.activityProfilesMatching;
+
+/**
+ * Verifies that activity profile queries load their kinases without a separate select per kinase.  Like
+ * {@code QuerySpecificationsTest}, this runs against an in-memory database.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@ContextConfiguration(classes = Application.class)
+@Sql("/org/sgc/rak/util/query-specifications-test-data.sql")
+public class ActivityProfileRepositoryTest {
+
+    @Autowired
+    private ActivityProfileRepository repository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        entityManager.clear();
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    private static void assertKinasesLoaded(List<ActivityProfile> profiles) {
+        Assertions.assertEquals(3, profiles.size());
+        for (ActivityProfile profile : profiles) {
+            Assertions.assertNotNull(profile.getKinase().getDiscoverxGeneSymbol());
+        }
+    }
+
+    @Test
+    public void testFindAll_specificationAndPageable() {
+
+        Page<ActivityProfile> page = repository.findAll(activityProfilesMatching(null, null, null),
+            PageRequest.of(0, 2, Sort.by("kd", "percentControl")));
+        Assertions.assertEquals(3, page.getTotalElements());
+        Assertions.assertEquals(2, page.getNumberOfElements());
+
+        // One query for the page, one to count
+        Assertions.assertEquals(2, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindAll_specificationAndSort() {
+
+        List<ActivityProfile> profiles = repository.findAll(activityProfilesForCompounds(
+            Arrays.asList("compoundA", "compoundB", "compoundC"), null, null, null), Sort.by("kd"));
+
+        assertKinasesLoaded(profiles);
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFindByCompoundNameInAndKinaseDiscoverxGeneSymbolIn() {
+
+        List<ActivityProfile> profiles = repository.findByCompoundNameInAndKinaseDiscoverxGeneSymbolIn(
+            Arrays.asList("compoundA", "compoundB", "compoundC"), Arrays.asList("kinaseA", "kinaseB", "kinaseC"));
+
+        assertKinasesLoaded(profiles);
+        Assertions.assertEquals(1, statistics.getPrepareStatementCount());
+    }
+}
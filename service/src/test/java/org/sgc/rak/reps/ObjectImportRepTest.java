@@ -37,6 +37,27 @@ public class ObjectImportRepTest {
         Assertions.assertEquals(status.getFieldName(), actualStatus.getFieldName());
     }
 
+    @Test
+    public void testGetSetModifiedCount() {
+        Assertions.assertEquals(0, importRep.getModifiedCount());
+        importRep.setModifiedCount(3);
+        Assertions.assertEquals(3, importRep.getModifiedCount());
+    }
+
+    @Test
+    public void testGetSetNewCount() {
+        Assertions.assertEquals(0, importRep.getNewCount());
+        importRep.setNewCount(4);
+        Assertions.assertEquals(4, importRep.getNewCount());
+    }
+
+    @Test
+    public void testGetSetUnchangedCount() {
+        Assertions.assertEquals(0, importRep.getUnchangedCount());
+        importRep.setUnchangedCount(5);
+        Assertions.assertEquals(5, importRep.getUnchangedCount());
+    }
+
     @Test
     public void testFieldStatus_getSetNewValue() {
         ObjectImportRep.FieldStatus status = new ObjectImportRep.FieldStatus();
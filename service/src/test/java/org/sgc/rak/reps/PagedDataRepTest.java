@@ -42,6 +42,22 @@ public class PagedDataRepTest {
         Assertions.assertEquals("five", rep.getData().get(2));
     }
 
+    @Test
+    public void testGetSetHasNext() {
+        Assertions.assertNull(rep.getHasNext());
+        rep.setHasNext(true);
+        Assertions.assertTrue(rep.getHasNext());
+    }
+
+    @Test
+    public void testGetSetNext() {
+        Assertions.assertNull(rep.getNext());
+        rep.setNext("token");
+        Assertions.assertEquals("token", rep.getNext());
+        Assertions.assertEquals("next", new PagedDataRep<>(rep.getData(), 0, PagedDataRep.UNKNOWN_TOTAL, "next")
+            .getNext());
+    }
+
     @Test
     public void testGetSetStart() {
         Assertions.assertEquals(10, rep.getStart());
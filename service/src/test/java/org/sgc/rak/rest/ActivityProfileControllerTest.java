@@ -8,15 +8,21 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.ActivityProfile;
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.NetworkRep;
 import org.sgc.rak.services.ActivityProfileService;
 import org.sgc.rak.services.KinaseService;
+import org.sgc.rak.services.NetworkService;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
@@ -26,12 +32,18 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.util.NestedServletException;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class ActivityProfileControllerTest {
 
@@ -41,6 +53,9 @@ public class ActivityProfileControllerTest {
     @Mock
     private KinaseService mockKinaseService;
 
+    @Mock
+    private NetworkService mockNetworkService;
+
     @Mock
     private Messages messages;
 
@@ -148,6 +163,101 @@ public class ActivityProfileControllerTest {
         }
     }
 
+    @Test
+    public void testGetActivityProfiles_cachedTotal() throws Exception {
+
+        PageImpl<ActivityProfile> expectedPage = new PageImpl<>(Collections.singletonList(
+            TestUtil.createActivityProfile(33L)), PageRequest.of(1, 20), 50);
+
+        doReturn(expectedPage).when(mockActivityProfileService)
+            .getActivityProfilesWithCachedTotal(any(), any(), any(), any(Pageable.class));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles")
+            .param("total", "cached")
+            .param("page", "1")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.start", is(20)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.total", is(50)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext").doesNotExist());
+
+        verify(mockActivityProfileService, never()).getActivityProfiles(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testGetActivityProfiles_noTotal() throws Exception {
+
+        SliceImpl<ActivityProfile> expectedSlice = new SliceImpl<>(Collections.singletonList(
+            TestUtil.createActivityProfile(33L)), PageRequest.of(0, 20), true);
+
+        doReturn(expectedSlice).when(mockActivityProfileService)
+            .getActivityProfileSlice(any(), any(), any(), any(Pageable.class));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles")
+            .param("total", "none")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.start", is(0)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.total", is(-1)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.hasNext", is(true)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.data[0].id", is(33)));
+
+        verify(mockActivityProfileService, never()).getActivityProfiles(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testGetActivityProfiles_invalidTotal() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles")
+                    .param("total", "approximate")
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw (Exception) e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void testGetActivityProfiles_keyset() throws Exception {
+
+        ContinuationToken after = new ContinuationToken(20, Arrays.asList(1.0, 0.3, 32L));
+        ContinuationToken next = new ContinuationToken(21, Arrays.asList(1.0, 0.4, 33L));
+        KeysetSlice<ActivityProfile> slice = new KeysetSlice<>(Collections.singletonList(
+            TestUtil.createActivityProfile(33L)), 20, next);
+
+        doReturn(slice).when(mockActivityProfileService)
+            .getActivityProfiles(eq(COMPOUND_NAME), any(), any(), any(ContinuationToken.class), any(Pageable.class));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles")
+            .param("compound", COMPOUND_NAME)
+            .param("after", after.encode())
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.start", is(20)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.count", is(1)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.total", is(-1)))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.next", is(next.encode())))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.data[0].id", is(33)));
+    }
+
+    @Test
+    public void testGetActivityProfiles_keyset_invalidToken() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles")
+                    .param("after", "not a token!")
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw (Exception) e.getCause();
+            }
+        });
+    }
+
     @Test
     public void testGetActivityProfiles_happyPath_compoundOnly() throws Exception {
 
@@ -237,4 +347,139 @@ public class ActivityProfileControllerTest {
             throw (Exception)e.getCause();
         }
     }
+
+    @Test
+    public void testGetActivityProfilesByCompound_happyPath() throws Exception {
+
+        Kinase kinase = TestUtil.createKinase(42L, KINASE_DISCOVERX, KINASE_ENTREZ);
+        doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
+
+        Map<String, List<ActivityProfile>> profiles = new LinkedHashMap<>();
+        profiles.put(COMPOUND_NAME, Collections.singletonList(TestUtil.createActivityProfile(33L)));
+        profiles.put("compoundB", Collections.emptyList());
+
+        List<String> compoundNames = Arrays.asList(COMPOUND_NAME, "compoundB");
+        doReturn(profiles).when(mockActivityProfileService).getActivityProfilesByCompound(eq(compoundNames),
+            eq(Collections.singletonList(42L)), eq(1.0), eq(10.0));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/batch")
+            .param("compound", COMPOUND_NAME, "", "compoundB", COMPOUND_NAME)
+            .param("kinase", KINASE_ENTREZ)
+            .param("activity", "1")
+            .param("kd", "10")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.compoundA[0].id", is(33)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.compoundB", hasSize(0)));
+    }
+
+    @Test
+    public void testGetActivityProfilesByCompound_activityOutOfRange() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/batch")
+                    .param("compound", COMPOUND_NAME)
+                    .param("activity", "101")
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void testGetActivityProfilesByCompound_tooManyCompounds() {
+
+        String[] compoundNames = new String[201];
+        for (int i = 0; i < compoundNames.length; i++) {
+            compoundNames[i] = "compound" + i;
+        }
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/batch")
+                    .param("compound", compoundNames)
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void testGetNetwork_compounds() throws Exception {
+
+        NetworkRep network = new NetworkRep();
+        network.getCompounds().add(COMPOUND_NAME);
+        network.getKinases().add(TestUtil.createKinase(42L, KINASE_DISCOVERX, KINASE_ENTREZ));
+        network.getEdges().add(new NetworkRep.Edge(0, 0, 1.0, null));
+        doReturn(network).when(mockNetworkService).getNetwork(eq(Collections.singletonList(COMPOUND_NAME)),
+            isNull(), eq(5.0), isNull(), eq(false));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/network")
+            .param("compound", COMPOUND_NAME, " ", COMPOUND_NAME)
+            .param("activity", "5")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.compounds[0]", is(COMPOUND_NAME)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.kinases[0].entrezGeneSymbol", is(KINASE_ENTREZ)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.edges[0].compound", is(0)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.edges[0].percentControl", is(1.0)))
+            .andExpect(MockMvcResultMatchers.jsonPath("$.edges[0].kd").doesNotExist());
+    }
+
+    @Test
+    public void testGetNetwork_kinases() throws Exception {
+
+        doReturn(Arrays.asList(TestUtil.createKinase(42L, KINASE_DISCOVERX, KINASE_ENTREZ),
+            TestUtil.createKinase(43L, "mutant", KINASE_ENTREZ))).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
+        doReturn(new NetworkRep()).when(mockNetworkService).getNetwork(isNull(), eq(Arrays.asList(42L, 43L)),
+            isNull(), eq(100.0), eq(false));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/network")
+            .param("kinase", KINASE_ENTREZ)
+            .param("kd", "100")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+            .andExpect(MockMvcResultMatchers.jsonPath("$.edges", hasSize(0)));
+    }
+
+    @Test
+    public void testGetNetwork_noCompoundsOrKinases() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/network")
+                    .param("compound", "")
+                    .param("activity", "5")
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void testGetNetwork_tooManyKinases() {
+
+        String[] entrezes = new String[11];
+        for (int i = 0; i < entrezes.length; i++) {
+            entrezes[i] = "kinase" + i;
+        }
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/api/activityProfiles/network")
+                    .param("kinase", entrezes)
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException e) {
+                throw e.getCause();
+            }
+        });
+    }
 }
@@ -9,12 +9,14 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Audit;
 import org.sgc.rak.model.AuditAction;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.AuditService;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -29,7 +31,9 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.util.NestedServletException;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -96,6 +100,47 @@ public class AuditControllerTest {
         }
     }
 
+    @Test
+    public void testGetAudits_keyset() throws Exception {
+
+        List<Audit> audits = Collections.singletonList(TestUtil.createAudit("gclooney", AuditAction.LOGIN, true));
+        ContinuationToken after = new ContinuationToken(20, Arrays.asList(new Date(1000), 5L));
+        ContinuationToken next = new ContinuationToken(21, Arrays.asList(new Date(500), 4L));
+        doReturn(new KeysetSlice<>(audits, 20, next)).when(mockService).getAudits(
+            argThat((ContinuationToken token) -> token.getStart() == 20 && token.getKey().size() == 2),
+            any(Pageable.class), eq("gcl"), any(), any(), any(), any(), any());
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/audits")
+            .param("user", "gcl")
+            .param("after", after.encode())
+            .param("size", "1")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk())
+        .andExpect(MockMvcResultMatchers.jsonPath("$.start").value(20))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.count").value(1))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.total").value(PagedDataRep.UNKNOWN_TOTAL))
+        .andExpect(MockMvcResultMatchers.jsonPath("$.next").value(next.encode()));
+
+        verify(mockService, never()).getAudits(any(Pageable.class), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetAudits_keyset_invalidToken() {
+
+        doReturn("error").when(mockMessages).get(eq("error.invalidContinuationToken"), any());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/audits")
+                    .param("after", "garbage!")
+                    .accept(MediaType.APPLICATION_JSON)
+                );
+            } catch (NestedServletException nse) {
+                throw nse.getCause();
+            }
+        });
+    }
+
     @Test
     public void testGetAudits_error_invalidDateParameter() {
 
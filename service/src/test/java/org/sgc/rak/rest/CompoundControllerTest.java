@@ -12,6 +12,7 @@ import org.sgc.rak.exceptions.InternalServerErrorException;
 import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.AuditService;
 import org.sgc.rak.services.CompoundService;
@@ -20,15 +21,20 @@ import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
 import org.springframework.mock.web.MockHttpServletResponse;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 public class CompoundControllerTest {
 
@@ -99,11 +105,12 @@ public class CompoundControllerTest {
         doReturn(expectedPage).when(mockCompoundService).getCompounds(any(), any(Pageable.class),
             anyBoolean());
 
-        PagedDataRep<Compound> compounds = controller.getCompounds(null, null, null, null, null, pr);
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(null, null, null, null, null, "exact", pr);
         Assertions.assertEquals(0, compounds.getStart());
         Assertions.assertEquals(1, compounds.getCount());
         Assertions.assertEquals(1, compounds.getTotal());
-        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompoundName());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
     }
 
     @Test
@@ -117,11 +124,12 @@ public class CompoundControllerTest {
         PageImpl<Compound> expectedPage = new PageImpl<>(expectedResults, pr, 21);
         doReturn(expectedPage).when(mockCompoundService).getCompounds(any(), any(Pageable.class), anyBoolean());
 
-        PagedDataRep<Compound> compounds = controller.getCompounds(null, null, null, null, null, pr);
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(null, null, null, null, null, "exact", pr);
         Assertions.assertEquals(20, compounds.getStart());
         Assertions.assertEquals(1, compounds.getCount());
         Assertions.assertEquals(21, compounds.getTotal());
-        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompoundName());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
     }
 
     @Test
@@ -136,11 +144,12 @@ public class CompoundControllerTest {
         doReturn(expectedPage).when(mockCompoundService).getCompounds(
             eq(COMPOUND_NAME), any(Pageable.class), anyBoolean());
 
-        PagedDataRep<Compound> compounds = controller.getCompounds(COMPOUND_NAME, null, null, null, null, pr);
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(COMPOUND_NAME, null, null, null, null, "exact", pr);
         Assertions.assertEquals(0, compounds.getStart());
         Assertions.assertEquals(1, compounds.getCount());
         Assertions.assertEquals(1, compounds.getTotal());
-        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompoundName());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
     }
 
     @Test
@@ -148,18 +157,21 @@ public class CompoundControllerTest {
 
         PageRequest pr = PageRequest.of(0, 20);
 
-        Compound expectedCompound = TestUtil.createCompound(COMPOUND_NAME);
-        List<Compound> expectedResults = Collections.singletonList(expectedCompound);
+        CompoundActivityPair expectedCompound =
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 0.5);
+        List<CompoundActivityPair> expectedResults = Collections.singletonList(expectedCompound);
 
-        PageImpl<Compound> expectedPage = new PageImpl<>(expectedResults, pr, 1);
+        PageImpl<CompoundActivityPair> expectedPage = new PageImpl<>(expectedResults, pr, 1);
         doReturn(expectedPage).when(mockCompoundService).getCompoundsByKinaseAndActivity(eq("kinase"), anyDouble(),
             any(Pageable.class));
 
-        PagedDataRep<Compound> compounds = controller.getCompounds(null, "kinase", 0.8, null, null, pr);
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(null, "kinase", 0.8, null, null, "exact", pr);
         Assertions.assertEquals(0, compounds.getStart());
         Assertions.assertEquals(1, compounds.getCount());
         Assertions.assertEquals(1, compounds.getTotal());
-        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompoundName());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
+        Assertions.assertEquals(0.5, compounds.getData().get(0).getBestValue());
     }
 
     @Test
@@ -167,18 +179,138 @@ public class CompoundControllerTest {
 
         PageRequest pr = PageRequest.of(0, 20);
 
-        Compound expectedCompound = TestUtil.createCompound(COMPOUND_NAME);
-        List<Compound> expectedResults = Collections.singletonList(expectedCompound);
+        CompoundActivityPair expectedCompound =
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 0.5);
+        List<CompoundActivityPair> expectedResults = Collections.singletonList(expectedCompound);
 
-        PageImpl<Compound> expectedPage = new PageImpl<>(expectedResults, pr, 1);
+        PageImpl<CompoundActivityPair> expectedPage = new PageImpl<>(expectedResults, pr, 1);
         doReturn(expectedPage).when(mockCompoundService).getCompoundsByKinaseAndKd(eq("kinase"), anyDouble(),
             any(Pageable.class));
 
-        PagedDataRep<Compound> compounds = controller.getCompounds(null, "kinase", null, 42d, null, pr);
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(null, "kinase", null, 42d, null, "exact", pr);
         Assertions.assertEquals(0, compounds.getStart());
         Assertions.assertEquals(1, compounds.getCount());
         Assertions.assertEquals(1, compounds.getTotal());
-        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompoundName());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
+    }
+
+    @Test
+    public void testSearchCompounds() {
+
+        PageRequest pr = PageRequest.of(1, 20);
+
+        List<CompoundActivityPair> expectedResults = Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), null));
+        PageImpl<CompoundActivityPair> expectedPage = new PageImpl<>(expectedResults, pr, 21);
+        doReturn(expectedPage).when(mockCompoundService).searchCompounds(eq("comp"),
+            eq(Arrays.asList("kinaseA", "kinaseB")), eq(10d), eq(100d), isNull(), eq(false), any(Pageable.class));
+
+        PagedDataRep<CompoundActivityPair> compounds = controller.searchCompounds(" comp ",
+            Arrays.asList("kinaseA", "", "kinaseB", "kinaseA"), 10d, 100d, null, "exact", pr);
+        Assertions.assertEquals(20, compounds.getStart());
+        Assertions.assertEquals(1, compounds.getCount());
+        Assertions.assertEquals(21, compounds.getTotal());
+        Assertions.assertEquals(COMPOUND_NAME, compounds.getData().get(0).getCompound().getCompoundName());
+    }
+
+    @Test
+    public void testSearchCompounds_tooManyKinases() {
+
+        List<String> kinases = new ArrayList<>();
+        for (int i = 0; i < 11; i++) {
+            kinases.add("kinase" + i);
+        }
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            controller.searchCompounds(null, kinases, 10d, null, null, "exact", PageRequest.of(0, 20));
+        });
+    }
+
+    @Test
+    public void testGetCompounds_cachedTotal_nonNullKinaseAndActivity() {
+
+        PageRequest pr = PageRequest.of(1, 20);
+
+        List<CompoundActivityPair> expectedResults = Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 0.5));
+        PageImpl<CompoundActivityPair> expectedPage = new PageImpl<>(expectedResults, pr, 21);
+        doReturn(expectedPage).when(mockCompoundService).searchCompoundsWithCachedTotal(isNull(),
+            eq(Collections.singletonList("kinase")), eq(0.8), isNull(), isNull(), eq(true), any(Pageable.class));
+
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(null, "kinase", 0.8, null, null, "cached", pr);
+        Assertions.assertEquals(20, compounds.getStart());
+        Assertions.assertEquals(1, compounds.getCount());
+        Assertions.assertEquals(21, compounds.getTotal());
+        Assertions.assertNull(compounds.getHasNext());
+        verify(mockCompoundService, never()).getCompoundsByKinaseAndActivity(any(), anyDouble(), any());
+    }
+
+    @Test
+    public void testGetCompounds_noTotal_nonNullCompound() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+
+        List<CompoundActivityPair> expectedResults = Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), null));
+        SliceImpl<CompoundActivityPair> expectedSlice = new SliceImpl<>(expectedResults, pr, true);
+        doReturn(expectedSlice).when(mockCompoundService).searchCompoundSlice(eq(COMPOUND_NAME),
+            eq(Collections.emptyList()), isNull(), isNull(), isNull(), eq(false), any(Pageable.class));
+
+        PagedDataRep<CompoundActivityPair> compounds =
+            controller.getCompounds(COMPOUND_NAME, null, null, null, null, "none", pr);
+        Assertions.assertEquals(0, compounds.getStart());
+        Assertions.assertEquals(1, compounds.getCount());
+        Assertions.assertEquals(PagedDataRep.UNKNOWN_TOTAL, compounds.getTotal());
+        Assertions.assertTrue(compounds.getHasNext());
+        verify(mockCompoundService, never()).getCompounds(any(), any(Pageable.class), anyBoolean());
+    }
+
+    @Test
+    public void testGetCompounds_invalidTotal() {
+        Assertions.assertThrows(BadRequestException.class, () ->
+            controller.getCompounds(null, null, null, null, null, "approximate", PageRequest.of(0, 20)));
+    }
+
+    @Test
+    public void testSearchCompounds_noTotal() {
+
+        PageRequest pr = PageRequest.of(2, 20);
+
+        SliceImpl<CompoundActivityPair> expectedSlice = new SliceImpl<>(Collections.emptyList(), pr, false);
+        doReturn(expectedSlice).when(mockCompoundService).searchCompoundSlice(isNull(),
+            eq(Collections.singletonList("kinaseA")), eq(10d), isNull(), isNull(), eq(false), any(Pageable.class));
+
+        PagedDataRep<CompoundActivityPair> compounds = controller.searchCompounds(null,
+            Collections.singletonList("kinaseA"), 10d, null, null, "none", pr);
+        Assertions.assertEquals(40, compounds.getStart());
+        Assertions.assertEquals(0, compounds.getCount());
+        Assertions.assertEquals(PagedDataRep.UNKNOWN_TOTAL, compounds.getTotal());
+        Assertions.assertFalse(compounds.getHasNext());
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions_happyPath() {
+
+        List<String> expected = Collections.singletonList(COMPOUND_NAME);
+        doReturn(expected).when(mockCompoundService).getCompoundNameSuggestions(eq("comp"), eq(10), eq(false));
+
+        Assertions.assertEquals(expected, controller.getCompoundNameSuggestions(" comp ", 10));
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions_limitCapped() {
+
+        List<String> expected = Collections.singletonList(COMPOUND_NAME);
+        doReturn(expected).when(mockCompoundService).getCompoundNameSuggestions(eq("comp"), eq(50), eq(false));
+
+        Assertions.assertEquals(expected, controller.getCompoundNameSuggestions("comp", 1000));
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions_blank() {
+        Assertions.assertTrue(controller.getCompoundNameSuggestions("  ", 10).isEmpty());
     }
 
     @Test
@@ -269,4 +401,19 @@ public class CompoundControllerTest {
             controller.updateCompound(compoundName, compound);
         });
     }
+
+    @Test
+    public void testUpdateCompound_error_compoundNameDiffersInCase() {
+
+        String compoundName = "compoundA";
+        Compound compound = TestUtil.createCompound(compoundName);
+
+        // The lookup ignores case, but the compound found isn't the one being updated
+        doReturn(TestUtil.createCompound("COMPOUNDA")).when(mockCompoundService).getCompound(eq(compoundName));
+
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            controller.updateCompound(compoundName, compound);
+        });
+        verify(mockCompoundService, never()).updateCompound(any());
+    }
 }
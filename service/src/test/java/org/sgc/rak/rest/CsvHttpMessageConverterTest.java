@@ -5,6 +5,7 @@ import org.apache.commons.lang3.reflect.TypeUtils;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.reps.PagedDataRep;
 import org.springframework.mock.http.MockHttpOutputMessage;
 
@@ -81,4 +82,28 @@ public class CsvHttpMessageConverterTest {
             "compoundB,,,,smilesB,,,,\n";
         Assertions.assertEquals(expected, outputMessage.getBodyAsString());
     }
+
+    @Test
+    public void testWriteInternal_compoundActivityPairs() throws Exception {
+
+        List<CompoundActivityPair> data = Arrays.asList(
+            new CompoundActivityPair(createCompound("compoundA", 0.3, "smilesA"), 12.5),
+            new CompoundActivityPair(createCompound("compoundB", null, "smilesB"), null)
+        );
+        PagedDataRep<CompoundActivityPair> pagedDataRep = new PagedDataRep<>(data, 10, 100);
+
+        CsvMapper csvMapper = new CsvMapper();
+        CsvHttpMessageConverter converter = CsvHttpMessageConverter.csv(csvMapper);
+        MockHttpOutputMessage outputMessage = new MockHttpOutputMessage();
+        ParameterizedType type = TypeUtils.parameterize(PagedDataRep.class, CompoundActivityPair.class);
+        converter.writeInternal(pagedDataRep, type, outputMessage);
+
+        // The best value is added after the columns of a plain compound
+        String expected =
+            "compoundName,chemotype,s10,solubility,smiles,source,primaryReference,primaryReferenceUrl,hidden," +
+                "bestValue\n" +
+            "compoundA,,0.3,,smilesA,,,,,12.5\n" +
+            "compoundB,,,,smilesB,,,,,\n";
+        Assertions.assertEquals(expected, outputMessage.getBodyAsString());
+    }
 }
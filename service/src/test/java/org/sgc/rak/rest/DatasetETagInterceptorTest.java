@@ -0,0 +1,115 @@
+package org.sgc.rak.rest;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.services.DatasetVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.mockito.Mockito.doReturn;
+
+public class DatasetETagInterceptorTest {
+
+    @Mock
+    private DatasetVersion mockDatasetVersion;
+
+    private DatasetETagInterceptor interceptor;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(42L).when(mockDatasetVersion).getVersion();
+        interceptor = new DatasetETagInterceptor(mockDatasetVersion);
+    }
+
+    private static MockHttpServletRequest createRequest(String method) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/compounds");
+        request.addParameter("compound", "foo");
+        request.addParameter("page", "1");
+        return request;
+    }
+
+    @Test
+    public void testGetETag_parameterOrderIgnored() {
+
+        MockHttpServletRequest request2 = new MockHttpServletRequest("GET", "/api/compounds");
+        request2.addParameter("page", "1");
+        request2.addParameter("compound", "foo");
+
+        Assertions.assertEquals(interceptor.getETag(createRequest("GET")), interceptor.getETag(request2));
+    }
+
+    @Test
+    public void testGetETag_differsByRequest() {
+
+        String etag = interceptor.getETag(createRequest("GET"));
+        Assertions.assertTrue(etag.startsWith("42-"));
+
+        MockHttpServletRequest request = createRequest("GET");
+        request.setParameter("page", "2");
+        Assertions.assertNotEquals(etag, interceptor.getETag(request));
+
+        request = createRequest("GET");
+        request.addHeader(HttpHeaders.ACCEPT, "text/csv");
+        Assertions.assertNotEquals(etag, interceptor.getETag(request));
+
+        request = createRequest("GET");
+        request.addUserRole("ADMIN");
+        Assertions.assertNotEquals(etag, interceptor.getETag(request));
+
+        doReturn(43L).when(mockDatasetVersion).getVersion();
+        Assertions.assertNotEquals(etag, interceptor.getETag(createRequest("GET")));
+    }
+
+    @Test
+    public void testPreHandle_noIfNoneMatch() {
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertTrue(interceptor.preHandle(createRequest("GET"), response, null));
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals('"' + interceptor.getETag(createRequest("GET")) + '"',
+            response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals("no-cache, private", response.getHeader(HttpHeaders.CACHE_CONTROL));
+    }
+
+    @Test
+    public void testPreHandle_ifNoneMatch_current() {
+
+        MockHttpServletRequest request = createRequest("GET");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, '"' + interceptor.getETag(request) + '"');
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertFalse(interceptor.preHandle(request, response, null));
+        Assertions.assertEquals(304, response.getStatus());
+    }
+
+    @Test
+    public void testPreHandle_ifNoneMatch_stale() {
+
+        MockHttpServletRequest request = createRequest("GET");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, '"' + interceptor.getETag(request) + '"');
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        // The data changed since the caller fetched it
+        doReturn(43L).when(mockDatasetVersion).getVersion();
+
+        Assertions.assertTrue(interceptor.preHandle(request, response, null));
+        Assertions.assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    public void testPreHandle_notGet() {
+
+        MockHttpServletRequest request = createRequest("PUT");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, '"' + interceptor.getETag(request) + '"');
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        Assertions.assertTrue(interceptor.preHandle(request, response, null));
+        Assertions.assertNull(response.getHeader(HttpHeaders.ETAG));
+    }
+}
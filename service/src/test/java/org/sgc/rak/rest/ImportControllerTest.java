@@ -8,9 +8,26 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.exceptions.ServiceUnavailableException;
 import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ImportJobRep;
+import org.sgc.rak.reps.ImportPreviewRep;
+import org.sgc.rak.reps.ImportPreviewRowRep;
+import org.sgc.rak.services.ImportErrorReport;
+import org.sgc.rak.reps.ObjectImportRep;
 import org.sgc.rak.services.ActivityProfileService;
 import org.sgc.rak.services.CompoundService;
+import org.sgc.rak.services.ImportJob;
+import org.sgc.rak.services.ImportJobService;
+import org.sgc.rak.services.ImportPreviewService;
+import org.sgc.rak.services.ImportPublisher;
+import org.sgc.rak.services.UploadService;
+import org.springframework.core.env.Environment;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableHandlerMethodArgumentResolver;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletRequest;
@@ -25,11 +42,27 @@ import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.util.NestedServletException;
 
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class ImportControllerTest {
 
@@ -39,9 +72,24 @@ public class ImportControllerTest {
     @Mock
     private ActivityProfileService mockActivityProfileService;
 
+    @Mock
+    private ImportJobService mockImportJobService;
+
+    @Mock
+    private ImportPreviewService mockImportPreviewService;
+
+    @Mock
+    private ImportPublisher mockImportPublisher;
+
+    @Mock
+    private UploadService mockUploadService;
+
     @Mock
     private Messages mockMessages;
 
+    @Mock
+    private Environment mockEnvironment;
+
     @InjectMocks
     private ImportController controller;
 
@@ -51,7 +99,12 @@ public class ImportControllerTest {
     public void setUp() {
 
         MockitoAnnotations.openMocks(this);
-        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+        doAnswer(inv -> inv.<Supplier<?>>getArgument(0).get()).when(mockImportPublisher).publish(any());
+        doAnswer(inv -> inv.<Supplier<?>>getArgument(1).get()).when(mockImportPublisher)
+            .publishFile(anyString(), any());
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+            .setCustomArgumentResolvers(new PageableHandlerMethodArgumentResolver())
+            .build();
     }
 
     @AfterEach
@@ -98,6 +151,406 @@ public class ImportControllerTest {
         });
     }
 
+    @Test
+    public void testImportActivityProfiles_happyPath_stream() throws Exception {
+
+        when(mockEnvironment.getProperty(eq("rak.import.chunk-size"), eq(Integer.class), anyInt()))
+            .thenReturn(2);
+
+        ObjectImportRep chunkRep = new ObjectImportRep();
+        chunkRep.setNewCount(1);
+        chunkRep.setUnchangedCount(1);
+        when(mockActivityProfileService.importActivityProfiles(any(), eq(true))).thenReturn(chunkRep);
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/activityProfiles?stream=true")
+            .file(file)
+            .with(new PatchRequestPostProcessor())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.newCount").value(2)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.unchangedCount").value(2)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.modifiedCount").value(0));
+
+        // 3 records with a chunk size of 2 => 2 chunks
+        verify(mockActivityProfileService, times(2)).importActivityProfiles(any(), eq(true));
+    }
+
+    @Test
+    public void testImportActivityProfiles_fingerprintIdentifiesFile() throws Exception {
+
+        byte[] csv = getCsv("import-activity-profiles-happy-path.csv").readAllBytes();
+        byte[] modifiedCsv = Arrays.copyOf(csv, csv.length + 1);
+        modifiedCsv[csv.length] = '\n';
+
+        String[] fingerprints = {
+            importActivityProfilesFingerprint(csv),
+            importActivityProfilesFingerprint(csv),
+            importActivityProfilesFingerprint(modifiedCsv)
+        };
+
+        Assertions.assertEquals(fingerprints[0], fingerprints[1]);
+        Assertions.assertNotEquals(fingerprints[0], fingerprints[2]);
+        Assertions.assertTrue(fingerprints[0].startsWith("activityProfiles:"));
+    }
+
+    private String importActivityProfilesFingerprint(byte[] csv) throws Exception {
+
+        AtomicReference<String> fingerprint = new AtomicReference<>();
+        doAnswer(inv -> {
+            fingerprint.set(inv.getArgument(0));
+            return new ObjectImportRep();
+        }).when(mockImportPublisher).publishFile(anyString(), any());
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/activityProfiles")
+            .file(new MockMultipartFile("file", csv))
+            .with(new PatchRequestPostProcessor())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isOk());
+
+        return fingerprint.get();
+    }
+
+    @Test
+    public void testImportActivityProfiles_happyPath_bulk() throws Exception {
+
+        when(mockActivityProfileService.bulkImportActivityProfiles(any(), eq(false))).thenAnswer(invocation -> {
+            Iterator<?> records = invocation.getArgument(0);
+            long count = 0;
+            while (records.hasNext()) {
+                records.next();
+                count++;
+            }
+            ObjectImportRep rep = new ObjectImportRep();
+            rep.setNewCount(count);
+            return rep;
+        });
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/activityProfiles?bulk=true&commit=false")
+            .file(file)
+            .with(new PatchRequestPostProcessor())
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.newCount").value(3));
+
+        verify(mockActivityProfileService, times(1)).bulkImportActivityProfiles(any(), eq(false));
+        verify(mockActivityProfileService, times(0)).importActivityProfiles(any(), anyBoolean());
+    }
+
+    @Test
+    public void testImportActivityProfiles_error_bulk_notCsv() throws Exception {
+
+        when(mockActivityProfileService.bulkImportActivityProfiles(any(), anyBoolean())).thenAnswer(invocation -> {
+            invocation.<Iterator<?>>getArgument(0).forEachRemaining(record -> { });
+            return new ObjectImportRep();
+        });
+
+        MockMultipartFile file = new MockMultipartFile("file", getCsv("not-csv-data.csv"));
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            try {
+                mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/activityProfiles?bulk=true")
+                    .file(file)
+                    .with(new PatchRequestPostProcessor())
+                    .accept(MediaType.APPLICATION_JSON)
+                    .contentType(MediaType.MULTIPART_FORM_DATA)
+                );
+            } catch (NestedServletException e) {
+                throw e.getCause();
+            }
+        });
+    }
+
+    @Test
+    public void testSubmitActivityProfileImportJob() throws Exception {
+
+        when(mockEnvironment.getProperty(eq("rak.import.chunk-size"), eq(Integer.class), anyInt()))
+            .thenReturn(2);
+
+        ObjectImportRep chunkRep = new ObjectImportRep();
+        chunkRep.setNewCount(1);
+        when(mockActivityProfileService.importActivityProfiles(any(), eq(false))).thenReturn(chunkRep);
+
+        ImportJobRep queuedRep = new ImportJobRep();
+        queuedRep.setId("42");
+        queuedRep.setStatus(ImportJobRep.Status.QUEUED);
+        AtomicReference<ImportJob.Task> task = new AtomicReference<>();
+        AtomicReference<Runnable> cleanup = new AtomicReference<>();
+        when(mockImportJobService.submitJob(eq("activityProfiles"), eq(false), any(), any())).thenAnswer(inv -> {
+            task.set(inv.getArgument(2));
+            cleanup.set(inv.getArgument(3));
+            return queuedRep;
+        });
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/importJobs/activityProfiles?commit=false")
+            .file(file)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isAccepted()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.id").value("42")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.status").value("QUEUED"));
+
+        // Nothing is imported until the job runs
+        verify(mockActivityProfileService, times(0)).importActivityProfiles(any(), anyBoolean());
+
+        // Run the job as the job service would
+        ImportJob job = new ImportJob("42", "activityProfiles", false, cleanup.get());
+        ObjectImportRep result = task.get().run(job);
+        Assertions.assertEquals(2, result.getNewCount());
+
+        // 3 records with a chunk size of 2 => 2 chunks
+        ImportJobRep jobRep = job.toRep();
+        Assertions.assertEquals(3, jobRep.getRowsParsed());
+        Assertions.assertEquals(3, jobRep.getRowsValidated());
+        Assertions.assertEquals(0, jobRep.getRowsWritten());
+        Assertions.assertTrue(jobRep.getPhaseTimings().containsKey(ImportJob.PHASE_PARSE));
+        Assertions.assertTrue(jobRep.getPhaseTimings().containsKey(ImportJob.PHASE_IMPORT));
+        verify(mockActivityProfileService, times(2)).importActivityProfiles(any(), eq(false));
+
+        cleanup.get().run();
+    }
+
+    @Test
+    public void testSubmitImportJob_fromUpload() throws Exception {
+
+        Path assembled = Files.createTempFile("rak-upload-test-", ".csv");
+        try (InputStream in = getCsv("import-activity-profiles-happy-path.csv")) {
+            Files.copy(in, assembled, StandardCopyOption.REPLACE_EXISTING);
+        }
+        when(mockUploadService.completeSession(eq("upload1"), any())).thenAnswer(inv ->
+            inv.<Function<Path, ImportJobRep>>getArgument(1).apply(assembled));
+
+        ImportJobRep queuedRep = new ImportJobRep();
+        queuedRep.setId("42");
+        AtomicReference<Runnable> cleanup = new AtomicReference<>();
+        when(mockImportJobService.submitJob(eq("kdValues"), eq(true), any(), any())).thenAnswer(inv -> {
+            cleanup.set(inv.getArgument(3));
+            return queuedRep;
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/admin/api/importJobs/kdValues")
+            .param("uploadId", "upload1")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isAccepted()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.id").value("42"));
+
+        // The assembled file belongs to the job, and is deleted when it finishes
+        Assertions.assertTrue(Files.exists(assembled));
+        cleanup.get().run();
+        Assertions.assertFalse(Files.exists(assembled));
+    }
+
+    @Test
+    public void testSubmitImportJob_fromUpload_queueFull() throws Exception {
+
+        Path assembled = Files.createTempFile("rak-upload-test-", ".csv");
+        when(mockUploadService.completeSession(eq("upload1"), any())).thenAnswer(inv ->
+            inv.<Function<Path, ImportJobRep>>getArgument(1).apply(assembled));
+        when(mockImportJobService.submitJob(eq("kdValues"), eq(true), any(), any()))
+            .thenThrow(new ServiceUnavailableException("Too many import jobs"));
+
+        // The job is submitted while the upload is being completed, so the upload service keeps the upload
+        NestedServletException e = Assertions.assertThrows(NestedServletException.class, () -> {
+            mockMvc.perform(MockMvcRequestBuilders.post("/admin/api/importJobs/kdValues")
+                .param("uploadId", "upload1")
+                .accept(MediaType.APPLICATION_JSON));
+        });
+        Assertions.assertTrue(e.getCause() instanceof ServiceUnavailableException);
+        Files.deleteIfExists(assembled);
+    }
+
+    @Test
+    public void testSubmitImportJob_noFileOrUpload() {
+
+        NestedServletException e = Assertions.assertThrows(NestedServletException.class, () -> {
+            mockMvc.perform(MockMvcRequestBuilders.post("/admin/api/importJobs/kdValues")
+                .accept(MediaType.APPLICATION_JSON));
+        });
+        Assertions.assertTrue(e.getCause() instanceof BadRequestException);
+    }
+
+    @Test
+    public void testGetImportJob() throws Exception {
+
+        ImportJobRep rep = new ImportJobRep();
+        rep.setId("42");
+        rep.setStatus(ImportJobRep.Status.RUNNING);
+        rep.setRowsParsed(1000);
+        when(mockImportJobService.getJob(eq("42"))).thenReturn(rep);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/importJobs/42")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.status").value("RUNNING")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.rowsParsed").value(1000));
+    }
+
+    @Test
+    public void testCancelImportJob() throws Exception {
+
+        ImportJobRep rep = new ImportJobRep();
+        rep.setId("42");
+        rep.setStatus(ImportJobRep.Status.CANCELLED);
+        when(mockImportJobService.cancelJob(eq("42"))).thenReturn(rep);
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/admin/api/importJobs/42")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.status").value("CANCELLED"));
+
+        verify(mockImportJobService, times(1)).cancelJob(eq("42"));
+    }
+
+    @Test
+    public void testCreateImportPreview() throws Exception {
+
+        when(mockEnvironment.getProperty(eq("rak.import.chunk-size"), eq(Integer.class), anyInt()))
+            .thenReturn(2);
+
+        ImportPreviewRep rep = new ImportPreviewRep();
+        rep.setId("42");
+        rep.setRowCount(3);
+        rep.setNewCount(3);
+        when(mockImportPreviewService.createPreview(eq("activityProfiles"), any(), eq(2), any(), any()))
+            .thenReturn(rep);
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/importPreviews/activityProfiles")
+            .file(file)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isCreated()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.id").value("42")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.rowCount").value(3)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.newCount").value(3));
+
+        verify(mockImportPreviewService, times(1)).createPreview(eq("activityProfiles"),
+            argThat(records -> records.size() == 3), eq(2), any(), any());
+    }
+
+    @Test
+    public void testCreateImportPreview_unknownType() throws Exception {
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        NestedServletException e = Assertions.assertThrows(NestedServletException.class, () -> {
+            mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/importPreviews/sScores")
+                .file(file)
+                .accept(MediaType.APPLICATION_JSON)
+                .contentType(MediaType.MULTIPART_FORM_DATA));
+        });
+        Assertions.assertTrue(e.getCause() instanceof NotFoundException);
+    }
+
+    @Test
+    public void testGetImportPreview() throws Exception {
+
+        ImportPreviewRep rep = new ImportPreviewRep();
+        rep.setId("42");
+        rep.setModifiedCount(7);
+        when(mockImportPreviewService.getPreview(eq("42"))).thenReturn(rep);
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/importPreviews/42")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.modifiedCount").value(7));
+    }
+
+    @Test
+    public void testGetImportPreviewRows() throws Exception {
+
+        ImportPreviewRowRep row = new ImportPreviewRowRep(11, ImportPreviewRowRep.Status.MODIFIED,
+            Collections.emptyList());
+        Pageable pageInfo = PageRequest.of(1, 10);
+        when(mockImportPreviewService.getPreviewRows(eq("42"), eq(ImportPreviewRowRep.Status.MODIFIED), any()))
+            .thenReturn(new PageImpl<>(Collections.singletonList(row), pageInfo, 11));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/importPreviews/42/rows")
+            .param("status", "MODIFIED")
+            .param("page", "1")
+            .param("size", "10")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.start").value(10)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.total").value(11)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.data[0].rowNumber").value(11));
+    }
+
+    @Test
+    public void testCommitImportPreview() throws Exception {
+
+        when(mockEnvironment.getProperty(eq("rak.import.chunk-size"), eq(Integer.class), anyInt()))
+            .thenReturn(2);
+
+        ObjectImportRep rep = new ObjectImportRep();
+        rep.setNewCount(5);
+        when(mockImportPreviewService.commitPreview(eq("42"), eq(2))).thenReturn(rep);
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/admin/api/importPreviews/42/commit")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.newCount").value(5));
+    }
+
+    @Test
+    public void testDiscardImportPreview() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/admin/api/importPreviews/42")
+        ).andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        verify(mockImportPreviewService, times(1)).discardPreview(eq("42"));
+    }
+
+    @Test
+    public void testValidateImport() throws Exception {
+
+        when(mockEnvironment.getProperty(eq("rak.import.chunk-size"), eq(Integer.class), anyInt()))
+            .thenReturn(2);
+        when(mockEnvironment.getProperty(eq("rak.import.max-validation-errors"), eq(Integer.class), anyInt()))
+            .thenReturn(1);
+
+        // Every record has an error
+        doAnswer(inv -> {
+            List<?> records = inv.getArgument(0);
+            ImportErrorReport report = inv.getArgument(1);
+            records.forEach(record -> report.addError(report.nextRow(), "compoundName", "Unknown compound"));
+            return null;
+        }).when(mockActivityProfileService).validateActivityProfiles(any(), any());
+
+        MockMultipartFile file = new MockMultipartFile("file",
+            getCsv("import-activity-profiles-happy-path.csv"));
+
+        mockMvc.perform(MockMvcRequestBuilders.multipart("/admin/api/importValidations/activityProfiles")
+            .file(file)
+            .accept(MediaType.APPLICATION_JSON)
+            .contentType(MediaType.MULTIPART_FORM_DATA)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.rowCount").value(3)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.invalidRowCount").value(3)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.errorCount").value(3)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.truncated").value(true)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].row").value(1)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.errors[0].field").value("compoundName"));
+
+        // 3 records with a chunk size of 2 => 2 chunks
+        verify(mockActivityProfileService, times(2)).validateActivityProfiles(any(), any());
+        verify(mockActivityProfileService, times(0)).importActivityProfiles(any(), anyBoolean());
+    }
+
     private void testImportActivityProfiles_impl(String csv, Boolean headerRow, Boolean commitParam,
                                                  boolean expectSuccess) throws Exception {
 
@@ -132,6 +585,9 @@ public class ImportControllerTest {
 
             verify(mockActivityProfileService, times(1))
                 .importActivityProfiles(any(), eq(expectedCommit));
+
+            // Only committed imports are published, all at once
+            verify(mockImportPublisher, times(expectedCommit ? 1 : 0)).publishFile(anyString(), any());
         }
     }
 
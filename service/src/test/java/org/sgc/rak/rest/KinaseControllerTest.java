@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.KinaseService;
 import org.springframework.data.domain.PageImpl;
@@ -17,7 +18,10 @@ import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class KinaseControllerTest {
 
@@ -50,4 +54,26 @@ public class KinaseControllerTest {
         Assertions.assertEquals(1, response.getData().size());
         Assertions.assertEquals(42, response.getData().get(0).getId());
     }
+
+    @Test
+    public void testGetKinaseSuggestions() {
+
+        List<KinaseSuggestionRep> expected = Collections.singletonList(
+            new KinaseSuggestionRep(new Kinase(), "ABL1", 3, 0));
+        doReturn(expected).when(mockKinaseService).getKinaseSuggestions(eq("abl"), eq(10));
+
+        Assertions.assertEquals(expected, controller.getKinaseSuggestions(" abl ", 10));
+    }
+
+    @Test
+    public void testGetKinaseSuggestions_limitCapped() {
+        controller.getKinaseSuggestions("abl", 1000);
+        verify(mockKinaseService, times(1)).getKinaseSuggestions(eq("abl"), eq(50));
+    }
+
+    @Test
+    public void testRefreshKinases() {
+        controller.refreshKinases();
+        verify(mockKinaseService, times(1)).refreshKinases();
+    }
 }
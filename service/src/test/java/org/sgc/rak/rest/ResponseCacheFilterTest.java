@@ -0,0 +1,260 @@
+package org.sgc.rak.rest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.services.DatasetVersion;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.mockito.Mockito.doReturn;
+
+public class ResponseCacheFilterTest {
+
+    @Mock
+    private DatasetVersion mockDatasetVersion;
+
+    private MeterRegistry meterRegistry;
+    private MockEnvironment environment;
+    private ResponseCacheFilter filter;
+
+    /**
+     * The number of times a response was built, rather than served from the cache.
+     */
+    private AtomicInteger responsesBuilt;
+
+    private static final String BODY = "{\"data\":[\"compoundA\"]}";
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        doReturn(42L).when(mockDatasetVersion).getVersion();
+        meterRegistry = new SimpleMeterRegistry();
+        environment = new MockEnvironment();
+        filter = new ResponseCacheFilter(mockDatasetVersion, environment, meterRegistry);
+        responsesBuilt = new AtomicInteger();
+    }
+
+    private static MockHttpServletRequest createRequest(String method, String uri, boolean acceptGzip) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        request.addParameter("page", "0");
+        if (acceptGzip) {
+            request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        }
+        return request;
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request) throws Exception {
+        return doFilter(request, HttpServletResponse.SC_OK);
+    }
+
+    private MockHttpServletResponse doFilter(MockHttpServletRequest request, int status) throws Exception {
+
+        HttpServlet servlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                responsesBuilt.incrementAndGet();
+                resp.setStatus(status);
+                resp.setContentType("application/json");
+                resp.setHeader(HttpHeaders.ETAG, "\"etag\"");
+                resp.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            }
+        };
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain(servlet));
+        return response;
+    }
+
+    private static String gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private double getCount(String result) {
+        return meterRegistry.get("rak.response-cache.gets").tag("result", result).functionCounter().count();
+    }
+
+    @Test
+    public void testDoFilter_hit() throws Exception {
+
+        MockHttpServletResponse response = doFilter(createRequest("GET", "/api/compounds", true));
+        Assertions.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("\"etag-gzip\"", response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        Assertions.assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+
+        response = doFilter(createRequest("GET", "/api/compounds", true));
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals("application/json", response.getContentType());
+        Assertions.assertEquals("\"etag-gzip\"", response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        Assertions.assertEquals("gzip", response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+
+        Assertions.assertEquals(1, responsesBuilt.get());
+        Assertions.assertEquals(1, getCount("hit"));
+        Assertions.assertEquals(1, getCount("miss"));
+        Assertions.assertTrue(filter.getTotalBytes() > 0);
+    }
+
+    @Test
+    public void testDoFilter_hit_gzipNotAccepted() throws Exception {
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+
+        MockHttpServletResponse response = doFilter(createRequest("GET", "/api/compounds", false));
+        Assertions.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals("\"etag\"", response.getHeader(HttpHeaders.ETAG));
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+        Assertions.assertEquals(BODY, response.getContentAsString());
+        Assertions.assertEquals(1, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_hit_notModified() throws Exception {
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+
+        MockHttpServletRequest request = createRequest("GET", "/api/compounds", true);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"etag-gzip\"");
+        MockHttpServletResponse response = doFilter(request);
+        Assertions.assertEquals(304, response.getStatus());
+        Assertions.assertEquals(0, response.getContentLength());
+        Assertions.assertEquals(HttpHeaders.ACCEPT_ENCODING, response.getHeader(HttpHeaders.VARY));
+    }
+
+    @Test
+    public void testDoFilter_hit_notModified_otherEncoding() throws Exception {
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+
+        // The caller has the uncompressed body, not the gzipped one
+        MockHttpServletRequest request = createRequest("GET", "/api/compounds", true);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"etag\"");
+        MockHttpServletResponse response = doFilter(request);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(BODY, gunzip(response.getContentAsByteArray()));
+
+        request = createRequest("GET", "/api/compounds", false);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"etag-gzip\"");
+        response = doFilter(request);
+        Assertions.assertEquals(200, response.getStatus());
+        Assertions.assertEquals(BODY, response.getContentAsString());
+    }
+
+    @Test
+    public void testDoFilter_miss_notModified() throws Exception {
+
+        MockHttpServletRequest request = createRequest("GET", "/api/compounds", true);
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"etag-gzip\"");
+        MockHttpServletResponse response = doFilter(request);
+        Assertions.assertEquals(304, response.getStatus());
+        Assertions.assertEquals(0, response.getContentLength());
+        Assertions.assertEquals(1, responsesBuilt.get());
+    }
+
+    @Test
+    public void testToGzipETag() {
+        Assertions.assertEquals("\"42-abc-gzip\"", ResponseCacheFilter.toGzipETag("\"42-abc\""));
+        Assertions.assertEquals("W/\"42-abc-gzip\"", ResponseCacheFilter.toGzipETag("W/\"42-abc\""));
+        Assertions.assertEquals("42-abc-gzip", ResponseCacheFilter.toGzipETag("42-abc"));
+    }
+
+    @Test
+    public void testDoFilter_dataChanged() throws Exception {
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+        doReturn(43L).when(mockDatasetVersion).getVersion();
+        doFilter(createRequest("GET", "/api/compounds", true));
+
+        Assertions.assertEquals(2, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_differentRequests() throws Exception {
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+
+        MockHttpServletRequest request = createRequest("GET", "/api/compounds", true);
+        request.setParameter("page", "1");
+        doFilter(request);
+
+        request = createRequest("GET", "/api/compounds", true);
+        request.addUserRole("ADMIN");
+        doFilter(request);
+
+        Assertions.assertEquals(3, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_errorsNotCached() throws Exception {
+
+        MockHttpServletResponse response = doFilter(createRequest("GET", "/api/compounds", true),
+            HttpServletResponse.SC_BAD_REQUEST);
+        Assertions.assertEquals(BODY, response.getContentAsString());
+        doFilter(createRequest("GET", "/api/compounds", true), HttpServletResponse.SC_BAD_REQUEST);
+
+        Assertions.assertEquals(2, responsesBuilt.get());
+        Assertions.assertEquals(0, filter.getTotalBytes());
+    }
+
+    @Test
+    public void testDoFilter_expired() throws Exception {
+
+        environment.setProperty("rak.response-cache.ttl-seconds", "0");
+        filter = new ResponseCacheFilter(mockDatasetVersion, environment, new SimpleMeterRegistry());
+
+        doFilter(createRequest("GET", "/api/compounds", true));
+        doFilter(createRequest("GET", "/api/compounds", true));
+        Assertions.assertEquals(2, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_notCachedPath() throws Exception {
+
+        MockHttpServletResponse response = doFilter(createRequest("GET", "/api/compounds/compoundA", true));
+        Assertions.assertNull(response.getHeader(HttpHeaders.CONTENT_ENCODING));
+        Assertions.assertEquals(BODY, response.getContentAsString());
+        doFilter(createRequest("GET", "/api/compounds/compoundA", true));
+
+        Assertions.assertEquals(2, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_notGet() throws Exception {
+
+        doFilter(createRequest("POST", "/api/blogPosts", true));
+        doFilter(createRequest("POST", "/api/blogPosts", true));
+        Assertions.assertEquals(2, responsesBuilt.get());
+    }
+
+    @Test
+    public void testDoFilter_disabled() throws Exception {
+
+        environment.setProperty("rak.response-cache.max-size-mb", "0");
+        filter = new ResponseCacheFilter(mockDatasetVersion, environment, new SimpleMeterRegistry());
+
+        doFilter(createRequest("GET", "/api/partners", true));
+        doFilter(createRequest("GET", "/api/partners", true));
+        Assertions.assertEquals(2, responsesBuilt.get());
+    }
+}
@@ -6,26 +6,38 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.KeysetSlice;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Compound;
 import org.sgc.rak.model.CompoundCountPair;
 import org.sgc.rak.reps.PagedDataRep;
 import org.sgc.rak.services.CompoundService;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 
 public class StatControllerTest {
 
     @Mock
     private CompoundService mockCompoundService;
 
+    @Mock
+    private Messages mockMessages;
+
     @InjectMocks
     private StatController controller;
 
@@ -46,10 +58,12 @@ public class StatControllerTest {
         PageImpl<CompoundCountPair> page = new PageImpl<>(pairs, pageable, 100);
         doReturn(page).when(mockCompoundService).getCompoundsMissingActivityProfiles(any(), any(Pageable.class));
 
-        PagedDataRep<CompoundCountPair> actualResponse = controller.getCompoundsMissingActivityProfiles(null, pageable);
+        PagedDataRep<CompoundCountPair> actualResponse = controller.getCompoundsMissingActivityProfiles(null, null,
+            pageable);
         Assertions.assertEquals(6, actualResponse.getStart());
         Assertions.assertEquals(2, actualResponse.getCount());
         Assertions.assertEquals(100, actualResponse.getTotal());
+        Assertions.assertNull(actualResponse.getNext());
         Assertions.assertEquals(pairs.size(), actualResponse.getData().size());
         for (int i = 0; i < pairs.size(); i++) {
             CompoundCountPair expected = pairs.get(i);
@@ -59,6 +73,61 @@ public class StatControllerTest {
         }
     }
 
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_firstPage() {
+
+        List<CompoundCountPair> pairs = Arrays.asList(new CompoundCountPair("compoundA", 3),
+            new CompoundCountPair("compoundB", 4));
+        ContinuationToken next = new ContinuationToken(2, Collections.singletonList("compoundB"));
+
+        Pageable pageable = PageRequest.of(0, 2);
+        doReturn(new KeysetSlice<>(pairs, 0, next)).when(mockCompoundService)
+            .getCompoundsMissingActivityProfiles(eq("comp"), isNull(), eq(pageable));
+
+        PagedDataRep<CompoundCountPair> actualResponse = controller.getCompoundsMissingActivityProfiles("comp", "",
+            pageable);
+        Assertions.assertEquals(0, actualResponse.getStart());
+        Assertions.assertEquals(2, actualResponse.getCount());
+        Assertions.assertEquals(PagedDataRep.UNKNOWN_TOTAL, actualResponse.getTotal());
+        Assertions.assertEquals(next.encode(), actualResponse.getNext());
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_lastPage() {
+
+        List<CompoundCountPair> pairs = Collections.singletonList(new CompoundCountPair("compoundC", 3));
+        ContinuationToken after = new ContinuationToken(2, Collections.singletonList("compoundB"));
+
+        Pageable pageable = PageRequest.of(0, 2);
+        doReturn(new KeysetSlice<>(pairs, 2, null)).when(mockCompoundService)
+            .getCompoundsMissingActivityProfiles(any(),
+                argThat((ContinuationToken token) -> token.getKey().equals(after.getKey())), any(Pageable.class));
+
+        PagedDataRep<CompoundCountPair> actualResponse = controller.getCompoundsMissingActivityProfiles(null,
+            after.encode(), pageable);
+        Assertions.assertEquals(2, actualResponse.getStart());
+        Assertions.assertEquals(1, actualResponse.getCount());
+        Assertions.assertNull(actualResponse.getNext());
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_invalidToken() {
+        Pageable pageable = PageRequest.of(0, 2);
+        Assertions.assertThrows(BadRequestException.class, () ->
+            controller.getCompoundsMissingActivityProfiles(null, "garbage!", pageable));
+    }
+
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset_unsupportedSort() {
+
+        Pageable pageable = PageRequest.of(0, 2);
+        doThrow(new IllegalArgumentException()).when(mockCompoundService)
+            .getCompoundsMissingActivityProfiles(any(), any(), any(Pageable.class));
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+            controller.getCompoundsMissingActivityProfiles(null, "", pageable));
+    }
+
     @Test
     public void testGetCompoundsMissingPublicationInfo_happyPath() {
 
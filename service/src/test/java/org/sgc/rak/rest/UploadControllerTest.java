@@ -0,0 +1,113 @@
+package org.sgc.rak.rest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.reps.UploadSessionRep;
+import org.sgc.rak.services.UploadService;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class UploadControllerTest {
+
+    @Mock
+    private UploadService mockUploadService;
+
+    @InjectMocks
+    private UploadController controller;
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller).build();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        // It seems MockMvcBuilders.standaloneSetup() populates RequestContextHolder, which breaks other test classes
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    private static UploadSessionRep createUploadSessionRep(String id, Integer... receivedChunks) {
+        UploadSessionRep rep = new UploadSessionRep();
+        rep.setId(id);
+        rep.setReceivedChunks(Arrays.asList(receivedChunks));
+        rep.setNextChunk(receivedChunks.length);
+        return rep;
+    }
+
+    @Test
+    public void testCreateUpload() throws Exception {
+
+        when(mockUploadService.createSession(eq(3), eq(1000L), isNull())).thenReturn(createUploadSessionRep("42"));
+
+        mockMvc.perform(MockMvcRequestBuilders.post("/admin/api/uploads")
+            .param("chunkCount", "3")
+            .param("size", "1000")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isCreated()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.id").value("42")
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.nextChunk").value(0));
+    }
+
+    @Test
+    public void testGetUpload() throws Exception {
+
+        when(mockUploadService.getSession(eq("42"))).thenReturn(createUploadSessionRep("42", 0, 1));
+
+        mockMvc.perform(MockMvcRequestBuilders.get("/admin/api/uploads/42")
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.receivedChunks[1]").value(1)
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.nextChunk").value(2));
+    }
+
+    @Test
+    public void testUploadChunk() throws Exception {
+
+        when(mockUploadService.writeChunk(eq("42"), eq(3), any())).thenAnswer(inv -> {
+            InputStream in = inv.getArgument(2);
+            String chunk = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            return chunk.equals("a,b,c\n") ? createUploadSessionRep("42", 0, 1, 2, 3) : null;
+        });
+
+        mockMvc.perform(MockMvcRequestBuilders.put("/admin/api/uploads/42/chunks/3")
+            .content("a,b,c\n".getBytes(StandardCharsets.UTF_8))
+            .contentType(MediaType.APPLICATION_OCTET_STREAM)
+            .accept(MediaType.APPLICATION_JSON)
+        ).andExpect(MockMvcResultMatchers.status().isOk()
+        ).andExpect(MockMvcResultMatchers.jsonPath("$.nextChunk").value(4));
+
+        verify(mockUploadService, times(1)).writeChunk(eq("42"), eq(3), argThat(in -> in != null));
+    }
+
+    @Test
+    public void testDiscardUpload() throws Exception {
+
+        mockMvc.perform(MockMvcRequestBuilders.delete("/admin/api/uploads/42")
+        ).andExpect(MockMvcResultMatchers.status().isNoContent());
+
+        verify(mockUploadService, times(1)).discardSession(eq("42"));
+    }
+}
@@ -6,21 +6,29 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.sgc.rak.dao.ActivityProfileDao;
+import org.sgc.rak.dao.BulkImportDao;
+import org.sgc.rak.dao.BulkImportResult;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.ActivityProfile;
 import org.sgc.rak.model.Kinase;
 import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.KdCsvRecord;
+import org.sgc.rak.reps.ImportValidationRep;
 import org.sgc.rak.reps.ObjectImportRep;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.*;
 
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -29,15 +37,27 @@ public class ActivityProfileServiceTest {
     @Mock
     private ActivityProfileDao mockActivityProfileDao;
 
+    @Mock
+    private BulkImportDao mockBulkImportDao;
+
     @Mock
     private CompoundService mockCompoundService;
 
     @Mock
     private KinaseService mockKinaseService;
 
+    @Mock
+    private NetworkService mockNetworkService;
+
+    @Mock
+    private DatasetVersion mockDatasetVersion;
+
     @Mock
     private Messages mockMessages;
 
+    @Spy
+    private ReadCaches readCaches = TestUtil.createReadCaches();
+
     @InjectMocks
     private ActivityProfileService service;
 
@@ -48,6 +68,152 @@ public class ActivityProfileServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void testBulkImportActivityProfiles_supported() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setNewCount(3);
+        result.setModifiedCount(2);
+        result.setUnchangedCount(1);
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(result).when(mockBulkImportDao).importActivityProfiles(any(), eq(true));
+
+        Iterator<ActivityProfileCsvRecord> records = Collections.singletonList(
+            TestUtil.createActivityProfileCsvRecord("compoundA", "discoverxA", "entrezA", 0.9, 4)).iterator();
+        ObjectImportRep importRep = service.bulkImportActivityProfiles(records, true);
+
+        Assertions.assertEquals(3, importRep.getNewCount());
+        Assertions.assertEquals(2, importRep.getModifiedCount());
+        Assertions.assertEquals(1, importRep.getUnchangedCount());
+        Assertions.assertTrue(importRep.getFieldStatuses().isEmpty());
+        verify(mockBulkImportDao, times(1)).importActivityProfiles(eq(records), eq(true));
+        verify(mockActivityProfileDao, times(0)).save(any());
+        verify(mockCompoundService, times(1)).activityProfilesChanged();
+        verify(mockKinaseService, times(1)).activityProfilesChanged();
+        verify(mockNetworkService, times(1)).activityProfilesChanged();
+        verify(mockDatasetVersion, times(1)).dataChanged();
+    }
+
+    @Test
+    public void testBulkImportActivityProfiles_supported_error_unknownCompound() {
+
+
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownCompoundName("unknown");
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(result).when(mockBulkImportDao).importActivityProfiles(any(), anyBoolean());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.bulkImportActivityProfiles(Collections.emptyIterator(), true);
+        });
+    }
+
+    @Test
+    public void testBulkImportActivityProfiles_supported_error_unknownKinase() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownDiscoverx("unknown");
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(result).when(mockBulkImportDao).importActivityProfiles(any(), anyBoolean());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.bulkImportActivityProfiles(Collections.emptyIterator(), true);
+        });
+    }
+
+    @Test
+    public void testBulkImportActivityProfiles_notSupported() {
+
+        List<ActivityProfileCsvRecord> records = Arrays.asList(
+            TestUtil.createActivityProfileCsvRecord("compoundA", "discoverxA", "entrezA", 0.9, 4),
+            TestUtil.createActivityProfileCsvRecord("compoundB", "discoverxB", "entrezB", 0.8, 3)
+        );
+
+        doReturn(false).when(mockBulkImportDao).isSupported();
+        doReturn(Collections.singleton(TestUtil.createActivityProfile(42L, "compoundA", "discoverxA", "entrezA",
+            0.1, 1))).when(mockActivityProfileDao).getActivityProfiles(any(), any());
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Arrays.asList(TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")))).when(mockKinaseService).getKinaseCatalog();
+
+        ObjectImportRep importRep = service.bulkImportActivityProfiles(records.iterator(), true);
+
+        Assertions.assertEquals(1, importRep.getNewCount());
+        Assertions.assertEquals(1, importRep.getModifiedCount());
+        Assertions.assertEquals(0, importRep.getUnchangedCount());
+        Assertions.assertTrue(importRep.getFieldStatuses().isEmpty());
+        verify(mockActivityProfileDao, times(1)).save(any());
+        verify(mockBulkImportDao, times(0)).importActivityProfiles(any(), anyBoolean());
+    }
+
+    @Test
+    public void testBulkImportKdValues_supported() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setNewCount(1);
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(result).when(mockBulkImportDao).importKdValues(any(), eq(false));
+
+        ObjectImportRep importRep = service.bulkImportKdValues(Collections.emptyIterator(), false);
+
+        Assertions.assertEquals(1, importRep.getNewCount());
+        Assertions.assertEquals(0, importRep.getModifiedCount());
+        Assertions.assertEquals(0, importRep.getUnchangedCount());
+    }
+
+    @Test
+    public void testBulkImportKdValues_notSupported() {
+
+        List<KdCsvRecord> records = Collections.singletonList(
+            TestUtil.createKdCsvRecord("compoundA", "discoverxA", "entrezA", "=", 0.3));
+
+        doReturn(false).when(mockBulkImportDao).isSupported();
+        doReturn(Collections.emptySet()).when(mockActivityProfileDao).getActivityProfiles(any(), any());
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(mockKinaseService).getKinaseCatalog();
+
+        ObjectImportRep importRep = service.bulkImportKdValues(records.iterator(), false);
+
+        Assertions.assertEquals(1, importRep.getNewCount());
+        Assertions.assertTrue(importRep.getFieldStatuses().isEmpty());
+        verify(mockActivityProfileDao, times(0)).save(any());
+    }
+
+    @Test
+    public void testGetActivityProfilesByCompound_happyPath() {
+
+        Set<String> compoundNames = new LinkedHashSet<>(Arrays.asList(COMPOUND_NAME, "compoundB"));
+        doReturn(compoundNames).when(mockCompoundService).getExistingCompoundNames(any());
+
+        Map<String, List<ActivityProfile>> expected = new LinkedHashMap<>();
+        expected.put(COMPOUND_NAME, Collections.singletonList(TestUtil.createActivityProfile(42L)));
+        expected.put("compoundB", Collections.emptyList());
+        doReturn(expected).when(mockActivityProfileDao).getActivityProfilesByCompound(any(), any(), any(), any());
+
+        List<Long> kinaseIds = Collections.singletonList(42L);
+        Map<String, List<ActivityProfile>> actual = service.getActivityProfilesByCompound(
+            Arrays.asList(COMPOUND_NAME, "compoundB", COMPOUND_NAME), kinaseIds, 0.3, 5.0);
+        Assertions.assertSame(expected, actual);
+
+        // Duplicate compound names are only fetched once
+        verify(mockActivityProfileDao, times(1)).getActivityProfilesByCompound(eq(compoundNames), eq(kinaseIds),
+            eq(0.3), eq(5.0));
+    }
+
+    @Test
+    public void testGetActivityProfilesByCompound_error_noSuchCompound() {
+
+        doReturn(Collections.singleton(COMPOUND_NAME)).when(mockCompoundService).getExistingCompoundNames(any());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.getActivityProfilesByCompound(Arrays.asList(COMPOUND_NAME, "compoundB"), null, null, null);
+        });
+        verify(mockActivityProfileDao, times(0)).getActivityProfilesByCompound(any(), any(), any(), any());
+    }
+
     @Test
     public void testGetActivityProfiles_noFilterParams() {
 
@@ -68,10 +234,150 @@ public class ActivityProfileServiceTest {
         }
     }
 
+    @Test
+    public void testGetActivityProfiles_keyset() {
+
+        doReturn(TestUtil.createCompound(COMPOUND_NAME)).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
+        PageRequest pr = PageRequest.of(0, 20);
+        ContinuationToken after = new ContinuationToken(20, Arrays.asList(1.0, null, 3L));
+
+        KeysetSlice<ActivityProfile> expected = new KeysetSlice<>(Collections.emptyList(), 20, null);
+        doReturn(expected).when(mockActivityProfileDao).getActivityProfiles(eq(COMPOUND_NAME), any(), eq(0.3),
+            eq(after), eq(pr));
+
+        Assertions.assertSame(expected, service.getActivityProfiles(COMPOUND_NAME, null, 0.3, after, pr));
+    }
+
+    @Test
+    public void testGetActivityProfiles_keyset_noSuchCompound() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+            service.getActivityProfiles(COMPOUND_NAME, null, null, null, pr));
+        verify(mockActivityProfileDao, never()).getActivityProfiles(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetActivityProfiles_cached() {
+
+        doReturn(TestUtil.createCompound(COMPOUND_NAME)).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(Page.empty(pr)).when(mockActivityProfileDao).getActivityProfiles(any(), any(), any(),
+            any(Pageable.class));
+
+        // The order kinases are specified in, and the case of the compound name, don't matter
+        service.getActivityProfiles(COMPOUND_NAME, Arrays.asList(1L, 2L), 0.3, pr);
+        service.getActivityProfiles(COMPOUND_NAME, Arrays.asList(2L, 1L), 0.3, pr);
+        service.getActivityProfiles(COMPOUND_NAME.toUpperCase(Locale.US), Arrays.asList(2L, 1L), 0.3, pr);
+        service.getActivityProfiles(COMPOUND_NAME, Arrays.asList(2L, 1L), 0.4, pr);
+
+        verify(mockActivityProfileDao, times(2)).getActivityProfiles(any(), any(), any(), any(Pageable.class));
+        verify(mockCompoundService, times(2)).getCompound(eq(COMPOUND_NAME));
+    }
+
+    @Test
+    public void testGetActivityProfiles_cacheInvalidatedByImport() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(Page.empty(pr)).when(mockActivityProfileDao).getActivityProfiles(any(), any(), any(),
+            any(Pageable.class));
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(new BulkImportResult()).when(mockBulkImportDao).importActivityProfiles(any(), eq(true));
+
+        service.getActivityProfiles(null, null, null, pr);
+        service.bulkImportActivityProfiles(Collections.emptyIterator(), true);
+        service.getActivityProfiles(null, null, null, pr);
+
+        verify(mockActivityProfileDao, times(2)).getActivityProfiles(any(), any(), any(), any(Pageable.class));
+    }
+
+    @Test
+    public void testGetActivityProfileSlice_cached() {
+
+        doReturn(TestUtil.createCompound(COMPOUND_NAME)).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
+        PageRequest pr = PageRequest.of(0, 20);
+        Slice<ActivityProfile> expected = new SliceImpl<>(Collections.emptyList(), pr, false);
+        doReturn(expected).when(mockActivityProfileDao).getActivityProfileSlice(any(), any(), any(), any());
+
+        Assertions.assertSame(expected, service.getActivityProfileSlice(COMPOUND_NAME, Arrays.asList(1L, 2L),
+            0.3, pr));
+        Assertions.assertSame(expected, service.getActivityProfileSlice(COMPOUND_NAME, Arrays.asList(2L, 1L),
+            0.3, pr));
+
+        verify(mockActivityProfileDao, times(1)).getActivityProfileSlice(any(), any(), any(), any());
+        verify(mockActivityProfileDao, never()).countActivityProfiles(any(), any(), any());
+    }
+
+    @Test
+    public void testGetActivityProfileSlice_noSuchCompound() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+
+        Assertions.assertThrows(BadRequestException.class, () ->
+            service.getActivityProfileSlice(COMPOUND_NAME, null, null, pr));
+        verify(mockActivityProfileDao, never()).getActivityProfileSlice(any(), any(), any(), any());
+    }
+
+    @Test
+    public void testGetActivityProfilesWithCachedTotal_countedOncePerFilter() {
+
+        List<ActivityProfile> pageContent = Collections.singletonList(TestUtil.createActivityProfile(42L));
+        doAnswer(invocation -> new SliceImpl<>(pageContent, invocation.getArgument(3), true))
+            .when(mockActivityProfileDao).getActivityProfileSlice(any(), any(), any(), any(Pageable.class));
+        doReturn(45L).when(mockActivityProfileDao).countActivityProfiles(any(), any(), any());
+
+        Page<ActivityProfile> page = service.getActivityProfilesWithCachedTotal(null, null, 0.3,
+            PageRequest.of(0, 1));
+        Assertions.assertEquals(45, page.getTotalElements());
+        Assertions.assertEquals(pageContent, page.getContent());
+
+        // Later pages and other sorts with the same filters reuse the total
+        page = service.getActivityProfilesWithCachedTotal(null, null, 0.3,
+            PageRequest.of(3, 1, Sort.by("percentControl")));
+        Assertions.assertEquals(45, page.getTotalElements());
+        Assertions.assertEquals(3, page.getNumber());
+
+        verify(mockActivityProfileDao, times(2)).getActivityProfileSlice(any(), any(), any(), any());
+        verify(mockActivityProfileDao, times(1)).countActivityProfiles(isNull(), isNull(), eq(0.3));
+    }
+
+    @Test
+    public void testGetActivityProfilesWithCachedTotal_lastPageNotCounted() {
+
+        PageRequest pr = PageRequest.of(2, 20);
+        List<ActivityProfile> pageContent = Arrays.asList(TestUtil.createActivityProfile(1L),
+            TestUtil.createActivityProfile(2L));
+        doReturn(new SliceImpl<>(pageContent, pr, false)).when(mockActivityProfileDao)
+            .getActivityProfileSlice(any(), any(), any(), eq(pr));
+
+        Page<ActivityProfile> page = service.getActivityProfilesWithCachedTotal(null, null, null, pr);
+        Assertions.assertEquals(42, page.getTotalElements());
+        verify(mockActivityProfileDao, never()).countActivityProfiles(any(), any(), any());
+    }
+
+    @Test
+    public void testGetActivityProfilesWithCachedTotal_cacheInvalidatedByImport() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(new SliceImpl<>(Collections.emptyList(), pr, true)).when(mockActivityProfileDao)
+            .getActivityProfileSlice(any(), any(), any(), eq(pr));
+        doReturn(100L, 101L).when(mockActivityProfileDao).countActivityProfiles(any(), any(), any());
+        doReturn(true).when(mockBulkImportDao).isSupported();
+        doReturn(new BulkImportResult()).when(mockBulkImportDao).importActivityProfiles(any(), eq(true));
+
+        Assertions.assertEquals(100, service.getActivityProfilesWithCachedTotal(null, null, null, pr)
+            .getTotalElements());
+        service.bulkImportActivityProfiles(Collections.emptyIterator(), true);
+        Assertions.assertEquals(101, service.getActivityProfilesWithCachedTotal(null, null, null, pr)
+            .getTotalElements());
+        verify(mockActivityProfileDao, times(2)).countActivityProfiles(any(), any(), any());
+    }
+
     @Test
     public void testGetActivityProfiles_compound_happyPath() {
 
-        doReturn(true).when(mockCompoundService).getCompoundExists(eq(COMPOUND_NAME));
+        doReturn(TestUtil.createCompound(COMPOUND_NAME)).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
 
         Sort sort = Sort.by(Sort.Order.desc("createDate"));
         PageRequest pr = PageRequest.of(0, 20, sort);
@@ -93,7 +399,7 @@ public class ActivityProfileServiceTest {
     @Test
     public void testGetActivityProfiles_compound_error_noSuchCompound() {
 
-        doReturn(false).when(mockCompoundService).getCompoundExists(eq(COMPOUND_NAME));
+        doReturn(null).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
 
         Sort sort = Sort.by(Sort.Order.desc("createDate"));
         PageRequest pr = PageRequest.of(0, 20, sort);
@@ -106,7 +412,7 @@ public class ActivityProfileServiceTest {
     @Test
     public void testGetActivityProfiles_compoundKinaseAndPercentControl_happyPath() {
 
-        doReturn(true).when(mockCompoundService).getCompoundExists(eq(COMPOUND_NAME));
+        doReturn(TestUtil.createCompound(COMPOUND_NAME)).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
 
         Sort sort = Sort.by(Sort.Order.desc("createDate"));
         PageRequest pr = PageRequest.of(0, 20, sort);
@@ -129,7 +435,7 @@ public class ActivityProfileServiceTest {
     @Test
     public void testGetActivityProfiles_compoundKinasePercentControl_error_noSuchCompound() {
 
-        doReturn(false).when(mockCompoundService).getCompoundExists(eq(COMPOUND_NAME));
+        doReturn(null).when(mockCompoundService).getCompound(eq(COMPOUND_NAME));
 
         Sort sort = Sort.by(Sort.Order.desc("createDate"));
         PageRequest pr = PageRequest.of(0, 20, sort);
@@ -186,11 +492,10 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(mockCompoundService).getCompoundExists(anyString());
-        Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
-        doReturn(kinase).when(mockKinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
-        kinase = TestUtil.createKinase("discoverxB", "entrezB");
-        doReturn(kinase).when(mockKinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Arrays.asList(TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")))).when(mockKinaseService).getKinaseCatalog();
 
         ObjectImportRep importRep = service.importActivityProfiles(records, commit);
         List<List<ObjectImportRep.FieldStatus>> fieldStatuses = importRep.getFieldStatuses();
@@ -236,6 +541,39 @@ public class ActivityProfileServiceTest {
         verify(mockActivityProfileDao, times(commit ? 1 : 0)).save(any());
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testImportActivityProfiles_unchangedProfilesNotSaved() {
+
+        List<ActivityProfileCsvRecord> records = Arrays.asList(
+            TestUtil.createActivityProfileCsvRecord("compoundA", "discoverxA", "entrezA",
+                0.1, 1),
+            TestUtil.createActivityProfileCsvRecord("compoundB", "discoverxB", "entrezB",
+                0.8, 3)
+        );
+
+        Set<ActivityProfile> existingProfiles = new HashSet<>();
+        existingProfiles.add(TestUtil.createActivityProfile(42L, "compoundA",
+            "discoverxA", "entrezA", 0.1, 1));
+        doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
+
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Arrays.asList(TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")))).when(mockKinaseService).getKinaseCatalog();
+
+        ObjectImportRep importRep = service.importActivityProfiles(records, true);
+        Assertions.assertEquals(2, importRep.getFieldStatuses().size());
+        Assertions.assertEquals(1, importRep.getUnchangedCount());
+        Assertions.assertEquals(1, importRep.getNewCount());
+
+        // Only the new profile is written
+        verify(mockActivityProfileDao, times(1)).save((Iterable<ActivityProfile>)argThat(profiles -> {
+            Iterator<ActivityProfile> iter = ((Iterable<ActivityProfile>)profiles).iterator();
+            return "compoundB".equals(iter.next().getCompoundName()) && !iter.hasNext();
+        }));
+    }
+
     @Test
     public void testImportActivityProfiles_error_unknownCompound() throws BadRequestException {
 
@@ -250,7 +588,7 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(false).when(mockCompoundService).getCompoundExists(anyString());
+        doReturn(Collections.emptySet()).when(mockCompoundService).getExistingCompoundNames(any());
         Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
         doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(kinase.getEntrezGeneSymbol()));
 
@@ -271,8 +609,9 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(mockCompoundService).getCompoundExists(anyString());
-        doReturn(null).when(mockKinaseService).getKinase(eq("unknown"));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.emptyList())).when(mockKinaseService).getKinaseCatalog();
 
         Assertions.assertThrows(BadRequestException.class, () -> {
             service.importActivityProfiles(records, true);
@@ -304,11 +643,10 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(mockCompoundService).getCompoundExists(anyString());
-        Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
-        doReturn(kinase).when(mockKinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
-        kinase = TestUtil.createKinase("discoverxB", "entrezB");
-        doReturn(kinase).when(mockKinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Arrays.asList(TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")))).when(mockKinaseService).getKinaseCatalog();
 
         ObjectImportRep importRep = service.importKdValues(records, commit);
         List<List<ObjectImportRep.FieldStatus>> fieldStatuses = importRep.getFieldStatuses();
@@ -360,7 +698,7 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(false).when(mockCompoundService).getCompoundExists(anyString());
+        doReturn(Collections.emptySet()).when(mockCompoundService).getExistingCompoundNames(any());
         Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
         doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(records.get(0)
             .getEntrezGeneSymbol()));
@@ -381,11 +719,62 @@ public class ActivityProfileServiceTest {
         doReturn(existingProfiles).when(mockActivityProfileDao).getActivityProfiles(any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(mockCompoundService).getCompoundExists(anyString());
-        doReturn(null).when(mockKinaseService).getKinase(eq(records.get(0).getDiscoverxGeneSymbol()));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.emptyList())).when(mockKinaseService).getKinaseCatalog();
 
         Assertions.assertThrows(BadRequestException.class, () -> {
             service.importKdValues(records, true);
         });
     }
+
+    @Test
+    public void testValidateActivityProfiles() {
+
+        doReturn(Collections.singleton("compoundA")).when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(mockKinaseService).getKinaseCatalog();
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        report.nextRow(); // A row validated in a previous chunk
+        service.validateActivityProfiles(Arrays.asList(
+            TestUtil.createActivityProfileCsvRecord("compoundA", "DISCOVERXA", "entrezA", 0.9, 4),
+            TestUtil.createActivityProfileCsvRecord("compoundB", "discoverxA", "entrezA", 0.9, 4),
+            TestUtil.createActivityProfileCsvRecord("", "discoverxB", "entrezA", 0.9, 4)
+        ), report);
+
+        ImportValidationRep rep = report.toRep("activityProfiles");
+        Assertions.assertEquals(4, rep.getRowCount());
+        Assertions.assertEquals(2, rep.getInvalidRowCount());
+        Assertions.assertEquals(3, rep.getErrorCount());
+
+        List<ImportValidationRep.RowError> errors = rep.getErrors();
+        Assertions.assertEquals(3, errors.get(0).getRow());
+        Assertions.assertEquals("compoundName", errors.get(0).getField());
+        Assertions.assertEquals(4, errors.get(1).getRow());
+        Assertions.assertEquals("compoundName", errors.get(1).getField());
+        Assertions.assertEquals(4, errors.get(2).getRow());
+        Assertions.assertEquals("discoverxGeneSymbol", errors.get(2).getField());
+        verify(mockActivityProfileDao, times(0)).save(any());
+    }
+
+    @Test
+    public void testValidateKdValues() {
+
+        doReturn(Collections.singleton("compoundA")).when(mockCompoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(mockKinaseService).getKinaseCatalog();
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        service.validateKdValues(Arrays.asList(
+            TestUtil.createKdCsvRecord("compoundA", "discoverxA", "entrezA", null, 0.5),
+            TestUtil.createKdCsvRecord("compoundA", null, "entrezA", null, 0.5)
+        ), report);
+
+        ImportValidationRep rep = report.toRep("kdValues");
+        Assertions.assertEquals(2, rep.getRowCount());
+        Assertions.assertEquals(1, rep.getErrorCount());
+        Assertions.assertEquals(2, rep.getErrors().get(0).getRow());
+        Assertions.assertEquals("discoverxGeneSymbol", rep.getErrors().get(0).getField());
+    }
 }
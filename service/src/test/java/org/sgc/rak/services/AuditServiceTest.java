@@ -4,13 +4,17 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.KeysetDao;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.model.Audit;
 import org.sgc.rak.model.AuditAction;
 import org.sgc.rak.model.ModelConstants;
 import org.sgc.rak.repositories.AuditRepository;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
@@ -29,6 +33,9 @@ public class AuditServiceTest {
     @Mock
     private AuditRepository mockRepository;
 
+    @Mock
+    private KeysetDao mockKeysetDao;
+
     @InjectMocks
     private AuditService service;
 
@@ -131,4 +138,27 @@ public class AuditServiceTest {
             TestUtil.assertAuditsEqual(posts.get(i), actualPosts.getContent().get(i));
         }
     }
+
+    @Test
+    public void testGetAudits_keyset() {
+
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.desc("createDate")));
+        ContinuationToken after = new ContinuationToken(20, Collections.emptyList());
+
+        KeysetSlice<Audit> expected = new KeysetSlice<>(Collections.emptyList(), 20, null);
+        doReturn(expected).when(mockKeysetDao).getSlice(any(), ArgumentMatchers.<Specification<Audit>>any(), eq(after),
+            eq(20));
+
+        Assertions.assertSame(expected, service.getAudits(after, pr, null, null, null, null, null, null));
+    }
+
+    @Test
+    public void testGetAudits_keyset_unsupportedSort() {
+
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.asc("userName")));
+
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            service.getAudits(null, pr, null, null, null, null, null, null));
+        verify(mockKeysetDao, never()).getSlice(any(), any(), any(), anyInt());
+    }
 }
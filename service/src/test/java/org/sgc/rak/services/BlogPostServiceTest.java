@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.BlogPost;
@@ -29,9 +30,15 @@ public class BlogPostServiceTest {
     @Mock
     private BlogPostRepository mockRepository;
 
+    @Mock
+    private DatasetVersion mockDatasetVersion;
+
     @Mock
     private Messages mockMessages;
 
+    @Spy
+    private ReadCaches readCaches = TestUtil.createReadCaches();
+
     @InjectMocks
     private BlogPostService service;
 
@@ -40,6 +47,26 @@ public class BlogPostServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void testGetBlogPosts_cacheInvalidatedByWrites() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(Page.empty(pr)).when(mockRepository).findAll(any(Pageable.class));
+
+        service.getBlogPosts(pr);
+        service.getBlogPosts(pr);
+        verify(mockRepository, times(1)).findAll(any(Pageable.class));
+
+        service.createBlogPost(TestUtil.createBlogPost("title", "body"));
+        service.getBlogPosts(pr);
+        verify(mockRepository, times(2)).findAll(any(Pageable.class));
+
+        service.deleteBlogPost(1L);
+        service.getBlogPosts(pr);
+        verify(mockRepository, times(3)).findAll(any(Pageable.class));
+        verify(mockDatasetVersion, times(2)).dataChanged();
+    }
+
     @Test
     public void testCreateBlogPost() {
 
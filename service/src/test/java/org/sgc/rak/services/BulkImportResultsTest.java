@@ -0,0 +1,51 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.sgc.rak.dao.BulkImportResult;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ObjectImportRep;
+
+import static org.mockito.ArgumentMatchers.eq;
+
+public class BulkImportResultsTest {
+
+    @Test
+    public void testToImportRep() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setNewCount(3);
+        result.setModifiedCount(2);
+        result.setUnchangedCount(1);
+
+        ObjectImportRep importRep = BulkImportResults.toImportRep(result, null);
+        Assertions.assertEquals(3, importRep.getNewCount());
+        Assertions.assertEquals(2, importRep.getModifiedCount());
+        Assertions.assertEquals(1, importRep.getUnchangedCount());
+        Assertions.assertTrue(importRep.getFieldStatuses().isEmpty());
+    }
+
+    @Test
+    public void testToImportRep_unknownCompound() {
+
+        Messages messages = Mockito.mock(Messages.class);
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownCompoundName("compoundA");
+
+        Assertions.assertThrows(BadRequestException.class, () -> BulkImportResults.toImportRep(result, messages));
+        Mockito.verify(messages).get(eq("error.importReferencesUnknownCompound"), eq("compoundA"));
+    }
+
+    @Test
+    public void testToImportRep_unknownKinase() {
+
+        Messages messages = Mockito.mock(Messages.class);
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownDiscoverx("discoverxA");
+
+        Assertions.assertThrows(BadRequestException.class, () -> BulkImportResults.toImportRep(result, messages));
+        Mockito.verify(messages).get(eq("error.importReferencesUnknownKinase"), eq("discoverxA"));
+    }
+}
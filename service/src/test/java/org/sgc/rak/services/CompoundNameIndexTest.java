@@ -0,0 +1,83 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+public class CompoundNameIndexTest {
+
+    private CompoundNameIndex index;
+
+    @BeforeEach
+    public void setUp() {
+        index = new CompoundNameIndex();
+        index.put("SGC-CK2-1", false);
+        index.put("sgc-gak-1", false);
+        index.put("AZD-1480", false);
+        index.put("Hidden-SGC", true);
+        index.put("CK", false);
+    }
+
+    @Test
+    public void testSearch_rankedMatches() {
+        // Prefix matches first, then word-start matches, then other substring matches
+        index.put("XSGC", false);
+        Assertions.assertEquals(Arrays.asList("SGC-CK2-1", "sgc-gak-1", "XSGC"),
+            index.search("sgc", 10, false));
+    }
+
+    @Test
+    public void testSearch_exactMatchFirst() {
+        Assertions.assertEquals(Arrays.asList("CK", "SGC-CK2-1"), index.search("ck", 10, false));
+    }
+
+    @Test
+    public void testSearch_shortQueryScansAllNames() {
+        Assertions.assertEquals(Arrays.asList("AZD-1480", "sgc-gak-1"), index.search("a", 10, false));
+    }
+
+    @Test
+    public void testSearch_hiddenCompounds() {
+        Assertions.assertEquals(Arrays.asList("SGC-CK2-1", "sgc-gak-1"), index.search("SGC", 10, false));
+        Assertions.assertEquals(Arrays.asList("SGC-CK2-1", "sgc-gak-1", "Hidden-SGC"),
+            index.search("SGC", 10, true));
+    }
+
+    @Test
+    public void testSearch_limit() {
+        Assertions.assertEquals(Collections.singletonList("SGC-CK2-1"), index.search("sgc", 1, false));
+        Assertions.assertTrue(index.search("sgc", 0, false).isEmpty());
+    }
+
+    @Test
+    public void testSearch_noMatches() {
+        Assertions.assertTrue(index.search("xyz", 10, true).isEmpty());
+        Assertions.assertTrue(index.search("sgc-x", 10, true).isEmpty());
+        Assertions.assertTrue(index.search("", 10, true).isEmpty());
+    }
+
+    @Test
+    public void testIsHidden() {
+        Assertions.assertTrue(index.isHidden("Hidden-SGC"));
+        Assertions.assertFalse(index.isHidden("SGC-CK2-1"));
+        Assertions.assertFalse(index.isHidden("unknown"));
+    }
+
+    @Test
+    public void testPut_updatesHidden() {
+        index.put("Hidden-SGC", false);
+        Assertions.assertEquals(5, index.size());
+        Assertions.assertEquals(Collections.singletonList("Hidden-SGC"), index.search("hidden", 10, false));
+    }
+
+    @Test
+    public void testRemove() {
+        index.remove("sgc-gak-1");
+        index.remove("unknown");
+        Assertions.assertEquals(4, index.size());
+        Assertions.assertEquals(Collections.singletonList("SGC-CK2-1"), index.search("sgc", 10, false));
+    }
+}
@@ -6,23 +6,30 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.sgc.rak.dao.CompoundDao;
+import org.sgc.rak.dao.KeysetSlice;
 import org.sgc.rak.exceptions.NotFoundException;
 import org.sgc.rak.i18n.Messages;
-import org.sgc.rak.model.ActivityProfile;
 import org.sgc.rak.model.Compound;
+import org.sgc.rak.model.CompoundActivityPair;
 import org.sgc.rak.model.CompoundCountPair;
 import org.sgc.rak.model.Kinase;
-import org.sgc.rak.repositories.ActivityProfileRepository;
+import org.sgc.rak.reps.ImportValidationRep;
+import org.sgc.rak.util.ContinuationToken;
 import org.sgc.rak.util.TestUtil;
 import org.springframework.data.domain.*;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -35,11 +42,17 @@ public class CompoundServiceTest {
     private KinaseService mockKinaseService;
 
     @Mock
-    private ActivityProfileRepository mockActivityProfileRepository;
+    private ImportPublisher mockImportPublisher;
+
+    @Mock
+    private DatasetVersion mockDatasetVersion;
 
     @Mock
     private Messages mockMessages;
 
+    @Spy
+    private ReadCaches readCaches = TestUtil.createReadCaches();
+
     @InjectMocks
     private CompoundService service;
 
@@ -64,6 +77,46 @@ public class CompoundServiceTest {
         TestUtil.assertCompoundsEqual(expected, actual);
     }
 
+    @Test
+    public void testGetCompound_cached() {
+
+        Compound expected = TestUtil.createCompound(COMPOUND_NAME);
+        doReturn(expected).when(mockCompoundDao).getCompound(eq(COMPOUND_NAME));
+
+        service.getCompound(COMPOUND_NAME);
+        Compound actual = service.getCompound(COMPOUND_NAME);
+        TestUtil.assertCompoundsEqual(expected, actual);
+        verify(mockCompoundDao, times(1)).getCompound(eq(COMPOUND_NAME));
+    }
+
+    @Test
+    public void testGetCompound_cachedIgnoringCase() {
+
+        Compound expected = TestUtil.createCompound(COMPOUND_NAME);
+        doReturn(expected).when(mockCompoundDao).getCompound(eq(COMPOUND_NAME));
+
+        service.getCompound(COMPOUND_NAME);
+        Compound actual = service.getCompound(COMPOUND_NAME.toUpperCase(Locale.US));
+        TestUtil.assertCompoundsEqual(expected, actual);
+        verify(mockCompoundDao, times(1)).getCompound(any());
+    }
+
+    @Test
+    public void testGetCompound_cacheInvalidatedByUpdate() {
+
+        Compound original = TestUtil.createCompound(COMPOUND_NAME);
+        Compound updated = TestUtil.createCompound(COMPOUND_NAME);
+        updated.setChemotype("newChemotype");
+        doReturn(original).when(mockCompoundDao).getCompound(eq(COMPOUND_NAME));
+        doReturn(updated).when(mockCompoundDao).save(any(Compound.class));
+
+        service.getCompound(COMPOUND_NAME);
+        service.updateCompound(updated);
+
+        doReturn(updated).when(mockCompoundDao).getCompound(eq(COMPOUND_NAME));
+        Assertions.assertEquals("newChemotype", service.getCompound(COMPOUND_NAME).getChemotype());
+    }
+
     @Test
     public void testGetCompoundExists() {
         doReturn(true).when(mockCompoundDao).getCompoundExists(eq(COMPOUND_NAME));
@@ -111,63 +164,155 @@ public class CompoundServiceTest {
     @Test
     public void testGetCompoundsByKinaseAndActivity_happyPath() {
 
-        Sort sort = Sort.by(Sort.Order.desc("compoundName"));
-        PageRequest pr = PageRequest.of(0, 20, sort);
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.desc("compoundName")));
 
         Kinase kinase = TestUtil.createKinase(KINASE_ID, KINASE_DISCOVERX, KINASE_ENTREZ);
-        doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
+        Kinase mutant = TestUtil.createKinase(KINASE_ID + 1, KINASE_DISCOVERX + "-mutant", KINASE_ENTREZ);
+        doReturn(Arrays.asList(kinase, mutant)).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
 
-        List<ActivityProfile> activityProfiles = Collections.singletonList(
-            TestUtil.createActivityProfile(3L, COMPOUND_NAME, KINASE_DISCOVERX, KINASE_ENTREZ,
-                0.3, 4)
-        );
-        PageImpl<ActivityProfile> profilePage = new PageImpl<>(activityProfiles, pr, 1);
-        List<Long> kinaseIds = Collections.singletonList(KINASE_ID);
-        doReturn(profilePage).when(mockActivityProfileRepository)
-            .getActivityProfilesByKinaseIdInAndPercentControlLessThanEqual(eq(kinaseIds), anyDouble(),
-                any(Pageable.class));
+        Page<CompoundActivityPair> expectedPage = new PageImpl<>(Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 0.2)), pr, 1);
+        doReturn(expectedPage).when(mockCompoundDao).getCompoundsByKinaseAndActivity(
+            eq(Arrays.asList(KINASE_ID, KINASE_ID + 1)), eq(0.3), eq(pr));
 
-        List<Compound> expectedCompounds = Collections.singletonList(TestUtil.createCompound(COMPOUND_NAME));
-        doReturn(expectedCompounds).when(mockCompoundDao).getCompounds(anyList());
+        Assertions.assertSame(expectedPage, service.getCompoundsByKinaseAndActivity(KINASE_ENTREZ, 0.3, pr));
+    }
 
-        Page<Compound> actualPage = service.getCompoundsByKinaseAndActivity(KINASE_ENTREZ, 0.3, pr);
-        Assertions.assertEquals(1, actualPage.getNumberOfElements());
-        Assertions.assertEquals(1, actualPage.getTotalElements());
-        Assertions.assertEquals(1, actualPage.getTotalPages());
-        for (int i = 0; i < expectedCompounds.size(); i++) {
-            TestUtil.assertCompoundsEqual(expectedCompounds.get(i), actualPage.getContent().get(i));
-        }
+    @Test
+    public void testGetCompoundsByKinaseAndIc50_happyPath() {
+
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.desc("compoundName")));
+
+        Kinase kinase = TestUtil.createKinase(KINASE_ID, KINASE_DISCOVERX, KINASE_ENTREZ);
+        doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
+
+        Page<CompoundActivityPair> expectedPage = new PageImpl<>(Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 5d)), pr, 1);
+        doReturn(expectedPage).when(mockCompoundDao).getCompoundsByKinaseAndIc50(
+            eq(Collections.singletonList(KINASE_ID)), eq(10d), eq(pr));
+
+        Assertions.assertSame(expectedPage, service.getCompoundsByKinaseAndIc50(KINASE_ENTREZ, 10, pr));
     }
 
     @Test
     public void testGetCompoundsByKinaseAndKd_happyPath() {
 
-        Sort sort = Sort.by(Sort.Order.desc("compoundName"));
-        PageRequest pr = PageRequest.of(0, 20, sort);
+        PageRequest pr = PageRequest.of(0, 20, Sort.by(Sort.Order.desc("compoundName")));
 
         Kinase kinase = TestUtil.createKinase(KINASE_ID, KINASE_DISCOVERX, KINASE_ENTREZ);
         doReturn(Collections.singletonList(kinase)).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
 
-        List<ActivityProfile> activityProfiles = Collections.singletonList(
-            TestUtil.createActivityProfile(3L, COMPOUND_NAME, KINASE_DISCOVERX, KINASE_ENTREZ,
-                0.3, 4)
-        );
-        PageImpl<ActivityProfile> profilePage = new PageImpl<>(activityProfiles, pr, 1);
-        List<Long> kinaseIds = Collections.singletonList(KINASE_ID);
-        doReturn(profilePage).when(mockActivityProfileRepository)
-            .getActivityProfilesByKinaseIdInAndKdLessThanEqual(eq(kinaseIds), anyDouble(),
-                any(Pageable.class));
+        Page<CompoundActivityPair> expectedPage = new PageImpl<>(Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), 12d)), pr, 1);
+        doReturn(expectedPage).when(mockCompoundDao).getCompoundsByKinaseAndKd(
+            eq(Collections.singletonList(KINASE_ID)), eq(42d), eq(pr));
 
-        List<Compound> expectedCompounds = Collections.singletonList(TestUtil.createCompound(COMPOUND_NAME));
-        doReturn(expectedCompounds).when(mockCompoundDao).getCompounds(anyList());
+        Assertions.assertSame(expectedPage, service.getCompoundsByKinaseAndKd(KINASE_ENTREZ, 42, pr));
+    }
 
-        Page<Compound> actualPage = service.getCompoundsByKinaseAndKd(KINASE_ENTREZ, 42, pr);
-        Assertions.assertEquals(1, actualPage.getNumberOfElements());
-        Assertions.assertEquals(1, actualPage.getTotalElements());
-        Assertions.assertEquals(1, actualPage.getTotalPages());
-        for (int i = 0; i < expectedCompounds.size(); i++) {
-            TestUtil.assertCompoundsEqual(expectedCompounds.get(i), actualPage.getContent().get(i));
-        }
+    @Test
+    public void testSearchCompounds() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+
+        doReturn(Collections.singletonList(TestUtil.createKinase(1, "discoverxA", "entrezA")))
+            .when(mockKinaseService).getKinase(eq("entrezA"));
+        doReturn(Arrays.asList(TestUtil.createKinase(2, "discoverxB", "entrezB"),
+            TestUtil.createKinase(3, "discoverxB-mutant", "entrezB"))).when(mockKinaseService).getKinase(eq("entrezB"));
+
+        Page<CompoundActivityPair> expectedPage = new PageImpl<>(Collections.emptyList(), pr, 0);
+        doReturn(expectedPage).when(mockCompoundDao).searchCompounds(argThat(criteria ->
+            "foo".equals(criteria.getCompoundNamePart()) &&
+            criteria.getKinaseIds().equals(Arrays.asList(Collections.singletonList(1L), Arrays.asList(2L, 3L))) &&
+            criteria.getMaxPercentControl() == 10 && criteria.getMaxKd() == 100 && criteria.getMaxIc50() == null &&
+            !criteria.isIncludeHidden()), eq(pr));
+
+        Assertions.assertSame(expectedPage, service.searchCompounds("foo", Arrays.asList("entrezA", "entrezB"),
+            10d, 100d, null, false, pr));
+    }
+
+    @Test
+    public void testSearchCompoundSlice() {
+
+        PageRequest pr = PageRequest.of(1, 20);
+        Slice<CompoundActivityPair> expectedSlice = new SliceImpl<>(Collections.emptyList(), pr, false);
+        doReturn(expectedSlice).when(mockCompoundDao).searchCompoundSlice(argThat(criteria ->
+            "foo".equals(criteria.getCompoundNamePart()) && criteria.getKinaseIds().isEmpty() &&
+            criteria.isIncludeHidden()), eq(pr));
+
+        Assertions.assertSame(expectedSlice, service.searchCompoundSlice("foo", Collections.emptyList(), null,
+            null, null, true, pr));
+        Assertions.assertSame(expectedSlice, service.searchCompoundSlice("FOO", Collections.emptyList(), null,
+            null, null, true, pr));
+        verify(mockCompoundDao, times(1)).searchCompoundSlice(any(), any());
+        verify(mockCompoundDao, never()).countCompounds(any());
+    }
+
+    @Test
+    public void testSearchCompoundsWithCachedTotal_countedOncePerSearch() {
+
+        List<CompoundActivityPair> pageContent = Collections.singletonList(
+            new CompoundActivityPair(TestUtil.createCompound(COMPOUND_NAME), null));
+        doAnswer(invocation -> new SliceImpl<>(pageContent, invocation.getArgument(1), true))
+            .when(mockCompoundDao).searchCompoundSlice(any(), any(Pageable.class));
+        doReturn(45L).when(mockCompoundDao).countCompounds(any());
+
+        Page<CompoundActivityPair> page = service.searchCompoundsWithCachedTotal("foo", Collections.emptyList(),
+            null, null, null, false, PageRequest.of(0, 1));
+        Assertions.assertEquals(45, page.getTotalElements());
+        Assertions.assertEquals(pageContent, page.getContent());
+
+        // Later pages and other sorts of the same search reuse the total
+        page = service.searchCompoundsWithCachedTotal("foo", Collections.emptyList(), null, null, null, false,
+            PageRequest.of(3, 1, Sort.by("s10")));
+        Assertions.assertEquals(45, page.getTotalElements());
+        Assertions.assertEquals(3, page.getNumber());
+
+        verify(mockCompoundDao, times(2)).searchCompoundSlice(any(), any());
+        verify(mockCompoundDao, times(1)).countCompounds(argThat(criteria ->
+            "foo".equals(criteria.getCompoundNamePart()) && !criteria.isIncludeHidden()));
+    }
+
+    @Test
+    public void testSearchCompoundsWithCachedTotal_lastPageNotCounted() {
+
+        PageRequest pr = PageRequest.of(2, 20);
+        List<CompoundActivityPair> pageContent = Arrays.asList(
+            new CompoundActivityPair(TestUtil.createCompound("compoundA"), null),
+            new CompoundActivityPair(TestUtil.createCompound("compoundB"), null));
+        doReturn(new SliceImpl<>(pageContent, pr, false)).when(mockCompoundDao).searchCompoundSlice(any(), eq(pr));
+
+        Page<CompoundActivityPair> page = service.searchCompoundsWithCachedTotal(null, Collections.emptyList(),
+            null, null, null, false, pr);
+        Assertions.assertEquals(42, page.getTotalElements());
+        verify(mockCompoundDao, never()).countCompounds(any());
+    }
+
+    @Test
+    public void testSearchCompoundsWithCachedTotal_cacheInvalidatedByActivityProfileChanges() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(new SliceImpl<>(Collections.emptyList(), pr, true)).when(mockCompoundDao)
+            .searchCompoundSlice(any(), eq(pr));
+        doReturn(100L, 101L).when(mockCompoundDao).countCompounds(any());
+
+        Assertions.assertEquals(100, service.searchCompoundsWithCachedTotal(null, Collections.emptyList(), null,
+            null, null, false, pr).getTotalElements());
+        service.activityProfilesChanged();
+        Assertions.assertEquals(101, service.searchCompoundsWithCachedTotal(null, Collections.emptyList(), null,
+            null, null, false, pr).getTotalElements());
+        verify(mockCompoundDao, times(2)).countCompounds(any());
+    }
+
+    @Test
+    public void testSearchCompounds_error_noSuchKinase() {
+
+        doReturn(Collections.emptyList()).when(mockKinaseService).getKinase(eq(KINASE_ENTREZ));
+
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            service.searchCompounds(null, Collections.singletonList(KINASE_ENTREZ), 10d, null, null, true,
+                PageRequest.of(0, 20));
+        });
     }
 
     @Test
@@ -233,6 +378,28 @@ public class CompoundServiceTest {
         }
     }
 
+    @Test
+    public void testGetCompoundsMissingActivityProfiles_keyset() {
+
+        Pageable pageable = PageRequest.of(0, 2, Sort.by("compoundName"));
+        ContinuationToken after = new ContinuationToken(2, Collections.singletonList("compoundB"));
+
+        KeysetSlice<CompoundCountPair> expected = new KeysetSlice<>(Collections.emptyList(), 2, null);
+        doReturn(expected).when(mockCompoundDao).getCompoundsMissingActivityProfiles(eq("foo"), eq(after),
+            eq(pageable));
+
+        Assertions.assertSame(expected, service.getCompoundsMissingActivityProfiles("foo", after, pageable));
+    }
+
+    @Test
+    public void testGetExistingCompoundNames() {
+
+        Set<String> expected = Collections.singleton(COMPOUND_NAME);
+        doReturn(expected).when(mockCompoundDao).getExistingCompoundNames(any());
+
+        Assertions.assertEquals(expected, service.getExistingCompoundNames(Arrays.asList(COMPOUND_NAME, "foo")));
+    }
+
     @Test
     public void testGetHiddenCompounds() {
 
@@ -308,9 +475,12 @@ public class CompoundServiceTest {
 
         service.importCompounds(compounds, commit);
 
-        // Verify save was only performed if commit was true
+        // Verify save was only performed if commit was true, and only for the compound that changed
         if (commit) {
-            verify(mockCompoundDao, times(1)).save(any(Iterable.class));
+            verify(mockCompoundDao, times(1)).save((Iterable<Compound>)argThat(saved -> {
+                List<Compound> list = (List<Compound>)saved;
+                return list.size() == 1 && "compoundB".equals(list.get(0).getCompoundName());
+            }));
         }
     }
 
@@ -323,5 +493,72 @@ public class CompoundServiceTest {
 
         Compound actual = service.updateCompound(expected);
         TestUtil.assertCompoundsEqual(expected, actual);
+
+        // Re-importing the last file must not be skipped after a manual edit
+        verify(mockImportPublisher, times(1)).invalidatePublishedFile();
+        verify(mockDatasetVersion, times(1)).dataChanged();
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions() {
+
+        doReturn(Arrays.asList("compoundA", "otherCompound")).when(mockCompoundDao).getCompoundNames(eq(false));
+        doReturn(Collections.singletonList("compoundHidden")).when(mockCompoundDao).getCompoundNames(eq(true));
+
+        Assertions.assertEquals(Arrays.asList("compoundA", "otherCompound"),
+            service.getCompoundNameSuggestions("compound", 10, false));
+        Assertions.assertEquals(Arrays.asList("compoundA", "compoundHidden", "otherCompound"),
+            service.getCompoundNameSuggestions("compound", 10, true));
+
+        // The index is only loaded once
+        verify(mockCompoundDao, times(1)).getCompoundNames(eq(false));
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions_updatedOnImportAndEdit() {
+
+        doReturn(Collections.singletonList("compoundA")).when(mockCompoundDao).getCompoundNames(eq(false));
+        doReturn(Collections.emptyList()).when(mockCompoundDao).getCompoundNames(eq(true));
+        doReturn(Collections.emptyList()).when(mockCompoundDao).getCompounds(anyList());
+        service.preloadCompoundNames();
+
+        service.importCompounds(Collections.singletonList(TestUtil.createCompound("compoundB")), true);
+        Assertions.assertEquals(Arrays.asList("compoundA", "compoundB"),
+            service.getCompoundNameSuggestions("compound", 10, false));
+
+        Compound hidden = TestUtil.createCompound("compoundA");
+        hidden.setHidden(true);
+        doReturn(hidden).when(mockCompoundDao).save(any(Compound.class));
+        service.updateCompound(hidden);
+        Assertions.assertEquals(Collections.singletonList("compoundB"),
+            service.getCompoundNameSuggestions("compound", 10, false));
+    }
+
+    @Test
+    public void testGetCompoundNameSuggestions_notUpdatedOnDryRun() {
+
+        doReturn(Collections.emptyList()).when(mockCompoundDao).getCompoundNames(anyBoolean());
+        doReturn(Collections.emptyList()).when(mockCompoundDao).getCompounds(anyList());
+        service.preloadCompoundNames();
+
+        service.importCompounds(Collections.singletonList(TestUtil.createCompound("compoundB")), false);
+        Assertions.assertTrue(service.getCompoundNameSuggestions("compound", 10, false).isEmpty());
+    }
+
+    @Test
+    public void testValidateCompounds() {
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        service.validateCompounds(Arrays.asList(
+            TestUtil.createCompound("compoundA"),
+            TestUtil.createCompound(""),
+            TestUtil.createCompound("compoundC")
+        ), report);
+
+        ImportValidationRep rep = report.toRep("compounds");
+        Assertions.assertEquals(3, rep.getRowCount());
+        Assertions.assertEquals(1, rep.getErrorCount());
+        Assertions.assertEquals(2, rep.getErrors().get(0).getRow());
+        Assertions.assertEquals("compoundName", rep.getErrors().get(0).getField());
     }
 }
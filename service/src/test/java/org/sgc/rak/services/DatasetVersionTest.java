@@ -0,0 +1,23 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DatasetVersionTest {
+
+    @Test
+    public void testDataChanged() {
+
+        DatasetVersion datasetVersion = new DatasetVersion();
+        long version = datasetVersion.getVersion();
+
+        datasetVersion.dataChanged();
+        Assertions.assertTrue(datasetVersion.getVersion() > version);
+    }
+
+    @Test
+    public void testGetVersion_increasesAcrossRestarts() {
+        long start = System.currentTimeMillis();
+        Assertions.assertTrue(new DatasetVersion().getVersion() >= start);
+    }
+}
@@ -0,0 +1,66 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.reps.ImportValidationRep;
+
+public class ImportErrorReportTest {
+
+    @Test
+    public void testToRep_noErrors() {
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        report.nextRow();
+        report.nextRow();
+
+        ImportValidationRep rep = report.toRep("compounds");
+        Assertions.assertEquals("compounds", rep.getType());
+        Assertions.assertEquals(2, rep.getRowCount());
+        Assertions.assertEquals(0, rep.getInvalidRowCount());
+        Assertions.assertEquals(0, rep.getErrorCount());
+        Assertions.assertFalse(rep.isTruncated());
+        Assertions.assertTrue(rep.getErrors().isEmpty());
+    }
+
+    @Test
+    public void testToRep_errors() {
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        long row = report.nextRow();
+        report.addError(row, "compoundName", "Unknown compound");
+        report.addError(row, "discoverxGeneSymbol", "Unknown kinase");
+        report.nextRow();
+        row = report.nextRow();
+        report.addError(row, "compoundName", "Unknown compound");
+
+        ImportValidationRep rep = report.toRep("activityProfiles");
+        Assertions.assertEquals(3, rep.getRowCount());
+        Assertions.assertEquals(2, rep.getInvalidRowCount());
+        Assertions.assertEquals(3, rep.getErrorCount());
+        Assertions.assertFalse(rep.isTruncated());
+        Assertions.assertEquals(3, rep.getErrors().size());
+
+        ImportValidationRep.RowError error = rep.getErrors().get(1);
+        Assertions.assertEquals(1, error.getRow());
+        Assertions.assertEquals("discoverxGeneSymbol", error.getField());
+        Assertions.assertEquals("Unknown kinase", error.getMessage());
+        Assertions.assertEquals(3, rep.getErrors().get(2).getRow());
+    }
+
+    @Test
+    public void testToRep_truncated() {
+
+        ImportErrorReport report = new ImportErrorReport(2);
+        for (int i = 0; i < 5; i++) {
+            report.addError(report.nextRow(), "compoundName", "Unknown compound");
+        }
+
+        ImportValidationRep rep = report.toRep("activityProfiles");
+        Assertions.assertEquals(5, rep.getRowCount());
+        Assertions.assertEquals(5, rep.getInvalidRowCount());
+        Assertions.assertEquals(5, rep.getErrorCount());
+        Assertions.assertTrue(rep.isTruncated());
+        Assertions.assertEquals(2, rep.getErrors().size());
+        Assertions.assertEquals(2, rep.getErrors().get(1).getRow());
+    }
+}
@@ -0,0 +1,229 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.exceptions.ServiceUnavailableException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ImportJobRep;
+import org.sgc.rak.reps.ObjectImportRep;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+public class ImportJobServiceTest {
+
+    @Mock
+    private Messages mockMessages;
+
+    private ImportJobService service;
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+        doReturn("error").when(mockMessages).get(anyString(), any());
+
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rak.import.job-threads", "1");
+        environment.setProperty("rak.import.job-queue-size", "1");
+        service = new ImportJobService(environment, mockMessages);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        service.shutdown();
+    }
+
+    private ImportJobRep waitForJob(String id) throws InterruptedException {
+
+        long end = System.currentTimeMillis() + 5000;
+        ImportJobRep rep = service.getJob(id);
+
+        while (!rep.getStatus().isFinished() && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+            rep = service.getJob(id);
+        }
+
+        return rep;
+    }
+
+    @Test
+    public void testSubmitJob_happyPath() throws InterruptedException {
+
+        AtomicInteger cleanupCount = new AtomicInteger();
+        ObjectImportRep result = new ObjectImportRep();
+        result.setNewCount(3);
+
+        ImportJobRep rep = service.submitJob("activityProfiles", true, job -> {
+            job.rowsParsed(3, 5);
+            job.rowsImported(3, 7);
+            return result;
+        }, cleanupCount::incrementAndGet);
+        Assertions.assertEquals("activityProfiles", rep.getType());
+        Assertions.assertNotNull(rep.getSubmitted());
+
+        rep = waitForJob(rep.getId());
+        Assertions.assertEquals(ImportJobRep.Status.SUCCEEDED, rep.getStatus());
+        Assertions.assertEquals(3, rep.getRowsParsed());
+        Assertions.assertEquals(3, rep.getRowsValidated());
+        Assertions.assertEquals(3, rep.getRowsWritten());
+        Assertions.assertEquals(5, rep.getPhaseTimings().get(ImportJob.PHASE_PARSE).longValue());
+        Assertions.assertEquals(7, rep.getPhaseTimings().get(ImportJob.PHASE_IMPORT).longValue());
+        Assertions.assertEquals(3, rep.getResult().getNewCount());
+        Assertions.assertNotNull(rep.getStarted());
+        Assertions.assertNotNull(rep.getFinished());
+        Assertions.assertEquals(1, cleanupCount.get());
+    }
+
+    @Test
+    public void testSubmitJob_noCommit_nothingWritten() throws InterruptedException {
+
+        ImportJobRep rep = service.submitJob("activityProfiles", false, job -> {
+            job.rowsParsed(3, 5);
+            job.rowsImported(3, 7);
+            return new ObjectImportRep();
+        }, null);
+
+        rep = waitForJob(rep.getId());
+        Assertions.assertEquals(ImportJobRep.Status.SUCCEEDED, rep.getStatus());
+        Assertions.assertEquals(3, rep.getRowsValidated());
+        Assertions.assertEquals(0, rep.getRowsWritten());
+    }
+
+    @Test
+    public void testSubmitJob_badRequest() throws InterruptedException {
+
+        ImportJobRep rep = service.submitJob("activityProfiles", true, job -> {
+            throw new BadRequestException("Unknown compound");
+        }, null);
+
+        rep = waitForJob(rep.getId());
+        Assertions.assertEquals(ImportJobRep.Status.FAILED, rep.getStatus());
+        Assertions.assertEquals("Unknown compound", rep.getError());
+    }
+
+    @Test
+    public void testSubmitJob_unexpectedError() throws InterruptedException {
+
+        ImportJobRep rep = service.submitJob("activityProfiles", true, job -> {
+            throw new IllegalStateException("Oops");
+        }, null);
+
+        rep = waitForJob(rep.getId());
+        Assertions.assertEquals(ImportJobRep.Status.FAILED, rep.getStatus());
+        Assertions.assertEquals("error", rep.getError());
+    }
+
+    @Test
+    public void testSubmitJob_tooManyJobs() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger cleanupCount = new AtomicInteger();
+
+        try {
+            submitBlockingJob(latch);
+            service.submitJob("activityProfiles", true, job -> new ObjectImportRep(), null);
+
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+                service.submitJob("activityProfiles", true, job -> new ObjectImportRep(),
+                    cleanupCount::incrementAndGet);
+            });
+            Assertions.assertEquals(1, cleanupCount.get());
+        } finally {
+            latch.countDown();
+        }
+    }
+
+    @Test
+    public void testCancelJob_running() throws InterruptedException {
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+
+        ImportJobRep rep = service.submitJob("activityProfiles", true, job -> {
+            started.countDown();
+            await(cancelled);
+            job.checkCancelled();
+            return new ObjectImportRep();
+        }, null);
+
+        await(started);
+        Assertions.assertEquals(ImportJobRep.Status.RUNNING, service.cancelJob(rep.getId()).getStatus());
+        cancelled.countDown();
+
+        rep = waitForJob(rep.getId());
+        Assertions.assertEquals(ImportJobRep.Status.CANCELLED, rep.getStatus());
+    }
+
+    @Test
+    public void testCancelJob_queued() throws InterruptedException {
+
+        CountDownLatch latch = new CountDownLatch(1);
+        AtomicInteger runCount = new AtomicInteger();
+        AtomicInteger cleanupCount = new AtomicInteger();
+
+        try {
+            submitBlockingJob(latch);
+            ImportJobRep queued = service.submitJob("activityProfiles", true, job -> {
+                runCount.incrementAndGet();
+                return new ObjectImportRep();
+            }, cleanupCount::incrementAndGet);
+
+            ImportJobRep rep = service.cancelJob(queued.getId());
+            Assertions.assertEquals(ImportJobRep.Status.CANCELLED, rep.getStatus());
+            Assertions.assertEquals(1, cleanupCount.get());
+        } finally {
+            latch.countDown();
+        }
+
+        Assertions.assertEquals(0, runCount.get());
+    }
+
+    @Test
+    public void testCancelJob_noSuchJob() {
+        Assertions.assertThrows(NotFoundException.class, () -> service.cancelJob("unknown"));
+    }
+
+    @Test
+    public void testGetJob_noSuchJob() {
+        Assertions.assertThrows(NotFoundException.class, () -> service.getJob("unknown"));
+    }
+
+    /**
+     * Submits a job that occupies the only job thread until {@code latch} is released.  This method doesn't
+     * return until the job is running, so that subsequent jobs are queued.
+     */
+    private void submitBlockingJob(CountDownLatch latch) {
+
+        CountDownLatch started = new CountDownLatch(1);
+
+        service.submitJob("activityProfiles", true, job -> {
+            started.countDown();
+            await(latch);
+            return new ObjectImportRep();
+        }, null);
+
+        await(started);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            Assertions.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(ie);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.ImportPreviewRep;
+import org.sgc.rak.reps.ImportPreviewRowRep;
+import org.sgc.rak.reps.ObjectImportRep;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ImportPreviewServiceTest {
+
+    @Mock
+    private ImportPublisher mockImportPublisher;
+
+    @Mock
+    private Messages mockMessages;
+
+    private ImportPreviewService service;
+
+    /**
+     * Records imported in the tests below.  A record's value determines how it compares to the existing data:
+     * "new", "same", "modified" or "invalid".
+     */
+    private static final List<String> RECORDS = Arrays.asList("new", "same", "modified", "invalid", "new");
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+        doReturn("error").when(mockMessages).get(anyString(), any());
+        doAnswer(inv -> inv.<Supplier<?>>getArgument(0).get()).when(mockImportPublisher).publish(any());
+
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rak.import.max-previews", "2");
+        service = new ImportPreviewService(mockImportPublisher, environment, mockMessages);
+    }
+
+    private static ObjectImportRep.FieldStatus createFieldStatus(String fieldName, Object oldValue, Object newValue) {
+        ObjectImportRep.FieldStatus status = new ObjectImportRep.FieldStatus();
+        status.setFieldName(fieldName);
+        status.setOldValue(oldValue);
+        status.setNewValue(newValue);
+        return status;
+    }
+
+    /**
+     * A fake validator that reports the "invalid" records.
+     */
+    private static void validate(List<String> records, ImportErrorReport report) {
+        for (String record : records) {
+            long row = report.nextRow();
+            if ("invalid".equals(record)) {
+                report.addError(row, "value", "Invalid record");
+            }
+        }
+    }
+
+    /**
+     * A fake importer that records the chunks it's given.  Invalid records should never reach it.
+     */
+    private static BiFunction<List<String>, Boolean, ObjectImportRep> createImporter(List<List<String>> commits) {
+
+        return (records, commit) -> {
+
+            if (records.contains("invalid")) {
+                throw new BadRequestException("Invalid record");
+            }
+            if (commit) {
+                commits.add(records);
+            }
+
+            ObjectImportRep rep = new ObjectImportRep();
+            List<List<ObjectImportRep.FieldStatus>> fieldStatuses = new ArrayList<>();
+            for (String record : records) {
+                switch (record) {
+                    case "new":
+                        fieldStatuses.add(Arrays.asList(createFieldStatus("name", null, "a"),
+                            createFieldStatus("value", null, 1)));
+                        rep.setNewCount(rep.getNewCount() + 1);
+                        break;
+                    case "same":
+                        fieldStatuses.add(Arrays.asList(createFieldStatus("name", "a", "a"),
+                            createFieldStatus("value", 1, 1)));
+                        rep.setUnchangedCount(rep.getUnchangedCount() + 1);
+                        break;
+                    default:
+                        fieldStatuses.add(Arrays.asList(createFieldStatus("name", "a", "a"),
+                            createFieldStatus("value", 1, 2)));
+                        rep.setModifiedCount(rep.getModifiedCount() + 1);
+                        break;
+                }
+            }
+            rep.setFieldStatuses(fieldStatuses);
+            return rep;
+        };
+    }
+
+    @Test
+    public void testCreatePreview_summary() {
+
+        ImportPreviewRep rep = service.createPreview("activityProfiles", RECORDS, 2,
+            createImporter(new ArrayList<>()), ImportPreviewServiceTest::validate);
+
+        Assertions.assertNotNull(rep.getId());
+        Assertions.assertEquals("activityProfiles", rep.getType());
+        Assertions.assertNotNull(rep.getCreated());
+        Assertions.assertEquals(5, rep.getRowCount());
+        Assertions.assertEquals(2, rep.getNewCount());
+        Assertions.assertEquals(1, rep.getModifiedCount());
+        Assertions.assertEquals(1, rep.getUnchangedCount());
+        Assertions.assertEquals(1, rep.getInvalidCount());
+        Assertions.assertEquals(Collections.singletonMap("value", 1L), rep.getFieldChangeCounts());
+    }
+
+    @Test
+    public void testCreatePreview_invalidRecordsNotPreviewed() {
+
+        List<List<String>> previewed = new ArrayList<>();
+        BiFunction<List<String>, Boolean, ObjectImportRep> importer = createImporter(new ArrayList<>());
+
+        ImportPreviewRep rep = service.createPreview("activityProfiles", RECORDS, 2, (records, commit) -> {
+            previewed.add(records);
+            return importer.apply(records, commit);
+        }, ImportPreviewServiceTest::validate);
+
+        // Each chunk is previewed once, without its invalid record
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("new", "same"), Collections.singletonList("modified"),
+            Collections.singletonList("new")), previewed);
+        Assertions.assertEquals(1, rep.getInvalidCount());
+    }
+
+    @Test
+    public void testCreatePreview_allRecordsInChunkInvalid() {
+
+        List<String> records = Arrays.asList("new", "invalid", "invalid", "new");
+        ImportPreviewRep rep = service.createPreview("activityProfiles", records, 2,
+            createImporter(new ArrayList<>()), ImportPreviewServiceTest::validate);
+
+        Assertions.assertEquals(4, rep.getRowCount());
+        Assertions.assertEquals(2, rep.getNewCount());
+        Assertions.assertEquals(2, rep.getInvalidCount());
+    }
+
+    @Test
+    public void testGetPreviewRows_allChangedRows() {
+
+        String id = service.createPreview("activityProfiles", RECORDS, 2, createImporter(new ArrayList<>()),
+            ImportPreviewServiceTest::validate).getId();
+
+        Page<ImportPreviewRowRep> page = service.getPreviewRows(id, null, PageRequest.of(0, 2));
+        Assertions.assertEquals(3, page.getTotalElements());
+        Assertions.assertEquals(2, page.getContent().size());
+        Assertions.assertEquals(1, page.getContent().get(0).getRowNumber());
+        Assertions.assertEquals(ImportPreviewRowRep.Status.NEW, page.getContent().get(0).getStatus());
+        Assertions.assertEquals(3, page.getContent().get(1).getRowNumber());
+        Assertions.assertEquals(ImportPreviewRowRep.Status.MODIFIED, page.getContent().get(1).getStatus());
+
+        page = service.getPreviewRows(id, null, PageRequest.of(1, 2));
+        Assertions.assertEquals(1, page.getContent().size());
+        Assertions.assertEquals(5, page.getContent().get(0).getRowNumber());
+
+        page = service.getPreviewRows(id, null, PageRequest.of(5, 2));
+        Assertions.assertTrue(page.getContent().isEmpty());
+    }
+
+    @Test
+    public void testGetPreviewRows_filteredByStatus() {
+
+        String id = service.createPreview("activityProfiles", RECORDS, 2, createImporter(new ArrayList<>()),
+            ImportPreviewServiceTest::validate).getId();
+
+        Page<ImportPreviewRowRep> page = service.getPreviewRows(id, ImportPreviewRowRep.Status.MODIFIED,
+            PageRequest.of(0, 10));
+        Assertions.assertEquals(1, page.getTotalElements());
+        Assertions.assertEquals(3, page.getContent().get(0).getRowNumber());
+        Assertions.assertEquals(2, page.getContent().get(0).getFieldStatuses().size());
+    }
+
+    @Test
+    public void testGetPreviewRows_noSuchPreview() {
+        Assertions.assertThrows(NotFoundException.class, () -> {
+            service.getPreviewRows("unknown", null, PageRequest.of(0, 10));
+        });
+    }
+
+    @Test
+    public void testGetPreview_noSuchPreview() {
+        Assertions.assertThrows(NotFoundException.class, () -> service.getPreview("unknown"));
+    }
+
+    @Test
+    public void testCommitPreview() {
+
+        List<List<String>> commits = new ArrayList<>();
+        String id = service.createPreview("activityProfiles", RECORDS, 2, createImporter(commits),
+            ImportPreviewServiceTest::validate).getId();
+        Assertions.assertTrue(commits.isEmpty());
+
+        ObjectImportRep result = service.commitPreview(id, 3);
+
+        // The invalid record is skipped, leaving 4 records committed in chunks of 3
+        Assertions.assertEquals(Arrays.asList(Arrays.asList("new", "same", "modified"),
+            Collections.singletonList("new")), commits);
+        Assertions.assertEquals(2, result.getNewCount());
+        Assertions.assertEquals(1, result.getModifiedCount());
+        Assertions.assertEquals(1, result.getUnchangedCount());
+        Assertions.assertTrue(result.getFieldStatuses().isEmpty());
+
+        // The chunks are published together
+        verify(mockImportPublisher, times(1)).publish(any());
+        verify(mockImportPublisher, times(2)).endChunk();
+
+        // A preview can only be committed once
+        Assertions.assertThrows(NotFoundException.class, () -> service.commitPreview(id, 3));
+    }
+
+    @Test
+    public void testDiscardPreview() {
+
+        String id = service.createPreview("activityProfiles", RECORDS, 2, createImporter(new ArrayList<>()),
+            ImportPreviewServiceTest::validate).getId();
+
+        service.discardPreview(id);
+        Assertions.assertThrows(NotFoundException.class, () -> service.getPreview(id));
+        Assertions.assertThrows(NotFoundException.class, () -> service.discardPreview(id));
+    }
+
+    @Test
+    public void testCreatePreview_evictsLeastRecentlyUsed() throws InterruptedException {
+
+        BiFunction<List<String>, Boolean, ObjectImportRep> importer = createImporter(new ArrayList<>());
+        BiConsumer<List<String>, ImportErrorReport> validator = ImportPreviewServiceTest::validate;
+
+        String first = service.createPreview("activityProfiles", RECORDS, 2, importer, validator).getId();
+        Thread.sleep(5);
+        String second = service.createPreview("activityProfiles", RECORDS, 2, importer, validator).getId();
+        Thread.sleep(5);
+        service.getPreview(first);
+        Thread.sleep(5);
+        String third = service.createPreview("activityProfiles", RECORDS, 2, importer, validator).getId();
+
+        Assertions.assertNotNull(service.getPreview(first));
+        Assertions.assertThrows(NotFoundException.class, () -> service.getPreview(second));
+        Assertions.assertNotNull(service.getPreview(third));
+    }
+}
@@ -0,0 +1,208 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.reps.ObjectImportRep;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class ImportPublisherTest {
+
+    @Mock
+    private PlatformTransactionManager mockTransactionManager;
+
+    @Mock
+    private EntityManager mockEntityManager;
+
+    private ImportPublisher publisher;
+
+    private TransactionStatus status;
+
+    @BeforeEach
+    public void setUp() {
+        MockitoAnnotations.openMocks(this);
+        status = mock(TransactionStatus.class);
+        doReturn(status).when(mockTransactionManager).getTransaction(any());
+        publisher = new ImportPublisher(mockTransactionManager, mockEntityManager, new MockEnvironment());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        TransactionSynchronizationManager.setActualTransactionActive(false);
+    }
+
+    @Test
+    public void testPublish_success() {
+
+        Assertions.assertEquals("result", publisher.publish(() -> "result"));
+
+        verify(mockTransactionManager, times(1)).getTransaction(any());
+        verify(mockTransactionManager, times(1)).commit(status);
+        verify(mockTransactionManager, times(0)).rollback(any());
+    }
+
+    @Test
+    public void testPublish_failureRollsBack() {
+
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            publisher.publish(() -> {
+                throw new IllegalStateException("Import failed");
+            });
+        });
+
+        verify(mockTransactionManager, times(0)).commit(any());
+        verify(mockTransactionManager, times(1)).rollback(status);
+    }
+
+    private static ObjectImportRep createResult(long newCount, long modifiedCount, long unchangedCount) {
+        ObjectImportRep result = new ObjectImportRep();
+        result.setNewCount(newCount);
+        result.setModifiedCount(modifiedCount);
+        result.setUnchangedCount(unchangedCount);
+        return result;
+    }
+
+    @Test
+    public void testPublishFile_sameFileSkipped() {
+
+        AtomicInteger importCount = new AtomicInteger();
+
+        ObjectImportRep result = publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(2, 3, 4);
+        });
+        Assertions.assertEquals(2, result.getNewCount());
+
+        result = publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(0, 0, 9);
+        });
+        Assertions.assertEquals(1, importCount.get());
+        Assertions.assertEquals(0, result.getNewCount());
+        Assertions.assertEquals(0, result.getModifiedCount());
+        Assertions.assertEquals(9, result.getUnchangedCount());
+        verify(mockTransactionManager, times(1)).commit(status);
+    }
+
+    @Test
+    public void testPublishFile_skippingDisabled() {
+
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rak.import.skip-identical-files", "false");
+        publisher = new ImportPublisher(mockTransactionManager, mockEntityManager, environment);
+        AtomicInteger importCount = new AtomicInteger();
+
+        for (int i = 0; i < 2; i++) {
+            publisher.publishFile("activityProfiles:abc", () -> {
+                importCount.incrementAndGet();
+                return createResult(1, 0, 0);
+            });
+        }
+
+        Assertions.assertEquals(2, importCount.get());
+    }
+
+    @Test
+    public void testPublishFile_differentFileImported() {
+
+        AtomicInteger importCount = new AtomicInteger();
+
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(1, 0, 0);
+        });
+        publisher.publishFile("activityProfiles:def", () -> {
+            importCount.incrementAndGet();
+            return createResult(1, 0, 0);
+        });
+
+        Assertions.assertEquals(2, importCount.get());
+    }
+
+    @Test
+    public void testPublishFile_otherImportInBetween() {
+
+        AtomicInteger importCount = new AtomicInteger();
+
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(1, 0, 0);
+        });
+        publisher.publish(() -> createResult(1, 0, 0));
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(0, 0, 1);
+        });
+
+        Assertions.assertEquals(2, importCount.get());
+    }
+
+    @Test
+    public void testPublishFile_invalidated() {
+
+        AtomicInteger importCount = new AtomicInteger();
+
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(1, 0, 0);
+        });
+        publisher.invalidatePublishedFile();
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(0, 0, 1);
+        });
+
+        Assertions.assertEquals(2, importCount.get());
+    }
+
+    @Test
+    public void testPublishFile_failedImportNotRemembered() {
+
+        Assertions.assertThrows(IllegalStateException.class, () -> {
+            publisher.publishFile("activityProfiles:abc", () -> {
+                throw new IllegalStateException("Import failed");
+            });
+        });
+
+        AtomicInteger importCount = new AtomicInteger();
+        publisher.publishFile("activityProfiles:abc", () -> {
+            importCount.incrementAndGet();
+            return createResult(1, 0, 0);
+        });
+        Assertions.assertEquals(1, importCount.get());
+    }
+
+    @Test
+    public void testEndChunk_publishing() {
+
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        publisher.endChunk();
+
+        verify(mockEntityManager, times(1)).flush();
+        verify(mockEntityManager, times(1)).clear();
+    }
+
+    @Test
+    public void testEndChunk_notPublishing() {
+
+        publisher.endChunk();
+
+        verify(mockEntityManager, times(0)).flush();
+        verify(mockEntityManager, times(0)).clear();
+    }
+}
@@ -0,0 +1,61 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.util.TestUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+public class ImportValidationContextTest {
+
+    @Mock
+    private CompoundService mockCompoundService;
+
+    @Mock
+    private KinaseService mockKinaseService;
+
+    private ImportValidationContext context;
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+
+        doReturn(Collections.singleton("compoundA")).when(mockCompoundService).getExistingCompoundNames(any());
+        List<Kinase> kinases = Arrays.asList(
+            TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")
+        );
+        doReturn(new KinaseCatalog(kinases)).when(mockKinaseService).getKinaseCatalog();
+
+        context = new ImportValidationContext(mockCompoundService, mockKinaseService,
+            Arrays.asList("compoundA", "compoundB"));
+    }
+
+    @Test
+    public void testGetCompoundExists() {
+        Assertions.assertTrue(context.getCompoundExists("compoundA"));
+        Assertions.assertFalse(context.getCompoundExists("compoundB"));
+        Assertions.assertFalse(context.getCompoundExists(null));
+        verify(mockCompoundService, never()).getCompoundExists(anyString());
+    }
+
+    @Test
+    public void testGetKinaseByDiscoverx() {
+        Assertions.assertEquals("entrezA", context.getKinaseByDiscoverx("discoverxA").getEntrezGeneSymbol());
+        Assertions.assertEquals("entrezB", context.getKinaseByDiscoverx("DISCOVERXB").getEntrezGeneSymbol());
+        Assertions.assertNull(context.getKinaseByDiscoverx("unknown"));
+        Assertions.assertNull(context.getKinaseByDiscoverx(null));
+        verify(mockKinaseService, never()).getKinaseByDiscoverx(anyString());
+    }
+}
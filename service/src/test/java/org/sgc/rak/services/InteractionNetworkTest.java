@@ -0,0 +1,138 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.NetworkRep;
+import org.sgc.rak.util.TestUtil;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class InteractionNetworkTest {
+
+    private InteractionNetwork network;
+
+    @BeforeEach
+    public void setUp() {
+
+        List<Kinase> kinases = Arrays.asList(
+            TestUtil.createKinase(1, "ABL1-nonphosphorylated", "ABL1"),
+            TestUtil.createKinase(2, "ABL2", "ABL2"),
+            TestUtil.createKinase(3, "AAK1", "AAK1")
+        );
+
+        // Edges are added out of compound order, as they'd be read from the database
+        network = new InteractionNetwork.Builder(kinases)
+            .add("compoundA", 1, 1.0, 10.0)
+            .add("compoundB", 1, 50.0, null)
+            .add("compoundA", 2, 30.0, 1000.0)
+            .add("hidden", 2, 0.5, 5.0)
+            .add("compoundB", 3, null, 20.0)
+            .add("compoundA", 99, 1.0, 1.0) // Unknown kinase
+            .build();
+    }
+
+    private static List<String> getEdges(NetworkRep rep) {
+        return rep.getEdges().stream()
+            .map(e -> rep.getCompounds().get(e.getCompound()) + "-" +
+                rep.getKinases().get(e.getKinase()).getEntrezGeneSymbol())
+            .collect(Collectors.toList());
+    }
+
+    @Test
+    public void testGetEdgeCount() {
+        Assertions.assertEquals(5, network.getEdgeCount());
+    }
+
+    @Test
+    public void testGetNetwork_compounds() {
+
+        NetworkRep rep = network.getNetwork(Arrays.asList("compoundA", "compoundB", "compoundC"), null, 30.0,
+            null, name -> true);
+
+        // All requested compounds are included, even those without interactions
+        Assertions.assertEquals(Arrays.asList("compoundA", "compoundB", "compoundC"), rep.getCompounds());
+        Assertions.assertEquals(Arrays.asList("ABL1", "ABL2"), rep.getKinases().stream()
+            .map(Kinase::getEntrezGeneSymbol)
+            .collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("compoundA-ABL1", "compoundA-ABL2"), getEdges(rep));
+
+        NetworkRep.Edge edge = rep.getEdges().get(1);
+        Assertions.assertEquals(30.0, edge.getPercentControl(), 0.0001);
+        Assertions.assertEquals(1000.0, edge.getKd(), 0.0001);
+    }
+
+    @Test
+    public void testGetNetwork_compounds_noCutoffs() {
+        NetworkRep rep = network.getNetwork(Collections.singletonList("compoundB"), null, null, null, name -> true);
+        Assertions.assertEquals(Arrays.asList("compoundB-ABL1", "compoundB-AAK1"), getEdges(rep));
+        Assertions.assertNull(rep.getEdges().get(0).getKd());
+        Assertions.assertNull(rep.getEdges().get(1).getPercentControl());
+    }
+
+    @Test
+    public void testGetNetwork_compounds_unknownValuesDontMatchCutoffs() {
+        NetworkRep rep = network.getNetwork(Collections.singletonList("compoundB"), null, null, 100.0,
+            name -> true);
+        Assertions.assertEquals(Collections.singletonList("compoundB-AAK1"), getEdges(rep));
+    }
+
+    @Test
+    public void testGetNetwork_kinases() {
+
+        NetworkRep rep = network.getNetwork(null, Arrays.asList(2L, 3L), 40.0, null, name -> true);
+
+        Assertions.assertEquals(Arrays.asList("ABL2", "AAK1"), rep.getKinases().stream()
+            .map(Kinase::getEntrezGeneSymbol)
+            .collect(Collectors.toList()));
+        Assertions.assertEquals(Arrays.asList("compoundA", "hidden"), rep.getCompounds());
+        Assertions.assertEquals(Arrays.asList("compoundA-ABL2", "hidden-ABL2"), getEdges(rep));
+    }
+
+    @Test
+    public void testGetNetwork_kinases_compoundFilter() {
+        NetworkRep rep = network.getNetwork(null, Collections.singletonList(2L), null, null,
+            name -> !"hidden".equals(name));
+        Assertions.assertEquals(Collections.singletonList("compoundA-ABL2"), getEdges(rep));
+    }
+
+    @Test
+    public void testGetNetwork_compoundsAndKinases() {
+
+        NetworkRep rep = network.getNetwork(Arrays.asList("compoundA", "compoundB"), Arrays.asList(1L, 3L),
+            null, 15.0, name -> true);
+
+        Assertions.assertEquals(Arrays.asList("compoundA", "compoundB"), rep.getCompounds());
+        Assertions.assertEquals(2, rep.getKinases().size());
+        Assertions.assertEquals(Collections.singletonList("compoundA-ABL1"), getEdges(rep));
+    }
+
+    @Test
+    public void testGetNetwork_compounds_compoundFilter() {
+        NetworkRep rep = network.getNetwork(Arrays.asList("hidden", "compoundA"), null, 1.0, null,
+            name -> !"hidden".equals(name));
+        Assertions.assertEquals(Collections.singletonList("compoundA"), rep.getCompounds());
+        Assertions.assertEquals(Collections.singletonList("compoundA-ABL1"), getEdges(rep));
+    }
+
+    @Test
+    public void testBuilder_manyEdges() {
+
+        InteractionNetwork.Builder builder = new InteractionNetwork.Builder(Collections.singletonList(
+            TestUtil.createKinase(1, "ABL1", "ABL1")));
+        for (int i = 0; i < 5000; i++) {
+            builder.add("compound" + (i % 100), 1, (double)i, null);
+        }
+        InteractionNetwork manyEdges = builder.build();
+
+        Assertions.assertEquals(5000, manyEdges.getEdgeCount());
+        NetworkRep rep = manyEdges.getNetwork(Collections.singletonList("compound7"), null, 1000.0, null,
+            name -> true);
+        Assertions.assertEquals(10, rep.getEdges().size());
+        Assertions.assertEquals(7.0, rep.getEdges().get(0).getPercentControl(), 0.0001);
+    }
+}
@@ -0,0 +1,60 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.util.TestUtil;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class KinaseCatalogTest {
+
+    private KinaseCatalog catalog;
+
+    @BeforeEach
+    public void setUp() {
+
+        Kinase mutant = TestUtil.createKinase(2, "discoverxA-mutant", "entrezA");
+        mutant.setNanosynGeneSymbol("nanosynA-mutant");
+
+        catalog = new KinaseCatalog(Arrays.asList(
+            TestUtil.createKinase(1, "discoverxA", "entrezA"),
+            mutant,
+            TestUtil.createKinase(3, "discoverxB", "entrezB")
+        ));
+    }
+
+    @Test
+    public void testGetKinases() {
+        Assertions.assertEquals(3, catalog.getKinases().size());
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> catalog.getKinases().clear());
+    }
+
+    @Test
+    public void testGetKinasesByEntrez() {
+
+        List<Kinase> kinases = catalog.getKinasesByEntrez("ENTREZA");
+        Assertions.assertEquals(2, kinases.size());
+        Assertions.assertEquals(1, kinases.get(0).getId());
+        Assertions.assertEquals(2, kinases.get(1).getId());
+
+        Assertions.assertTrue(catalog.getKinasesByEntrez("unknown").isEmpty());
+        Assertions.assertTrue(catalog.getKinasesByEntrez(null).isEmpty());
+    }
+
+    @Test
+    public void testGetKinaseByDiscoverx() {
+        Assertions.assertEquals(3, catalog.getKinaseByDiscoverx("DiscoverxB").getId());
+        Assertions.assertNull(catalog.getKinaseByDiscoverx("unknown"));
+        Assertions.assertNull(catalog.getKinaseByDiscoverx(null));
+    }
+
+    @Test
+    public void testGetKinaseByNanosyn() {
+        Assertions.assertEquals(2, catalog.getKinaseByNanosyn("NANOSYNA-MUTANT").getId());
+        Assertions.assertNull(catalog.getKinaseByNanosyn("unknown"));
+        Assertions.assertNull(catalog.getKinaseByNanosyn(null));
+    }
+}
@@ -6,27 +6,40 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.sgc.rak.dao.KinaseDao;
 import org.sgc.rak.i18n.Messages;
 import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
 import org.sgc.rak.util.TestUtil;
+import org.springframework.dao.DataRetrievalFailureException;
 import org.springframework.data.domain.*;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 
 public class KinaseServiceTest {
 
     @Mock
     private KinaseDao mockKinaseDao;
 
+    @Mock
+    private DatasetVersion mockDatasetVersion;
+
     @Mock
     private Messages mockMessages;
 
+    @Spy
+    private ReadCaches readCaches = TestUtil.createReadCaches();
+
     @InjectMocks
     private KinaseService service;
 
@@ -43,20 +56,116 @@ public class KinaseServiceTest {
 
         Kinase kinase = TestUtil.createKinase(DISCOVERX, ENTREZ);
         List<Kinase> expected = Collections.singletonList(kinase);
-        doReturn(expected).when(mockKinaseDao).getKinases(eq(ENTREZ));
+        doReturn(expected).when(mockKinaseDao).getKinases();
 
-        List<Kinase> actual = service.getKinase(ENTREZ);
+        List<Kinase> actual = service.getKinase(ENTREZ.toUpperCase());
         TestUtil.assertKinasesEqual(expected, actual);
+        Assertions.assertTrue(service.getKinase("unknown").isEmpty());
     }
 
     @Test
     public void testGetKinaseByDiscoverx() {
 
         Kinase kinase = TestUtil.createKinase(DISCOVERX, ENTREZ);
-        doReturn(kinase).when(mockKinaseDao).getKinaseByDiscoverx(eq(DISCOVERX));
+        doReturn(Collections.singletonList(kinase)).when(mockKinaseDao).getKinases();
 
-        Kinase actual = service.getKinaseByDiscoverx(DISCOVERX);
+        Kinase actual = service.getKinaseByDiscoverx(DISCOVERX.toUpperCase());
         TestUtil.assertKinasesEqual(kinase, actual);
+        Assertions.assertNull(service.getKinaseByDiscoverx("unknown"));
+    }
+
+    @Test
+    public void testGetKinaseByNanosyn() {
+
+        Kinase kinase = TestUtil.createKinase(DISCOVERX, ENTREZ);
+        kinase.setNanosynGeneSymbol("nanosynA");
+        doReturn(Collections.singletonList(kinase)).when(mockKinaseDao).getKinases();
+
+        TestUtil.assertKinasesEqual(kinase, service.getKinaseByNanosyn("NANOSYNA"));
+        Assertions.assertNull(service.getKinaseByNanosyn("unknown"));
+    }
+
+    @Test
+    public void testGetKinaseCatalog_loadedOnce() {
+
+        doReturn(Collections.singletonList(TestUtil.createKinase(DISCOVERX, ENTREZ))).when(mockKinaseDao)
+            .getKinases();
+
+        service.getKinase(ENTREZ);
+        service.getKinaseByDiscoverx(DISCOVERX);
+        service.getKinases();
+
+        verify(mockKinaseDao, times(1)).getKinases();
+    }
+
+    @Test
+    public void testRefreshKinases() {
+
+        Kinase kinaseA = TestUtil.createKinase(DISCOVERX, ENTREZ);
+        Kinase kinaseB = TestUtil.createKinase("discoverxB", "entrezB");
+        doReturn(Collections.singletonList(kinaseA)).when(mockKinaseDao).getKinases();
+        Assertions.assertNull(service.getKinaseByDiscoverx("discoverxB"));
+
+        doReturn(Arrays.asList(kinaseA, kinaseB)).when(mockKinaseDao).getKinases();
+        Assertions.assertEquals(2, service.refreshKinases().getKinases().size());
+        TestUtil.assertKinasesEqual(kinaseB, service.getKinaseByDiscoverx("discoverxB"));
+    }
+
+    @Test
+    public void testPreloadKinases() {
+
+        doReturn(Collections.emptyList()).when(mockKinaseDao).getKinases();
+        service.preloadKinases();
+        service.getKinases();
+        verify(mockKinaseDao, times(1)).getKinases();
+    }
+
+    @Test
+    public void testPreloadKinases_databaseError() {
+
+        doThrow(new DataRetrievalFailureException("Database unavailable")).doReturn(Collections.emptyList())
+            .when(mockKinaseDao).getKinases();
+
+        service.preloadKinases();
+
+        // Loaded on first use instead
+        Assertions.assertTrue(service.getKinases().isEmpty());
+        verify(mockKinaseDao, times(2)).getKinases();
+    }
+
+    @Test
+    public void testGetKinaseSuggestions() {
+
+        Kinase kinaseA = TestUtil.createKinase(1, "ABL1-nonphosphorylated", "ABL1");
+        Kinase kinaseB = TestUtil.createKinase(2, "ABL2", "ABL2");
+        doReturn(Arrays.asList(kinaseA, kinaseB)).when(mockKinaseDao).getKinases();
+        doReturn(Collections.singletonMap(2L, 5L)).when(mockKinaseDao).getActivityProfileCounts();
+        doReturn(Collections.singletonMap(1L, 1L)).when(mockKinaseDao).getNanoBretActivityProfileCounts();
+
+        List<KinaseSuggestionRep> suggestions = service.getKinaseSuggestions("abl", 10);
+        Assertions.assertEquals(2, suggestions.size());
+        Assertions.assertEquals("ABL2", suggestions.get(0).getMatchedSymbol());
+        Assertions.assertEquals(5, suggestions.get(0).getActivityProfileCount());
+        Assertions.assertEquals(1, suggestions.get(1).getNanoBretActivityProfileCount());
+
+        // Served from memory until activity profiles change
+        service.getKinaseSuggestions("abl2", 10);
+        verify(mockKinaseDao, times(1)).getActivityProfileCounts();
+
+        service.activityProfilesChanged();
+        service.getKinaseSuggestions("abl", 10);
+        verify(mockKinaseDao, times(2)).getActivityProfileCounts();
+        verify(mockKinaseDao, times(1)).getKinases();
+    }
+
+    @Test
+    public void testGetKinases_all() {
+
+        List<Kinase> expected = Collections.singletonList(TestUtil.createKinase(DISCOVERX, ENTREZ));
+        doReturn(expected).when(mockKinaseDao).getKinases();
+
+        List<Kinase> actual = service.getKinases();
+        TestUtil.assertKinasesEqual(expected, actual);
     }
 
     @Test
@@ -78,6 +187,24 @@ public class KinaseServiceTest {
         }
     }
 
+    @Test
+    public void testGetKinases_pageable_cacheInvalidatedByRefresh() {
+
+        PageRequest pr = PageRequest.of(0, 20);
+        doReturn(Page.empty(pr)).when(mockKinaseDao).getKinasesByEntrezGeneSymbolStartingWith(any(),
+            any(Pageable.class));
+
+        // Gene symbols are matched ignoring case
+        service.getKinases(ENTREZ, pr);
+        service.getKinases(ENTREZ.toUpperCase(), pr);
+        verify(mockKinaseDao, times(1)).getKinasesByEntrezGeneSymbolStartingWith(any(), any(Pageable.class));
+
+        service.refreshKinases();
+        service.getKinases(ENTREZ, pr);
+        verify(mockKinaseDao, times(2)).getKinasesByEntrezGeneSymbolStartingWith(any(), any(Pageable.class));
+        verify(mockDatasetVersion, times(1)).dataChanged();
+    }
+
     @Test
     public void testGetKinasesByEntrezGeneSymbolStartingWith() {
 
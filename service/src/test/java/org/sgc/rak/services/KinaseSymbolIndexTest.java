@@ -0,0 +1,94 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.model.Kinase;
+import org.sgc.rak.reps.KinaseSuggestionRep;
+import org.sgc.rak.util.TestUtil;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class KinaseSymbolIndexTest {
+
+    private KinaseSymbolIndex index;
+
+    @BeforeEach
+    public void setUp() {
+
+        Kinase abl1 = TestUtil.createKinase(1, "ABL1-nonphosphorylated", "ABL1");
+        Kinase abl1Mutant = TestUtil.createKinase(2, "ABL1(T315I)-nonphosphorylated", "ABL1");
+        Kinase abl2 = TestUtil.createKinase(3, "ABL2", "ABL2");
+        Kinase aak1 = TestUtil.createKinase(4, "AAK1", "AAK1");
+        aak1.setNanosynGeneSymbol("AAK1-nanosyn");
+        Kinase ck2 = TestUtil.createKinase(5, "CSNK2A1", "CSNK2A1");
+        ck2.setNanosynGeneSymbol("CK2A1");
+
+        Map<Long, Long> activityProfileCounts = new HashMap<>();
+        activityProfileCounts.put(1L, 10L);
+        activityProfileCounts.put(2L, 2L);
+        activityProfileCounts.put(3L, 20L);
+
+        Map<Long, Long> nanoBretActivityProfileCounts = new HashMap<>();
+        nanoBretActivityProfileCounts.put(2L, 9L);
+
+        index = new KinaseSymbolIndex(Arrays.asList(abl1, abl1Mutant, abl2, aak1, ck2), activityProfileCounts,
+            nanoBretActivityProfileCounts);
+    }
+
+    private static List<Long> getIds(List<KinaseSuggestionRep> suggestions) {
+        return suggestions.stream().map(s -> s.getKinase().getId()).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSearch_rankedByActivityProfileCount() {
+        Assertions.assertEquals(Arrays.asList(3L, 2L, 1L), getIds(index.search("abl", 10)));
+    }
+
+    @Test
+    public void testSearch_exactMatchesFirst() {
+        List<KinaseSuggestionRep> suggestions = index.search("ABL1", 10);
+        Assertions.assertEquals(Arrays.asList(2L, 1L), getIds(suggestions));
+        Assertions.assertEquals("ABL1", suggestions.get(0).getMatchedSymbol());
+        Assertions.assertEquals(2, suggestions.get(0).getActivityProfileCount());
+        Assertions.assertEquals(9, suggestions.get(0).getNanoBretActivityProfileCount());
+    }
+
+    @Test
+    public void testSearch_discoverxAndNanosynSymbols() {
+
+        List<KinaseSuggestionRep> suggestions = index.search("abl1(", 10);
+        Assertions.assertEquals(Arrays.asList(2L), getIds(suggestions));
+        Assertions.assertEquals("ABL1(T315I)-nonphosphorylated", suggestions.get(0).getMatchedSymbol());
+
+        suggestions = index.search("ck2", 10);
+        Assertions.assertEquals(Arrays.asList(5L), getIds(suggestions));
+        Assertions.assertEquals("CK2A1", suggestions.get(0).getMatchedSymbol());
+        Assertions.assertEquals(0, suggestions.get(0).getActivityProfileCount());
+    }
+
+    @Test
+    public void testSearch_kinaseOnlyReturnedOnce() {
+        Assertions.assertEquals(Arrays.asList(4L), getIds(index.search("aak1", 10)));
+    }
+
+    @Test
+    public void testSearch_emptyPrefix() {
+        Assertions.assertEquals(Arrays.asList(3L, 2L, 1L, 4L, 5L), getIds(index.search("", 10)));
+    }
+
+    @Test
+    public void testSearch_limit() {
+        Assertions.assertEquals(Arrays.asList(3L), getIds(index.search("a", 1)));
+        Assertions.assertTrue(index.search("a", 0).isEmpty());
+    }
+
+    @Test
+    public void testSearch_noMatches() {
+        Assertions.assertTrue(index.search("zzz", 10).isEmpty());
+    }
+}
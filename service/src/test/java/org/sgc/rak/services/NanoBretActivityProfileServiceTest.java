@@ -6,6 +6,8 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.BulkImportDao;
+import org.sgc.rak.dao.BulkImportResult;
 import org.sgc.rak.dao.NanoBretActivityProfileDao;
 import org.sgc.rak.exceptions.BadRequestException;
 import org.sgc.rak.i18n.Messages;
@@ -14,10 +16,12 @@ import org.sgc.rak.model.Kinase;
 import org.sgc.rak.model.NanoBretActivityProfile;
 import org.sgc.rak.model.NanoBretActivityProfileModifier;
 import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
+import org.sgc.rak.reps.ImportValidationRep;
 import org.sgc.rak.reps.ObjectImportRep;
 import org.sgc.rak.util.TestUtil;
 import org.sgc.rak.util.Util;
 
+import java.sql.Timestamp;
 import java.util.*;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -30,12 +34,18 @@ public class NanoBretActivityProfileServiceTest {
     @Mock
     private NanoBretActivityProfileDao nanoBretActivityProfileDao;
 
+    @Mock
+    private BulkImportDao bulkImportDao;
+
     @Mock
     private CompoundService compoundService;
 
     @Mock
     private KinaseService kinaseService;
 
+    @Mock
+    private DatasetVersion datasetVersion;
+
     @Mock
     private Messages messages;
 
@@ -47,6 +57,74 @@ public class NanoBretActivityProfileServiceTest {
         MockitoAnnotations.openMocks(this);
     }
 
+    @Test
+    public void testBulkImportNanoBretActivityProfiles_supported() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setNewCount(2);
+        result.setUnchangedCount(1);
+        doReturn(true).when(bulkImportDao).isSupported();
+        doReturn(result).when(bulkImportDao).importNanoBretActivityProfiles(any(), eq(true));
+
+        ObjectImportRep importRep = service.bulkImportNanoBretActivityProfiles(Collections.emptyIterator(), true);
+
+        Assertions.assertEquals(2, importRep.getNewCount());
+        Assertions.assertEquals(0, importRep.getModifiedCount());
+        Assertions.assertEquals(1, importRep.getUnchangedCount());
+        verify(nanoBretActivityProfileDao, times(0)).save(any());
+    }
+
+    @Test
+    public void testBulkImportNanoBretActivityProfiles_supported_error_unknownCompound() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownCompoundName("unknown");
+        doReturn(true).when(bulkImportDao).isSupported();
+        doReturn(result).when(bulkImportDao).importNanoBretActivityProfiles(any(), anyBoolean());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.bulkImportNanoBretActivityProfiles(Collections.emptyIterator(), true);
+        });
+    }
+
+    @Test
+    public void testBulkImportNanoBretActivityProfiles_supported_error_unknownKinase() {
+
+        BulkImportResult result = new BulkImportResult();
+        result.setUnknownDiscoverx("unknown");
+        doReturn(true).when(bulkImportDao).isSupported();
+        doReturn(result).when(bulkImportDao).importNanoBretActivityProfiles(any(), anyBoolean());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.bulkImportNanoBretActivityProfiles(Collections.emptyIterator(), true);
+        });
+    }
+
+    @Test
+    public void testBulkImportNanoBretActivityProfiles_notSupported() {
+
+        List<NanoBretActivityProfileCsvRecord> records = Collections.singletonList(
+            TestUtil.createNanoBretActivityProfileCsvRecord("compoundA", "19_01_01",
+                "commentNew", "nlucNew", 60d, 60, "discoverxA",
+                NanoBretActivityProfileModifier.EQUAL_TO, 99, 99)
+        );
+
+        doReturn(false).when(bulkImportDao).isSupported();
+        doReturn(Collections.emptySet()).when(nanoBretActivityProfileDao).getNanoBretActivityProfiles(any(), any(),
+            any());
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(compoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(kinaseService).getKinaseCatalog();
+
+        ObjectImportRep importRep = service.bulkImportNanoBretActivityProfiles(records.iterator(), true);
+
+        Assertions.assertEquals(1, importRep.getNewCount());
+        Assertions.assertTrue(importRep.getFieldStatuses().isEmpty());
+        verify(nanoBretActivityProfileDao, times(1)).save(any());
+        verify(bulkImportDao, times(0)).importNanoBretActivityProfiles(any(), anyBoolean());
+    }
+
     @Test
     public void testImportNanoBretActivityProfiles_happyPath_commit() {
         testImportNanoBretActivityProfiles_happyPath_impl(true);
@@ -76,11 +154,10 @@ public class NanoBretActivityProfileServiceTest {
         doReturn(existingProfiles).when(nanoBretActivityProfileDao).getNanoBretActivityProfiles(any(), any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(compoundService).getCompoundExists(anyString());
-        Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
-        doReturn(kinase).when(kinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
-        kinase = TestUtil.createKinase("discoverxB", "entrezB");
-        doReturn(kinase).when(kinaseService).getKinaseByDiscoverx(eq(kinase.getDiscoverxGeneSymbol()));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(compoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Arrays.asList(TestUtil.createKinase("discoverxA", "entrezA"),
+            TestUtil.createKinase("discoverxB", "entrezB")))).when(kinaseService).getKinaseCatalog();
 
         ObjectImportRep importRep = service.importNanoBretActivityProfiles(records, commit);
         List<List<ObjectImportRep.FieldStatus>> fieldStatuses = importRep.getFieldStatuses();
@@ -156,6 +233,34 @@ public class NanoBretActivityProfileServiceTest {
         verify(nanoBretActivityProfileDao, times(commit ? 1 : 0)).save(any());
     }
 
+    @Test
+    public void testImportNanoBretActivityProfiles_existingProfileHasTimestampDate() {
+
+        List<NanoBretActivityProfileCsvRecord> records = Collections.singletonList(
+            TestUtil.createNanoBretActivityProfileCsvRecord("compoundA", "19_01_01",
+                "commentNew", "nlucNew", 60d, 60, "discoverxA",
+                NanoBretActivityProfileModifier.EQUAL_TO, 99, 99)
+        );
+
+        // JPA loads dates as Timestamps, which should still match the CSV record's date
+        Date compoundADate = Util.nanoBretCsvDateToRealDate("19_01_01");
+        Set<NanoBretActivityProfile> existingProfiles = Collections.singleton(
+            TestUtil.createNanoBretActivityProfile("compoundA", new Timestamp(compoundADate.getTime()),
+            "commentA", "nlucA", 0d, 0, "discoverxA", "entrezA",
+            NanoBretActivityProfileModifier.GREATER_THAN, 1, 1));
+        doReturn(existingProfiles).when(nanoBretActivityProfileDao).getNanoBretActivityProfiles(any(), any(), any());
+
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(compoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(kinaseService).getKinaseCatalog();
+
+        ObjectImportRep importRep = service.importNanoBretActivityProfiles(records, false);
+        Assertions.assertEquals(0, importRep.getNewCount());
+        Assertions.assertEquals(1, importRep.getModifiedCount());
+        Assertions.assertEquals("commentA", importRep.getFieldStatuses().get(0).get(1).getOldValue());
+    }
+
     @Test
     public void testImportNanoBretActivityProfiles_error_unknownCompound() {
 
@@ -174,7 +279,7 @@ public class NanoBretActivityProfileServiceTest {
         doReturn(existingProfiles).when(nanoBretActivityProfileDao).getNanoBretActivityProfiles(any(), any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(false).when(compoundService).getCompoundExists(anyString());
+        doReturn(Collections.emptySet()).when(compoundService).getExistingCompoundNames(any());
         Kinase kinase = TestUtil.createKinase("discoverxA", "entrezA");
         doReturn(Collections.singletonList(kinase)).when(kinaseService).getKinase(eq(kinase.getEntrezGeneSymbol()));
 
@@ -196,11 +301,43 @@ public class NanoBretActivityProfileServiceTest {
         doReturn(existingProfiles).when(nanoBretActivityProfileDao).getNanoBretActivityProfiles(any(), any(), any());
 
         // Mocks required during csv rep => activity profile conversion
-        doReturn(true).when(compoundService).getCompoundExists(anyString());
-        doReturn(null).when(kinaseService).getKinase(eq("unknown"));
+        doAnswer(invocation -> new HashSet<>(invocation.<Collection<String>>getArgument(0)))
+            .when(compoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.emptyList())).when(kinaseService).getKinaseCatalog();
 
         Assertions.assertThrows(BadRequestException.class, () -> {
             service.importNanoBretActivityProfiles(records, true);
         });
     }
+
+    @Test
+    public void testValidateNanoBretActivityProfiles() {
+
+        doReturn(Collections.singleton("compoundA")).when(compoundService).getExistingCompoundNames(any());
+        doReturn(new KinaseCatalog(Collections.singletonList(TestUtil.createKinase("discoverxA", "entrezA"))))
+            .when(kinaseService).getKinaseCatalog();
+
+        ImportErrorReport report = new ImportErrorReport(10);
+        service.validateNanoBretActivityProfiles(Arrays.asList(
+            TestUtil.createNanoBretActivityProfileCsvRecord("compoundA", "19_01_02", "comment", "N", 3.0, 4,
+                "discoverxA", NanoBretActivityProfileModifier.EQUAL_TO, 0.5, 1),
+            TestUtil.createNanoBretActivityProfileCsvRecord("compoundA", "yesterday", "comment", "N", 3.0, 4,
+                "discoverxA", NanoBretActivityProfileModifier.EQUAL_TO, 0.5, 1),
+            TestUtil.createNanoBretActivityProfileCsvRecord("compoundA", null, "comment", "N", 3.0, 4,
+                "discoverxZ", NanoBretActivityProfileModifier.EQUAL_TO, 0.5, 1)
+        ), report);
+
+        ImportValidationRep rep = report.toRep("nanoBretActivityProfiles");
+        Assertions.assertEquals(3, rep.getRowCount());
+        Assertions.assertEquals(2, rep.getInvalidRowCount());
+        Assertions.assertEquals(3, rep.getErrorCount());
+
+        List<ImportValidationRep.RowError> errors = rep.getErrors();
+        Assertions.assertEquals(2, errors.get(0).getRow());
+        Assertions.assertEquals("date", errors.get(0).getField());
+        Assertions.assertEquals(3, errors.get(1).getRow());
+        Assertions.assertEquals("discoverxGeneSymbol", errors.get(1).getField());
+        Assertions.assertEquals(3, errors.get(2).getRow());
+        Assertions.assertEquals("date", errors.get(2).getField());
+    }
 }
@@ -0,0 +1,128 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.dao.ActivityProfileDao;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.NetworkRep;
+import org.sgc.rak.util.TestUtil;
+import org.springframework.dao.DataRetrievalFailureException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class NetworkServiceTest {
+
+    @Mock
+    private ActivityProfileDao mockActivityProfileDao;
+
+    @Mock
+    private CompoundService mockCompoundService;
+
+    @Mock
+    private KinaseService mockKinaseService;
+
+    @Mock
+    private Messages mockMessages;
+
+    @InjectMocks
+    private NetworkService service;
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+
+        doReturn(Arrays.asList(TestUtil.createKinase(1, "ABL1", "ABL1"), TestUtil.createKinase(2, "ABL2", "ABL2")))
+            .when(mockKinaseService).getKinases();
+        doAnswer(invocation -> {
+            ActivityProfileDao.ActivityValueHandler handler = invocation.getArgument(0);
+            handler.handle("compoundA", 1, 5.0, 10.0);
+            handler.handle("compoundA", 2, 50.0, null);
+            handler.handle("hidden", 1, 1.0, 1.0);
+            return null;
+        }).when(mockActivityProfileDao).forEachActivityValue(any());
+        doReturn(true).when(mockCompoundService).getCompoundHidden(eq("hidden"));
+    }
+
+    @Test
+    public void testGetNetwork_compounds() {
+
+        List<String> compoundNames = Arrays.asList("compoundA", "compoundB", "compoundA");
+        doReturn(new HashSet<>(compoundNames)).when(mockCompoundService).getExistingCompoundNames(any());
+
+        NetworkRep rep = service.getNetwork(compoundNames, null, 10.0, null, false);
+        Assertions.assertEquals(Arrays.asList("compoundA", "compoundB"), rep.getCompounds());
+        Assertions.assertEquals(1, rep.getKinases().size());
+        Assertions.assertEquals(1, rep.getEdges().size());
+    }
+
+    @Test
+    public void testGetNetwork_compounds_noSuchCompound() {
+
+        doReturn(Collections.singleton("compoundA")).when(mockCompoundService).getExistingCompoundNames(any());
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.getNetwork(Arrays.asList("compoundA", "compoundB"), null, null, null, false);
+        });
+    }
+
+    @Test
+    public void testGetNetwork_kinases_hiddenCompounds() {
+
+        List<Long> kinaseIds = Collections.singletonList(1L);
+
+        NetworkRep rep = service.getNetwork(null, kinaseIds, null, null, false);
+        Assertions.assertEquals(Collections.singletonList("compoundA"), rep.getCompounds());
+
+        rep = service.getNetwork(null, kinaseIds, null, null, true);
+        Assertions.assertEquals(Arrays.asList("compoundA", "hidden"), rep.getCompounds());
+
+        // The network is only loaded once
+        verify(mockActivityProfileDao, times(1)).forEachActivityValue(any());
+    }
+
+    @Test
+    public void testActivityProfilesChanged() {
+
+        List<Long> kinaseIds = Collections.singletonList(1L);
+        service.getNetwork(null, kinaseIds, null, null, true);
+        verify(mockActivityProfileDao, times(1)).forEachActivityValue(any());
+
+        service.activityProfilesChanged();
+        service.getNetwork(null, kinaseIds, null, null, true);
+        verify(mockActivityProfileDao, times(2)).forEachActivityValue(any());
+    }
+
+    @Test
+    public void testPreloadInteractionNetwork() {
+        service.preloadInteractionNetwork();
+        service.getNetwork(null, Collections.singletonList(1L), null, null, true);
+        verify(mockActivityProfileDao, times(1)).forEachActivityValue(any());
+    }
+
+    @Test
+    public void testPreloadInteractionNetwork_error() {
+
+        doThrow(new DataRetrievalFailureException("Database unavailable"))
+            .when(mockActivityProfileDao).forEachActivityValue(any());
+
+        // Errors are logged and swallowed, so the application still starts
+        service.preloadInteractionNetwork();
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.sgc.rak.model.Partner;
 import org.sgc.rak.repositories.PartnerRepository;
 import org.sgc.rak.util.TestUtil;
@@ -22,6 +23,9 @@ public class PartnerServiceTest {
     @Mock
     private PartnerRepository mockRepository;
 
+    @Spy
+    private ReadCaches readCaches = TestUtil.createReadCaches();
+
     @InjectMocks
     private PartnerService service;
 
@@ -48,4 +52,16 @@ public class PartnerServiceTest {
             TestUtil.assertPartnersEqual(partners.get(i), actualPartners.getContent().get(i));
         }
     }
+
+    @Test
+    public void testGetPartners_cached() {
+
+        PageRequest pr = PageRequest.of(0, 100);
+        doReturn(Page.empty(pr)).when(mockRepository).findAll(any(Pageable.class));
+
+        service.getPartners(pr);
+        service.getPartners(pr);
+        service.getPartners(PageRequest.of(1, 100));
+        verify(mockRepository, times(2)).findAll(any(Pageable.class));
+    }
 }
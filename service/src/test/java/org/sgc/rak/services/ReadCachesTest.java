@@ -0,0 +1,64 @@
+package org.sgc.rak.services;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+
+public class ReadCachesTest {
+
+    private MeterRegistry meterRegistry;
+    private MockEnvironment environment;
+    private ReadCaches readCaches;
+
+    @BeforeEach
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        environment = new MockEnvironment();
+        readCaches = new ReadCaches(environment, meterRegistry);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        readCaches.shutdown();
+    }
+
+    private double getCount(String cacheName, String result) {
+        return meterRegistry.get("rak.cache.gets")
+            .tag("cache", cacheName)
+            .tag("result", result)
+            .functionCounter()
+            .count();
+    }
+
+    @Test
+    public void testCreate() {
+
+        ReadThroughCache<String, String> cache = readCaches.create("test");
+        cache.get("key1", () -> "a");
+        cache.get("key1", () -> "a");
+        cache.get("key2", () -> "b");
+
+        Assertions.assertEquals(1, getCount("test", "hit"));
+        Assertions.assertEquals(2, getCount("test", "miss"));
+        Assertions.assertEquals(0, getCount("test", "stale"));
+        Assertions.assertEquals(2, meterRegistry.get("rak.cache.size").tag("cache", "test").gauge().value());
+    }
+
+    @Test
+    public void testCreate_disabled() {
+
+        environment.setProperty("rak.cache.max-entries", "0");
+        readCaches = new ReadCaches(environment, meterRegistry);
+
+        ReadThroughCache<String, String> cache = readCaches.create("test");
+        cache.get("key", () -> "a");
+        cache.get("key", () -> "a");
+
+        Assertions.assertEquals(0, getCount("test", "hit"));
+        Assertions.assertEquals(2, getCount("test", "miss"));
+    }
+}
@@ -0,0 +1,201 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+public class ReadThroughCacheTest {
+
+    private AtomicLong now;
+    private List<Runnable> refreshes;
+    private ReadThroughCache<String, String> cache;
+
+    private static final long TTL_MILLIS = 1000;
+    private static final long STALE_MILLIS = 5000;
+
+    @BeforeEach
+    public void setUp() {
+        now = new AtomicLong(0);
+        refreshes = new ArrayList<>();
+        cache = new ReadThroughCache<>("test", 2, TTL_MILLIS, STALE_MILLIS, refreshes::add, now::get);
+    }
+
+    private static Supplier<String> counting(AtomicInteger loads, String value) {
+        return () -> {
+            loads.incrementAndGet();
+            return value;
+        };
+    }
+
+    @Test
+    public void testGet_hit() {
+
+        AtomicInteger loads = new AtomicInteger();
+        Assertions.assertEquals("a", cache.get("key", counting(loads, "a")));
+        now.set(TTL_MILLIS - 1);
+        Assertions.assertEquals("a", cache.get("key", counting(loads, "b")));
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1, cache.getHitCount());
+        Assertions.assertEquals(1, cache.getMissCount());
+        Assertions.assertEquals(0, cache.getStaleHitCount());
+        Assertions.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void testGet_nullValueCached() {
+
+        AtomicInteger loads = new AtomicInteger();
+        Assertions.assertNull(cache.get("key", counting(loads, null)));
+        Assertions.assertNull(cache.get("key", counting(loads, null)));
+
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void testGet_loaderThrows() {
+
+        Assertions.assertThrows(IllegalStateException.class, () -> cache.get("key", () -> {
+            throw new IllegalStateException();
+        }));
+
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("a", cache.get("key", () -> "a"));
+    }
+
+    @Test
+    public void testGet_staleServedWhileRefreshing() {
+
+        cache.get("key", () -> "a");
+        now.set(TTL_MILLIS);
+
+        // The stale value is returned, and only one refresh is scheduled
+        Assertions.assertEquals("a", cache.get("key", () -> "b"));
+        Assertions.assertEquals("a", cache.get("key", () -> "c"));
+        Assertions.assertEquals(2, cache.getStaleHitCount());
+        Assertions.assertEquals(1, refreshes.size());
+
+        refreshes.get(0).run();
+        Assertions.assertEquals("b", cache.get("key", () -> "d"));
+        Assertions.assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void testGet_refreshFails() {
+
+        cache.get("key", () -> "a");
+        now.set(TTL_MILLIS);
+
+        Assertions.assertEquals("a", cache.get("key", () -> {
+            throw new IllegalStateException();
+        }));
+        refreshes.get(0).run();
+
+        // The stale value is still served, and another refresh is tried
+        Assertions.assertEquals("a", cache.get("key", () -> "b"));
+        Assertions.assertEquals(2, refreshes.size());
+    }
+
+    @Test
+    public void testGet_refreshRejected() {
+
+        AtomicInteger attempts = new AtomicInteger();
+        cache = new ReadThroughCache<>("test", 2, TTL_MILLIS, STALE_MILLIS, task -> {
+            attempts.incrementAndGet();
+            throw new RejectedExecutionException();
+        }, now::get);
+
+        cache.get("key", () -> "a");
+        now.set(TTL_MILLIS);
+
+        Assertions.assertEquals("a", cache.get("key", () -> "b"));
+        Assertions.assertEquals("a", cache.get("key", () -> "b"));
+        Assertions.assertEquals(2, attempts.get());
+    }
+
+    @Test
+    public void testGet_tooStale() {
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("key", counting(loads, "a"));
+        now.set(TTL_MILLIS + STALE_MILLIS);
+
+        Assertions.assertEquals("b", cache.get("key", counting(loads, "b")));
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(2, cache.getMissCount());
+        Assertions.assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    public void testGet_leastRecentlyUsedEvicted() {
+
+        cache.get("key1", () -> "a");
+        cache.get("key2", () -> "b");
+        cache.get("key1", () -> "x");
+        cache.get("key3", () -> "c");
+
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertEquals("a", cache.get("key1", () -> "x"));
+        Assertions.assertEquals("x", cache.get("key2", () -> "x"));
+    }
+
+    @Test
+    public void testGet_disabled() {
+
+        cache = new ReadThroughCache<>("test", 0, TTL_MILLIS, STALE_MILLIS, refreshes::add, now::get);
+
+        AtomicInteger loads = new AtomicInteger();
+        cache.get("key", counting(loads, "a"));
+        cache.get("key", counting(loads, "a"));
+
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateAll() {
+
+        cache.get("key", () -> "a");
+        cache.invalidateAll();
+
+        Assertions.assertEquals(0, cache.size());
+        Assertions.assertEquals("b", cache.get("key", () -> "b"));
+    }
+
+    @Test
+    public void testInvalidateAll_duringLoad() {
+
+        // A value loaded from data that changed while it was loading is returned, but not cached
+        Assertions.assertEquals("a", cache.get("key", () -> {
+            cache.invalidateAll();
+            return "a";
+        }));
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testInvalidateAll_duringRefresh() {
+
+        cache.get("key", () -> "a");
+        now.set(TTL_MILLIS);
+        cache.get("key", () -> "b");
+
+        cache.invalidateAll();
+        refreshes.get(0).run();
+
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testKey() {
+        Assertions.assertEquals(ReadThroughCache.key("a", 1, null), ReadThroughCache.key("a", 1, null));
+        Assertions.assertNotEquals(ReadThroughCache.key("a", 1), ReadThroughCache.key("a", 2));
+    }
+}
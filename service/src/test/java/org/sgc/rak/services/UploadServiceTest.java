@@ -0,0 +1,230 @@
+package org.sgc.rak.services;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.sgc.rak.exceptions.BadRequestException;
+import org.sgc.rak.exceptions.NotFoundException;
+import org.sgc.rak.exceptions.ServiceUnavailableException;
+import org.sgc.rak.i18n.Messages;
+import org.sgc.rak.reps.UploadSessionRep;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+
+public class UploadServiceTest {
+
+    @Mock
+    private Messages mockMessages;
+
+    @TempDir
+    Path uploadDirectory;
+
+    private UploadService service;
+
+    @BeforeEach
+    public void setUp() {
+
+        MockitoAnnotations.openMocks(this);
+        doReturn("error").when(mockMessages).get(anyString(), any());
+
+        MockEnvironment environment = new MockEnvironment();
+        environment.setProperty("rak.upload.directory", uploadDirectory.toString());
+        environment.setProperty("rak.upload.max-sessions", "2");
+        environment.setProperty("rak.upload.max-size-mb", "1");
+        service = new UploadService(environment, mockMessages);
+    }
+
+    private static InputStream toStream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testCompleteSession_happyPath() throws IOException {
+
+        String id = service.createSession(3, 12, null).getId();
+
+        // Chunks may arrive out of order
+        service.writeChunk(id, 1, toStream("b,2\n"));
+        service.writeChunk(id, 0, toStream("a,1\n"));
+        UploadSessionRep rep = service.writeChunk(id, 2, toStream("c,3\n"));
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), rep.getReceivedChunks());
+        Assertions.assertEquals(3, rep.getNextChunk());
+        Assertions.assertEquals(12, rep.getSize());
+
+        Path file = service.completeSession(id, Function.identity());
+        Assertions.assertEquals("a,1\nb,2\nc,3\n", Files.readString(file));
+
+        // The session and its chunks are gone, leaving only the assembled file
+        Assertions.assertThrows(NotFoundException.class, () -> service.getSession(id));
+        Assertions.assertFalse(Files.exists(uploadDirectory.resolve(id)));
+    }
+
+    @Test
+    public void testCompleteSession_consumerFails() throws IOException {
+
+        String id = service.createSession(1, 4, null).getId();
+        service.writeChunk(id, 0, toStream("a,1\n"));
+
+        // E.g. the import job queue is full
+        AtomicReference<Path> assembled = new AtomicReference<>();
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> service.completeSession(id, file -> {
+            assembled.set(file);
+            throw new ServiceUnavailableException("busy");
+        }));
+
+        // The assembled file is gone, but the upload can be completed again without re-sending its chunks
+        Assertions.assertFalse(Files.exists(assembled.get()));
+        Assertions.assertEquals(1, service.getSession(id).getNextChunk());
+        Assertions.assertEquals("a,1\n", Files.readString(service.completeSession(id, Function.identity())));
+        Assertions.assertThrows(NotFoundException.class, () -> service.getSession(id));
+    }
+
+    @Test
+    public void testWriteChunk_resumeAfterMissingChunk() {
+
+        String id = service.createSession(3, 12, null).getId();
+        service.writeChunk(id, 0, toStream("a,1\n"));
+        service.writeChunk(id, 2, toStream("c,3\n"));
+
+        UploadSessionRep rep = service.getSession(id);
+        Assertions.assertEquals(1, rep.getNextChunk());
+        Assertions.assertThrows(BadRequestException.class, () -> service.completeSession(id, Function.identity()));
+
+        // The session is still usable after a failed completion
+        service.writeChunk(id, 1, toStream("b,2\n"));
+        Assertions.assertEquals(3, service.getSession(id).getNextChunk());
+    }
+
+    @Test
+    public void testWriteChunk_replacesChunk() throws IOException {
+
+        String id = service.createSession(1, 4, null).getId();
+        service.writeChunk(id, 0, toStream("a,"));
+        UploadSessionRep rep = service.writeChunk(id, 0, toStream("a,1\n"));
+        Assertions.assertEquals(Collections.singletonList(0), rep.getReceivedChunks());
+        Assertions.assertEquals(4, rep.getSize());
+
+        Assertions.assertEquals("a,1\n", Files.readString(service.completeSession(id, Function.identity())));
+    }
+
+    @Test
+    public void testWriteChunk_largerThanDeclared() {
+
+        String id = service.createSession(2, 4, null).getId();
+        byte[] data = new byte[5];
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.writeChunk(id, 0, new ByteArrayInputStream(data));
+        });
+        Assertions.assertTrue(service.getSession(id).getReceivedChunks().isEmpty());
+    }
+
+    @Test
+    public void testWriteChunk_invalidIndex() {
+        String id = service.createSession(2, 4, null).getId();
+        Assertions.assertThrows(BadRequestException.class, () -> service.writeChunk(id, -1, toStream("a")));
+        Assertions.assertThrows(BadRequestException.class, () -> service.writeChunk(id, 2, toStream("a")));
+    }
+
+    @Test
+    public void testWriteChunk_noSuchSession() {
+        Assertions.assertThrows(NotFoundException.class, () -> service.writeChunk("unknown", 0, toStream("a")));
+    }
+
+    @Test
+    public void testCompleteSession_noChunks() {
+        String id = service.createSession(1, 4, null).getId();
+        Assertions.assertThrows(BadRequestException.class, () -> service.completeSession(id, Function.identity()));
+    }
+
+    @Test
+    public void testCompleteSession_trailingChunksMissing() {
+
+        String id = service.createSession(3, 12, null).getId();
+        service.writeChunk(id, 0, toStream("a,1\n"));
+        service.writeChunk(id, 1, toStream("b,2\n"));
+
+        // The chunks received are contiguous, but aren't the whole file
+        Assertions.assertThrows(BadRequestException.class, () -> service.completeSession(id, Function.identity()));
+
+        service.writeChunk(id, 2, toStream("c,3\n"));
+        Assertions.assertNotNull(service.completeSession(id, Function.identity()));
+    }
+
+    @Test
+    public void testCompleteSession_sizeMismatch() {
+
+        String id = service.createSession(1, 5, null).getId();
+        service.writeChunk(id, 0, toStream("a,1\n"));
+
+        Assertions.assertThrows(BadRequestException.class, () -> service.completeSession(id, Function.identity()));
+
+        // The chunk can be sent again
+        service.writeChunk(id, 0, toStream("a,12\n"));
+        Assertions.assertNotNull(service.completeSession(id, Function.identity()));
+    }
+
+    @Test
+    public void testCompleteSession_checksum() throws IOException {
+
+        // SHA-256 of "a,1\n"; case is ignored
+        String sha256 = "A763C2B572D8BDF96960A1511F6928EC35879EC98363A3E14E3C75CA1CBC8994";
+
+        String id = service.createSession(1, 4, sha256).getId();
+        Assertions.assertEquals(sha256.toLowerCase(Locale.ROOT), service.getSession(id).getSha256());
+        service.writeChunk(id, 0, toStream("a,2\n"));
+        Assertions.assertThrows(BadRequestException.class, () -> service.completeSession(id, Function.identity()));
+
+        // The corrupt chunk can be sent again
+        service.writeChunk(id, 0, toStream("a,1\n"));
+        Assertions.assertEquals("a,1\n", Files.readString(service.completeSession(id, Function.identity())));
+    }
+
+    @Test
+    public void testCreateSession_invalidParams() {
+
+        Assertions.assertThrows(BadRequestException.class, () -> service.createSession(0, 4, null));
+        Assertions.assertThrows(BadRequestException.class, () -> service.createSession(2, 1, null));
+        Assertions.assertThrows(BadRequestException.class, () -> service.createSession(1, 1024 * 1024 + 1, null));
+        Assertions.assertThrows(BadRequestException.class, () -> service.createSession(1, 4, "abc"));
+    }
+
+    @Test
+    public void testCreateSession_tooManySessions() {
+
+        service.createSession(1, 4, null);
+        service.createSession(1, 4, null);
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> service.createSession(1, 4, null));
+    }
+
+    @Test
+    public void testDiscardSession() {
+
+        String id = service.createSession(1, 4, null).getId();
+        service.writeChunk(id, 0, toStream("a,1\n"));
+
+        service.discardSession(id);
+        Assertions.assertFalse(Files.exists(uploadDirectory.resolve(id)));
+        Assertions.assertThrows(NotFoundException.class, () -> service.getSession(id));
+        Assertions.assertThrows(NotFoundException.class, () -> service.discardSession(id));
+    }
+}
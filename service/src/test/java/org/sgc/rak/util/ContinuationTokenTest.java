@@ -0,0 +1,75 @@
+package org.sgc.rak.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+public class ContinuationTokenTest {
+
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testEncodeDecode() {
+
+        ContinuationToken token = new ContinuationToken(40, Arrays.asList(0.25, null, "compound/A?", 123L));
+        String encoded = token.encode();
+        Assertions.assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+
+        ContinuationToken decoded = ContinuationToken.decode(encoded);
+        Assertions.assertEquals(40, decoded.getStart());
+        List<Object> key = decoded.getKey();
+        Assertions.assertEquals(4, key.size());
+        Assertions.assertEquals(0.25, key.get(0));
+        Assertions.assertNull(key.get(1));
+        Assertions.assertEquals("compound/A?", key.get(2));
+        Assertions.assertEquals(123L, ((Number)key.get(3)).longValue());
+    }
+
+    @Test
+    public void testEncodeDecode_date() {
+        ContinuationToken token = new ContinuationToken(0, Arrays.asList(new Date(1234567890123L), 1L));
+        Assertions.assertEquals(1234567890123L, ContinuationToken.decode(token.encode()).getKey().get(0));
+    }
+
+    @Test
+    public void testDecode_notBase64() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode("not a token!"));
+    }
+
+    @Test
+    public void testDecode_notJson() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode("[1, ")));
+    }
+
+    @Test
+    public void testDecode_notAList() {
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            ContinuationToken.decode(encode("{\"start\": 1}")));
+    }
+
+    @Test
+    public void testDecode_noStart() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode("[]")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode("[\"a\"]")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ContinuationToken.decode(encode("[-1, 2]")));
+    }
+
+    @Test
+    public void testDecode_nestedValue() {
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            ContinuationToken.decode(encode("[0, [1, 2]]")));
+    }
+
+    @Test
+    public void testToString() {
+        ContinuationToken token = new ContinuationToken(3, Arrays.asList("compoundA"));
+        Assertions.assertEquals(token.encode(), token.toString());
+    }
+}
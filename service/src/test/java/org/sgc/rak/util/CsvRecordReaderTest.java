@@ -0,0 +1,111 @@
+package org.sgc.rak.util;
+
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class CsvRecordReaderTest {
+
+    private static final CsvSchema SCHEMA = CsvSchema.builder()
+        .addColumn("compoundName", CsvSchema.ColumnType.STRING)
+        .addColumn("discoverxGeneSymbol", CsvSchema.ColumnType.STRING)
+        .addColumn("entrezGeneSymbol", CsvSchema.ColumnType.STRING)
+        .addColumn("percentControl", CsvSchema.ColumnType.NUMBER)
+        .addColumn("compoundConcentration", CsvSchema.ColumnType.NUMBER)
+        .build();
+
+    private static InputStream toStream(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testReadAll_headerRow() throws IOException {
+
+        String csv = "compoundName,discoverxGeneSymbol,entrezGeneSymbol,percentControl,compoundConcentration\n" +
+            "compoundA,discoverxA,entrezA,4,5\n" +
+            "compoundB,discoverxB,entrezB,6,7\n";
+
+        try (CsvRecordReader<ActivityProfileCsvRecord> reader = new CsvRecordReader<>(toStream(csv),
+                ActivityProfileCsvRecord.class, SCHEMA, true)) {
+            List<ActivityProfileCsvRecord> records = reader.readAll();
+            Assertions.assertEquals(2, records.size());
+            Assertions.assertEquals("compoundA", records.get(0).getCompoundName());
+            Assertions.assertEquals(4, records.get(0).getPercentControl(), 0.001);
+            Assertions.assertEquals("compoundB", records.get(1).getCompoundName());
+            Assertions.assertEquals(7, records.get(1).getCompoundConcentration().intValue());
+        }
+    }
+
+    @Test
+    public void testIterator() throws IOException {
+
+        String csv = "compoundA,discoverxA,entrezA,4,5\n" +
+            "compoundB,discoverxB,entrezB,6,7\n";
+
+        try (CsvRecordReader<ActivityProfileCsvRecord> reader = new CsvRecordReader<>(toStream(csv),
+                ActivityProfileCsvRecord.class, SCHEMA, false)) {
+            Iterator<ActivityProfileCsvRecord> iterator = reader.iterator();
+            Assertions.assertTrue(iterator.hasNext());
+            Assertions.assertEquals("compoundA", iterator.next().getCompoundName());
+            Assertions.assertEquals("compoundB", iterator.next().getCompoundName());
+            Assertions.assertFalse(iterator.hasNext());
+            Assertions.assertThrows(NoSuchElementException.class, iterator::next);
+        }
+    }
+
+    @Test
+    public void testIterator_error_missingColumn() throws IOException {
+
+        String csv = "compoundA,discoverxA,4,5\n";
+
+        try (CsvRecordReader<ActivityProfileCsvRecord> reader = new CsvRecordReader<>(toStream(csv),
+                ActivityProfileCsvRecord.class, SCHEMA, false)) {
+            Iterator<ActivityProfileCsvRecord> iterator = reader.iterator();
+            Assertions.assertThrows(UncheckedIOException.class, iterator::next);
+        }
+    }
+
+    @Test
+    public void testReadChunk() throws IOException {
+
+        String csv = "compoundA,discoverxA,entrezA,4,5\n" +
+            "compoundB,discoverxB,entrezB,6,7\n" +
+            "compoundC,discoverxC,entrezC,8,9\n";
+
+        try (CsvRecordReader<ActivityProfileCsvRecord> reader = new CsvRecordReader<>(toStream(csv),
+                ActivityProfileCsvRecord.class, SCHEMA, false)) {
+
+            List<ActivityProfileCsvRecord> chunk = reader.readChunk(2);
+            Assertions.assertEquals(2, chunk.size());
+            Assertions.assertEquals("compoundA", chunk.get(0).getCompoundName());
+            Assertions.assertEquals("compoundB", chunk.get(1).getCompoundName());
+
+            chunk = reader.readChunk(2);
+            Assertions.assertEquals(1, chunk.size());
+            Assertions.assertEquals("compoundC", chunk.get(0).getCompoundName());
+
+            Assertions.assertTrue(reader.readChunk(2).isEmpty());
+        }
+    }
+
+    @Test
+    public void testReadChunk_error_missingColumn() throws IOException {
+
+        String csv = "compoundA,discoverxA,4,5\n";
+
+        try (CsvRecordReader<ActivityProfileCsvRecord> reader = new CsvRecordReader<>(toStream(csv),
+                ActivityProfileCsvRecord.class, SCHEMA, false)) {
+            Assertions.assertThrows(IOException.class, () -> reader.readChunk(2));
+        }
+    }
+}
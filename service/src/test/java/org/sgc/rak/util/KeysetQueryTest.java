@@ -0,0 +1,58 @@
+package org.sgc.rak.util;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.sgc.rak.model.ActivityProfile;
+import org.springframework.data.domain.Sort;
+
+import java.util.Arrays;
+
+public class KeysetQueryTest {
+
+    private static final KeysetQuery<ActivityProfile> KEYSET = new KeysetQuery<>(ActivityProfile.class, "kinase")
+        .orderBy("kd", Sort.Direction.ASC, true, ActivityProfile::getKd)
+        .orderBy("compoundName", Sort.Direction.DESC, false, ActivityProfile::getCompoundName)
+        .orderBy("id", Sort.Direction.ASC, false, ActivityProfile::getId);
+
+    @Test
+    public void testGetFetchedAttributes() {
+        Assertions.assertEquals(Arrays.asList("kinase"), KEYSET.getFetchedAttributes());
+    }
+
+    @Test
+    public void testGetKey() {
+
+        ActivityProfile profile = TestUtil.createActivityProfile(7L, "compoundA", "discoverxA", "entrezA", 0.4, 10);
+        Assertions.assertEquals(Arrays.asList(null, "compoundA", 7L), KEYSET.getKey(profile));
+    }
+
+    @Test
+    public void testGetType() {
+        Assertions.assertEquals(ActivityProfile.class, KEYSET.getType());
+    }
+
+    @Test
+    public void testIsSortedBy() {
+        Assertions.assertTrue(KEYSET.isSortedBy(Sort.by(Sort.Order.asc("kd"), Sort.Order.desc("compoundName"))));
+        Assertions.assertTrue(KEYSET.isSortedBy(Sort.by(Sort.Order.asc("kd"), Sort.Order.desc("compoundName"),
+            Sort.Order.asc("id"))));
+    }
+
+    @Test
+    public void testIsSortedBy_differentSort() {
+        Assertions.assertFalse(KEYSET.isSortedBy(Sort.unsorted()));
+        Assertions.assertFalse(KEYSET.isSortedBy(Sort.by("kd")));
+        Assertions.assertFalse(KEYSET.isSortedBy(Sort.by("kd", "compoundName")));
+        Assertions.assertFalse(KEYSET.isSortedBy(Sort.by(Sort.Order.asc("kd").ignoreCase(),
+            Sort.Order.desc("compoundName"))));
+        Assertions.assertFalse(KEYSET.isSortedBy(Sort.by(Sort.Order.asc("kd"), Sort.Order.desc("compoundName"),
+            Sort.Order.asc("id"), Sort.Order.asc("percentControl"))));
+    }
+
+    @Test
+    public void testOrderBy_nullableDescending() {
+        KeysetQuery<ActivityProfile> keyset = new KeysetQuery<>(ActivityProfile.class);
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            keyset.orderBy("kd", Sort.Direction.DESC, true, ActivityProfile::getKd));
+    }
+}
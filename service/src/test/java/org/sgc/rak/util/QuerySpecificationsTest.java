@@ -21,6 +21,7 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -60,6 +61,34 @@ public class QuerySpecificationsTest {
         return  PageRequest.of(page, size, sort);
     }
 
+    @Test
+    public void testActivityProfilesForCompounds_happyPath_compoundNamesOnly() {
+
+        List<ActivityProfile> actual = apRepository.findAll(activityProfilesForCompounds(
+            Arrays.asList("compoundA", "compoundC", "compoundD"), null, null, null), Sort.by("compoundName"));
+
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertEquals("compoundA", actual.get(0).getCompoundName());
+        Assertions.assertEquals("kinaseA", actual.get(0).getKinase().getDiscoverxGeneSymbol());
+        Assertions.assertEquals("compoundC", actual.get(1).getCompoundName());
+    }
+
+    @Test
+    public void testActivityProfilesForCompounds_happyPath_allParams() {
+
+        List<String> compoundNames = Arrays.asList("compoundA", "compoundB", "compoundC");
+        List<Long> kinaseIds = Arrays.asList(1L, 2L);
+
+        List<ActivityProfile> actual = apRepository.findAll(activityProfilesForCompounds(compoundNames, kinaseIds,
+            0.4, 100.0), Sort.by("compoundName"));
+        Assertions.assertEquals(2, actual.size());
+        Assertions.assertEquals("compoundA", actual.get(0).getCompoundName());
+        Assertions.assertEquals("compoundB", actual.get(1).getCompoundName());
+
+        actual = apRepository.findAll(activityProfilesForCompounds(compoundNames, kinaseIds, 0.4, 99.0));
+        Assertions.assertTrue(actual.isEmpty());
+    }
+
     @Test
     public void testActivityProfilesMatching_happyPath_allNullParams() {
 
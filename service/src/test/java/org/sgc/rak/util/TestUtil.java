@@ -1,10 +1,13 @@
 package org.sgc.rak.util;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.sgc.rak.model.*;
 import org.sgc.rak.model.csv.ActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.KdCsvRecord;
 import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
+import org.sgc.rak.services.ReadCaches;
+import org.springframework.mock.env.MockEnvironment;
 
 import java.util.Date;
 import java.util.List;
@@ -200,6 +203,13 @@ public final class TestUtil {
         return rep;
     }
 
+    /**
+     * Returns caches for services under test, with the default limits and metrics kept in memory.
+     */
+    public static ReadCaches createReadCaches() {
+        return new ReadCaches(new MockEnvironment(), new SimpleMeterRegistry());
+    }
+
     public static Partner createPartner(long id, String name, String url) {
         Partner partner = new Partner();
         partner.setId(id);
@@ -9,10 +9,32 @@ import org.sgc.rak.model.csv.NanoBretActivityProfileCsvRecord;
 import org.sgc.rak.model.csv.SScoreCsvRecord;
 import org.sgc.rak.reps.ObjectImportRep;
 
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 public class UtilTest {
 
+    @Test
+    public void testAddRecordCounts() {
+
+        ObjectImportRep total = new ObjectImportRep();
+        total.setNewCount(1);
+        total.setModifiedCount(2);
+        total.setUnchangedCount(3);
+
+        ObjectImportRep result = new ObjectImportRep();
+        result.setNewCount(4);
+        result.setModifiedCount(5);
+        result.setUnchangedCount(6);
+
+        Util.addRecordCounts(total, result);
+        Assertions.assertEquals(5, total.getNewCount());
+        Assertions.assertEquals(7, total.getModifiedCount());
+        Assertions.assertEquals(9, total.getUnchangedCount());
+    }
+
     @Test
     public void testConvertEmptyStringsToNulls_activityProfile() {
 
@@ -81,12 +103,45 @@ public class UtilTest {
         Assertions.assertEquals("54\\% \\_", Util.escapeForLike("54% _"));
     }
 
+    @Test
+    public void testIsNewRecord() {
+        Assertions.assertTrue(Util.isNewRecord(Arrays.asList(
+            Util.createFieldStatus("a", "foo", null), Util.createFieldStatus("b", null, null))));
+        Assertions.assertFalse(Util.isNewRecord(Arrays.asList(
+            Util.createFieldStatus("a", "foo", null), Util.createFieldStatus("b", 1, 1))));
+    }
+
+    @Test
+    public void testIsUnchangedRecord() {
+        Assertions.assertTrue(Util.isUnchangedRecord(Arrays.asList(
+            Util.createFieldStatus("a", "foo", "foo"), Util.createFieldStatus("b", 0.4, 0.4))));
+        Assertions.assertFalse(Util.isUnchangedRecord(Arrays.asList(
+            Util.createFieldStatus("a", "foo", "foo"), Util.createFieldStatus("b", 0.4, 0.5))));
+    }
+
     @Test
     public void testNanoBretCsvDateToRealDate_happyPath() throws Exception {
         Date date = Util.createNanoBretDataDateFormat().parse("81_02_06");
         Assertions.assertEquals(date, Util.nanoBretCsvDateToRealDate("1981_02_06"));
     }
 
+    @Test
+    public void testPartition() {
+        List<List<Integer>> partitions = Util.partition(Arrays.asList(1, 2, 3, 4, 5), 2);
+        Assertions.assertEquals(Arrays.asList(Arrays.asList(1, 2), Arrays.asList(3, 4),
+            Collections.singletonList(5)), partitions);
+    }
+
+    @Test
+    public void testPartition_empty() {
+        Assertions.assertTrue(Util.partition(Collections.emptyList(), 2).isEmpty());
+    }
+
+    @Test
+    public void testPartition_invalidSize() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Util.partition(Arrays.asList(1, 2), 0));
+    }
+
     @Test
     public void testPatchActivityProfile_activityProfileCsvRecord_nonNullValuesOverwritePriorValues() {
 
@@ -384,4 +439,21 @@ public class UtilTest {
         Assertions.assertEquals(rep.getCompoundName(), compound.getCompoundName());
         Assertions.assertEquals(rep.getSelectivityScore(), compound.getS10());
     }
+
+    @Test
+    public void testUpdateRecordCounts() {
+
+        ObjectImportRep importRep = new ObjectImportRep();
+        importRep.setFieldStatuses(Arrays.asList(
+            Collections.singletonList(Util.createFieldStatus("a", "foo", null)),
+            Collections.singletonList(Util.createFieldStatus("a", "foo", null)),
+            Collections.singletonList(Util.createFieldStatus("a", "foo", "bar")),
+            Collections.singletonList(Util.createFieldStatus("a", "foo", "foo"))
+        ));
+
+        Util.updateRecordCounts(importRep);
+        Assertions.assertEquals(2, importRep.getNewCount());
+        Assertions.assertEquals(1, importRep.getModifiedCount());
+        Assertions.assertEquals(1, importRep.getUnchangedCount());
+    }
 }
@@ -67,6 +67,7 @@ CREATE INDEX kinase_activity_profile_compound_nm_idx ON :schema.kinase_activity_
 CREATE INDEX kinase_activity_profile_compound_nm_lower_idx ON :schema.kinase_activity_profile (lower(compound_nm));
 CREATE INDEX kinase_activity_profile_kinase_idx on :schema.kinase_activity_profile (kinase);
 CREATE INDEX kinase_activity_profile_percent_control_idx on :schema.kinase_activity_profile (percent_control);
+CREATE INDEX kinase_activity_profile_kd_percent_control_id_idx on :schema.kinase_activity_profile (kd, percent_control, id);
 
 
 DROP TABLE IF EXISTS :schema.nanobret_activity_profile CASCADE;
@@ -153,5 +154,5 @@ WITH ( OIDS = FALSE );
 
 CREATE INDEX audit_user_nm_idx ON :schema.audit (user_nm);
 CREATE INDEX audit_action_idx ON :schema.audit (action);
-CREATE INDEX audit_create_dttm_idx ON :schema.audit (create_dttm);
+CREATE INDEX audit_create_dttm_id_idx ON :schema.audit (create_dttm, id);
 CREATE INDEX success ON :schema.audit (success);